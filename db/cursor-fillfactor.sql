@@ -0,0 +1,11 @@
+-- Storage setting for the scan cursor tables, run once by hand on a new or existing database:
+--
+--   psql -U wallet_admin -d wallet_db -f db/cursor-fillfactor.sql
+--
+-- Every cursor flush updates rows of scan_cursors and block_cursors in place. Leaving 30% of
+-- each page free lets Postgres keep those updates on the same page (HOT updates), so the
+-- tables and their indexes do not bloat. Only pages written afterwards use the new setting;
+-- run VACUUM FULL on the tables to rewrite existing pages.
+
+ALTER TABLE scan_cursors SET (fillfactor = 70);
+ALTER TABLE block_cursors SET (fillfactor = 70);
@@ -0,0 +1,20 @@
+-- One-off migration for databases created before transactions were keyed by
+-- (network, transaction_hash, type). Run once, before starting the new version:
+--
+--   psql -U wallet_admin -d wallet_db -f db/migrate-deposit-keys.sql
+--
+-- Rows written before transactions recorded their network take it from their wallet,
+-- and the old (network, transaction_hash) key is dropped: a withdrawal between two
+-- platform wallets shares its hash with the deposit it produces.
+
+BEGIN;
+
+UPDATE transactions t
+SET network = w.network
+FROM wallets w
+WHERE t.wallet_id = w.id
+  AND t.network IS NULL;
+
+ALTER TABLE transactions DROP CONSTRAINT IF EXISTS uk_transaction_network_hash;
+
+COMMIT;
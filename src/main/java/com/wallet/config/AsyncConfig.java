@@ -1,5 +1,6 @@
 package com.wallet.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -21,4 +22,19 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Threads that broadcast withdrawals. They hold no DB connection while waiting on the
+     * node, so the size follows RPC capacity rather than the connection pool.
+     */
+    @Bean(name = "withdrawalExecutor")
+    public Executor withdrawalExecutor(@Value("${app.withdrawal.broadcast-threads:16}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 10);
+        executor.setThreadNamePrefix("withdrawal-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,23 @@
+package com.wallet.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-memory cache of chain reads. Data that can no longer change (finalized transactions,
+ * receipts and blocks) is kept in an LRU of at most {@code immutableMaxEntries} entries and
+ * {@code immutableMaxBytes} of estimated size; data that moves with the chain is kept for the
+ * given TTLs only.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.blockchain.cache")
+@Data
+public class ChainCacheConfig {
+    private int immutableMaxEntries = 20000;
+    private long immutableMaxBytes = 256L * 1024 * 1024;
+    private int mutableMaxEntries = 20000;
+    private long headTtl = 500;
+    private long balanceTtl = 5000;
+    private long pendingTtl = 2000;
+}
@@ -0,0 +1,34 @@
+package com.wallet.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ethereum node access and transaction defaults. {@code rpcUrl} is the primary provider and
+ * {@code rpcUrls} extra ones for failover and hedging. Single calls wait up to
+ * {@code batchLingerMs} to share a JSON-RPC batch of at most {@code batchSize}. Until the first
+ * fee quote is read, transactions are legacy ones at {@code gasPrice} (wei); fee quotes cover
+ * {@code feeHistoryBlocks} blocks, are read again once older than {@code feeQuoteMaxAge} ms,
+ * and quote tips of at least {@code minPriorityFee} (wei).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.blockchain.ethereum")
+@Data
+public class EthereumConfig {
+    private String rpcUrl;
+    private List<String> rpcUrls = new ArrayList<>();
+    private long chainId;
+    private int batchSize = 50;
+    private long batchLingerMs = 5;
+    private int scanLookbackBlocks = 256;
+    private long gasLimit = 21000;
+    private long gasPrice = 20_000_000_000L;
+    private int feeHistoryBlocks = 20;
+    private long feeQuoteMaxAge = 60000;
+    private BigInteger minPriorityFee = BigInteger.valueOf(100_000_000L);
+}
@@ -0,0 +1,61 @@
+package com.wallet.config;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request quotas of RPC providers, enforced with a token bucket per network endpoint. A call
+ * waits up to {@code maxWait} milliseconds for a token before it is reported as throttled;
+ * after a 429 the endpoint is paused for {@code throttleBackoff} milliseconds. Networks and
+ * endpoints without a quota are not limited.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.blockchain.rate-limit")
+@Data
+public class RateLimitConfig {
+    private long maxWait = 2000;
+    private long throttleBackoff = 1000;
+    private Map<BlockchainNetwork, NetworkQuota> networks = new HashMap<>();
+
+    @Data
+    public static class Quota {
+        private double requestsPerSecond;
+        private int burst;
+    }
+
+    /**
+     * Default quota for the network's endpoints, overridable per endpoint URL.
+     */
+    @Data
+    public static class NetworkQuota extends Quota {
+        private List<EndpointQuota> endpoints = new ArrayList<>();
+    }
+
+    @Data
+    public static class EndpointQuota extends Quota {
+        private String url;
+    }
+
+    /**
+     * Quota for {@code endpoint} of {@code network}, or {@code null} if it is unlimited.
+     */
+    public Quota getQuota(BlockchainNetwork network, String endpoint) {
+        NetworkQuota quota = networks.get(network);
+        if (quota == null) {
+            return null;
+        }
+        for (EndpointQuota endpointQuota : quota.getEndpoints()) {
+            if (endpoint.equals(endpointQuota.getUrl())) {
+                return endpointQuota.getRequestsPerSecond() > 0 ? endpointQuota : null;
+            }
+        }
+        return quota.getRequestsPerSecond() > 0 ? quota : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.wallet.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Endpoint selection for networks with several RPC providers. Each endpoint keeps its last
+ * {@code latencyWindow} calls; reads still running after the primary's p95 (clamped to
+ * {@code hedgeDelayMin..hedgeDelayMax}) are repeated on the next endpoint. An endpoint whose
+ * error rate reaches {@code maxErrorRate} is used only as a last resort for
+ * {@code unhealthyCooldown} milliseconds.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.blockchain.rpc-pool")
+@Data
+public class RpcPoolConfig {
+    private int latencyWindow = 100;
+    private int minSamples = 10;
+    private boolean hedgingEnabled = true;
+    private long hedgeDelayMin = 50;
+    private long hedgeDelayMax = 500;
+    private double maxErrorRate = 0.5;
+    private long unhealthyCooldown = 30000;
+}
@@ -0,0 +1,83 @@
+package com.wallet.config;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.scanner")
+@Data
+public class ScanEngineConfig {
+    private int concurrency = 4;
+    private int queueCapacity = 500;
+    private int maxBlocksPerCycle = 100;
+    private long addressIndexRefresh = 300000;
+    private int recentHashCacheSize = 100000;
+    private int precheckBatchSize = 100;
+    private int reorgWindow = 128;
+    /** How often each network's pending deposits are reloaded into the confirmation queue. */
+    private long pendingReloadInterval = 60000;
+    /** Blocks behind the head a block scan starts at when its network has no cursor yet. */
+    private int blockLookback = 256;
+    private Map<BlockchainNetwork, ShardConfig> networks = new HashMap<>();
+    private Sharding sharding = new Sharding();
+
+    public enum ScanMode {
+        /** Query the node once per wallet. */
+        WALLET,
+        /** Follow the chain head and read each block once. */
+        BLOCK
+    }
+
+    @Data
+    public static class ShardConfig {
+        private Integer concurrency;
+        private Integer queueCapacity;
+        private ScanMode mode = ScanMode.WALLET;
+        /** First block a block scan reads when the network has no cursor; overrides {@code blockLookback}. */
+        private Long startHeight;
+    }
+
+    /**
+     * Splitting scan and withdrawal work between app instances. Each node leases a fair
+     * share of {@code shardCount} shards and renews the leases on every heartbeat.
+     */
+    @Data
+    public static class Sharding {
+        private boolean enabled = false;
+        private int shardCount = 64;
+        private long leaseDuration = 30000;
+        private long heartbeatInterval = 10000;
+    }
+
+    public int getConcurrency(BlockchainNetwork network) {
+        ShardConfig shard = networks.get(network);
+        return shard != null && shard.getConcurrency() != null ? shard.getConcurrency() : concurrency;
+    }
+
+    public ScanMode getMode(BlockchainNetwork network) {
+        ShardConfig shard = networks.get(network);
+        return shard != null && shard.getMode() != null ? shard.getMode() : ScanMode.WALLET;
+    }
+
+    /**
+     * Block a block scan without a cursor starts at: the configured start height, else
+     * {@code blockLookback} blocks behind {@code head}.
+     */
+    public long getStartHeight(BlockchainNetwork network, long head) {
+        ShardConfig shard = networks.get(network);
+        if (shard != null && shard.getStartHeight() != null) {
+            return shard.getStartHeight();
+        }
+        return Math.max(0, head - blockLookback + 1);
+    }
+
+    public int getQueueCapacity(BlockchainNetwork network) {
+        ShardConfig shard = networks.get(network);
+        return shard != null && shard.getQueueCapacity() != null ? shard.getQueueCapacity() : queueCapacity;
+    }
+}
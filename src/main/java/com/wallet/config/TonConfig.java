@@ -3,7 +3,6 @@ package com.wallet.config;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.ton.ton4j.tonlib.Tonlib;
 
@@ -20,42 +19,104 @@ public class TonConfig {
     private ScannerConfig scanner;
     private WalletConfig wallet;
     private Boolean isTestnet;
+    private TonlibPoolConfig pool = new TonlibPoolConfig();
+    private PayoutConfig payout = new PayoutConfig();
 
     @Data
     public static class ScannerConfig {
         private boolean enabled;
-        private long interval;
+        private TierPolicy tiers = new TierPolicy();
         private int confirmationBlocks;
     }
 
+    /**
+     * Scan interval per activity tier. A wallet is hot while it had activity within
+     * {@code hotWindow} (or has an open withdrawal / deposit hint), warm within
+     * {@code warmWindow}, and cold otherwise.
+     */
+    @Data
+    public static class TierPolicy {
+        private long hotInterval = 5000;
+        private long warmInterval = 60000;
+        private long coldInterval = 3600000;
+        private long hotWindow = 1800000;
+        private long warmWindow = 604800000;
+    }
+
+    /**
+     * Pool of Tonlib clients. With {@code globalConfigPath} set, its liteservers are probed every
+     * {@code probeInterval} and each client is pinned to one of the best-ranked ones; a server
+     * that misses {@code probeTimeout} or is more than {@code maxSeqnoLag} masterchain blocks
+     * behind is demoted. A client is recreated after {@code maxFailures} consecutive failed
+     * calls or a failed health check.
+     */
+    @Data
+    public static class TonlibPoolConfig {
+        private int size = 4;
+        private String globalConfigPath;
+        private long borrowTimeout = 5000;
+        private int maxFailures = 3;
+        private long healthCheckInterval = 30000;
+        private long probeInterval = 60000;
+        private long probeTimeout = 3000;
+        private long maxSeqnoLag = 5;
+    }
+
+    /**
+     * Batched withdrawals from a highload (v3) hot wallet. {@code messageTimeout} (seconds)
+     * must match the timeout the wallet was deployed with: a batch not seen on chain within it
+     * can no longer land, so its withdrawals are released to the next batch. A withdrawal
+     * whose batch the chain rejected is sent in a batch of its own from then on, and fails and
+     * is refunded once rejected {@code maxRejections} times.
+     */
+    @Data
+    public static class PayoutConfig {
+        private boolean enabled = false;
+        private String secretKey;
+        private long walletId = 42;
+        private int batchSize = 100;
+        private long interval = 10000;
+        private long messageTimeout = 3600;
+        private int maxRejections = 3;
+    }
+
     @Data
     public static class WalletConfig {
         private int workchain;
         private String version;
     }
 
-    @Bean(destroyMethod = "destroy")
-    public Tonlib tonlib() {
+    /**
+     * New Tonlib client bound to liteserver {@code liteServerIndex} of the pool's global
+     * config, or free to pick one itself when the index is negative.
+     */
+    public Tonlib createTonlib(int liteServerIndex) {
         try {
-            log.info("Creating Tonlib bean...");
+            log.info("Creating Tonlib client (liteserver {})...", liteServerIndex);
 
 //            String path = detectNativeLibraryPath();
 //            log.info("Using native library at: {}", libPath);
             String path = "/app/tonlibjson-linux-arm64.so";
             log.info("path " + path);
 
-            Tonlib tonlib = Tonlib.builder()
+            Tonlib.TonlibBuilder builder = Tonlib.builder()
                     .pathToTonlibSharedLib(path)
 //                    .pathToTonlibSharedLib("https://github.com/ton-blockchain/ton4j")
                     .testnet(true)
-                    .ignoreCache(false)
-                    .build();
+                    .ignoreCache(false);
+            if (pool.getGlobalConfigPath() != null && !pool.getGlobalConfigPath().isBlank()) {
+                builder.pathToGlobalConfig(pool.getGlobalConfigPath());
+            }
+            if (liteServerIndex >= 0) {
+                builder.liteServerIndex(liteServerIndex);
+            }
+            Tonlib tonlib = builder.build();
 
-            log.info("Tonlib bean created successfully");
+            log.info("Tonlib client created successfully");
             return tonlib;
 
         } catch (Exception e) {
-            log.error("Failed to create Tonlib bean: {}", e.getMessage());
+            log.error("Failed to create Tonlib client: {}", e.getMessage());
             throw new RuntimeException("Failed to initialize TON library", e);
         }
     }
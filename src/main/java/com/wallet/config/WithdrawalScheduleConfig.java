@@ -0,0 +1,26 @@
+package com.wallet.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigInteger;
+
+/**
+ * Approved withdrawals are only sent automatically when {@code enabled}; otherwise nothing
+ * releases them on a schedule. When economy withdrawals are released: once the next block's base fee is at or below
+ * {@code economyMaxBaseFee} (wei), up to {@code economyBatchSize} per run, oldest first; and
+ * regardless of fees once they have waited {@code economyMaxWait} ms since approval.
+ * Withdrawals still PROCESSING {@code processingTimeout} ms after being claimed are recovered
+ * by the {@code WithdrawalBroadcaster}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.withdrawal.schedule")
+@Data
+public class WithdrawalScheduleConfig {
+    private boolean enabled = false;
+    private BigInteger economyMaxBaseFee = BigInteger.valueOf(10_000_000_000L);
+    private long economyMaxWait = 3600000;
+    private int economyBatchSize = 20;
+    private long processingTimeout = 900000;
+}
@@ -0,0 +1,29 @@
+package com.wallet.controller;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.blockchain.FeeOracle;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/public/fees")
+@RequiredArgsConstructor
+public class FeeController {
+
+    private final FeeOracle feeOracle;
+
+    /**
+     * Current fee quote, served from memory; refreshed once per block.
+     */
+    @GetMapping("/{network}")
+    public ResponseEntity<?> getFees(@PathVariable BlockchainNetwork network) {
+        return feeOracle.getQuote(network)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "No fee estimate available for " + network)));
+    }
+}
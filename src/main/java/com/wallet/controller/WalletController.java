@@ -3,7 +3,9 @@ package com.wallet.controller;
 import com.wallet.dto.WalletCreationDto;
 import com.wallet.dto.WalletResponseDto;
 import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.ScanTier;
 import com.wallet.service.WalletService;
+import com.wallet.service.scanner.ScanTierPolicy;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -20,6 +22,7 @@ import java.util.Map;
 public class WalletController {
 
     private final WalletService walletService;
+    private final ScanTierPolicy scanTierPolicy;
 
     @PostMapping("/create")
     public ResponseEntity<?> createWallet(@Valid @RequestBody WalletCreationDto walletDto) {
@@ -56,6 +59,9 @@ public class WalletController {
             WalletResponseDto walletDto = walletService.getWalletByNetwork(network);
             Map<String, String> response = new HashMap<>();
             response.put("address", walletDto.getAddress());
+            // Showing the address means a deposit is likely soon: scan this wallet at the hot tier
+            response.put("scanTier", ScanTier.HOT.name());
+            response.put("fastScanUntil", scanTierPolicy.expectDeposit(walletDto.getId()).toString());
 
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
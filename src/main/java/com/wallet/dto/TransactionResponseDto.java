@@ -2,6 +2,7 @@ package com.wallet.dto;
 
 import com.wallet.model.enums.TransactionStatus;
 import com.wallet.model.enums.TransactionType;
+import com.wallet.model.enums.WithdrawalPriority;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -28,6 +29,8 @@ public class TransactionResponseDto {
     private Long blockNumber;
     private Integer confirmations;
     private String memo;
+    private WithdrawalPriority priority;
     private LocalDateTime createdAt;
+    private LocalDateTime approvedAt;
     private LocalDateTime confirmedAt;
 }
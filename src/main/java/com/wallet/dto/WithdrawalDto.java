@@ -1,6 +1,7 @@
 package com.wallet.dto;
 
 import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.WithdrawalPriority;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -28,4 +29,7 @@ public class WithdrawalDto {
     private BigDecimal amount;
 
     private String memo;
+
+    /** Defaults to {@link WithdrawalPriority#URGENT}. */
+    private WithdrawalPriority priority;
 }
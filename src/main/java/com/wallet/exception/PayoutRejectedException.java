@@ -0,0 +1,12 @@
+package com.wallet.exception;
+
+/**
+ * The chain refused a payout message outright, so none of its transfers can have been made.
+ * Unlike a timeout or a dropped connection, its withdrawals can be paid again at once.
+ */
+public class PayoutRejectedException extends RuntimeException {
+
+    public PayoutRejectedException(String message) {
+        super(message);
+    }
+}
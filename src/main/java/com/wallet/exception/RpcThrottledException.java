@@ -0,0 +1,41 @@
+package com.wallet.exception;
+
+/**
+ * A chain RPC call was not made because every provider of the network is out of quota (or
+ * answered 429). Callers should back off and retry later rather than treat it as "no data".
+ */
+public class RpcThrottledException extends RuntimeException {
+
+    private final String network;
+    private final long retryAfterMillis;
+
+    public RpcThrottledException(String network, String message, long retryAfterMillis) {
+        super(message);
+        this.network = network;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getNetwork() {
+        return network;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Whether {@code error} is, or was caused by, throttling. Blockchain services wrap their
+     * failures, so the throttle may sit anywhere in the cause chain.
+     */
+    public static boolean isCauseOf(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RpcThrottledException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.wallet.model;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last block read by block-driven scanning for a network.
+ */
+@Entity
+@Table(name = "block_cursors")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BlockCursor {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 50)
+    private BlockchainNetwork network;
+
+    @Column(nullable = false)
+    private Long height;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
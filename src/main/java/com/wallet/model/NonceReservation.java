@@ -0,0 +1,63 @@
+package com.wallet.model;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One nonce of a sending address that is not final on chain yet. The unique key makes the
+ * insert the allocation: two nodes cannot hold the same nonce. The signed transaction is
+ * stored before it is broadcast so it can be re-sent if the mempool drops it. Rows below the
+ * sender's confirmed nonce are pruned; those made for a withdrawal are kept a day longer so
+ * the withdrawal can still be matched to its transaction.
+ */
+@Entity
+@Table(name = "nonce_reservations", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_nonce_sender_nonce", columnNames = {"network", "sender", "nonce"}),
+    @UniqueConstraint(name = "uk_nonce_reference", columnNames = {"reference"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NonceReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private BlockchainNetwork network;
+
+    /** Lower-case sending address. */
+    @Column(nullable = false, length = 100)
+    private String sender;
+
+    @Column(nullable = false)
+    private Long nonce;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NonceStatus status;
+
+    @Column(name = "transaction_hash", length = 100)
+    private String transactionHash;
+
+    /** Withdrawal the nonce was reserved for, if any; at most one open reservation each. */
+    @Column(name = "reference")
+    private UUID reference;
+
+    @Column(name = "raw_transaction", columnDefinition = "TEXT")
+    private String rawTransaction;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,59 @@
+package com.wallet.model;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.PayoutBatchStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One external message from the payout hot wallet carrying several withdrawals. The query id
+ * keeps the message from being replayed; the wallet's lt at send time is where the search
+ * for its transaction starts. Withdrawals point back here through {@code payout_batch_id}.
+ */
+@Entity
+@Table(name = "payout_batches", indexes = {
+    @Index(name = "idx_payout_batch_network_status", columnList = "network, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayoutBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private BlockchainNetwork network;
+
+    @Column(name = "query_id", nullable = false)
+    private Long queryId;
+
+    /** Unix seconds signed into the message; with the wallet timeout it bounds validity. */
+    @Column(name = "created_at", nullable = false)
+    private Long createdAt;
+
+    @Column(name = "wallet_lt", nullable = false)
+    private Long walletLt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PayoutBatchStatus status;
+
+    @Column(nullable = false)
+    private Integer size;
+
+    @Column(name = "confirmed_at")
+    private LocalDateTime confirmedAt;
+}
@@ -0,0 +1,43 @@
+package com.wallet.model;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Per-wallet scanner checkpoint. Kept out of {@link Wallet} so progress writes touch a narrow
+ * row with no indexed columns changing, which Postgres can update in place (HOT).
+ */
+@Entity
+@Table(name = "scan_cursors", indexes = {
+    @Index(name = "idx_scan_cursor_network", columnList = "network")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScanCursor {
+
+    @Id
+    @Column(name = "wallet_id")
+    private UUID walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private BlockchainNetwork network;
+
+    @Column(name = "last_lt", nullable = false)
+    private Long lastLt;
+
+    @Column(name = "last_hash", length = 128)
+    private String lastHash;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
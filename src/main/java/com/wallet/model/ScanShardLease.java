@@ -0,0 +1,32 @@
+package com.wallet.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one scanner shard. A shard belongs to {@code owner} until {@code leasedUntil};
+ * expired or ownerless shards can be claimed by any node.
+ */
+@Entity
+@Table(name = "scan_shard_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScanShardLease {
+
+    @Id
+    @Column(name = "shard_id")
+    private Integer shardId;
+
+    @Column(length = 100)
+    private String owner;
+
+    @Column(name = "leased_until")
+    private LocalDateTime leasedUntil;
+}
@@ -0,0 +1,28 @@
+package com.wallet.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Heartbeat of a running app instance, used to size each node's share of scanner shards.
+ */
+@Entity
+@Table(name = "scanner_nodes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScannerNode {
+
+    @Id
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -1,7 +1,9 @@
 package com.wallet.model;
 
+import com.wallet.model.enums.BlockchainNetwork;
 import com.wallet.model.enums.TransactionStatus;
 import com.wallet.model.enums.TransactionType;
+import com.wallet.model.enums.WithdrawalPriority;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -15,7 +17,10 @@ import java.util.UUID;
 @Table(name = "transactions", indexes = {
     @Index(name = "idx_transaction_hash", columnList = "transaction_hash"),
     @Index(name = "idx_transaction_wallet", columnList = "wallet_id"),
-    @Index(name = "idx_transaction_status", columnList = "status")
+    @Index(name = "idx_transaction_status", columnList = "status"),
+    @Index(name = "idx_transaction_network_block", columnList = "network, block_number")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_transaction_network_hash_type", columnNames = {"network", "transaction_hash", "type"})
 })
 @Data
 @NoArgsConstructor
@@ -36,6 +41,10 @@ public class Transaction {
     @JoinColumn(name = "wallet_id", nullable = false)
     private Wallet wallet;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 50)
+    private BlockchainNetwork network;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     private TransactionType type;
@@ -63,6 +72,9 @@ public class Transaction {
     @Column(name = "block_number")
     private Long blockNumber;
 
+    @Column(name = "block_hash", length = 100)
+    private String blockHash;
+
     @Column(name = "confirmations")
     @Builder.Default
     private Integer confirmations = 0;
@@ -73,6 +85,24 @@ public class Transaction {
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
+    /** Payout batch that carries this withdrawal, for networks that pay out in batches. */
+    @Column(name = "payout_batch_id")
+    private UUID payoutBatchId;
+
+    /** Times the chain rejected a payout batch carrying this withdrawal; {@code null} on older rows means none. */
+    @Column(name = "payout_rejections")
+    @Builder.Default
+    private Integer payoutRejections = 0;
+
+    /** How soon a withdrawal is sent; {@code null} on rows from before priorities means urgent. */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    @Builder.Default
+    private WithdrawalPriority priority = WithdrawalPriority.URGENT;
+
+    @Column(name = "approved_at")
+    private LocalDateTime approvedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -61,12 +61,19 @@ public class Wallet {
     @Builder.Default
     private Set<Transaction> transactions = new HashSet<>();
 
+    // Legacy scan position, only read as the starting point for wallets without a ScanCursor
     @Column(name = "last_scanned_lt", nullable = false)
+    @Builder.Default
     private Long lastScannedLt = 0L;
 
     @Column(name = "last_scanned_hash", nullable = false)
+    @Builder.Default
     private String lastScannedHash = "";
 
+    // Scanned at the hot tier until then: a deposit was hinted, e.g. the address was just shown
+    @Column(name = "hot_until")
+    private LocalDateTime hotUntil;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
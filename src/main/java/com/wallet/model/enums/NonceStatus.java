@@ -0,0 +1,7 @@
+package com.wallet.model.enums;
+
+public enum NonceStatus {
+    RESERVED,   // Handed to a sender, transaction not signed yet
+    SENT,       // Signed transaction stored and broadcast (or about to be)
+    RELEASED    // Never broadcast; the next transaction of the sender reuses the nonce
+}
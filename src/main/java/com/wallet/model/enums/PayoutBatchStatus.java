@@ -0,0 +1,7 @@
+package com.wallet.model.enums;
+
+public enum PayoutBatchStatus {
+    SENT,       // External message sent, waiting for its wallet transaction
+    CONFIRMED,  // Every payout in the batch was found on chain
+    EXPIRED     // Not seen before the message expired; unpaid rows were released for retry
+}
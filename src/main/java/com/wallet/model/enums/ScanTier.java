@@ -0,0 +1,7 @@
+package com.wallet.model.enums;
+
+public enum ScanTier {
+    HOT,
+    WARM,
+    COLD
+}
@@ -0,0 +1,8 @@
+package com.wallet.model.enums;
+
+public enum WithdrawalPriority {
+    /** Sent as soon as it is approved. */
+    URGENT,
+    /** May wait for a lower base fee, up to the configured maximum wait. */
+    ECONOMY
+}
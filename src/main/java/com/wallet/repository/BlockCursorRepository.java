@@ -0,0 +1,10 @@
+package com.wallet.repository;
+
+import com.wallet.model.BlockCursor;
+import com.wallet.model.enums.BlockchainNetwork;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BlockCursorRepository extends JpaRepository<BlockCursor, BlockchainNetwork> {
+}
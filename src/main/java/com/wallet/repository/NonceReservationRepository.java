@@ -0,0 +1,89 @@
+package com.wallet.repository;
+
+import com.wallet.model.NonceReservation;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface NonceReservationRepository extends JpaRepository<NonceReservation, UUID> {
+
+    List<NonceReservation> findByNetworkAndSender(BlockchainNetwork network, String sender);
+
+    Optional<NonceReservation> findByReference(UUID reference);
+
+    @Query("SELECT DISTINCT r.sender FROM NonceReservation r WHERE r.network = :network")
+    List<String> findSenders(@Param("network") BlockchainNetwork network);
+
+    /**
+     * Move a reservation from {@code from} to {@code to} only if it is still in {@code from}.
+     *
+     * @return 1 if this caller made the transition, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE NonceReservation r SET r.status = :to, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status = :from")
+    int transitionStatus(@Param("id") UUID id,
+                         @Param("from") NonceStatus from,
+                         @Param("to") NonceStatus to);
+
+    /**
+     * Take a released nonce again, for {@code reference}.
+     *
+     * @return 1 if the reservation was still RELEASED, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE NonceReservation r SET r.status = com.wallet.model.enums.NonceStatus.RESERVED, " +
+           "r.reference = :reference, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status = com.wallet.model.enums.NonceStatus.RELEASED")
+    int reuse(@Param("id") UUID id, @Param("reference") UUID reference);
+
+    /**
+     * Attach the signed transaction to a reservation that is still held.
+     *
+     * @return 1 if the reservation was still RESERVED, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE NonceReservation r SET r.status = com.wallet.model.enums.NonceStatus.SENT, " +
+           "r.transactionHash = :hash, r.rawTransaction = :raw, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status = com.wallet.model.enums.NonceStatus.RESERVED")
+    int markSent(@Param("id") UUID id, @Param("hash") String transactionHash, @Param("raw") String rawTransaction);
+
+    /**
+     * Give a nonce back; its signed transaction, if any, is dropped so it is never re-sent.
+     *
+     * @return 1 if this caller released it, 0 if it already was
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE NonceReservation r SET r.status = com.wallet.model.enums.NonceStatus.RELEASED, " +
+           "r.transactionHash = NULL, r.rawTransaction = NULL, r.reference = NULL, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status <> com.wallet.model.enums.NonceStatus.RELEASED")
+    int release(@Param("id") UUID id);
+
+    /**
+     * Forget nonces the chain has already consumed; those made for a withdrawal only once
+     * they were last updated before {@code keepReferencedAfter}.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NonceReservation r WHERE r.network = :network AND r.sender = :sender AND r.nonce < :nonce " +
+           "AND (r.reference IS NULL OR r.updatedAt < :keepReferencedAfter)")
+    int deleteBelow(@Param("network") BlockchainNetwork network,
+                    @Param("sender") String sender,
+                    @Param("nonce") long nonce,
+                    @Param("keepReferencedAfter") LocalDateTime keepReferencedAfter);
+}
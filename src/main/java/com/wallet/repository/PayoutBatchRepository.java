@@ -0,0 +1,19 @@
+package com.wallet.repository;
+
+import com.wallet.model.PayoutBatch;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.PayoutBatchStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface PayoutBatchRepository extends JpaRepository<PayoutBatch, UUID> {
+
+    List<PayoutBatch> findByNetworkAndStatus(BlockchainNetwork network, PayoutBatchStatus status);
+
+    Optional<PayoutBatch> findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork network);
+}
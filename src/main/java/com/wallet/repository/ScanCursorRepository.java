@@ -0,0 +1,15 @@
+package com.wallet.repository;
+
+import com.wallet.model.ScanCursor;
+import com.wallet.model.enums.BlockchainNetwork;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ScanCursorRepository extends JpaRepository<ScanCursor, UUID> {
+
+    List<ScanCursor> findByNetwork(BlockchainNetwork network);
+}
@@ -1,15 +1,24 @@
 package com.wallet.repository;
 
 import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
 import com.wallet.model.enums.TransactionStatus;
 import com.wallet.model.enums.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
@@ -23,9 +32,214 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
 
     Optional<Transaction> findByTransactionHash(String transactionHash);
 
+    @Query("SELECT t.transactionHash FROM Transaction t " +
+           "WHERE t.network = :network AND t.type = :type AND t.transactionHash IN :hashes")
+    Set<String> findExistingHashes(@Param("network") BlockchainNetwork network,
+                                   @Param("type") TransactionType type,
+                                   @Param("hashes") Collection<String> hashes);
+
     List<Transaction> findByStatus(TransactionStatus status);
 
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.wallet WHERE t.id = :id")
+    Optional<Transaction> findWithWalletById(@Param("id") UUID id);
+
+    /**
+     * Move a transaction from {@code from} to {@code to} only if it is still in {@code from}.
+     * Commits on its own, so exactly one caller (on any node) wins the transition.
+     *
+     * @return 1 if this caller made the transition, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :to, t.updatedAt = CURRENT_TIMESTAMP WHERE t.id = :id AND t.status = :from")
+    int transitionStatus(@Param("id") UUID id,
+                         @Param("from") TransactionStatus from,
+                         @Param("to") TransactionStatus to);
+
+    /**
+     * Claim an approved withdrawal for a payout batch: moves it to PROCESSING and links it to
+     * the batch in one update, so no claimed row is left without its batch.
+     *
+     * @return 1 if this caller claimed it, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.PROCESSING, " +
+           "t.payoutBatchId = :batchId " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.APPROVED")
+    int claimForPayoutBatch(@Param("id") UUID id, @Param("batchId") UUID batchId);
+
+    /**
+     * Return PROCESSING withdrawals of a batch-paid network that no payout batch carries to
+     * APPROVED.
+     *
+     * @return the number of withdrawals released
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.APPROVED " +
+           "WHERE t.network = :network AND t.type = com.wallet.model.enums.TransactionType.WITHDRAWAL " +
+           "AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING AND t.payoutBatchId IS NULL")
+    int releaseUnbatchedWithdrawals(@Param("network") BlockchainNetwork network);
+
+    /**
+     * Return a withdrawal its payout batch did not pay to APPROVED, for the next batch;
+     * {@code rejections} is added to the times the chain rejected it.
+     *
+     * @return 1 if the withdrawal was still PROCESSING in that batch, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.APPROVED, " +
+           "t.payoutBatchId = NULL, t.payoutRejections = COALESCE(t.payoutRejections, 0) + :rejections, " +
+           "t.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING " +
+           "AND t.payoutBatchId = :batchId")
+    int releaseFromPayoutBatch(@Param("id") UUID id,
+                               @Param("batchId") UUID batchId,
+                               @Param("rejections") int rejections);
+
+    /**
+     * Fail a withdrawal whose payout batch the chain rejected once too often.
+     *
+     * @return 1 if the withdrawal was still PROCESSING in that batch, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.FAILED, " +
+           "t.payoutRejections = COALESCE(t.payoutRejections, 0) + 1, t.errorMessage = :error, " +
+           "t.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING " +
+           "AND t.payoutBatchId = :batchId")
+    int failPayout(@Param("id") UUID id, @Param("batchId") UUID batchId, @Param("error") String errorMessage);
+
+    /**
+     * Confirm a withdrawal found paid by its payout batch.
+     *
+     * @return 1 if the withdrawal was still PROCESSING in that batch, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.CONFIRMED, " +
+           "t.transactionHash = :hash, t.blockNumber = :blockNumber, t.fee = :fee, " +
+           "t.confirmedAt = :confirmedAt, t.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING " +
+           "AND t.payoutBatchId = :batchId")
+    int confirmPayout(@Param("id") UUID id,
+                      @Param("batchId") UUID batchId,
+                      @Param("hash") String transactionHash,
+                      @Param("blockNumber") Long blockNumber,
+                      @Param("fee") BigDecimal fee,
+                      @Param("confirmedAt") LocalDateTime confirmedAt);
+
+    @Query("SELECT t.wallet.id AS walletId, MAX(t.createdAt) AS lastAt FROM Transaction t " +
+           "WHERE t.type = :type GROUP BY t.wallet.id")
+    List<WalletActivity> findLastActivityByType(@Param("type") TransactionType type);
+
+    @Query("SELECT DISTINCT t.wallet.id FROM Transaction t WHERE t.type = :type AND t.status IN :statuses")
+    Set<UUID> findWalletIdsByTypeAndStatusIn(@Param("type") TransactionType type,
+                                            @Param("statuses") Collection<TransactionStatus> statuses);
+
+    List<Transaction> findByNetworkAndTypeAndStatusAndBlockNumberNotNull(
+            BlockchainNetwork network, TransactionType type, TransactionStatus status);
+
+    /**
+     * Rows that can only be followed by polling the node: they have a transaction hash but no
+     * recorded block. Their wallet is fetched too.
+     */
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.wallet " +
+           "WHERE t.status IN :statuses AND t.transactionHash IS NOT NULL AND t.blockHash IS NULL")
+    List<Transaction> findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(
+            @Param("statuses") Collection<TransactionStatus> statuses);
+
+    /**
+     * Withdrawals claimed for a single send (not a payout batch) that have stayed PROCESSING
+     * since before {@code claimedBefore}, with their wallet.
+     */
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.wallet w " +
+           "WHERE t.type = com.wallet.model.enums.TransactionType.WITHDRAWAL " +
+           "AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING " +
+           "AND t.payoutBatchId IS NULL AND w.network <> :batchedNetwork AND t.updatedAt < :claimedBefore")
+    List<Transaction> findStuckWithdrawals(@Param("batchedNetwork") BlockchainNetwork batchedNetwork,
+                                           @Param("claimedBefore") LocalDateTime claimedBefore);
+
+    /**
+     * Record the broadcast of a claimed withdrawal.
+     *
+     * @return 1 if the withdrawal was still PROCESSING, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.SENT, " +
+           "t.transactionHash = :hash " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING")
+    int markSent(@Param("id") UUID id, @Param("hash") String transactionHash);
+
+    /**
+     * Fail a claimed withdrawal whose broadcast was refused.
+     *
+     * @return 1 if the withdrawal was still PROCESSING, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.FAILED, " +
+           "t.errorMessage = :error " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.PROCESSING")
+    int markFailed(@Param("id") UUID id, @Param("error") String errorMessage);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.blockNumber = :blockNumber, t.confirmations = :confirmations " +
+           "WHERE t.id = :id AND t.status = :status")
+    int recordConfirmations(@Param("id") UUID id,
+                            @Param("status") TransactionStatus status,
+                            @Param("blockNumber") Long blockNumber,
+                            @Param("confirmations") Integer confirmations);
+
+    /**
+     * Confirm a sent withdrawal once its transaction is final.
+     *
+     * @return 1 if the withdrawal was still SENT, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.CONFIRMED, " +
+           "t.blockNumber = :blockNumber, t.confirmations = :confirmations, t.fee = :fee, " +
+           "t.confirmedAt = :confirmedAt " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.SENT")
+    int confirmSent(@Param("id") UUID id,
+                    @Param("blockNumber") Long blockNumber,
+                    @Param("confirmations") Integer confirmations,
+                    @Param("fee") BigDecimal fee,
+                    @Param("confirmedAt") LocalDateTime confirmedAt);
+
+    List<Transaction> findByNetworkAndTypeAndStatusInAndBlockNumberGreaterThan(
+            BlockchainNetwork network, TransactionType type, Collection<TransactionStatus> statuses, Long blockNumber);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.model.enums.TransactionStatus.CONFIRMED, " +
+           "t.confirmations = :confirmations, t.confirmedAt = :confirmedAt " +
+           "WHERE t.id = :id AND t.status = com.wallet.model.enums.TransactionStatus.PENDING")
+    int confirmPending(@Param("id") UUID id,
+                       @Param("confirmations") Integer confirmations,
+                       @Param("confirmedAt") LocalDateTime confirmedAt);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.id = :id AND t.status = :status")
+    int deleteByIdAndStatus(@Param("id") UUID id, @Param("status") TransactionStatus status);
+
     List<Transaction> findByWalletIdAndType(UUID walletId, TransactionType type);
 
+    List<Transaction> findByNetworkAndTypeAndStatus(BlockchainNetwork network, TransactionType type,
+                                                    TransactionStatus status);
+
+    List<Transaction> findByPayoutBatchIdIn(Collection<UUID> payoutBatchIds);
+
     List<Transaction> findByWalletIdAndStatus(UUID walletId, TransactionStatus status);
+
+    interface WalletActivity {
+        UUID getWalletId();
+
+        LocalDateTime getLastAt();
+    }
 }
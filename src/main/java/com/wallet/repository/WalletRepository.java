@@ -3,8 +3,14 @@ package com.wallet.repository;
 import com.wallet.model.Wallet;
 import com.wallet.model.enums.BlockchainNetwork;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,4 +29,35 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
     List<Wallet> findByUserIdAndActive(UUID userId, Boolean active);
 
     Boolean existsByAddress(String address);
+
+    @Query("SELECT w.id AS id, w.address AS address FROM Wallet w WHERE w.network = :network AND w.active = true")
+    List<WatchedAddress> findWatchedAddresses(@Param("network") BlockchainNetwork network);
+
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount WHERE w.id = :walletId")
+    int incrementBalance(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Debit {@code amount} only if the balance covers it.
+     *
+     * @return 1 if debited, 0 if the balance was too low
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount WHERE w.id = :walletId AND w.balance >= :amount")
+    int decrementBalance(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Keep a wallet at the hot scan tier until {@code until}; an earlier time never shortens it.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Wallet w SET w.hotUntil = :until WHERE w.id = :walletId AND (w.hotUntil IS NULL OR w.hotUntil < :until)")
+    int extendHotUntil(@Param("walletId") UUID walletId, @Param("until") LocalDateTime until);
+
+    interface WatchedAddress {
+        UUID getId();
+
+        String getAddress();
+    }
 }
+
@@ -2,11 +2,13 @@ package com.wallet.scheduler;
 
 import com.wallet.model.Transaction;
 import com.wallet.model.Wallet;
-import com.wallet.model.enums.BlockchainNetwork;
-import com.wallet.service.ScannerService;
 import com.wallet.service.TransactionService;
 import com.wallet.service.WalletService;
-import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.scanner.ConfirmationTracker;
+import com.wallet.service.scanner.DepositScanEngine;
+import com.wallet.service.scanner.PendingTransactionPoller;
+import com.wallet.service.scanner.ScanTierPolicy;
+import com.wallet.service.scanner.ShardLeaseManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -14,7 +16,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Map;
 
 @Slf4j
 @Component
@@ -22,40 +23,37 @@ import java.util.Map;
 public class TransactionUpdateScheduler {
 
     private final WalletService walletService;
-    private final ScannerService scannerService;
     private final TransactionService transactionService;
-    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
-
-    //TODO:
-//    @Scheduled(fixedDelay = 600000)
-//    public void updatePendingTransactions() {
-//        log.info("Updating pending transactions...");
-//        transactionService.updatePendingTransactions();
-//    }
+    private final DepositScanEngine depositScanEngine;
+    private final ScanTierPolicy scanTierPolicy;
+    private final ShardLeaseManager shardLeaseManager;
+    private final ConfirmationTracker confirmationTracker;
+    private final PendingTransactionPoller pendingTransactionPoller;
+
+    @Scheduled(fixedDelay = 60000)
+    public void updatePendingTransactions() {
+        log.info("Updating pending transactions...");
+        confirmationTracker.refreshAll();
+        pendingTransactionPoller.poll();
+    }
 
-    @Scheduled(fixedDelay = 600000)
+    /**
+     * Runs at the hot-tier interval; warm and cold wallets are only picked up once their own
+     * tier interval has elapsed.
+     */
+    @Scheduled(fixedDelayString = "${ton.scanner.tiers.hot-interval:5000}")
     public void scanDepositTransactions() {
 //        if (!scanner.IsEnabled()) {
 //            return;
 //        }
         log.debug("Starting deposit scan...");
 
-        for (Map.Entry<BlockchainNetwork, BlockchainService> entry : blockchainServices.entrySet()) {
-            entry.getValue().getCurrentBlock();
-        }
-
-        List<Wallet> activeWallets = walletService.getActiveWallets();
-        log.debug("Scanning {} active wallets", activeWallets.size());
-
-        for (Wallet wallet:activeWallets) {
-            try {
-                scannerService.scanDeposits(wallet);
-            } catch (Exception e) {
-                log.error("Error scanning wallet {}: {}", wallet.getAddress(), e.getMessage(), e);
-            }
-        }
-
+        // With several instances running, each scans only the wallets in its leased shards
+        List<Wallet> ownedWallets = shardLeaseManager.filterOwned(walletService.getActiveWallets());
+        List<Wallet> dueWallets = scanTierPolicy.selectDue(ownedWallets);
+        log.debug("Scanning {} due wallets", dueWallets.size());
 
+        depositScanEngine.scan(dueWallets);
     }
 
 //    @Scheduled(fixedDelay = 600000)
@@ -72,14 +70,6 @@ public class TransactionUpdateScheduler {
         List<Wallet> activeWallets = walletService.getActiveWallets();
         log.debug("Scanning {} active wallets", activeWallets.size());
 
-        for (Wallet wallet:activeWallets) {
-            try {
-                scannerService.scanDeposits(wallet);
-            } catch (Exception e) {
-                log.error("Error scanning wallet {}: {}", wallet.getAddress(), e.getMessage(), e);
-            }
-        }
-
-
+        depositScanEngine.scan(activeWallets);
     }
 }
@@ -3,77 +3,160 @@ package com.wallet.service;
 import com.wallet.model.Transaction;
 import com.wallet.model.Wallet;
 import com.wallet.model.enums.BlockchainNetwork;
-import com.wallet.repository.TransactionRepository;
 import com.wallet.repository.WalletRepository;
 import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.scanner.DepositDeduplicator;
+import com.wallet.service.scanner.ScanCursorStore;
+import com.wallet.service.scanner.ScanTierPolicy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ScannerService {
 
+    private static final int DEPOSIT_CHUNK_SIZE = 100;
+
     private final WalletRepository walletRepository;
-    private final TransactionRepository transactionRepository;
     private final TransactionService transactionService;
+    private final DepositDeduplicator depositDeduplicator;
+    private final ScanCursorStore scanCursorStore;
+    private final ScanTierPolicy scanTierPolicy;
     private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
 
     /**
-     * Scan deposits for specific wallet
+     * Scan deposits for specific wallet. Runs on the caller's thread; concurrency is owned by
+     * {@link com.wallet.service.scanner.DepositScanEngine}. Transactions are pulled from the
+     * chain lazily and credited in chunks, so memory stays bounded however many arrived.
+     * <p>
+     * No transaction is held while the chain is read: each chunk is stored in a short
+     * transaction of its own, and the cursor moves only once every chunk is stored. A failure
+     * part way leaves the cursor, and the chunks already stored are skipped on the rescan.
      */
-    @Async
-    @Transactional
     public void scanDeposits(Wallet wallet) {
+        scanDeposits(wallet, null);
+    }
+
+    /**
+     * Like {@link #scanDeposits(Wallet)}, starting from the account head the pre-check already
+     * read ({@code null} to read it).
+     */
+    public void scanDeposits(Wallet wallet, BlockchainService.AccountHead head) {
         log.debug("Scanning deposits for wallet: {}", wallet.getAddress());
 
         BlockchainService blockchainService = blockchainServices.get(wallet.getNetwork());
-        List<Transaction> transactions = blockchainService.getWalletTransactions(wallet.getAddress(), wallet.getLastScannedLt(), wallet.getLastScannedHash(), 100);
-        if (transactions.isEmpty()) {
+        ScanCursorStore.Position cursor = scanCursorStore.get(wallet);
+        Iterator<Transaction> transactions =
+                blockchainService.iterateWalletTransactions(wallet.getAddress(), cursor.lt(), cursor.hash(), head);
+
+        Long maxLt = cursor.lt();
+        String lastHash = cursor.hash();
+        String walletAddress = blockchainService.normalizeAddress(wallet.getAddress());
+        int seen = 0;
+        int credited = 0;
+        List<Transaction> incoming = new ArrayList<>(DEPOSIT_CHUNK_SIZE);
+        while (transactions.hasNext()) {
+            Transaction tx = transactions.next();
+            seen++;
+            // Advance past every transaction seen, not only deposits, so the account-state
+            // pre-check treats the wallet as unchanged until something new arrives
+            if (tx.getBlockNumber() > maxLt) {
+                maxLt = tx.getBlockNumber();
+                lastHash = tx.getTransactionHash();
+            }
+            // Check if transaction is incoming
+            if (tx.getToAddress() == null
+                    || !walletAddress.equals(blockchainService.normalizeAddress(tx.getToAddress()))) {
+                continue;
+            }
+            if (tx.getBlockNumber() < cursor.lt()) {
+                continue;
+            }
+            incoming.add(tx);
+            if (incoming.size() == DEPOSIT_CHUNK_SIZE) {
+                credited += creditDeposits(wallet, incoming);
+                incoming.clear();
+            }
+        }
+        credited += creditDeposits(wallet, incoming);
+
+        if (seen == 0) {
             log.debug("No new transactions for wallet: {}", wallet.getAddress());
             return;
         }
+        log.info("Found {} transactions ({} deposits) for wallet {}", seen, credited, wallet.getAddress());
+        if (credited > 0) {
+            scanTierPolicy.recordActivity(wallet.getId());
+        }
 
-        log.info("Found {} transactions for wallet {}", transactions.size(), wallet.getAddress());
-        Long maxLt = wallet.getLastScannedLt();
-        String lastHash = wallet.getLastScannedHash();
-        for (Transaction tx : transactions) {
-            try {
-                // Check if transaction is incoming
-                if (!tx.getToAddress().equalsIgnoreCase(wallet.getAddress())) {
-                    continue;
-                }
-                if (tx.getBlockNumber() < wallet.getLastScannedLt()) {
-                    continue;
-                }
-                // Check if already processed
-                if (transactionRepository.findByTransactionHash(tx.getTransactionHash()).isPresent()) {
-                    continue;
-                }
-
-                transactionService.processDeposit(wallet, tx);
-
-                // Update max logical time
-                if (tx.getBlockNumber() > maxLt) {
-                    maxLt = tx.getBlockNumber();
-                }
-                lastHash = tx.getTransactionHash();
+        // Update last scanned logical time (flushed in batches by the cursor store)
+        if (!maxLt.equals(cursor.lt())) {
+            scanCursorStore.advance(wallet, cursor, maxLt, lastHash);
+        }
+    }
+
+    /**
+     * Store one chunk; {@link TransactionService#processDeposits} commits it on its own.
+     */
+    private int creditDeposits(Wallet wallet, List<Transaction> incoming) {
+        if (incoming.isEmpty()) {
+            return 0;
+        }
+        List<Transaction> deposits = depositDeduplicator.filterNew(wallet.getNetwork(), incoming);
+        for (Transaction tx : deposits) {
+            tx.setWallet(wallet);
+        }
+        List<Transaction> stored = transactionService.processDeposits(deposits);
+        depositDeduplicator.markSeenAfterCommit(wallet.getNetwork(), hashes(deposits));
+        return stored.size();
+    }
 
-            } catch (Exception e) {
-                log.error("Error processing transaction: {}", e.getMessage(), e);
+    /**
+     * Credit transfers found by block-driven scanning. {@code watched} maps normalized
+     * addresses to wallet ids.
+     */
+    @Transactional
+    public void processBlockTransfers(BlockchainNetwork network, Map<String, UUID> watched,
+                                      List<Transaction> transfers) {
+        BlockchainService blockchainService = blockchainServices.get(network);
+        List<Transaction> fresh = depositDeduplicator.filterNew(network, transfers);
+        Set<UUID> walletIds = new HashSet<>();
+        for (Transaction tx : fresh) {
+            UUID walletId = watched.get(blockchainService.normalizeAddress(tx.getToAddress()));
+            if (walletId != null) {
+                walletIds.add(walletId);
             }
         }
 
-        // Update last scanned logical time
-        wallet.setLastScannedLt(maxLt);
-        wallet.setLastScannedHash(lastHash);
-        walletRepository.save(wallet);
+        Map<UUID, Wallet> wallets = new HashMap<>();
+        walletRepository.findAllById(walletIds).forEach(wallet -> wallets.put(wallet.getId(), wallet));
+
+        List<Transaction> deposits = new ArrayList<>();
+        for (Transaction tx : fresh) {
+            Wallet wallet = wallets.get(watched.get(blockchainService.normalizeAddress(tx.getToAddress())));
+            if (wallet != null) {
+                tx.setWallet(wallet);
+                deposits.add(tx);
+            }
+        }
+        transactionService.processDeposits(deposits);
+        depositDeduplicator.markSeenAfterCommit(network, hashes(deposits));
+        wallets.keySet().forEach(scanTierPolicy::recordActivity);
     }
 
+    private List<String> hashes(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionHash).toList();
+    }
 }
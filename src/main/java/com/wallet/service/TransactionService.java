@@ -6,21 +6,34 @@ import com.wallet.dto.WithdrawalDto;
 import com.wallet.model.Transaction;
 import com.wallet.model.User;
 import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
 import com.wallet.model.enums.TransactionStatus;
 import com.wallet.model.enums.TransactionType;
+import com.wallet.model.enums.WithdrawalPriority;
 import com.wallet.repository.TransactionRepository;
 import com.wallet.repository.WalletRepository;
 import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.payout.WithdrawalBroadcaster;
+import com.wallet.service.payout.WithdrawalScheduler;
+import com.wallet.service.scanner.PendingConfirmationQueue;
+import com.wallet.service.scanner.PendingTransactionPoller;
+import com.wallet.service.scanner.ShardLeaseManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -35,7 +48,11 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final WalletService walletService;
     private final UserService userService;
+    private final ShardLeaseManager shardLeaseManager;
+    private final PendingConfirmationQueue pendingConfirmationQueue;
+    private final WithdrawalBroadcaster withdrawalBroadcaster;
     private final Map<com.wallet.model.enums.BlockchainNetwork, BlockchainService> blockchainServices;
+    private final PlatformTransactionManager transactionManager;
 
     @Transactional
     public TransactionResponseDto processWithdrawal(WithdrawalDto withdrawalDto) {
@@ -58,6 +75,7 @@ public class TransactionService {
         Transaction transaction = Transaction.builder()
                 .userId(wallet.getUser().getId())
                 .wallet(wallet)
+                .network(wallet.getNetwork())
                 .type(TransactionType.WITHDRAWAL)
                 .fromAddress(wallet.getAddress())
                 .toAddress(withdrawalDto.getToAddress())
@@ -68,6 +86,7 @@ public class TransactionService {
 //                .blockNumber(txDetails.blockNumber())
 //                .confirmations(txDetails.confirmations())
                 .memo(withdrawalDto.getMemo())
+                .priority(withdrawalDto.getPriority() != null ? withdrawalDto.getPriority() : WithdrawalPriority.URGENT)
                 .build();
 
         Transaction savedTransaction = transactionRepository.save(transaction);
@@ -86,61 +105,53 @@ public class TransactionService {
         }
 
         transaction.setStatus(TransactionStatus.APPROVED);
+        transaction.setApprovedAt(LocalDateTime.now());
         transactionRepository.save(transaction);
 
         return mapToDto(transaction);
     }
 
+    /**
+     * Claim approved withdrawals and hand them to the {@link WithdrawalBroadcaster}; each is
+     * sent on its own thread and confirmed later by the {@link PendingTransactionPoller}.
+     */
     public void processApprovedWithdrawTransactions() {
-        List<Transaction> transactions = transactionRepository.findByStatus(TransactionStatus.APPROVED);
+        processApprovedWithdrawTransactions(transactionRepository.findByStatus(TransactionStatus.APPROVED));
+    }
+
+    /**
+     * Claim and broadcast the given approved withdrawals, as released by the
+     * {@link WithdrawalScheduler}.
+     *
+     * @return the withdrawals handed to the broadcaster
+     */
+    public List<Transaction> processApprovedWithdrawTransactions(List<Transaction> transactions) {
+        List<Transaction> dispatched = new ArrayList<>();
         for (Transaction transaction:transactions) {
-            if (transaction.getType() != TransactionType.WITHDRAWAL) {
+            // TON withdrawals are paid in batches from the hot wallet by TonPayoutEngine
+            if (transaction.getType() != TransactionType.WITHDRAWAL
+                    || transaction.getNetwork() == BlockchainNetwork.TON
+                    || !shardLeaseManager.owns(transaction.getWallet().getId())) {
+                continue;
+            }
+            // Claim the row first so no other node (or overlapping run) can send it again
+            if (transactionRepository.transitionStatus(transaction.getId(),
+                    TransactionStatus.APPROVED, TransactionStatus.PROCESSING) == 0) {
                 continue;
             }
 
-            processWithdrawalAsync(transaction.getId());
-
-        }
-    }
-
-    @Async
-    @Transactional
-    public void processWithdrawalAsync(UUID transactionId) {
-        try {
-            Transaction transaction = transactionRepository.findById(transactionId)
-                    .orElseThrow(() -> new RuntimeException("Transaction not found"));
-
-            Wallet wallet = transaction.getWallet();
-            BlockchainService blockchainService = blockchainServices.get(wallet.getNetwork());
-
-            String privateKey = walletService.decryptPrivateKey(wallet.getEncryptedPrivateKey());
-            String txHash = blockchainService.sendTransaction(
-                    privateKey,
-                    transaction.getToAddress(),
-                    transaction.getAmount()
-            );
-
-            transaction.setTransactionHash(txHash);
-            transaction.setStatus(TransactionStatus.CONFIRMED);
-            transaction.setConfirmedAt(LocalDateTime.now());
-
-            wallet.setBalance(wallet.getBalance().subtract(transaction.getAmount()));
-
-            transactionRepository.save(transaction);
-
-            log.info("Withdrawal completed: {} - TxHash: {}", transactionId, txHash);
-        } catch (Exception e) {
-            log.error("Error processing withdrawal: {}", transactionId, e);
-
-            Transaction transaction = transactionRepository.findById(transactionId).orElse(null);
-            if (transaction != null) {
-                transaction.setStatus(TransactionStatus.FAILED);
-                transaction.setErrorMessage(e.getMessage());
-                transactionRepository.save(transaction);
-
-                walletService.updateWalletBalance(transaction.getWallet().getId(), transaction.getAmount());
+            try {
+                withdrawalBroadcaster.broadcast(transaction.getId());
+                dispatched.add(transaction);
+            } catch (TaskRejectedException e) {
+                // Every sender is busy: release the claim and leave the rest for the next run
+                transactionRepository.transitionStatus(transaction.getId(),
+                        TransactionStatus.PROCESSING, TransactionStatus.APPROVED);
+                log.info("Withdrawal senders saturated, deferring remaining withdrawals");
+                break;
             }
         }
+        return dispatched;
     }
 
     @Transactional(readOnly = true)
@@ -194,53 +205,153 @@ public class TransactionService {
         return dtos;
     }
 
-    @Async
     @Transactional
-    public void updatePendingTransactions() {
-        List<Transaction> pendingTransactions = transactionRepository.findByStatus(TransactionStatus.PENDING);
+    public void processDeposit(Wallet wallet, Transaction transaction) {
+        transaction.setWallet(wallet);
+        processDeposits(List.of(transaction));
+    }
 
-        for (Transaction transaction : pendingTransactions) {
-            try {
-                BlockchainService blockchainService =
-                        blockchainServices.get(transaction.getWallet().getNetwork());
+    /**
+     * Store a batch of deposits (each with its wallet set) and credit them with one aggregated
+     * balance update per wallet, committed on their own. The batch goes in as one transaction;
+     * if the unique (network, hash, type) key rejects it because another node stored some of
+     * the deposits meanwhile, each is stored in a transaction of its own and those already
+     * stored are skipped and not credited again.
+     *
+     * @return the deposits that were stored
+     */
+    public List<Transaction> processDeposits(List<Transaction> deposits) {
+        if (deposits.isEmpty()) {
+            return List.of();
+        }
 
-                BlockchainService.TransactionDetails txDetails =
-                        blockchainService.getTransactionDetails(transaction.getTransactionHash());
+        for (Transaction transaction : deposits) {
+            Wallet wallet = transaction.getWallet();
+            transaction.setType(TransactionType.DEPOSIT);
+            transaction.setNetwork(wallet.getNetwork());
+            transaction.setUserId(wallet.getUser().getId());
+        }
 
-                transaction.setBlockNumber(txDetails.blockNumber());
-                transaction.setConfirmations(txDetails.confirmations());
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Transaction> stored = new ArrayList<>();
+        try {
+            stored.addAll(newTransaction.execute(status -> store(deposits)));
+        } catch (DataIntegrityViolationException e) {
+            for (Transaction transaction : deposits) {
+                // Not stored: let the retry insert it as a new row
+                transaction.setId(null);
+                try {
+                    stored.addAll(newTransaction.execute(status -> store(List.of(transaction))));
+                } catch (DataIntegrityViolationException duplicate) {
+                    transaction.setId(null);
+                    log.debug("Deposit {} on {} already stored", transaction.getTransactionHash(),
+                            transaction.getNetwork());
+                }
+            }
+        }
 
-                if (txDetails.isConfirmed() && transaction.getStatus() == TransactionStatus.PENDING) {
-                    transaction.setStatus(TransactionStatus.CONFIRMED);
-                    transaction.setConfirmedAt(LocalDateTime.now());
+        queuePendingConfirmations(stored);
+        log.info("Processed {} deposits ({} already stored)", deposits.size(), deposits.size() - stored.size());
+        return stored;
+    }
 
-                    if (transaction.getType() == TransactionType.DEPOSIT) {
-                        Wallet wallet = transaction.getWallet();
-                        wallet.setBalance(wallet.getBalance().add(transaction.getAmount()));
-                    }
-                }
+    private List<Transaction> store(List<Transaction> deposits) {
+        transactionRepository.saveAllAndFlush(deposits);
+        Map<UUID, BigDecimal> credits = new HashMap<>();
+        for (Transaction transaction : deposits) {
+            if (transaction.getStatus() == TransactionStatus.SUCCESS) {
+                credits.merge(transaction.getWallet().getId(), transaction.getAmount(), BigDecimal::add);
+            }
+        }
+        credits.forEach(walletRepository::incrementBalance);
+        return deposits;
+    }
 
-                //TODO: need update wallet?
-                transactionRepository.save(transaction);
-            } catch (Exception e) {
-                log.error("Error updating transaction: {}", transaction.getId(), e);
+    /**
+     * Mark pending deposits as confirmed and credit them, one balance update per wallet. Each
+     * row moves only if it is still PENDING, so concurrent callers never credit twice.
+     *
+     * @return number of wallets credited
+     */
+    @Transactional
+    public int confirmDeposits(List<PendingConfirmationQueue.Entry> deposits, long headHeight) {
+        Map<UUID, BigDecimal> credits = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (PendingConfirmationQueue.Entry deposit : deposits) {
+            int confirmations = (int) (headHeight - deposit.blockNumber() + 1);
+            if (transactionRepository.confirmPending(deposit.transactionId(), confirmations, now) == 1) {
+                credits.merge(deposit.walletId(), deposit.amount(), BigDecimal::add);
             }
         }
+        credits.forEach(walletRepository::incrementBalance);
+        return credits.size();
     }
 
+    /**
+     * Remove deposits recorded in blocks above {@code forkHeight}, which a reorg replaced.
+     * Already credited deposits are debited again, but never below a zero balance: a shortfall
+     * (the deposit was already withdrawn) is logged for manual recovery. Removed rows are
+     * detected again if the transfer is re-included in the new chain.
+     *
+     * @return the removed deposits
+     */
     @Transactional
-    public void processDeposit(Wallet wallet, Transaction transaction) {
-        log.info("Processing deposit: {} TON from {} to {}",
-                transaction.getAmount(), transaction.getFromAddress(), wallet.getAddress());
+    public List<Transaction> rollbackOrphanedDeposits(BlockchainNetwork network, long forkHeight) {
+        List<Transaction> orphaned = transactionRepository.findByNetworkAndTypeAndStatusInAndBlockNumberGreaterThan(
+                network, TransactionType.DEPOSIT,
+                List.of(TransactionStatus.PENDING, TransactionStatus.SUCCESS, TransactionStatus.CONFIRMED),
+                forkHeight);
+
+        List<Transaction> removed = new ArrayList<>();
+        for (Transaction transaction : orphaned) {
+            TransactionStatus status = transaction.getStatus();
+            if (transactionRepository.deleteByIdAndStatus(transaction.getId(), status) == 0) {
+                continue;
+            }
+            removed.add(transaction);
+            if (status == TransactionStatus.PENDING) {
+                log.warn("Rolled back pending deposit {} in orphaned block {}",
+                        transaction.getTransactionHash(), transaction.getBlockNumber());
+            } else {
+                reverseCredit(transaction);
+            }
+        }
+        return removed;
+    }
 
-        transaction.setType(TransactionType.DEPOSIT);
-        transaction.setWallet(wallet);
-        transaction.setUserId(wallet.getUser().getId());
-        transactionRepository.save(transaction);
+    private void reverseCredit(Transaction transaction) {
+        UUID walletId = transaction.getWallet().getId();
+        BigDecimal amount = transaction.getAmount();
+        if (walletRepository.decrementBalance(walletId, amount) == 1) {
+            log.error("Reversed credited deposit {} of {} to wallet {}: block {} was orphaned",
+                    transaction.getTransactionHash(), amount, walletId, transaction.getBlockNumber());
+            return;
+        }
+        BigDecimal available = walletRepository.findById(walletId).map(Wallet::getBalance).orElse(BigDecimal.ZERO);
+        if (available.signum() > 0) {
+            walletRepository.decrementBalance(walletId, available);
+        }
+        log.error("Reversed credited deposit {} of {} to wallet {} only partly: block {} was orphaned and the " +
+                        "wallet held {}, shortfall {} needs manual recovery",
+                transaction.getTransactionHash(), amount, walletId, transaction.getBlockNumber(),
+                available, amount.subtract(available.max(BigDecimal.ZERO)));
+    }
 
-        if (transaction.getStatus() == TransactionStatus.SUCCESS) {
-            walletService.updateWalletBalance(transaction.getWallet().getId(), transaction.getAmount());
+    /**
+     * Hand deposits that still need confirmations to the confirmation queue once stored.
+     */
+    private void queuePendingConfirmations(List<Transaction> deposits) {
+        Map<BlockchainNetwork, List<PendingConfirmationQueue.Entry>> pending = new HashMap<>();
+        for (Transaction transaction : deposits) {
+            if (transaction.getStatus() == TransactionStatus.PENDING && transaction.getBlockNumber() != null
+                    && transaction.getBlockHash() != null) {
+                int required = blockchainServices.get(transaction.getNetwork()).getRequiredConfirmations();
+                pending.computeIfAbsent(transaction.getNetwork(), n -> new ArrayList<>())
+                        .add(PendingConfirmationQueue.Entry.of(transaction, required));
+            }
         }
+        pending.forEach(pendingConfirmationQueue::addAfterCommit);
     }
 
     private TransactionResponseDto mapToDto(Transaction transaction) {
@@ -257,7 +368,9 @@ public class TransactionService {
                 .blockNumber(transaction.getBlockNumber())
                 .confirmations(transaction.getConfirmations())
                 .memo(transaction.getMemo())
+                .priority(transaction.getPriority())
                 .createdAt(transaction.getCreatedAt())
+                .approvedAt(transaction.getApprovedAt())
                 .confirmedAt(transaction.getConfirmedAt())
                 .build();
     }
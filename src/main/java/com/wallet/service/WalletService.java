@@ -7,6 +7,9 @@ import com.wallet.model.Wallet;
 import com.wallet.model.enums.BlockchainNetwork;
 import com.wallet.repository.WalletRepository;
 import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.NonceManager;
+import com.wallet.service.scanner.DepositAddressIndex;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,6 +23,7 @@ import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -31,9 +35,16 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final UserService userService;
     private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+    private final DepositAddressIndex depositAddressIndex;
+    private final NonceManager nonceManager;
 
     private static final String ENCRYPTION_KEY = "MySecretKey12345";
 
+    @PostConstruct
+    public void registerSenderKeys() {
+        nonceManager.registerKeys(this::findPrivateKey);
+    }
+
     @Transactional
     public WalletResponseDto createWallet(WalletCreationDto dto) {
         User user = userService.getCurrentUser();
@@ -60,6 +71,7 @@ public class WalletService {
                 .build();
 
         Wallet savedWallet = walletRepository.save(wallet);
+        depositAddressIndex.register(savedWallet);
         log.info("Wallet created for user {} on network {}: {}",
                 user.getUsername(), dto.getNetwork(), savedWallet.getAddress());
 
@@ -118,6 +130,15 @@ public class WalletService {
         return updatedWallet;
     }
 
+    /**
+     * Decrypted key of the wallet at {@code address}, for signing on its behalf.
+     */
+    public Optional<String> findPrivateKey(BlockchainNetwork network, String address) {
+        return walletRepository.findByAddress(address)
+                .filter(wallet -> wallet.getNetwork() == network)
+                .map(wallet -> decryptPrivateKey(wallet.getEncryptedPrivateKey()));
+    }
+
     public String decryptPrivateKey(String encryptedPrivateKey) {
         try {
             SecretKeySpec keySpec = new SecretKeySpec(
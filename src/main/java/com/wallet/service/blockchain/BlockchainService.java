@@ -2,9 +2,17 @@ package com.wallet.service.blockchain;
 
 import com.wallet.model.Transaction;
 import com.wallet.model.enums.BlockchainNetwork;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 public interface BlockchainService {
 
@@ -14,15 +22,130 @@ public interface BlockchainService {
 
     BigDecimal getBalance(String address);
 
+    /**
+     * Balances of many addresses, keyed by address as passed in. Networks that can combine
+     * requests override this to read them in bulk; those may leave out addresses whose balance
+     * could not be read.
+     */
+    default Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (String address : addresses) {
+            balances.put(address, getBalance(address));
+        }
+        return balances;
+    }
+
     String sendTransaction(String privateKey, String toAddress, BigDecimal amount);
 
+    /**
+     * Send a withdrawal; services that reserve nonces record {@code withdrawalId} on the
+     * reservation so the withdrawal can be matched to its transaction after a crash.
+     */
+    default String sendTransaction(String privateKey, String toAddress, BigDecimal amount, UUID withdrawalId) {
+        return sendTransaction(privateKey, toAddress, amount);
+    }
+
     List<Transaction> getWalletTransactions(String address, Long fromLt, String fromHash, int limit);
 
+    /**
+     * Transactions of a wallet newer than {@code (fromLt, fromHash)}, newest first, produced
+     * lazily: implementations fetch the next page only when the caller pulls past the current
+     * one, so a scan holds at most one page however large the burst is.
+     */
+    default Iterator<Transaction> iterateWalletTransactions(String address, Long fromLt, String fromHash) {
+        return getWalletTransactions(address, fromLt, fromHash, Integer.MAX_VALUE).iterator();
+    }
+
+    /**
+     * Like {@link #iterateWalletTransactions(String, Long, String)}, walking back from
+     * {@code head} already read by the caller instead of reading the account state again.
+     * A {@code null} head is read as usual.
+     */
+    default Iterator<Transaction> iterateWalletTransactions(String address, Long fromLt, String fromHash,
+                                                            AccountHead head) {
+        return iterateWalletTransactions(address, fromLt, fromHash);
+    }
+
     TransactionDetails getTransactionDetails(String transactionHash);
 
+    /**
+     * Details of many transactions, keyed by hash. Transactions that cannot be read are left
+     * out rather than failing the whole lookup.
+     */
+    default Map<String, TransactionDetails> getTransactionDetails(Collection<String> transactionHashes) {
+        Map<String, TransactionDetails> details = new LinkedHashMap<>();
+        for (String hash : transactionHashes) {
+            try {
+                details.put(hash, getTransactionDetails(hash));
+            } catch (RuntimeException e) {
+                // left out; the caller retries on its next cycle
+                LoggerFactory.getLogger(getClass()).warn("Could not read transaction {}: {}", hash, e.getMessage());
+            }
+        }
+        return details;
+    }
+
     boolean isValidAddress(String address);
 
-    void getCurrentBlock();
+    /**
+     * Source of whole blocks for block-driven scanning, if the network supports it.
+     */
+    default Optional<BlockSource> getBlockSource() {
+        return Optional.empty();
+    }
+
+    /**
+     * Latest transaction of each account, read from account state without fetching any
+     * transactions. Keys are the addresses as passed in; accounts whose state could not be read
+     * are left out, as are all accounts on networks that do not expose this cheaply.
+     */
+    default Map<String, AccountHead> getAccountHeads(Collection<String> addresses) {
+        return Map.of();
+    }
+
+    /**
+     * Confirmations after which a transaction on this network is treated as final.
+     */
+    default int getRequiredConfirmations() {
+        return 1;
+    }
+
+    /**
+     * Canonical form of an address, used when matching transfers against our wallets.
+     */
+    default String normalizeAddress(String address) {
+        return address == null ? null : address.toLowerCase();
+    }
+
+    /**
+     * Reads each block once and returns the transfers it contains, so scanning cost follows
+     * chain activity rather than the number of watched wallets.
+     */
+    interface BlockSource {
+
+        long getHeadHeight();
+
+        /**
+         * Incoming transfers in blocks {@code fromHeight..toHeight} (inclusive) whose normalized
+         * recipient is one of {@code watchedAddresses}.
+         */
+        List<Transaction> getIncomingTransfers(long fromHeight, long toHeight, Set<String> watchedAddresses);
+
+        /**
+         * Headers of blocks {@code fromHeight..toHeight} (inclusive) in ascending order, used to
+         * detect reorgs. Networks with immediate finality return nothing and are not tracked.
+         */
+        default List<BlockHeader> getHeaders(long fromHeight, long toHeight) {
+            return List.of();
+        }
+    }
+
+    record BlockHeader(long height, String hash, String parentHash) {}
+
+    /**
+     * Id of an account's most recent transaction; {@code lt} is 0 for accounts without any.
+     */
+    record AccountHead(long lt, String hash) {}
 
     record WalletKeyPair(String address, String privateKey, String publicKey) {}
 
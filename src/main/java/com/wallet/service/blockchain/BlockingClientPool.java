@@ -0,0 +1,204 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.exception.RpcThrottledException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Fixed set of blocking clients handed out one caller at a time. Each slot creates its client
+ * lazily through {@code factory} (so slot {@code i} can be pinned to its own server) and
+ * recreates it after {@code maxFailures} consecutive failed calls or a failed health check.
+ */
+@Slf4j
+class BlockingClientPool<C> {
+
+    private final String name;
+    private final IntFunction<C> factory;
+    private final Consumer<C> closer;
+    private final Predicate<C> healthCheck;
+    private final int maxFailures;
+    private final long borrowTimeoutMillis;
+    private final List<Slot> slots = new ArrayList<>();
+    private final BlockingQueue<Slot> idle;
+    private final AtomicLong recycled = new AtomicLong();
+    private volatile boolean closed;
+
+    BlockingClientPool(String name, int size, IntFunction<C> factory, Consumer<C> closer,
+                       Predicate<C> healthCheck, int maxFailures, long borrowTimeoutMillis) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, got " + size);
+        }
+        this.name = name;
+        this.factory = factory;
+        this.closer = closer;
+        this.healthCheck = healthCheck;
+        this.maxFailures = Math.max(1, maxFailures);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Slot slot = new Slot(i);
+            slots.add(slot);
+            idle.add(slot);
+        }
+    }
+
+    /**
+     * Run {@code call} on a borrowed client, waiting up to the borrow timeout for one to be
+     * free. Throttling is not the client's fault and does not count as a failure.
+     */
+    <T> T execute(Function<C, T> call) {
+        Slot slot = borrow();
+        try {
+            T result = call.apply(slot.client());
+            slot.failures = 0;
+            return result;
+        } catch (RpcThrottledException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (++slot.failures >= maxFailures) {
+                log.warn("{} client {} failed {} calls in a row, recycling it: {}", name, slot.index,
+                        slot.failures, e.getMessage());
+                recycle(slot);
+            }
+            throw e;
+        } finally {
+            idle.offer(slot);
+        }
+    }
+
+    /**
+     * Probe every idle client and recycle the ones that fail. Clients in use are skipped;
+     * their calls report their health.
+     */
+    void checkHealth() {
+        sweepIdle((slot, client) -> {
+            if (isHealthy(client)) {
+                return false;
+            }
+            log.warn("{} client {} failed its health check, recycling it", name, slot);
+            return true;
+        });
+    }
+
+    /**
+     * Recycle the idle clients of the slots matching {@code slotFilter}, so they are recreated on
+     * their next use. Clients in use are skipped.
+     */
+    void recycleIdle(IntPredicate slotFilter) {
+        sweepIdle((slot, client) -> slotFilter.test(slot));
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    int idleCount() {
+        return idle.size();
+    }
+
+    long getRecycled() {
+        return recycled.get();
+    }
+
+    /**
+     * Close every client. Clients in use are closed too; callers still holding one will fail.
+     */
+    void shutdown() {
+        closed = true;
+        for (Slot slot : slots) {
+            close(slot);
+        }
+    }
+
+    private void sweepIdle(BiPredicate<Integer, C> shouldRecycle) {
+        int count = idle.size();
+        for (int i = 0; i < count && !closed; i++) {
+            Slot slot = idle.poll();
+            if (slot == null) {
+                return;
+            }
+            try {
+                if (slot.client != null && shouldRecycle.test(slot.index, slot.client)) {
+                    recycle(slot);
+                }
+            } finally {
+                idle.offer(slot);
+            }
+        }
+    }
+
+    private Slot borrow() {
+        if (closed) {
+            throw new IllegalStateException(name + " pool is shut down");
+        }
+        try {
+            Slot slot = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (slot == null) {
+                throw new IllegalStateException("No " + name + " client free within " + borrowTimeoutMillis + " ms");
+            }
+            return slot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for a " + name + " client", e);
+        }
+    }
+
+    private boolean isHealthy(C client) {
+        try {
+            return healthCheck.test(client);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void recycle(Slot slot) {
+        close(slot);
+        slot.failures = 0;
+        recycled.incrementAndGet();
+    }
+
+    private void close(Slot slot) {
+        C client = slot.client;
+        slot.client = null;
+        if (client != null) {
+            try {
+                closer.accept(client);
+            } catch (Exception e) {
+                log.warn("Error closing {} client {}: {}", name, slot.index, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Only touched by the thread that took the slot off the idle queue.
+     */
+    private class Slot {
+
+        private final int index;
+        private C client;
+        private int failures;
+
+        Slot(int index) {
+            this.index = index;
+        }
+
+        C client() {
+            if (client == null) {
+                client = factory.apply(index);
+            }
+            return client;
+        }
+    }
+}
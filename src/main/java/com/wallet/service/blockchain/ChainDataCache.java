@@ -0,0 +1,202 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.ChainCacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memory cache for chain reads, split by whether the answer can still change. Immutable
+ * entries (finalized transactions, receipts, old blocks) live in an LRU bounded both by entry
+ * count and by the callers' estimate of each entry's size, so a few thousand full blocks cannot
+ * take the heap; mutable ones (head, balances, pending transactions) expire after a short TTL.
+ * Keys are namespaced by the caller, e.g. {@code eth:receipt:<hash>}.
+ * <p>
+ * Publishes {@code chain.cache.requests} (tags {@code cache}, {@code result}),
+ * {@code chain.cache.evictions}, {@code chain.cache.size} and {@code chain.cache.weight}, the
+ * estimated bytes held by the immutable cache.
+ */
+@Component
+public class ChainDataCache {
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * How quickly a mutable value goes stale; each maps to a configured TTL.
+     */
+    public enum Volatility {
+        HEAD,
+        BALANCE,
+        PENDING
+    }
+
+    /** Estimated size of an immutable entry whose caller gives none. */
+    static final long DEFAULT_WEIGHT = 1024;
+
+    private record Expiring(Object value, long expiresAt) {}
+
+    private record Weighted(Object value, long weight) {}
+
+    private final ChainCacheConfig config;
+    /** Access-ordered; guarded by itself. */
+    private final LinkedHashMap<String, Weighted> immutable = new LinkedHashMap<>(16, 0.75f, true);
+    private final int immutableMaxEntries;
+    private final long immutableMaxBytes;
+    private long immutableWeight;
+    private final Map<String, Expiring> mutable = new ConcurrentHashMap<>();
+    private final int mutableMaxEntries;
+
+    private final Counter immutableHits;
+    private final Counter immutableMisses;
+    private final Counter mutableHits;
+    private final Counter mutableMisses;
+    private final Counter evictions;
+
+    public ChainDataCache(ChainCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.immutableMaxEntries = config.getImmutableMaxEntries();
+        this.immutableMaxBytes = config.getImmutableMaxBytes();
+        this.mutableMaxEntries = config.getMutableMaxEntries();
+        this.evictions = meterRegistry.counter("chain.cache.evictions");
+
+        this.immutableHits = meterRegistry.counter("chain.cache.requests", "cache", "immutable", "result", "hit");
+        this.immutableMisses = meterRegistry.counter("chain.cache.requests", "cache", "immutable", "result", "miss");
+        this.mutableHits = meterRegistry.counter("chain.cache.requests", "cache", "mutable", "result", "hit");
+        this.mutableMisses = meterRegistry.counter("chain.cache.requests", "cache", "mutable", "result", "miss");
+        meterRegistry.gaugeMapSize("chain.cache.size", Tags.of("cache", "immutable"), immutable);
+        meterRegistry.gaugeMapSize("chain.cache.size", Tags.of("cache", "mutable"), mutable);
+        Gauge.builder("chain.cache.weight", this, ChainDataCache::getImmutableWeight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cached value for {@code key}, loading and keeping it for good on a miss. Only use for
+     * results that can no longer change; a {@code null} result is not cached.
+     */
+    public <T> T getImmutable(String key, Loader<T> loader) throws IOException {
+        Optional<T> cached = peekImmutable(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        T value = loader.load();
+        if (value != null) {
+            putImmutable(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Cached immutable value, counting the lookup as a hit or miss.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> peekImmutable(String key) {
+        Weighted entry;
+        synchronized (immutable) {
+            entry = immutable.get(key);
+        }
+        (entry != null ? immutableHits : immutableMisses).increment();
+        return Optional.ofNullable(entry != null ? (T) entry.value() : null);
+    }
+
+    public void putImmutable(String key, Object value) {
+        putImmutable(key, value, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Keep {@code value} for good, counting {@code weight} (estimated bytes) against the size
+     * bound. Least recently used entries are evicted until both bounds hold again.
+     */
+    public void putImmutable(String key, Object value, long weight) {
+        synchronized (immutable) {
+            Weighted previous = immutable.put(key, new Weighted(value, weight));
+            immutableWeight += weight - (previous != null ? previous.weight() : 0);
+            Iterator<Weighted> eldest = immutable.values().iterator();
+            while (eldest.hasNext() && immutable.size() > 1
+                    && (immutable.size() > immutableMaxEntries || immutableWeight > immutableMaxBytes)) {
+                immutableWeight -= eldest.next().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    long getImmutableWeight() {
+        synchronized (immutable) {
+            return immutableWeight;
+        }
+    }
+
+    /**
+     * Cached value for {@code key} if it is younger than the TTL for {@code volatility},
+     * otherwise a fresh one from {@code loader}.
+     */
+    public <T> T getMutable(String key, Volatility volatility, Loader<T> loader) throws IOException {
+        Optional<T> cached = peekMutable(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        T value = loader.load();
+        putMutable(key, value, volatility);
+        return value;
+    }
+
+    /**
+     * Unexpired mutable value, counting the lookup as a hit or miss.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> peekMutable(String key) {
+        Expiring entry = mutable.get(key);
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            mutableHits.increment();
+            return Optional.of((T) entry.value());
+        }
+        mutableMisses.increment();
+        return Optional.empty();
+    }
+
+    public void putMutable(String key, Object value, Volatility volatility) {
+        long ttlMillis = ttl(volatility);
+        if (value == null || ttlMillis <= 0) {
+            return;
+        }
+        if (mutable.size() >= mutableMaxEntries) {
+            purgeExpired();
+        }
+        if (mutable.size() < mutableMaxEntries) {
+            mutable.put(key, new Expiring(value, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * Drop a mutable entry that is known to be stale, e.g. a balance after a transfer.
+     */
+    public void invalidate(String key) {
+        mutable.remove(key);
+    }
+
+    private long ttl(Volatility volatility) {
+        return switch (volatility) {
+            case HEAD -> config.getHeadTtl();
+            case BALANCE -> config.getBalanceTtl();
+            case PENDING -> config.getPendingTtl();
+        };
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        mutable.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+}
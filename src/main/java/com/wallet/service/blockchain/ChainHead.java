@@ -0,0 +1,11 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.enums.BlockchainNetwork;
+
+import java.time.Instant;
+
+/**
+ * Immutable snapshot of a network's head: its height and when this node first saw it.
+ */
+public record ChainHead(BlockchainNetwork network, long height, Instant observedAt) {
+}
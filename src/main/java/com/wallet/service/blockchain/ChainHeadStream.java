@@ -0,0 +1,35 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.enums.BlockchainNetwork;
+
+/**
+ * Push notifications of new chain heads over a long-lived connection to a node.
+ * Implementations reconnect on their own until {@link #stop()} is called.
+ */
+public interface ChainHeadStream {
+
+    BlockchainNetwork getNetwork();
+
+    /**
+     * Whether a streaming endpoint is configured for this network.
+     */
+    boolean isEnabled();
+
+    void start(Listener listener);
+
+    void stop();
+
+    interface Listener {
+
+        /**
+         * A new head was announced.
+         */
+        void onHead(long height);
+
+        /**
+         * The connection was (re-)established. Heads announced while disconnected are not
+         * replayed, so listeners should catch up from their own checkpoint.
+         */
+        void onConnected();
+    }
+}
@@ -0,0 +1,208 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Single source of chain heads. Each network registers how to read its head; the tracker
+ * reads it once per poll interval and publishes it as an immutable {@link ChainHead} through
+ * an atomic reference, so any thread can read the latest head without a request of its own.
+ * Heads learned elsewhere (push streams, batched reads) are published the same way. The
+ * snapshot only moves forward.
+ * <p>
+ * Subscribers are notified when a head advances, on a dispatch thread of that network's own
+ * ({@code chain-head-<network>}), so a slow listener on one network does not hold back heads
+ * of the others. Advances arriving while a notification is pending are coalesced into one
+ * with the latest head. Publishes
+ * {@code chain.head.height} and {@code chain.head.lag}, the seconds since the head last
+ * advanced (tag {@code network}).
+ */
+@Slf4j
+@Component
+public class ChainHeadTracker {
+
+    /**
+     * Reads the current head height from the network.
+     */
+    @FunctionalInterface
+    public interface HeadReader {
+        long readHead() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onHead(ChainHead head);
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Function<BlockchainNetwork, Executor> laneFactory;
+    private final Map<BlockchainNetwork, Executor> lanes = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, HeadReader> readers = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, AtomicReference<ChainHead>> heads = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, AtomicBoolean> dispatchPending = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public ChainHeadTracker(MeterRegistry meterRegistry) {
+        this(meterRegistry, (Function<BlockchainNetwork, Executor>) network ->
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "chain-head-" + network.name().toLowerCase());
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * Dispatches every network on {@code dispatcher}.
+     */
+    ChainHeadTracker(MeterRegistry meterRegistry, Executor dispatcher) {
+        this(meterRegistry, (Function<BlockchainNetwork, Executor>) network -> dispatcher);
+    }
+
+    private ChainHeadTracker(MeterRegistry meterRegistry, Function<BlockchainNetwork, Executor> laneFactory) {
+        this.meterRegistry = meterRegistry;
+        this.laneFactory = laneFactory;
+    }
+
+    /**
+     * Poll {@code network}'s head with {@code reader} from now on.
+     */
+    public void register(BlockchainNetwork network, HeadReader reader) {
+        readers.put(network, reader);
+        Gauge.builder("chain.head.height", this, tracker -> tracker.getHead(network).map(ChainHead::height).orElse(0L))
+                .tag("network", network.name())
+                .register(meterRegistry);
+        Gauge.builder("chain.head.lag", this, tracker -> tracker.getLagSeconds(network))
+                .tag("network", network.name())
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public Optional<ChainHead> getHead(BlockchainNetwork network) {
+        return Optional.ofNullable(reference(network).get());
+    }
+
+    /**
+     * Latest known head height; reads the chain only if no head was published yet.
+     */
+    public long getHeight(BlockchainNetwork network) {
+        ChainHead head = reference(network).get();
+        return head != null ? head.height() : refresh(network).height();
+    }
+
+    @Scheduled(fixedDelayString = "${app.blockchain.head.poll-interval:2000}")
+    public void poll() {
+        for (BlockchainNetwork network : readers.keySet()) {
+            try {
+                refresh(network);
+            } catch (Exception e) {
+                if (RpcThrottledException.isCauseOf(e)) {
+                    log.info("Throttled reading {} head, keeping {}", network, getHead(network).map(ChainHead::height).orElse(null));
+                } else {
+                    log.warn("Error reading {} head: {}", network, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the head from the network now and publish it.
+     */
+    public ChainHead refresh(BlockchainNetwork network) {
+        HeadReader reader = readers.get(network);
+        if (reader == null) {
+            throw new IllegalStateException("No head reader registered for " + network);
+        }
+        long height;
+        try {
+            height = reader.readHead();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read " + network + " head", e);
+        }
+        return publish(network, height);
+    }
+
+    /**
+     * Record a head seen by anyone. A height at or below the current one leaves the snapshot
+     * (and its observation time) unchanged.
+     *
+     * @return the current head after publishing
+     */
+    public ChainHead publish(BlockchainNetwork network, long height) {
+        ChainHead candidate = new ChainHead(network, height, Instant.now());
+        ChainHead current = reference(network).accumulateAndGet(candidate,
+                (previous, next) -> previous == null || next.height() > previous.height() ? next : previous);
+        if (current == candidate) {
+            dispatch(network);
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Executor lane : lanes.values()) {
+            if (lane instanceof ExecutorService executor) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private double getLagSeconds(BlockchainNetwork network) {
+        return getHead(network)
+                .map(head -> Duration.between(head.observedAt(), Instant.now()).toMillis() / 1000.0)
+                .orElse(0.0);
+    }
+
+    private void dispatch(BlockchainNetwork network) {
+        AtomicBoolean pending = dispatchPending.computeIfAbsent(network, n -> new AtomicBoolean());
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        lanes.computeIfAbsent(network, laneFactory).execute(() -> {
+            pending.set(false);
+            ChainHead head = reference(network).get();
+            for (Listener listener : listeners) {
+                try {
+                    listener.onHead(head);
+                } catch (Exception e) {
+                    if (RpcThrottledException.isCauseOf(e)) {
+                        log.info("Throttled handling {} head {}, deferred to the next head", network, head.height());
+                    } else {
+                        log.error("Error handling {} head {}: {}", network, head.height(), e.getMessage(), e);
+                    }
+                }
+            }
+        });
+    }
+
+    private AtomicReference<ChainHead> reference(BlockchainNetwork network) {
+        return heads.computeIfAbsent(network, n -> new AtomicReference<>());
+    }
+}
@@ -0,0 +1,142 @@
+package com.wallet.service.blockchain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Fetches block ranges (with full transaction objects) and receipts as JSON-RPC batch
+ * requests, so a range of N blocks costs N / batchSize round-trips instead of N. Blocks and
+ * receipts at or below the finalized height are kept in the {@link ChainDataCache}, so
+ * rescans of old ranges are served from memory.
+ */
+@Slf4j
+class EthereumBlockFetcher {
+
+    /**
+     * Rough heap size of what web3j decodes, for the cache's size bound: a header, each full
+     * transaction object or transaction hash it carries, a receipt and each of its logs.
+     */
+    static final long HEADER_BYTES = 2048;
+    static final long FULL_TRANSACTION_BYTES = 2560;
+    static final long TRANSACTION_HASH_BYTES = 200;
+    static final long RECEIPT_BYTES = 1536;
+    static final long LOG_BYTES = 1024;
+
+    private final Web3j web3j;
+    private final EthereumRpcBatcher batcher;
+    private final ChainDataCache cache;
+
+    EthereumBlockFetcher(Web3j web3j, EthereumRpcBatcher batcher, ChainDataCache cache) {
+        this.web3j = web3j;
+        this.batcher = batcher;
+        this.cache = cache;
+    }
+
+    /**
+     * Blocks {@code fromHeight..toHeight} (inclusive) in ascending order.
+     */
+    List<EthBlock.Block> fetchBlocks(long fromHeight, long toHeight, long finalizedHeight) throws IOException {
+        return fetch(fromHeight, toHeight, true, finalizedHeight);
+    }
+
+    /**
+     * Like {@link #fetchBlocks} but with transaction hashes only, for header checks.
+     */
+    List<EthBlock.Block> fetchHeaders(long fromHeight, long toHeight, long finalizedHeight) throws IOException {
+        return fetch(fromHeight, toHeight, false, finalizedHeight);
+    }
+
+    private List<EthBlock.Block> fetch(long fromHeight, long toHeight, boolean fullTransactions,
+                                       long finalizedHeight) throws IOException {
+        String keyPrefix = fullTransactions ? "eth:block:" : "eth:header:";
+        Map<Long, EthBlock.Block> blocks = new TreeMap<>();
+        List<Request<?, EthBlock>> requests = new ArrayList<>();
+        for (long height = fromHeight; height <= toHeight; height++) {
+            Optional<EthBlock.Block> cached = height <= finalizedHeight
+                    ? cache.peekImmutable(keyPrefix + height)
+                    : Optional.empty();
+            if (cached.isPresent()) {
+                blocks.put(height, cached.get());
+            } else {
+                requests.add(web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(height)), fullTransactions));
+            }
+        }
+
+        for (Response<?> response : batcher.sendAll(requests)) {
+            if (response.hasError()) {
+                log.warn("Could not read a block in {}..{}: {}", fromHeight, toHeight,
+                        EthereumRpcBatcher.error(response).getMessage());
+                continue;
+            }
+            EthBlock.Block block = ((EthBlock) response).getBlock();
+            if (block != null) {
+                long height = block.getNumber().longValue();
+                blocks.put(height, block);
+                if (height <= finalizedHeight) {
+                    cache.putImmutable(keyPrefix + height, block, weight(block, fullTransactions));
+                }
+            }
+        }
+        if (blocks.size() < toHeight - fromHeight + 1) {
+            throw new IOException("Node returned incomplete block range " + fromHeight + ".." + toHeight);
+        }
+        return new ArrayList<>(blocks.values());
+    }
+
+    /**
+     * Receipts keyed by transaction hash. Transactions without a receipt yet, or whose receipt
+     * could not be read, are left out.
+     */
+    Map<String, TransactionReceipt> fetchReceipts(Collection<String> transactionHashes, long finalizedHeight)
+            throws IOException {
+        Map<String, TransactionReceipt> receipts = new HashMap<>();
+        List<Request<?, EthGetTransactionReceipt>> requests = new ArrayList<>();
+        for (String hash : transactionHashes) {
+            Optional<TransactionReceipt> cached = cache.peekImmutable("eth:receipt:" + hash);
+            if (cached.isPresent()) {
+                receipts.put(hash, cached.get());
+            } else {
+                requests.add(web3j.ethGetTransactionReceipt(hash));
+            }
+        }
+
+        for (Response<?> response : batcher.sendAll(requests)) {
+            if (response.hasError()) {
+                log.warn("Could not read a receipt: {}", EthereumRpcBatcher.error(response).getMessage());
+                continue;
+            }
+            ((EthGetTransactionReceipt) response).getTransactionReceipt().ifPresent(receipt -> {
+                receipts.put(receipt.getTransactionHash(), receipt);
+                if (receipt.getBlockNumber().longValue() <= finalizedHeight) {
+                    cache.putImmutable("eth:receipt:" + receipt.getTransactionHash(), receipt, weight(receipt));
+                }
+            });
+        }
+        return receipts;
+    }
+
+    static long weight(EthBlock.Block block, boolean fullTransactions) {
+        int transactions = block.getTransactions() != null ? block.getTransactions().size() : 0;
+        return HEADER_BYTES + transactions * (fullTransactions ? FULL_TRANSACTION_BYTES : TRANSACTION_HASH_BYTES);
+    }
+
+    static long weight(TransactionReceipt receipt) {
+        return RECEIPT_BYTES + (receipt.getLogs() != null ? receipt.getLogs().size() * LOG_BYTES : 0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import io.reactivex.disposables.Disposable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.utils.Numeric;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code newHeads} subscription over a WebSocket connection to the Ethereum node. Disabled
+ * unless {@code app.blockchain.ethereum.ws-url} is set. After a dropped connection it
+ * reconnects with exponential backoff and resubscribes.
+ */
+@Slf4j
+@Component
+public class EthereumHeadStream implements ChainHeadStream {
+
+    private static final long MAX_RECONNECT_DELAY = 30000;
+
+    private final String wsUrl;
+    private final long reconnectDelay;
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "eth-head-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Listener listener;
+    private volatile boolean running;
+    private volatile WebSocketService webSocketService;
+    private volatile Disposable subscription;
+    private int failedAttempts;
+
+    public EthereumHeadStream(
+            @Value("${app.blockchain.ethereum.ws-url:}") String wsUrl,
+            @Value("${app.blockchain.ethereum.ws-reconnect-delay:1000}") long reconnectDelay) {
+        this.wsUrl = wsUrl;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public BlockchainNetwork getNetwork() {
+        return BlockchainNetwork.ETHEREUM_SEPOLIA;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return wsUrl != null && !wsUrl.isBlank();
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        this.running = true;
+        reconnector.execute(this::connect);
+    }
+
+    @Override
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reconnector.shutdownNow();
+        disconnect();
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        try {
+            WebSocketService service = new WebSocketService(wsUrl, false);
+            service.connect();
+            webSocketService = service;
+            subscription = Web3j.build(service).newHeadsNotifications().subscribe(
+                    notification -> listener.onHead(
+                            Numeric.decodeQuantity(notification.getParams().getResult().getNumber()).longValue()),
+                    error -> {
+                        if (running) {
+                            reconnector.execute(() -> onDisconnected(error));
+                        }
+                    });
+            failedAttempts = 0;
+            log.info("Subscribed to Ethereum newHeads at {}", wsUrl);
+            listener.onConnected();
+        } catch (Exception e) {
+            onDisconnected(e);
+        }
+    }
+
+    private void onDisconnected(Throwable error) {
+        disconnect();
+        if (!running) {
+            return;
+        }
+        long delay = Math.min(MAX_RECONNECT_DELAY, reconnectDelay << Math.min(failedAttempts++, 5));
+        log.warn("Ethereum head stream disconnected ({}), reconnecting in {} ms", error.getMessage(), delay);
+        reconnector.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void disconnect() {
+        Disposable currentSubscription = subscription;
+        subscription = null;
+        if (currentSubscription != null && !currentSubscription.isDisposed()) {
+            currentSubscription.dispose();
+        }
+        WebSocketService service = webSocketService;
+        webSocketService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (Exception e) {
+                log.debug("Error closing Ethereum WebSocket: {}", e.getMessage());
+            }
+        }
+    }
+}
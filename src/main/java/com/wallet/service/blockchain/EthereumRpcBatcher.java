@@ -0,0 +1,157 @@
+package com.wallet.service.blockchain;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends Ethereum JSON-RPC calls as batch arrays. Single calls from concurrent callers wait up
+ * to {@code lingerMillis} (or until {@code maxBatchSize} calls are waiting) and go out as one
+ * HTTP request; bulk calls are sent directly in chunks of {@code maxBatchSize}.
+ */
+class EthereumRpcBatcher {
+
+    private final Web3j web3j;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "eth-rpc-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private List<PendingCall> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private record PendingCall(Request<?, ? extends Response<?>> request, CompletableFuture<Response<?>> result) {}
+
+    EthereumRpcBatcher(Web3j web3j, int maxBatchSize, long lingerMillis) {
+        this.web3j = web3j;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Send one call, sharing an HTTP request with calls made by other threads meanwhile.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Response<?>> T send(Request<?, T> request) throws IOException {
+        if (lingerMillis <= 0) {
+            return checked(request.send());
+        }
+
+        CompletableFuture<Response<?>> result = new CompletableFuture<>();
+        List<PendingCall> full = null;
+        synchronized (lock) {
+            pending.add(new PendingCall(request, result));
+            if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flusher.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            sendBatch(full);
+        }
+
+        try {
+            return (T) result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for JSON-RPC batch", e);
+        }
+    }
+
+    /**
+     * Send many calls in as few batch requests as possible. Responses are in request order.
+     * An entry the node answered with an error is returned as is, so callers check
+     * {@link Response#hasError()} per entry; one bad entry does not fail the others.
+     *
+     * @throws IOException if a batch request as a whole fails
+     */
+    List<Response<?>> sendAll(List<? extends Request<?, ? extends Response<?>>> requests) throws IOException {
+        List<Response<?>> responses = new ArrayList<>(requests.size());
+        for (int start = 0; start < requests.size(); start += maxBatchSize) {
+            BatchRequest batch = web3j.newBatch();
+            requests.subList(start, Math.min(requests.size(), start + maxBatchSize)).forEach(batch::add);
+            responses.addAll(batch.send().getResponses());
+        }
+        return responses;
+    }
+
+    void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    private void flush() {
+        List<PendingCall> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            sendBatch(batch);
+        }
+    }
+
+    private List<PendingCall> drain() {
+        List<PendingCall> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void sendBatch(List<PendingCall> calls) {
+        try {
+            List<Response<?>> responses;
+            if (calls.size() == 1) {
+                responses = List.of(calls.get(0).request().send());
+            } else {
+                BatchRequest batch = web3j.newBatch();
+                calls.forEach(call -> batch.add(call.request()));
+                responses = new ArrayList<>(batch.send().getResponses());
+            }
+            for (int i = 0; i < calls.size(); i++) {
+                Response<?> response = responses.get(i);
+                if (response.hasError()) {
+                    calls.get(i).result().completeExceptionally(error(response));
+                } else {
+                    calls.get(i).result().complete(response);
+                }
+            }
+        } catch (Exception e) {
+            calls.forEach(call -> call.result().completeExceptionally(e));
+        }
+    }
+
+    private static <T extends Response<?>> T checked(T response) throws IOException {
+        if (response.hasError()) {
+            throw error(response);
+        }
+        return response;
+    }
+
+    static IOException error(Response<?> response) {
+        return new IOException("JSON-RPC error " + response.getError().getCode() + ": "
+                + response.getError().getMessage());
+    }
+}
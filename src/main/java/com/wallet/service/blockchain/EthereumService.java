@@ -1,37 +1,123 @@
 package com.wallet.service.blockchain;
 
+import com.wallet.config.EthereumConfig;
+import com.wallet.config.RateLimitConfig;
+import com.wallet.config.RpcPoolConfig;
+import com.wallet.exception.RpcThrottledException;
 import com.wallet.model.Transaction;
 import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.service.blockchain.ChainDataCache.Volatility;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.crypto.Credentials;
 import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Hash;
 import org.web3j.crypto.Keys;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
 import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.EthTransaction;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.protocol.http.HttpService;
-import org.web3j.tx.Transfer;
 import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Slf4j
 @Service
 public class EthereumService implements BlockchainService {
 
+    private static final int CONFIRMATION_BLOCKS = 12;
+    private static final long STALE_QUOTE_RETRY_MILLIS = 1000;
+
+    private final RpcEndpointPool<HttpService> endpointPool;
+    private final ChainDataCache cache;
+    private final ChainHeadTracker headTracker;
+    private final NonceManager nonceManager;
+    private final FeeOracle feeOracle;
     private final Web3j web3j;
     private final long chainId;
+    private final BigInteger gasLimit;
+    private final BigInteger gasPrice;
+    private final int scanLookbackBlocks;
+    private final int pageBlocks;
+    private final EthereumRpcBatcher batcher;
+    private final EthereumBlockFetcher blockFetcher;
+    private final EthereumBlockSource blockSource = new EthereumBlockSource();
 
     public EthereumService(
-            @Value("${app.blockchain.ethereum.rpc-url}") String rpcUrl,
-            @Value("${app.blockchain.ethereum.chain-id}") long chainId) {
-        this.web3j = Web3j.build(new HttpService(rpcUrl));
-        this.chainId = chainId;
+            EthereumConfig config,
+            RpcPoolConfig rpcPoolConfig,
+            RateLimitConfig rateLimitConfig,
+            ChainDataCache cache,
+            ChainHeadTracker headTracker,
+            NonceManager nonceManager,
+            FeeOracle feeOracle) {
+        this.cache = cache;
+        this.headTracker = headTracker;
+        this.nonceManager = nonceManager;
+        this.feeOracle = feeOracle;
+        this.gasLimit = BigInteger.valueOf(config.getGasLimit());
+        this.gasPrice = BigInteger.valueOf(config.getGasPrice());
+        Map<String, HttpService> endpoints = new LinkedHashMap<>();
+        endpoints.put(config.getRpcUrl(), new HttpService(config.getRpcUrl()));
+        for (String url : config.getRpcUrls()) {
+            if (!url.isBlank()) {
+                endpoints.putIfAbsent(url.trim(), new HttpService(url.trim()));
+            }
+        }
+        this.endpointPool = new RpcEndpointPool<>(getNetwork(), endpoints, rpcPoolConfig, rateLimitConfig);
+        this.web3j = Web3j.build(new PooledWeb3jService(endpointPool));
+        this.chainId = config.getChainId();
+        this.scanLookbackBlocks = config.getScanLookbackBlocks();
+        this.pageBlocks = Math.max(1, config.getBatchSize());
+        this.batcher = new EthereumRpcBatcher(web3j, config.getBatchSize(), config.getBatchLingerMs());
+        this.blockFetcher = new EthereumBlockFetcher(web3j, batcher, cache);
+        headTracker.register(getNetwork(), () -> batcher.send(web3j.ethBlockNumber()).getBlockNumber().longValue());
+        nonceManager.register(getNetwork(), new EthereumSenderChain());
+        feeOracle.register(getNetwork(), (blockCount, percentiles) -> {
+            EthFeeHistory.FeeHistory history = batcher.send(
+                    web3j.ethFeeHistory(blockCount, DefaultBlockParameterName.LATEST, percentiles)).getFeeHistory();
+            return new FeeOracle.FeeHistory(history.getOldestBlock().longValue(),
+                    history.getBaseFeePerGas(), history.getReward());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.shutdown();
+        web3j.shutdown();
+    }
+
+    /**
+     * Rolling latency and error rate of each configured RPC endpoint.
+     */
+    List<RpcEndpointPool.EndpointStats> getEndpointStats() {
+        return endpointPool.getStats();
     }
 
     @Override
@@ -58,9 +144,8 @@ public class EthereumService implements BlockchainService {
     @Override
     public BigDecimal getBalance(String address) {
         try {
-            BigInteger balanceWei = web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST)
-                    .send()
-                    .getBalance();
+            BigInteger balanceWei = cache.getMutable(balanceKey(address), Volatility.BALANCE,
+                    () -> batcher.send(web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST)).getBalance());
 
             return Convert.fromWei(balanceWei.toString(), Convert.Unit.ETHER);
         } catch (Exception e) {
@@ -70,75 +155,450 @@ public class EthereumService implements BlockchainService {
     }
 
     @Override
-    public String sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+    public Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        Map<String, BigInteger> balancesWei = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String address : new LinkedHashSet<>(addresses)) {
+            Optional<BigInteger> cached = cache.peekMutable(balanceKey(address));
+            balancesWei.put(address, cached.orElse(null));
+            if (cached.isEmpty()) {
+                missing.add(address);
+            }
+        }
+
         try {
-            Credentials credentials = Credentials.create(privateKey);
-
-            TransactionReceipt receipt = Transfer.sendFunds(
-                    web3j,
-                    credentials,
-                    toAddress,
-                    amount,
-                    Convert.Unit.ETHER
-            ).send();
-
-            log.info("Ethereum transaction sent: {}", receipt.getTransactionHash());
-            return receipt.getTransactionHash();
+            List<Response<?>> responses = batcher.sendAll(missing.stream()
+                    .map(address -> web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST))
+                    .toList());
+            for (int i = 0; i < missing.size(); i++) {
+                if (responses.get(i).hasError()) {
+                    log.warn("Could not read balance of {}: {}", missing.get(i),
+                            EthereumRpcBatcher.error(responses.get(i)).getMessage());
+                    balancesWei.remove(missing.get(i));
+                    continue;
+                }
+                BigInteger balanceWei = ((EthGetBalance) responses.get(i)).getBalance();
+                balancesWei.put(missing.get(i), balanceWei);
+                cache.putMutable(balanceKey(missing.get(i)), balanceWei, Volatility.BALANCE);
+            }
         } catch (Exception e) {
-            log.error("Error sending Ethereum transaction", e);
-            throw new RuntimeException("Failed to send transaction", e);
+            log.error("Error getting balances for {} addresses", missing.size(), e);
+            throw new RuntimeException("Failed to get balances", e);
         }
+
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        balancesWei.forEach((address, wei) -> balances.put(address, Convert.fromWei(wei.toString(), Convert.Unit.ETHER)));
+        return balances;
     }
 
+    /**
+     * Signs with a nonce from the {@link NonceManager} and broadcasts without waiting for a
+     * receipt, so one sender can have many transactions in flight. The signed transaction is
+     * stored before the broadcast: if the node's answer is lost the hash is still returned and
+     * reconciliation re-sends it should the node not have it. A nonce the chain already used is
+     * replaced once; a rejected transaction gives its nonce back.
+     * <p>
+     * Fees come from the {@link FeeOracle}'s standard quote without a request; until the first
+     * quote is read the transaction is a legacy one at the configured {@code gas-price}. While
+     * the quote is past its maximum age nothing is signed: the send is reported as throttled, so
+     * the withdrawal is retried once the oracle has read fees again.
+     */
+    @Override
+    public String sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        return sendTransaction(privateKey, toAddress, amount, null);
+    }
+
+    @Override
+    public String sendTransaction(String privateKey, String toAddress, BigDecimal amount, UUID withdrawalId) {
+        Credentials credentials = Credentials.create(privateKey);
+        BigInteger value = toWei(amount);
+        Optional<FeeOracle.FeeLevel> fees = standardFees();
+        for (int attempt = 1; ; attempt++) {
+            NonceManager.Reservation reservation = nonceManager.reserve(getNetwork(), credentials.getAddress(), withdrawalId);
+            String signed;
+            String hash;
+            try {
+                RawTransaction transaction = etherTransaction(BigInteger.valueOf(reservation.nonce()), toAddress, value, fees);
+                signed = Numeric.toHexString(TransactionEncoder.signMessage(transaction, chainId, credentials));
+                hash = Hash.sha3(signed);
+                nonceManager.markSent(reservation, hash, signed);
+            } catch (Exception e) {
+                nonceManager.release(reservation);
+                log.error("Error signing Ethereum transaction", e);
+                throw new RuntimeException("Failed to send transaction", e);
+            }
+
+            String error;
+            try {
+                EthSendTransaction response = web3j.ethSendRawTransaction(signed).send();
+                error = response.hasError() ? response.getError().getMessage() : null;
+            } catch (IOException | RuntimeException e) {
+                if (!RpcThrottledException.isCauseOf(e)) {
+                    // It may have reached the node; reconciliation re-sends it if not
+                    log.warn("No answer broadcasting {} (nonce {}): {}", hash, reservation.nonce(), e.getMessage());
+                    return sent(credentials.getAddress(), toAddress, hash, reservation);
+                }
+                nonceManager.release(reservation);
+                throw new RuntimeException("Failed to send transaction", e);
+            }
+
+            if (error == null || isAlreadyKnown(error)) {
+                return sent(credentials.getAddress(), toAddress, hash, reservation);
+            }
+            if (isNonceTooLow(error) && attempt == 1) {
+                nonceManager.discard(reservation);
+                continue;
+            }
+            nonceManager.release(reservation);
+            log.error("Ethereum transaction rejected: {}", error);
+            throw new RuntimeException("Failed to send transaction: " + error);
+        }
+    }
+
+    /**
+     * {@code amount} of ether in wei, checked before a nonce is reserved for it.
+     */
+    private static BigInteger toWei(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Failed to send transaction: amount must be positive, got " + amount);
+        }
+        BigDecimal wei = Convert.toWei(amount, Convert.Unit.ETHER);
+        if (wei.stripTrailingZeros().scale() > 0) {
+            throw new IllegalArgumentException("Failed to send transaction: " + amount + " has more than 18 decimals");
+        }
+        return wei.toBigInteger();
+    }
+
+    /**
+     * Standard fees of a fresh quote, or empty before the first quote was read.
+     *
+     * @throws RpcThrottledException while the quote is stale
+     */
+    private Optional<FeeOracle.FeeLevel> standardFees() {
+        if (feeOracle.getQuote(getNetwork()).isEmpty()) {
+            return Optional.empty();
+        }
+        FeeOracle.FeeQuote quote = feeOracle.getFreshQuote(getNetwork())
+                .orElseThrow(() -> new RpcThrottledException(getNetwork().name(),
+                        getNetwork() + " fee quote is stale, waiting for a fresh one", STALE_QUOTE_RETRY_MILLIS));
+        return Optional.of(quote.level(FeeOracle.Speed.STANDARD));
+    }
+
+    private RawTransaction etherTransaction(BigInteger nonce, String toAddress, BigInteger value,
+                                            Optional<FeeOracle.FeeLevel> standardFees) {
+        return standardFees
+                .map(fees -> RawTransaction.createEtherTransaction(chainId, nonce, gasLimit, toAddress, value,
+                        fees.maxPriorityFeePerGas(), fees.maxFeePerGas()))
+                .orElseGet(() -> RawTransaction.createEtherTransaction(nonce, gasPrice, gasLimit, toAddress, value));
+    }
+
+    private String sent(String fromAddress, String toAddress, String hash, NonceManager.Reservation reservation) {
+        cache.invalidate(balanceKey(fromAddress));
+        cache.invalidate(balanceKey(toAddress));
+        log.info("Ethereum transaction sent: {} (nonce {})", hash, reservation.nonce());
+        return hash;
+    }
+
+    private static boolean isAlreadyKnown(String error) {
+        String message = error.toLowerCase();
+        return message.contains("already known") || message.contains("known transaction");
+    }
+
+    private static boolean isNonceTooLow(String error) {
+        return error.toLowerCase().contains("nonce too low");
+    }
+
+    /**
+     * Incoming transfers to {@code address} in blocks after {@code fromLt} (the last scanned
+     * block number), looking back at most {@code scan-lookback-blocks} from the head. The range
+     * is read a page of {@code batch-size} blocks at a time, stopping once {@code limit}
+     * transfers are found; the last block is returned whole, so a cursor at its number skips
+     * nothing. For many wallets prefer the block source, which reads each block once for all
+     * addresses.
+     */
     @Override
     public List<Transaction> getWalletTransactions(String address, Long fromLt, String fromHash, int limit) {
-        return null;
+        long head = blockSource.getHeadHeight();
+        long from = Math.max(fromLt != null ? fromLt + 1 : 0, head - scanLookbackBlocks + 1);
+        Set<String> watched = Set.of(normalizeAddress(address));
+        List<Transaction> transfers = new ArrayList<>();
+        for (long start = from; start <= head && transfers.size() < limit; start += pageBlocks) {
+            transfers.addAll(blockSource.getIncomingTransfers(start, Math.min(head, start + pageBlocks - 1), watched));
+        }
+        if (transfers.size() <= limit) {
+            return transfers;
+        }
+        int end = limit;
+        Long lastBlock = transfers.get(limit - 1).getBlockNumber();
+        while (end < transfers.size() && lastBlock.equals(transfers.get(end).getBlockNumber())) {
+            end++;
+        }
+        return transfers.subList(0, end);
     }
 
     @Override
     public TransactionDetails getTransactionDetails(String transactionHash) {
+        TransactionDetails details = getTransactionDetails(List.of(transactionHash)).get(transactionHash);
+        if (details == null) {
+            throw new RuntimeException("Failed to get transaction details: transaction not found");
+        }
+        return details;
+    }
+
+    /**
+     * Transactions and their receipts are read in one batch request per {@code batch-size}
+     * hashes; the head comes from the {@link ChainHeadTracker}, or rides along in the first
+     * batch before one was published. Finalized
+     * transactions come from the cache; only their confirmation count is recomputed.
+     */
+    @Override
+    public Map<String, TransactionDetails> getTransactionDetails(Collection<String> transactionHashes) {
+        Set<String> hashes = new LinkedHashSet<>(transactionHashes);
+        if (hashes.isEmpty()) {
+            return Map.of();
+        }
         try {
-            var transaction = web3j.ethGetTransactionByHash(transactionHash)
-                    .send()
-                    .getTransaction()
-                    .orElseThrow(() -> new RuntimeException("Transaction not found"));
-
-            EthGetTransactionReceipt receiptResponse = web3j.ethGetTransactionReceipt(transactionHash).send();
-            TransactionReceipt receipt = receiptResponse.getTransactionReceipt().orElse(null);
-
-            BigInteger currentBlock = web3j.ethBlockNumber().send().getBlockNumber();
-            BigInteger txBlock = transaction.getBlockNumber();
-            Integer confirmations = txBlock != null ?
-                    currentBlock.subtract(txBlock).intValue() + 1 : 0;
-
-            BigDecimal amount = Convert.fromWei(transaction.getValue().toString(), Convert.Unit.ETHER);
-            BigDecimal fee = receipt != null ?
-                    Convert.fromWei(receipt.getGasUsed().multiply(transaction.getGasPrice()).toString(),
-                            Convert.Unit.ETHER) : BigDecimal.ZERO;
-
-            return new TransactionDetails(
-                    transactionHash,
-                    transaction.getFrom(),
-                    transaction.getTo(),
-                    amount,
-                    fee,
-                    txBlock != null ? txBlock.longValue() : null,
-                    confirmations,
-                    confirmations >= 12
-            );
+            Map<String, TransactionData> known = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String hash : hashes) {
+                Optional<TransactionData> cached = cache.<TransactionData>peekImmutable(transactionKey(hash))
+                        .or(() -> cache.<TransactionData>peekMutable(transactionKey(hash)));
+                cached.ifPresentOrElse(data -> known.put(hash, data), () -> missing.add(hash));
+            }
+
+            Optional<Long> knownHead = headTracker.getHead(getNetwork()).map(ChainHead::height);
+            List<Request<?, ? extends Response<?>>> requests = new ArrayList<>();
+            if (knownHead.isEmpty()) {
+                requests.add(web3j.ethBlockNumber());
+            }
+            missing.forEach(hash -> requests.add(web3j.ethGetTransactionByHash(hash)));
+            missing.forEach(hash -> requests.add(web3j.ethGetTransactionReceipt(hash)));
+            List<Response<?>> responses = batcher.sendAll(requests);
+
+            int offset = 0;
+            long head;
+            if (knownHead.isPresent()) {
+                head = knownHead.get();
+            } else {
+                Response<?> blockNumber = responses.get(offset++);
+                if (blockNumber.hasError()) {
+                    throw EthereumRpcBatcher.error(blockNumber);
+                }
+                head = headTracker.publish(getNetwork(),
+                        ((EthBlockNumber) blockNumber).getBlockNumber().longValue()).height();
+            }
+            for (int i = 0; i < missing.size(); i++) {
+                String hash = missing.get(i);
+                Response<?> transactionResponse = responses.get(offset + i);
+                Response<?> receiptResponse = responses.get(offset + missing.size() + i);
+                if (transactionResponse.hasError() || receiptResponse.hasError()) {
+                    Response<?> failed = transactionResponse.hasError() ? transactionResponse : receiptResponse;
+                    log.warn("Could not read transaction {}: {}", hash, EthereumRpcBatcher.error(failed).getMessage());
+                    continue;
+                }
+                var transaction = ((EthTransaction) transactionResponse).getTransaction().orElse(null);
+                if (transaction == null) {
+                    log.warn("Transaction not found: {}", hash);
+                    continue;
+                }
+                TransactionReceipt receipt = ((EthGetTransactionReceipt) receiptResponse)
+                        .getTransactionReceipt().orElse(null);
+
+                TransactionData data = new TransactionData(transaction, receipt);
+                if (receipt != null && transaction.getBlockNumber() != null
+                        && head - transaction.getBlockNumber().longValue() + 1 >= CONFIRMATION_BLOCKS) {
+                    cache.putImmutable(transactionKey(hash), data);
+                } else {
+                    cache.putMutable(transactionKey(hash), data, Volatility.PENDING);
+                }
+                known.put(hash, data);
+            }
+
+            Map<String, TransactionDetails> details = new LinkedHashMap<>();
+            for (String hash : hashes) {
+                TransactionData data = known.get(hash);
+                if (data != null) {
+                    details.put(hash, toDetails(hash, data, head));
+                }
+            }
+            return details;
         } catch (Exception e) {
-            log.error("Error getting transaction details: {}", transactionHash, e);
+            log.error("Error getting details of {} transactions", hashes.size(), e);
             throw new RuntimeException("Failed to get transaction details", e);
         }
     }
 
+    private TransactionDetails toDetails(String hash, TransactionData data, long head) {
+        var transaction = data.transaction();
+        TransactionReceipt receipt = data.receipt();
+
+        BigInteger txBlock = transaction.getBlockNumber();
+        Integer confirmations = txBlock != null ? (int) (head - txBlock.longValue() + 1) : 0;
+
+        BigDecimal amount = Convert.fromWei(transaction.getValue().toString(), Convert.Unit.ETHER);
+        BigDecimal fee = receipt != null ?
+                Convert.fromWei(receipt.getGasUsed().multiply(transaction.getGasPrice()).toString(),
+                        Convert.Unit.ETHER) : BigDecimal.ZERO;
+
+        return new TransactionDetails(
+                hash,
+                transaction.getFrom(),
+                transaction.getTo(),
+                amount,
+                fee,
+                txBlock != null ? txBlock.longValue() : null,
+                confirmations,
+                confirmations >= CONFIRMATION_BLOCKS
+        );
+    }
+
     @Override
     public boolean isValidAddress(String address) {
         return address != null && address.matches("^0x[0-9a-fA-F]{40}$");
     }
 
     @Override
-    public void getCurrentBlock() {
+    public int getRequiredConfirmations() {
+        return CONFIRMATION_BLOCKS;
+    }
+
+    @Override
+    public Optional<BlockSource> getBlockSource() {
+        return Optional.of(blockSource);
+    }
+
+    private Transaction mapToTransaction(EthBlock.TransactionObject tx, TransactionReceipt receipt, long headHeight) {
+        long blockNumber = tx.getBlockNumber().longValue();
+        int confirmations = (int) (headHeight - blockNumber + 1);
+
+        // Pre-London receipts have no effectiveGasPrice; gasPrice is then what was paid.
+        BigInteger gasPrice = receipt.getEffectiveGasPrice() != null ?
+                Numeric.decodeQuantity(receipt.getEffectiveGasPrice()) : tx.getGasPrice();
+        BigDecimal fee = Convert.fromWei(new BigDecimal(receipt.getGasUsed().multiply(gasPrice)), Convert.Unit.ETHER);
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionHash(tx.getHash());
+        transaction.setFromAddress(tx.getFrom());
+        transaction.setToAddress(tx.getTo());
+        transaction.setAmount(Convert.fromWei(new BigDecimal(tx.getValue()), Convert.Unit.ETHER));
+        transaction.setFee(fee);
+        transaction.setBlockNumber(blockNumber);
+        transaction.setBlockHash(tx.getBlockHash());
+        transaction.setConfirmations(confirmations);
+        transaction.setStatus(confirmations >= CONFIRMATION_BLOCKS ?
+                TransactionStatus.SUCCESS : TransactionStatus.PENDING);
+        return transaction;
+    }
+
+    private String balanceKey(String address) {
+        return "eth:balance:" + normalizeAddress(address);
+    }
 
+    private String transactionKey(String hash) {
+        return "eth:tx:" + hash;
+    }
+
+    /**
+     * Highest block with {@link #CONFIRMATION_BLOCKS} confirmations; it and everything below
+     * are treated as immutable. Uses the tracked head if there is one, otherwise
+     * {@code knownHeight} (a block known to exist), so this never costs a request.
+     */
+    private long finalizedHeight(long knownHeight) {
+        long head = headTracker.getHead(getNetwork()).map(tracked -> Math.max(tracked.height(), knownHeight)).orElse(knownHeight);
+        return head - CONFIRMATION_BLOCKS + 1;
+    }
+
+    /**
+     * A transaction as returned by the node, with its receipt once mined.
+     */
+    private record TransactionData(org.web3j.protocol.core.methods.response.Transaction transaction,
+                                   TransactionReceipt receipt) {}
+
+    private class EthereumSenderChain implements NonceManager.SenderChain {
+
+        @Override
+        public long transactionCount(String sender, boolean includePending) throws Exception {
+            return batcher.send(web3j.ethGetTransactionCount(sender,
+                    includePending ? DefaultBlockParameterName.PENDING : DefaultBlockParameterName.LATEST))
+                    .getTransactionCount().longValue();
+        }
+
+        @Override
+        public void broadcast(String rawTransaction) throws Exception {
+            EthSendTransaction response = web3j.ethSendRawTransaction(rawTransaction).send();
+            if (response.hasError() && !isAlreadyKnown(response.getError().getMessage())) {
+                throw new IOException(response.getError().getMessage());
+            }
+        }
+
+        @Override
+        public NonceManager.SignedTransaction signSelfTransfer(String privateKey, String sender, long nonce) {
+            RawTransaction transaction = etherTransaction(BigInteger.valueOf(nonce), sender, BigInteger.ZERO, standardFees());
+            String signed = Numeric.toHexString(
+                    TransactionEncoder.signMessage(transaction, chainId, Credentials.create(privateKey)));
+            return new NonceManager.SignedTransaction(Hash.sha3(signed), signed);
+        }
+    }
+
+    private class EthereumBlockSource implements BlockSource {
+
+        @Override
+        public long getHeadHeight() {
+            try {
+                return headTracker.getHeight(getNetwork());
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to get block number", e);
+            }
+        }
+
+        @Override
+        public List<BlockHeader> getHeaders(long fromHeight, long toHeight) {
+            try {
+                return blockFetcher.fetchHeaders(fromHeight, toHeight, finalizedHeight(toHeight)).stream()
+                        .map(block -> new BlockHeader(block.getNumber().longValue(), block.getHash(), block.getParentHash()))
+                        .toList();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read headers " + fromHeight + ".." + toHeight, e);
+            }
+        }
+
+        /**
+         * Reads the range in batched calls, matches recipients by hash-set lookup and only
+         * fetches receipts (for fee and status) of the matched transactions.
+         */
+        @Override
+        public List<Transaction> getIncomingTransfers(long fromHeight, long toHeight, Set<String> watchedAddresses) {
+            try {
+                List<EthBlock.TransactionObject> matched = new ArrayList<>();
+                long finalizedHeight = finalizedHeight(toHeight);
+                for (EthBlock.Block block : blockFetcher.fetchBlocks(fromHeight, toHeight, finalizedHeight)) {
+                    for (EthBlock.TransactionResult<?> result : block.getTransactions()) {
+                        EthBlock.TransactionObject tx = (EthBlock.TransactionObject) result.get();
+                        if (tx.getTo() != null && tx.getValue().signum() > 0
+                                && watchedAddresses.contains(normalizeAddress(tx.getTo()))) {
+                            matched.add(tx);
+                        }
+                    }
+                }
+                if (matched.isEmpty()) {
+                    return List.of();
+                }
+
+                Map<String, TransactionReceipt> receipts = blockFetcher.fetchReceipts(
+                        matched.stream().map(EthBlock.TransactionObject::getHash).toList(), finalizedHeight);
+                List<Transaction> transfers = new ArrayList<>();
+                for (EthBlock.TransactionObject tx : matched) {
+                    TransactionReceipt receipt = receipts.get(tx.getHash());
+                    if (receipt == null || !receipt.isStatusOK()) {
+                        log.warn("Skipping transfer {} without a successful receipt", tx.getHash());
+                        continue;
+                    }
+                    transfers.add(mapToTransaction(tx, receipt, toHeight));
+                }
+                return transfers;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read blocks " + fromHeight + ".." + toHeight, e);
+            }
+        }
     }
 }
@@ -0,0 +1,254 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.EthereumConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.web3j.utils.Convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * EIP-1559 fee quotes served from memory. Each registered network's fee history (base fee and
+ * priority-fee percentiles of recent blocks) is read once per head the {@link ChainHeadTracker}
+ * publishes and kept as an immutable {@link FeeQuote}, so signing and fee estimates never
+ * wait for a request of their own. Reads run on the oracle's own {@code fee-oracle} thread
+ * rather than the head dispatch lane, coalescing heads that arrive during a read. A failed
+ * read keeps the previous quote.
+ * <p>
+ * A quote older than {@code fee-quote-max-age} is stale: {@link #getFreshQuote} does not
+ * serve it, and queues a read of the fee history instead, so callers never wait on one.
+ * <p>
+ * Each speed's tip is the median of its percentile over the non-empty blocks, and at least
+ * {@code min-priority-fee} so a run of empty blocks does not quote a zero tip; its max fee
+ * allows the next block's base fee to double. Publishes {@code chain.fee.base}, the next
+ * block's base fee in wei (tag {@code network}).
+ */
+@Slf4j
+@Component
+public class FeeOracle {
+
+    /**
+     * Reads {@code eth_feeHistory} up to the latest block.
+     */
+    @FunctionalInterface
+    public interface FeeHistoryReader {
+        FeeHistory read(int blockCount, List<Double> rewardPercentiles) throws Exception;
+    }
+
+    /**
+     * Fee history as returned by the node: {@code blockCount + 1} base fees (the last one is the
+     * next block's) and, per block, the priority fee at each requested percentile.
+     */
+    public record FeeHistory(long oldestBlock, List<BigInteger> baseFeePerGas, List<List<BigInteger>> rewards) {}
+
+    public enum Speed { SLOW, STANDARD, FAST }
+
+    /**
+     * Fees of one speed; {@code maxCost} is the most a transfer of {@code gasLimit} may cost, in
+     * the network's coin.
+     */
+    public record FeeLevel(BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas, BigDecimal maxCost) {}
+
+    public record FeeQuote(BlockchainNetwork network, long blockNumber, BigInteger baseFeePerGas,
+                           long gasLimit, Map<Speed, FeeLevel> levels, Instant observedAt) {
+
+        public FeeLevel level(Speed speed) {
+            return levels.get(speed);
+        }
+    }
+
+    /** Reward percentiles requested for {@link Speed#SLOW}, {@link Speed#STANDARD} and {@link Speed#FAST}. */
+    static final List<Double> PERCENTILES = List.of(10.0, 50.0, 90.0);
+    private static final BigInteger BASE_FEE_HEADROOM = BigInteger.TWO;
+
+    private final ChainHeadTracker headTracker;
+    private final MeterRegistry meterRegistry;
+    private final int historyBlocks;
+    private final long gasLimit;
+    private final long maxQuoteAgeMillis;
+    private final BigInteger minPriorityFee;
+    private final Map<BlockchainNetwork, FeeHistoryReader> readers = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, AtomicReference<FeeQuote>> quotes = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, AtomicBoolean> refreshPending = new ConcurrentHashMap<>();
+    private final Executor refresher;
+
+    @Autowired
+    public FeeOracle(ChainHeadTracker headTracker, MeterRegistry meterRegistry, EthereumConfig config) {
+        this(headTracker, meterRegistry, config, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fee-oracle");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    FeeOracle(ChainHeadTracker headTracker, MeterRegistry meterRegistry, EthereumConfig config, Executor refresher) {
+        this.headTracker = headTracker;
+        this.meterRegistry = meterRegistry;
+        this.historyBlocks = config.getFeeHistoryBlocks();
+        this.gasLimit = config.getGasLimit();
+        this.maxQuoteAgeMillis = config.getFeeQuoteMaxAge();
+        this.minPriorityFee = config.getMinPriorityFee();
+        this.refresher = refresher;
+    }
+
+    /**
+     * Refresh quotes on every head the {@link ChainHeadTracker} publishes.
+     */
+    @PostConstruct
+    public void subscribe() {
+        headTracker.subscribe(head -> scheduleRefresh(head.network()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void register(BlockchainNetwork network, FeeHistoryReader reader) {
+        readers.put(network, reader);
+        Gauge.builder("chain.fee.base", this, oracle -> oracle.getQuote(network)
+                        .map(quote -> quote.baseFeePerGas().doubleValue()).orElse(0.0))
+                .tag("network", network.name())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Latest quote, if one was read yet, however old it is.
+     */
+    public Optional<FeeQuote> getQuote(BlockchainNetwork network) {
+        return Optional.ofNullable(reference(network).get());
+    }
+
+    /**
+     * Whether {@code quote} was read no longer than {@code fee-quote-max-age} ago.
+     */
+    public boolean isFresh(FeeQuote quote) {
+        return !quote.observedAt().isBefore(Instant.now().minusMillis(maxQuoteAgeMillis));
+    }
+
+    /**
+     * Latest quote if it is fresh. A stale quote is not served: a read is queued on the
+     * oracle's thread and the caller tries again later. Empty before the first quote too.
+     */
+    public Optional<FeeQuote> getFreshQuote(BlockchainNetwork network) {
+        FeeQuote current = reference(network).get();
+        if (current == null || isFresh(current)) {
+            return Optional.ofNullable(current);
+        }
+        scheduleRefresh(network);
+        return Optional.ofNullable(reference(network).get()).filter(this::isFresh);
+    }
+
+    /**
+     * Read the fee history once for {@code height}; heads at or below the current quote's
+     * block are ignored while that quote is fresh.
+     */
+    void refresh(BlockchainNetwork network, long height) {
+        FeeHistoryReader reader = readers.get(network);
+        FeeQuote current = reference(network).get();
+        if (reader == null || (current != null && current.blockNumber() >= height && isFresh(current))) {
+            return;
+        }
+        try {
+            store(network, toQuote(network, reader.read(historyBlocks, PERCENTILES)));
+        } catch (Exception e) {
+            if (RpcThrottledException.isCauseOf(e)) {
+                log.info("Throttled reading {} fee history, keeping quote of block {}", network,
+                        current != null ? current.blockNumber() : null);
+            } else {
+                log.warn("Error reading {} fee history: {}", network, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Keep {@code quote} unless a quote of a later block is already in; a re-read of the same
+     * block replaces it so its age starts over.
+     */
+    private FeeQuote store(BlockchainNetwork network, FeeQuote quote) {
+        return reference(network).accumulateAndGet(quote,
+                (previous, next) -> previous == null || next.blockNumber() >= previous.blockNumber() ? next : previous);
+    }
+
+    /**
+     * Queue a read for the network's latest head unless one is already queued.
+     */
+    private void scheduleRefresh(BlockchainNetwork network) {
+        if (!readers.containsKey(network)) {
+            return;
+        }
+        AtomicBoolean pending = refreshPending.computeIfAbsent(network, n -> new AtomicBoolean());
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            pending.set(false);
+            headTracker.getHead(network).ifPresent(head -> refresh(network, head.height()));
+        });
+    }
+
+    private FeeQuote toQuote(BlockchainNetwork network, FeeHistory history) {
+        List<BigInteger> baseFees = history.baseFeePerGas();
+        if (baseFees == null || baseFees.isEmpty()) {
+            throw new IllegalStateException("Fee history without base fees");
+        }
+        BigInteger nextBaseFee = baseFees.get(baseFees.size() - 1);
+        long newestBlock = history.oldestBlock() + Math.max(0, baseFees.size() - 2);
+
+        Map<Speed, FeeLevel> levels = new EnumMap<>(Speed.class);
+        for (Speed speed : Speed.values()) {
+            BigInteger tip = medianReward(history.rewards(), speed.ordinal()).max(minPriorityFee);
+            BigInteger maxFee = nextBaseFee.multiply(BASE_FEE_HEADROOM).add(tip);
+            levels.put(speed, new FeeLevel(tip, maxFee,
+                    Convert.fromWei(new BigDecimal(maxFee.multiply(BigInteger.valueOf(gasLimit))), Convert.Unit.ETHER)));
+        }
+        return new FeeQuote(network, newestBlock, nextBaseFee, gasLimit, Collections.unmodifiableMap(levels), Instant.now());
+    }
+
+    /**
+     * Median of one percentile column, ignoring empty blocks (which report no tips); zero if
+     * every block was empty.
+     */
+    private static BigInteger medianReward(List<List<BigInteger>> rewards, int column) {
+        List<BigInteger> values = new ArrayList<>();
+        if (rewards != null) {
+            for (List<BigInteger> block : rewards) {
+                if (block != null && block.size() > column && block.get(column).signum() > 0) {
+                    values.add(block.get(column));
+                }
+            }
+        }
+        if (values.isEmpty()) {
+            return BigInteger.ZERO;
+        }
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+
+    private AtomicReference<FeeQuote> reference(BlockchainNetwork network) {
+        return quotes.computeIfAbsent(network, key -> new AtomicReference<>());
+    }
+}
@@ -0,0 +1,230 @@
+package com.wallet.service.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ranks the liteservers of a TON global config by probing each one for its masterchain seqno.
+ * A liteserver that answers within the timeout and is no more than {@code maxSeqnoLag} blocks
+ * behind the freshest one is healthy; healthy servers are ordered by probe latency. Servers
+ * that time out, fail or fall behind are demoted below every healthy one until a later probe
+ * clears them. Servers not probed yet count as healthy and keep their config order.
+ * <p>
+ * A probe that times out is abandoned so the {@link Probe} can tear down its client, and the
+ * server is not probed again until that call has returned: a hung liteserver holds at most
+ * one of the bounded probe threads.
+ */
+@Slf4j
+class LiteserverSelector {
+
+    /**
+     * Reads the masterchain seqno from one liteserver.
+     */
+    interface Probe {
+        long masterchainSeqno(LiteServer server) throws Exception;
+
+        /**
+         * Called when the probe of {@code server} timed out and its result is no longer wanted.
+         */
+        default void abandon(LiteServer server) {
+        }
+    }
+
+    record LiteServer(int index, String host, int port, String publicKey) {
+
+        String address() {
+            return host + ":" + port;
+        }
+    }
+
+    record LiteServerStats(LiteServer server, Long latencyMillis, Long seqno, long lag, boolean healthy) {
+    }
+
+    private record ProbeResult(long seqno, long latencyMillis) {
+    }
+
+    private static final double LATENCY_SMOOTHING = 0.3;
+    private static final int MAX_PROBE_THREADS = 16;
+
+    private final List<LiteServer> liteServers;
+    private final Probe probe;
+    private final long probeTimeoutMillis;
+    private final long maxSeqnoLag;
+    private final ExecutorService probeExecutor;
+    /** Last probe started on each server, by liteserver index. */
+    private final Future<?>[] inFlight;
+
+    private volatile List<LiteServerStats> ranking;
+
+    LiteserverSelector(List<LiteServer> liteServers, Probe probe, long probeTimeoutMillis, long maxSeqnoLag) {
+        if (liteServers.isEmpty()) {
+            throw new IllegalArgumentException("No liteservers to select from");
+        }
+        this.liteServers = List.copyOf(liteServers);
+        this.probe = probe;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+        this.maxSeqnoLag = maxSeqnoLag;
+        this.probeExecutor = Executors.newFixedThreadPool(Math.min(this.liteServers.size(), MAX_PROBE_THREADS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "liteserver-probe");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.inFlight = new Future<?>[this.liteServers.size()];
+        this.ranking = this.liteServers.stream()
+                .map(server -> new LiteServerStats(server, null, null, 0, true))
+                .toList();
+    }
+
+    /**
+     * Liteservers listed in a TON global config file, in file order.
+     */
+    static List<LiteServer> load(String globalConfigPath) throws IOException {
+        JsonNode liteServers = new ObjectMapper().readTree(new File(globalConfigPath)).path("liteservers");
+        List<LiteServer> servers = new ArrayList<>();
+        for (JsonNode node : liteServers) {
+            servers.add(new LiteServer(servers.size(), toHost(node.path("ip").asInt()),
+                    node.path("port").asInt(), node.path("id").path("key").asText()));
+        }
+        return servers;
+    }
+
+    /**
+     * Probe every liteserver in parallel and re-rank them. A server whose previous probe is
+     * still running is not probed again and counts as timed out.
+     */
+    synchronized void probeAll() {
+        List<Future<ProbeResult>> probes = new ArrayList<>();
+        for (LiteServer server : liteServers) {
+            Future<?> previous = inFlight[server.index()];
+            if (previous != null && !previous.isDone()) {
+                log.warn("Liteserver {} has not returned from an abandoned probe yet", server.address());
+                probes.add(null);
+                continue;
+            }
+            Future<ProbeResult> started = probeExecutor.submit(() -> {
+                long startedAt = System.nanoTime();
+                long seqno = probe.masterchainSeqno(server);
+                return new ProbeResult(seqno, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            });
+            inFlight[server.index()] = started;
+            probes.add(started);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(probeTimeoutMillis);
+        ProbeResult[] results = new ProbeResult[liteServers.size()];
+        for (LiteServer server : liteServers) {
+            Future<ProbeResult> result = probes.get(server.index());
+            if (result == null) {
+                continue;
+            }
+            try {
+                results[server.index()] = result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                result.cancel(true);
+                probe.abandon(server);
+                log.warn("Liteserver {} did not answer within {} ms", server.address(), probeTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Liteserver {} probe failed: {}", server.address(), e.getMessage());
+            }
+        }
+        rank(results);
+    }
+
+    /**
+     * Liteserver for pool slot {@code slot}: slots are spread round-robin over the healthy
+     * servers, best first, or over all servers when none is healthy.
+     */
+    int select(int slot) {
+        List<LiteServerStats> current = ranking;
+        long healthy = current.stream().filter(LiteServerStats::healthy).count();
+        int candidates = healthy > 0 ? (int) healthy : current.size();
+        return current.get(slot % candidates).server().index();
+    }
+
+    /**
+     * Whether slots may stay on {@code liteServer}: it is healthy, or no server is. A client
+     * pinned to such a server is kept even when re-ranking would now assign its slot to another
+     * healthy server, so latency jitter between probes does not churn clients.
+     */
+    boolean isCandidate(int liteServer) {
+        List<LiteServerStats> current = ranking;
+        boolean anyHealthy = current.stream().anyMatch(LiteServerStats::healthy);
+        return !anyHealthy || current.stream()
+                .anyMatch(stats -> stats.server().index() == liteServer && stats.healthy());
+    }
+
+    /**
+     * Current ranking, best first.
+     */
+    List<LiteServerStats> getRanking() {
+        return ranking;
+    }
+
+    int size() {
+        return liteServers.size();
+    }
+
+    void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+
+    private void rank(ProbeResult[] results) {
+        long freshest = -1;
+        for (ProbeResult result : results) {
+            if (result != null) {
+                freshest = Math.max(freshest, result.seqno());
+            }
+        }
+
+        List<LiteServerStats> previous = ranking;
+        List<LiteServerStats> stats = new ArrayList<>();
+        for (LiteServer server : liteServers) {
+            ProbeResult result = results[server.index()];
+            if (result == null) {
+                stats.add(new LiteServerStats(server, null, null, 0, false));
+                continue;
+            }
+            Long previousLatency = previous.stream()
+                    .filter(s -> s.server().index() == server.index())
+                    .findFirst()
+                    .map(LiteServerStats::latencyMillis)
+                    .orElse(null);
+            long latency = previousLatency == null
+                    ? result.latencyMillis()
+                    : Math.round(LATENCY_SMOOTHING * result.latencyMillis() + (1 - LATENCY_SMOOTHING) * previousLatency);
+            long seqno = result.seqno();
+            long lag = freshest - seqno;
+            if (lag > maxSeqnoLag) {
+                log.warn("Liteserver {} is {} blocks behind, demoting it", server.address(), lag);
+            }
+            stats.add(new LiteServerStats(server, latency, seqno, lag, lag <= maxSeqnoLag));
+        }
+
+        stats.sort(Comparator.comparing((LiteServerStats s) -> !s.healthy())
+                .thenComparing(s -> s.seqno() == null)
+                .thenComparing(LiteServerStats::latencyMillis, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingLong(LiteServerStats::lag));
+        ranking = List.copyOf(stats);
+        log.debug("Liteserver ranking: {}", ranking);
+    }
+
+    private static String toHost(int ip) {
+        return ((ip >>> 24) & 0xff) + "." + ((ip >>> 16) & 0xff) + "." + ((ip >>> 8) & 0xff) + "." + (ip & 0xff);
+    }
+}
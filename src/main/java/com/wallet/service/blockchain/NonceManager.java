@@ -0,0 +1,351 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.NonceReservation;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import com.wallet.repository.NonceReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out account nonces per sending address from the {@code nonce_reservations} table, so
+ * a sender can sign and broadcast many transactions back-to-back instead of asking the node
+ * for its nonce and waiting for each receipt.
+ * <p>
+ * A sender's state is recovered from the chain and its open reservations on first use: the
+ * next nonce follows both the node's pending count and the highest reservation. Nonces that
+ * were released, or reserved but never signed, are gaps; the sender's next transaction takes
+ * the lowest gap first so later transactions are not stuck behind it. Reconciliation prunes
+ * nonces the chain has consumed, re-broadcasts signed transactions the node has dropped, and
+ * fills a gap that later signed transactions have waited on too long with a 0-value transfer
+ * of the sender to itself.
+ */
+@Slf4j
+@Component
+public class NonceManager {
+
+    /**
+     * Nonce-related calls of one network.
+     */
+    public interface SenderChain {
+
+        /**
+         * Transactions sent by {@code sender}: mined ones, or including the node's mempool.
+         */
+        long transactionCount(String sender, boolean includePending) throws Exception;
+
+        /**
+         * Broadcast an already signed transaction; a node that already has it is a success.
+         */
+        void broadcast(String rawTransaction) throws Exception;
+
+        /**
+         * Sign a 0-value transfer of {@code sender} to itself at {@code nonce}, without sending it.
+         */
+        SignedTransaction signSelfTransfer(String privateKey, String sender, long nonce) throws Exception;
+    }
+
+    /**
+     * Private keys of the sending addresses, for signing gap fillers.
+     */
+    public interface SenderKeys {
+
+        Optional<String> privateKey(BlockchainNetwork network, String sender);
+    }
+
+    public record SignedTransaction(String hash, String rawTransaction) {
+    }
+
+    public record Reservation(BlockchainNetwork network, String sender, long nonce, UUID id) {
+
+        public static Reservation of(NonceReservation reservation) {
+            return new Reservation(reservation.getNetwork(), reservation.getSender(), reservation.getNonce(),
+                    reservation.getId());
+        }
+    }
+
+    /** A reservation this old that was never signed is taken to be abandoned. */
+    static final long STALE_RESERVATION_SECONDS = 300;
+    /** How long a consumed nonce made for a withdrawal is kept, so the withdrawal can find its hash. */
+    static final long REFERENCED_RETENTION_HOURS = 24;
+    /** A released nonce later signed transactions have waited on this long is filled by reconciliation. */
+    static final long GAP_FILL_SECONDS = 120;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final NonceReservationRepository repository;
+    private final Map<BlockchainNetwork, SenderChain> chains = new ConcurrentHashMap<>();
+    private final Map<String, SenderState> senders = new ConcurrentHashMap<>();
+    private volatile SenderKeys senderKeys;
+
+    public NonceManager(NonceReservationRepository repository) {
+        this.repository = repository;
+    }
+
+    public void register(BlockchainNetwork network, SenderChain chain) {
+        chains.put(network, chain);
+    }
+
+    public void registerKeys(SenderKeys keys) {
+        this.senderKeys = keys;
+    }
+
+    public Reservation reserve(BlockchainNetwork network, String sender) {
+        return reserve(network, sender, null);
+    }
+
+    /**
+     * Reserve the next nonce of {@code sender}, filling the lowest gap first. Holds the sender's
+     * lock only for the reservation itself, so callers sign and broadcast concurrently.
+     *
+     * @param reference the withdrawal the nonce is for, so it can be looked up with
+     *                  {@link #findReservation}; at most one open reservation per reference
+     */
+    public Reservation reserve(BlockchainNetwork network, String sender, UUID reference) {
+        String address = sender.toLowerCase();
+        SenderState state = senders.computeIfAbsent(key(network, address), key -> new SenderState());
+        synchronized (state) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                if (!state.loaded) {
+                    recover(network, address, state);
+                }
+                Map.Entry<Long, UUID> gap = state.gaps.pollFirstEntry();
+                long nonce = gap != null ? gap.getKey() : state.next;
+                try {
+                    UUID id = gap != null ? reuse(gap.getValue(), reference) : insert(network, address, nonce, reference);
+                    if (id != null) {
+                        if (gap == null) {
+                            state.next = nonce + 1;
+                        }
+                        return new Reservation(network, address, nonce, id);
+                    }
+                } catch (DataIntegrityViolationException e) {
+                    log.debug("Nonce {} of {} already taken", nonce, address);
+                }
+                // Another node took the nonce; our view of the sender is stale
+                state.loaded = false;
+            }
+        }
+        throw new RuntimeException("Could not reserve a nonce for " + address);
+    }
+
+    /**
+     * The open reservation made for {@code reference}; a SENT one carries the hash of the
+     * transaction signed with it.
+     */
+    public Optional<NonceReservation> findReservation(UUID reference) {
+        return repository.findByReference(reference);
+    }
+
+    /**
+     * Record the signed transaction before it is broadcast, so it can be re-sent if dropped.
+     */
+    public void markSent(Reservation reservation, String transactionHash, String rawTransaction) {
+        if (repository.markSent(reservation.id(), transactionHash, rawTransaction) == 0) {
+            throw new IllegalStateException("Nonce " + reservation.nonce() + " of " + reservation.sender()
+                    + " is no longer reserved");
+        }
+    }
+
+    /**
+     * The transaction was never broadcast (or was rejected): the next one reuses its nonce.
+     */
+    public void release(Reservation reservation) {
+        SenderState state = senders.get(key(reservation.network(), reservation.sender()));
+        if (repository.release(reservation.id()) == 1 && state != null) {
+            synchronized (state) {
+                state.gaps.put(reservation.nonce(), reservation.id());
+            }
+        }
+        log.info("Released nonce {} of {}", reservation.nonce(), reservation.sender());
+    }
+
+    /**
+     * The chain already used this nonce (for example, a transaction sent from elsewhere): drop
+     * the reservation and re-read the sender from the chain before the next reservation.
+     */
+    public void discard(Reservation reservation) {
+        repository.deleteById(reservation.id());
+        SenderState state = senders.get(key(reservation.network(), reservation.sender()));
+        if (state != null) {
+            synchronized (state) {
+                state.loaded = false;
+            }
+        }
+        log.warn("Nonce {} of {} was already used on chain", reservation.nonce(), reservation.sender());
+    }
+
+    /**
+     * Prune nonces the chain has consumed, re-broadcast signed transactions the node no longer
+     * knows about and fill old gaps below them. Covers every sender with open reservations,
+     * including those left over from before a restart.
+     */
+    @Scheduled(fixedDelayString = "${app.blockchain.ethereum.nonce-reconcile-interval:30000}")
+    public void reconcile() {
+        chains.forEach((network, chain) -> {
+            for (String sender : repository.findSenders(network)) {
+                SenderState state = senders.computeIfAbsent(key(network, sender), key -> new SenderState());
+                try {
+                    synchronized (state) {
+                        rebroadcastDropped(network, sender, chain, recover(network, sender, state));
+                        fillGaps(network, sender, chain, state);
+                    }
+                } catch (Exception e) {
+                    log.warn("Error reconciling nonces of {} on {}: {}", sender, network, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Rebuild the sender's state from the chain and its open reservations.
+     *
+     * @return the node's pending transaction count
+     */
+    private long recover(BlockchainNetwork network, String sender, SenderState state) {
+        SenderChain chain = chains.get(network);
+        if (chain == null) {
+            throw new IllegalStateException("No nonce source registered for " + network);
+        }
+        long confirmed;
+        long pending;
+        try {
+            confirmed = chain.transactionCount(sender, false);
+            pending = Math.max(confirmed, chain.transactionCount(sender, true));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read nonce of " + sender, e);
+        }
+        repository.deleteBelow(network, sender, confirmed, LocalDateTime.now().minusHours(REFERENCED_RETENTION_HOURS));
+
+        LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(STALE_RESERVATION_SECONDS);
+        TreeMap<Long, UUID> gaps = new TreeMap<>();
+        long next = pending;
+        for (NonceReservation reservation : repository.findByNetworkAndSender(network, sender)) {
+            long nonce = reservation.getNonce();
+            next = Math.max(next, nonce + 1);
+            if (nonce < pending) {
+                // The node holds a transaction with this nonce; it is not ours to fill
+                continue;
+            }
+            if (reservation.getStatus() == NonceStatus.RELEASED) {
+                gaps.put(nonce, reservation.getId());
+            } else if (reservation.getStatus() == NonceStatus.RESERVED
+                    && reservation.getUpdatedAt() != null && reservation.getUpdatedAt().isBefore(staleBefore)
+                    && repository.release(reservation.getId()) == 1) {
+                log.warn("Nonce {} of {} was reserved but never signed, releasing it", nonce, sender);
+                gaps.put(nonce, reservation.getId());
+            }
+        }
+
+        state.next = next;
+        state.gaps.clear();
+        state.gaps.putAll(gaps);
+        state.loaded = true;
+        return pending;
+    }
+
+    private void rebroadcastDropped(BlockchainNetwork network, String sender, SenderChain chain, long pending) {
+        for (NonceReservation reservation : repository.findByNetworkAndSender(network, sender)) {
+            if (reservation.getStatus() != NonceStatus.SENT || reservation.getRawTransaction() == null
+                    || reservation.getNonce() < pending) {
+                continue;
+            }
+            try {
+                chain.broadcast(reservation.getRawTransaction());
+                log.info("Re-broadcast transaction {} (nonce {} of {})",
+                        reservation.getTransactionHash(), reservation.getNonce(), sender);
+            } catch (Exception e) {
+                log.warn("Re-broadcasting nonce {} of {} failed: {}", reservation.getNonce(), sender, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sign and send a self-transfer at each released nonce that a signed transaction waits
+     * behind and that has stayed released for {@link #GAP_FILL_SECONDS}; a younger gap is left
+     * to the sender's next withdrawal.
+     */
+    private void fillGaps(BlockchainNetwork network, String sender, SenderChain chain, SenderState state) {
+        if (state.gaps.isEmpty()) {
+            return;
+        }
+        List<NonceReservation> reservations = repository.findByNetworkAndSender(network, sender);
+        long highestSent = reservations.stream()
+                .filter(reservation -> reservation.getStatus() == NonceStatus.SENT)
+                .mapToLong(NonceReservation::getNonce)
+                .max().orElse(-1);
+        LocalDateTime releasedBefore = LocalDateTime.now().minusSeconds(GAP_FILL_SECONDS);
+        for (NonceReservation gap : reservations) {
+            if (gap.getStatus() != NonceStatus.RELEASED || gap.getNonce() > highestSent
+                    || !state.gaps.containsKey(gap.getNonce())
+                    || gap.getUpdatedAt() == null || !gap.getUpdatedAt().isBefore(releasedBefore)) {
+                continue;
+            }
+            Optional<String> privateKey = senderKeys != null ? senderKeys.privateKey(network, sender) : Optional.empty();
+            if (privateKey.isEmpty()) {
+                log.warn("Nonce gap at {} of {}: no key to fill it, later transactions wait for the next send",
+                        gap.getNonce(), sender);
+                return;
+            }
+            if (repository.reuse(gap.getId(), null) != 1) {
+                continue;
+            }
+            state.gaps.remove(gap.getNonce());
+            Reservation reservation = new Reservation(network, sender, gap.getNonce(), gap.getId());
+            SignedTransaction filler;
+            try {
+                filler = chain.signSelfTransfer(privateKey.get(), sender, gap.getNonce());
+                markSent(reservation, filler.hash(), filler.rawTransaction());
+            } catch (Exception e) {
+                if (repository.release(reservation.id()) == 1) {
+                    state.gaps.put(reservation.nonce(), reservation.id());
+                }
+                log.warn("Signing a filler for nonce {} of {} failed: {}", gap.getNonce(), sender, e.getMessage());
+                continue;
+            }
+            try {
+                chain.broadcast(filler.rawTransaction());
+                log.warn("Filled nonce gap {} of {} with self-transfer {}", gap.getNonce(), sender, filler.hash());
+            } catch (Exception e) {
+                // Signed and recorded; the next reconciliation re-sends it
+                log.warn("Sending the filler for nonce {} of {} failed: {}", gap.getNonce(), sender, e.getMessage());
+            }
+        }
+    }
+
+    private UUID insert(BlockchainNetwork network, String sender, long nonce, UUID reference) {
+        return repository.saveAndFlush(NonceReservation.builder()
+                .network(network)
+                .sender(sender)
+                .nonce(nonce)
+                .reference(reference)
+                .status(NonceStatus.RESERVED)
+                .updatedAt(LocalDateTime.now())
+                .build()).getId();
+    }
+
+    private UUID reuse(UUID id, UUID reference) {
+        return repository.reuse(id, reference) == 1 ? id : null;
+    }
+
+    private static String key(BlockchainNetwork network, String sender) {
+        return network + ":" + sender;
+    }
+
+    private static final class SenderState {
+        /** Lowest nonce never reserved. */
+        private long next;
+        /** Released nonces below {@code next} and their reservation ids. */
+        private final TreeMap<Long, UUID> gaps = new TreeMap<>();
+        private boolean loaded;
+    }
+}
@@ -0,0 +1,70 @@
+package com.wallet.service.blockchain;
+
+import io.reactivex.Flowable;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.websocket.events.Notification;
+import org.web3j.utils.Async;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * web3j transport that sends every request through an {@link RpcEndpointPool} of HTTP
+ * providers. Reads are hedged; transaction submissions only fail over, never race.
+ */
+class PooledWeb3jService implements Web3jService {
+
+    private static final Set<String> WRITE_METHODS = Set.of("eth_sendRawTransaction", "eth_sendTransaction");
+
+    private final RpcEndpointPool<HttpService> pool;
+
+    PooledWeb3jService(RpcEndpointPool<HttpService> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        return pool.call(http -> http.send(request, responseType), isRead(request));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return Async.run(() -> send(request, responseType));
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        boolean reads = batchRequest.getRequests().stream().allMatch(PooledWeb3jService::isRead);
+        // Providers bill each call in a batch, so it takes one permit per call
+        return pool.call(http -> http.sendBatch(batchRequest), reads, batchRequest.getRequests().size());
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return Async.run(() -> sendBatch(batchRequest));
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        throw new UnsupportedOperationException("Subscriptions are not supported over HTTP");
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (HttpService http : pool.getClients()) {
+            http.close();
+        }
+        pool.shutdown();
+    }
+
+    private static boolean isRead(Request<?, ?> request) {
+        return !WRITE_METHODS.contains(request.getMethod());
+    }
+}
@@ -0,0 +1,440 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.RateLimitConfig;
+import com.wallet.config.RpcPoolConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Several providers of one network behind a single call interface. Each call goes to the
+ * endpoint with the best recent latency and error rate; on failure it moves on to the next
+ * one. Hedged calls (idempotent reads) are also repeated on the next endpoint once the
+ * primary has been running longer than its usual p95, and the first success wins, so one
+ * degraded provider does not stretch tail latency.
+ * <p>
+ * Every endpoint has a {@link TokenBucket} sized to its provider's quota. A call only goes to
+ * endpoints with quota left; when all are exhausted it waits for the best-ranked one (up to
+ * the configured max wait), which slows callers down to the quota instead of provoking 429s.
+ * If that wait would be too long, or every provider answered 429, the call fails with
+ * {@link RpcThrottledException}.
+ *
+ * @param <C> client type, e.g. a web3j service or a Tonlib instance
+ */
+@Slf4j
+class RpcEndpointPool<C> {
+
+    @FunctionalInterface
+    interface RpcCall<C, T> {
+        T apply(C client) throws IOException;
+    }
+
+    record EndpointStats(String name, long p50Millis, long p99Millis, double errorRate, int samples, boolean healthy) {}
+
+    private final String network;
+    private final List<Endpoint<C>> endpoints;
+    private final RpcPoolConfig config;
+    private final RateLimitConfig rateLimits;
+    private final AtomicLong hedgedCalls = new AtomicLong();
+    private final ExecutorService executor;
+
+    RpcEndpointPool(BlockchainNetwork network, Map<String, C> clients, RpcPoolConfig config,
+                    RateLimitConfig rateLimits) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("No RPC endpoints configured for " + network);
+        }
+        this.network = network.name();
+        this.config = config;
+        this.rateLimits = rateLimits;
+        this.endpoints = clients.entrySet().stream()
+                .map(entry -> new Endpoint<>(entry.getKey(), entry.getValue(), config.getLatencyWindow(),
+                        bucket(rateLimits.getQuota(network, entry.getKey()))))
+                .toList();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "rpc-pool-" + network.name().toLowerCase());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run {@code call} on the healthiest endpoint, failing over to the others in order.
+     * Only pass {@code hedge = true} for calls that are safe to run twice.
+     */
+    <T> T call(RpcCall<C, T> call, boolean hedge) throws IOException {
+        return call(call, hedge, 1);
+    }
+
+    /**
+     * Like {@link #call(RpcCall, boolean)} for a call that counts as {@code permits} requests
+     * against the provider's quota, e.g. a JSON-RPC batch.
+     */
+    <T> T call(RpcCall<C, T> call, boolean hedge, int permits) throws IOException {
+        Candidates candidates = new Candidates(rank(), permits);
+        if (!hedge || !config.isHedgingEnabled() || endpoints.size() == 1) {
+            return callInOrder(call, candidates, hedge);
+        }
+        return callHedged(call, candidates);
+    }
+
+    List<EndpointStats> getStats() {
+        return endpoints.stream().map(Endpoint::stats).toList();
+    }
+
+    long getHedgedCalls() {
+        return hedgedCalls.get();
+    }
+
+    List<C> getClients() {
+        return endpoints.stream().map(endpoint -> endpoint.client).toList();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T callInOrder(RpcCall<C, T> call, Candidates candidates, boolean idempotent) throws IOException {
+        Outcome outcome = new Outcome(idempotent);
+        for (Endpoint<C> endpoint = candidates.next(); endpoint != null; endpoint = candidates.next()) {
+            try {
+                return new Attempt<>(endpoint, call).run();
+            } catch (IOException | RpcThrottledException e) {
+                outcome.failed(endpoint, e);
+            }
+        }
+        throw outcome.toException(candidates);
+    }
+
+    private <T> T callHedged(RpcCall<C, T> call, Candidates candidates) throws IOException {
+        CompletionService<T> completions = new ExecutorCompletionService<>(executor);
+        Map<Future<T>, Attempt<T>> started = new LinkedHashMap<>();
+        Outcome outcome = new Outcome(true);
+        int running = 0;
+        boolean hedged = false;
+        try {
+            Endpoint<C> primary = candidates.next();
+            if (primary == null) {
+                throw outcome.toException(candidates);
+            }
+            start(completions, started, new Attempt<>(primary, call));
+            running++;
+            while (running > 0) {
+                Future<T> done;
+                if (!hedged && candidates.hasMore()) {
+                    done = completions.poll(hedgeDelay(primary), TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        hedged = true;
+                        Endpoint<C> hedge = candidates.next();
+                        if (hedge != null) {
+                            hedgedCalls.incrementAndGet();
+                            start(completions, started, new Attempt<>(hedge, call));
+                            running++;
+                        }
+                        continue;
+                    }
+                } else {
+                    done = completions.take();
+                }
+                running--;
+
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    outcome.failed(started.get(done).endpoint, e.getCause());
+                    Endpoint<C> next = candidates.next();
+                    if (next != null) {
+                        start(completions, started, new Attempt<>(next, call));
+                        running++;
+                    }
+                }
+            }
+            throw outcome.toException(candidates);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + network + " RPC call");
+        } finally {
+            // Losers are still running: the time they took so far is a lower bound on their
+            // latency, and recording it now is what moves a slow primary down the ranking
+            started.forEach((future, attempt) -> {
+                attempt.settle(true);
+                future.cancel(true);
+            });
+        }
+    }
+
+    private <T> void start(CompletionService<T> completions, Map<Future<T>, Attempt<T>> started, Attempt<T> attempt) {
+        started.put(completions.submit(attempt::run), attempt);
+    }
+
+    private static TokenBucket bucket(RateLimitConfig.Quota quota) {
+        return quota != null
+                ? new TokenBucket(quota.getRequestsPerSecond(), quota.getBurst())
+                : TokenBucket.unlimited();
+    }
+
+    private static boolean isRateLimited(Throwable error) {
+        // web3j reports HTTP errors as "Invalid response received: 429; ..."
+        return error instanceof IOException && error.getMessage() != null && error.getMessage().contains(" 429");
+    }
+
+    /**
+     * Endpoints in rank order that have quota for the call. Only while none has been
+     * admitted yet does it wait for quota; failover and hedges use spare quota only.
+     */
+    private final class Candidates {
+
+        private final List<Endpoint<C>> ranked;
+        private final int permits;
+        private int index;
+        private boolean admitted;
+        private boolean throttled;
+
+        Candidates(List<Endpoint<C>> ranked, int permits) {
+            this.ranked = ranked;
+            this.permits = permits;
+        }
+
+        boolean hasMore() {
+            return index < ranked.size();
+        }
+
+        Endpoint<C> next() throws InterruptedIOException {
+            while (index < ranked.size()) {
+                Endpoint<C> endpoint = ranked.get(index++);
+                if (endpoint.limiter.tryAcquire(permits)) {
+                    admitted = true;
+                    return endpoint;
+                }
+            }
+            if (admitted) {
+                return null;
+            }
+            admitted = true;
+            Endpoint<C> best = ranked.get(0);
+            try {
+                if (best.limiter.acquire(permits, rateLimits.getMaxWait())) {
+                    return best;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for " + network + " RPC quota");
+            }
+            throttled = true;
+            return null;
+        }
+    }
+
+    /**
+     * Why a call failed on every endpoint it tried. For calls that are safe to repeat,
+     * throttling wins over errors: it tells the caller to come back later rather than that the
+     * data is unavailable. For any other call an error wins, since the request may have reached
+     * the node before it failed, and a throttle would wrongly tell the caller it was never sent.
+     */
+    private final class Outcome {
+
+        private final boolean idempotent;
+        private IOException failure;
+        private RpcThrottledException throttle;
+
+        Outcome(boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+
+        void failed(Endpoint<C> endpoint, Throwable error) {
+            if (error instanceof RpcThrottledException throttled) {
+                throttle = throttled;
+                log.debug("{} RPC endpoint {} is throttled", network, endpoint.name);
+            } else {
+                failure = error instanceof IOException io ? io : new IOException(error);
+                log.warn("{} RPC call failed on {}: {}", network, endpoint.name, failure.getMessage());
+            }
+        }
+
+        RuntimeException toException(Candidates candidates) throws IOException {
+            if (!idempotent && failure != null) {
+                throw failure;
+            }
+            if (throttle != null) {
+                return throttle;
+            }
+            if (candidates.throttled) {
+                return new RpcThrottledException(network, "All " + network + " RPC endpoints are at their quota",
+                        rateLimits.getMaxWait());
+            }
+            throw failure != null ? failure : new IOException("No " + network + " RPC endpoint available");
+        }
+    }
+
+    private void checkHealth(Endpoint<C> endpoint) {
+        EndpointStats stats = endpoint.stats();
+        if (stats.healthy() && stats.samples() >= config.getMinSamples()
+                && stats.errorRate() >= config.getMaxErrorRate()) {
+            endpoint.markUnhealthy(System.currentTimeMillis() + config.getUnhealthyCooldown());
+            log.warn("{} RPC endpoint {} marked unhealthy for {} ms (error rate {})",
+                    network, endpoint.name, config.getUnhealthyCooldown(), stats.errorRate());
+        }
+    }
+
+    /**
+     * Healthy endpoints by score (median latency, penalised by errors), then the rest.
+     * Endpoints without enough samples score zero so new or recovered ones get traffic.
+     */
+    private List<Endpoint<C>> rank() {
+        long now = System.currentTimeMillis();
+        return endpoints.stream()
+                .sorted(Comparator.comparing((Endpoint<C> endpoint) -> !endpoint.isHealthy(now))
+                        .thenComparingDouble(this::score))
+                .toList();
+    }
+
+    private double score(Endpoint<C> endpoint) {
+        EndpointStats stats = endpoint.stats();
+        if (stats.samples() < config.getMinSamples()) {
+            return 0;
+        }
+        return stats.p50Millis() * (1 + 10 * stats.errorRate()) + 1;
+    }
+
+    private long hedgeDelay(Endpoint<C> primary) {
+        long p95 = primary.percentileMillis(0.95);
+        if (p95 < 0) {
+            return config.getHedgeDelayMax();
+        }
+        return Math.max(config.getHedgeDelayMin(), Math.min(config.getHedgeDelayMax(), p95));
+    }
+
+    /**
+     * One call on one endpoint. Its outcome is recorded exactly once: by the call itself, or
+     * as a censored sample when a faster endpoint won the race.
+     */
+    private final class Attempt<T> {
+
+        private final Endpoint<C> endpoint;
+        private final RpcCall<C, T> call;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        Attempt(Endpoint<C> endpoint, RpcCall<C, T> call) {
+            this.endpoint = endpoint;
+            this.call = call;
+        }
+
+        T run() throws IOException {
+            try {
+                T result = call.apply(endpoint.client);
+                settle(true);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                if (isRateLimited(e)) {
+                    // The provider is fine, we are over its quota: back off, do not penalise
+                    settled.set(true);
+                    endpoint.limiter.pause(rateLimits.getThrottleBackoff());
+                    throw new RpcThrottledException(network, endpoint.name + " answered 429",
+                            rateLimits.getThrottleBackoff());
+                }
+                if (settle(false)) {
+                    checkHealth(endpoint);
+                }
+                throw e instanceof IOException io ? io : new IOException(e);
+            }
+        }
+
+        boolean settle(boolean success) {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            endpoint.record(System.nanoTime() - start, success);
+            return true;
+        }
+    }
+
+    /**
+     * One endpoint with a ring of its most recent call outcomes.
+     */
+    private static final class Endpoint<C> {
+
+        private final String name;
+        private final C client;
+        private final TokenBucket limiter;
+        private final long[] latencies;
+        private final boolean[] successes;
+        private int count;
+        private int position;
+        private volatile long unhealthyUntil;
+
+        Endpoint(String name, C client, int window, TokenBucket limiter) {
+            this.name = name;
+            this.client = client;
+            this.limiter = limiter;
+            this.latencies = new long[window];
+            this.successes = new boolean[window];
+        }
+
+        synchronized void record(long nanos, boolean success) {
+            latencies[position] = nanos;
+            successes[position] = success;
+            position = (position + 1) % latencies.length;
+            count = Math.min(count + 1, latencies.length);
+        }
+
+        /**
+         * Starts the endpoint over with an empty window, so after the cooldown it is probed
+         * again instead of being judged on the failures that sidelined it.
+         */
+        synchronized void markUnhealthy(long until) {
+            unhealthyUntil = until;
+            count = 0;
+            position = 0;
+        }
+
+        boolean isHealthy(long now) {
+            return now >= unhealthyUntil;
+        }
+
+        synchronized long percentileMillis(double percentile) {
+            long[] sorted = new long[count];
+            int successful = 0;
+            for (int i = 0; i < count; i++) {
+                if (successes[i]) {
+                    sorted[successful++] = latencies[i];
+                }
+            }
+            if (successful == 0) {
+                return -1;
+            }
+            Arrays.sort(sorted, 0, successful);
+            int index = (int) Math.ceil(percentile * successful) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+        }
+
+        synchronized EndpointStats stats() {
+            int failures = 0;
+            for (int i = 0; i < count; i++) {
+                if (!successes[i]) {
+                    failures++;
+                }
+            }
+            double errorRate = count == 0 ? 0 : (double) failures / count;
+            return new EndpointStats(name, percentileMillis(0.5), percentileMillis(0.99), errorRate, count,
+                    isHealthy(System.currentTimeMillis()));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.wallet.service.blockchain;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled at {@code requestsPerSecond} up to {@code burst} tokens. A request for
+ * more permits than the burst (a large JSON-RPC batch) is let through once the bucket is full
+ * and leaves it in debt, so later callers wait for the quota it used.
+ */
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    TokenBucket(double requestsPerSecond, int burst) {
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * A bucket that never runs dry, for endpoints without a known quota. It can still be
+     * paused after a 429.
+     */
+    static TokenBucket unlimited() {
+        return new TokenBucket(Double.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Take {@code permits} if they are available now.
+     */
+    synchronized boolean tryAcquire(int permits) {
+        return nanosUntilAvailable(permits, System.nanoTime()) == 0 && take(permits);
+    }
+
+    /**
+     * Take {@code permits}, waiting up to {@code maxWaitMillis} for them.
+     *
+     * @return false if they would not be available within {@code maxWaitMillis}
+     */
+    boolean acquire(int permits, long maxWaitMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (true) {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                wait = nanosUntilAvailable(permits, now);
+                if (wait == 0) {
+                    return take(permits);
+                }
+                if (now + wait > deadline) {
+                    return false;
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Hand out nothing for {@code millis}, e.g. after the provider answered 429.
+     */
+    synchronized void pause(long millis) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+        tokens = Math.min(tokens, 0);
+    }
+
+    private long nanosUntilAvailable(int permits, long now) {
+        refill(now);
+        long paused = Math.max(0, pausedUntil - now);
+        double needed = Math.min(permits, capacity);
+        if (paused == 0 && tokens >= needed) {
+            return 0;
+        }
+        long refill = tokens >= needed ? 0 : (long) Math.ceil((needed - tokens) / tokensPerNano);
+        return Math.max(1, Math.max(paused, refill));
+    }
+
+    private boolean take(int permits) {
+        tokens -= permits;
+        return true;
+    }
+
+    private void refill(long now) {
+        // Nothing accrues while paused, so the provider is not hit with a burst afterwards
+        long from = Math.max(refilledAt, pausedUntil);
+        if (now > from) {
+            tokens = Math.min(capacity, tokens + (now - from) * tokensPerNano);
+        }
+        refilledAt = now;
+    }
+}
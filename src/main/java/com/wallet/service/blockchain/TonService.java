@@ -1,9 +1,13 @@
 package com.wallet.service.blockchain;
 
+import com.iwebpp.crypto.TweetNaclFast;
 import com.wallet.config.TonConfig;
+import com.wallet.exception.PayoutRejectedException;
+import com.wallet.exception.RpcThrottledException;
 import com.wallet.model.Transaction;
 import com.wallet.model.enums.BlockchainNetwork;
 import com.wallet.model.enums.TransactionStatus;
+import com.wallet.service.blockchain.ChainDataCache.Volatility;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -11,33 +15,61 @@ import org.springframework.web.client.RestTemplate;
 import org.ton.ton4j.address.Address;
 import org.ton.ton4j.mnemonic.Mnemonic;
 import org.ton.ton4j.mnemonic.Pair;
+import org.ton.ton4j.smartcontract.highload.HighloadWalletV3;
+import org.ton.ton4j.smartcontract.types.Destination;
+import org.ton.ton4j.smartcontract.types.HighloadV3Config;
 import org.ton.ton4j.smartcontract.wallet.v3.WalletV3R2;
 import org.ton.ton4j.tlb.StateInit;
 import org.ton.ton4j.tonlib.Tonlib;
 import org.ton.ton4j.tonlib.types.*;
 import org.ton.ton4j.utils.Utils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 public class TonService implements BlockchainService {
 
+    private static final long MASTERCHAIN = -1;
+    private static final long MASTERCHAIN_SHARD = 0x8000000000000000L;
+    private static final int BLOCK_TRANSACTIONS_PAGE = 256;
+
     private final TonConfig tonConfig;
-    private final Tonlib tonlib;
+    private final TonlibPool tonlibPool;
     private final String rpcUrl;
     private final RestTemplate restTemplate;
+    private final ChainDataCache cache;
+    private final ChainHeadTracker headTracker;
+
+    /** Signing key of the payout hot wallet, read once on first use. */
+    private volatile TweetNaclFast.Signature.KeyPair payoutKeyPair;
 
-    private BlockIdExt lastBlock;
-//
-    public TonService(TonConfig tonConfig, @Value("${app.blockchain.ton.rpc-url}") String rpcUrl) {
+    private final TonBlockSource blockSource = new TonBlockSource();
+
+    public TonService(TonConfig tonConfig, @Value("${app.blockchain.ton.rpc-url}") String rpcUrl,
+                      ChainDataCache cache, TonlibPool tonlibPool,
+                      ChainHeadTracker headTracker) {
         this.rpcUrl = rpcUrl;
+        this.cache = cache;
         this.restTemplate = new RestTemplate();
         this.tonConfig = tonConfig;
-        this.tonlib = tonConfig.tonlib();
+        this.tonlibPool = tonlibPool;
+        this.headTracker = headTracker;
+        headTracker.register(getNetwork(), () -> rpc(tonlib -> tonlib.getLast()).getLast().getSeqno());
     }
 
     @Override
@@ -81,69 +113,158 @@ public class TonService implements BlockchainService {
         try {
             log.info("Getting balance for TON address: {}", address);
             Address addr = Address.of(address);
-            RawAccountState accountState = tonlib.getRawAccountState(addr);
-            return Utils.fromNano(new BigInteger(accountState.getBalance()));
+            String balance = cache.getMutable("ton:balance:" + addr.toString(false), Volatility.BALANCE,
+                    () -> rpc(tonlib -> tonlib.getRawAccountState(addr).getBalance()));
+            return Utils.fromNano(new BigInteger(balance));
+        } catch (RpcThrottledException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error getting balance for TON address: {}", address, e);
             return BigDecimal.ZERO;
         }
     }
 
+    /**
+     * TON withdrawals are not sent one by one from the user's wallet: the payout engine pays
+     * them in batches from the highload hot wallet (see {@link #sendPayoutBatch}).
+     */
     @Override
     public String sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
-        try {
-            //TODO:
-            log.info("Sending {} TON transaction to: {}", amount, toAddress);
-
-            // Destination address
-            Address destination = Address.of(toAddress);
-
-            // Amount in nanoTON (1 TON = 1,000,000,000 nanoTON)
-            BigInteger amountInNanoTon = Utils.toNano(amount); // 1.5 TON
+        throw new UnsupportedOperationException("TON withdrawals are paid in batches from the payout hot wallet");
+    }
 
+    /**
+     * Address (raw form) of the highload payout hot wallet.
+     */
+    public String getPayoutWalletAddress() {
+        return payoutWallet(null).getAddress().toString(false);
+    }
 
-//            WalletV3R2.builder().publicKey()
-//            // Send transaction
-//            ExtMessageInfo result = tonlib.sendTonCoins(
-//                    mnemonic,
-//                    destination,
-//                    amountInNanoTon
-//            );
+    /**
+     * Send one external message from the highload hot wallet that pays every {@code payouts}
+     * entry as an internal message with its comment. {@code queryId} must not have been used
+     * within the wallet timeout; the wallet rejects replays of it.
+     *
+     * @throws PayoutRejectedException if the message was refused, so nothing was paid
+     */
+    public void sendPayoutBatch(long queryId, long createdAt, List<Payout> payouts) {
+        TonConfig.PayoutConfig config = tonConfig.getPayout();
+        List<Destination> destinations = payouts.stream()
+                .map(payout -> Destination.builder()
+                        .bounce(false)
+                        .address(payout.toAddress())
+                        .amount(Utils.toNano(payout.amount()))
+                        .comment(payout.comment())
+                        .build())
+                .toList();
 
+        ExtMessageInfo result = rpc(tonlib -> {
+            HighloadWalletV3 wallet = payoutWallet(tonlib);
+            return wallet.send(HighloadV3Config.builder()
+                    .walletId(config.getWalletId())
+                    .queryId(BigInteger.valueOf(queryId).intValue())
+                    .createdAt(createdAt)
+                    .body(wallet.createBulkTransfer(destinations, BigInteger.valueOf(queryId)))
+                    .build());
+        });
+        if (result.getError() != null && result.getError().getCode() != 0) {
+            throw new PayoutRejectedException("Payout batch " + queryId + " rejected: " + result.getError().getMessage());
+        }
+        log.info("Sent TON payout batch {} with {} transfers", queryId, payouts.size());
+    }
 
+    /**
+     * Internal messages sent by {@code address} in transactions after {@code afterLt}, newest
+     * first.
+     */
+    public List<OutgoingTransfer> getOutgoingTransfers(String address, long afterLt) {
+        String account = normalizeAddress(address);
+        AccountHead head = getAccountHeads(List.of(account)).get(account);
+        if (head == null) {
+            throw new RuntimeException("Failed to read account state for " + account);
+        }
 
-            return "ton_tx_" + System.currentTimeMillis();
-        } catch (Exception e) {
-            log.error("Error sending TON transaction", e);
-            throw new RuntimeException("Failed to send TON transaction", e);
+        List<OutgoingTransfer> transfers = new ArrayList<>();
+        BigInteger lt = BigInteger.valueOf(head.lt());
+        String hash = head.hash();
+        while (lt.longValue() > afterLt) {
+            RawTransactions page = rawTransactions(account, lt, hash);
+            if (page == null || page.getTransactions() == null || page.getTransactions().isEmpty()) {
+                break;
+            }
+            for (RawTransaction tx : page.getTransactions()) {
+                long txLt = tx.getTransaction_id().getLt().longValue();
+                if (txLt <= afterLt) {
+                    return transfers;
+                }
+                if (tx.getOut_msgs() == null) {
+                    continue;
+                }
+                for (RawMessage message : tx.getOut_msgs()) {
+                    transfers.add(new OutgoingTransfer(
+                            tx.getTransaction_id().getHash(),
+                            txLt,
+                            Long.parseLong(String.valueOf(message.getCreated_lt())),
+                            message.getDestination() != null ? message.getDestination().getAccount_address() : null,
+                            message.getValue() != null ? Utils.fromNano(new BigInteger(message.getValue())) : BigDecimal.ZERO,
+                            message.getFwd_fee() != null ? Utils.fromNano(new BigInteger(message.getFwd_fee())) : BigDecimal.ZERO,
+                            message.getMessage()));
+                }
+            }
+            LastTransactionId previous = page.getPrevious_transaction_id();
+            if (previous == null || previous.getLt() == null) {
+                break;
+            }
+            lt = previous.getLt();
+            hash = previous.getHash();
         }
+        return transfers;
     }
 
     @Override
     public List<Transaction> getWalletTransactions(String address, Long fromLt, String fromHash, int limit) {
+        List<Transaction> transactionList = new ArrayList<>();
         try {
-            Address addr = Address.of(address);
-            RawTransactions transactions = tonlib.getRawTransactions(
-                    addr.toString(false),
-                    BigInteger.valueOf(fromLt),
-                    fromHash
-            );
-
-            List<RawTransaction> txList = new ArrayList<>();
-            if (transactions != null && transactions.getTransactions() != null) {
-                txList.addAll(transactions.getTransactions());
+            Iterator<Transaction> transactions = iterateWalletTransactions(address, fromLt, fromHash);
+            while (transactionList.size() < limit && transactions.hasNext()) {
+                transactionList.add(transactions.next());
             }
-
-            txList = txList.stream().limit(limit).toList();
-            List<Transaction> transactionList = new ArrayList<>();
-            for (RawTransaction rawTx: txList) {
-                transactionList.add(mapToTransaction(rawTx));
-            }
-            return transactionList;
+        } catch (RpcThrottledException e) {
+            // Not "no transactions": the caller must keep its cursor and retry later
+            throw e;
         } catch (Exception e) {
             log.error("Error getting transactions for address {}: {}", address, e.getMessage());
-            return new ArrayList<>();
         }
+        return transactionList;
+    }
+
+    @Override
+    public Iterator<Transaction> iterateWalletTransactions(String address, Long fromLt, String fromHash) {
+        return iterateWalletTransactions(address, fromLt, fromHash, null);
+    }
+
+    @Override
+    public Iterator<Transaction> iterateWalletTransactions(String address, Long fromLt, String fromHash,
+                                                           AccountHead head) {
+        return new TransactionPageIterator(Address.of(address).toString(false), fromLt, head);
+    }
+
+    @Override
+    public Map<String, AccountHead> getAccountHeads(Collection<String> addresses) {
+        Map<String, AccountHead> heads = new HashMap<>();
+        for (String address : addresses) {
+            try {
+                LastTransactionId last = rpc(tonlib -> tonlib.getRawAccountState(Address.of(address))).getLast_transaction_id();
+                heads.put(address, last == null || last.getLt() == null
+                        ? new AccountHead(0, "")
+                        : new AccountHead(last.getLt().longValue(), last.getHash()));
+            } catch (RpcThrottledException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("Error reading account state for {}: {}", address, e.getMessage());
+            }
+        }
+        return heads;
     }
 
     @Override
@@ -177,6 +298,34 @@ public class TonService implements BlockchainService {
         }
     }
 
+    @Override
+    public Optional<BlockSource> getBlockSource() {
+        return Optional.of(blockSource);
+    }
+
+    @Override
+    public String normalizeAddress(String address) {
+        try {
+            return Address.of(address).toString(false);
+        } catch (Exception e) {
+            return address;
+        }
+    }
+
+    /**
+     * One transfer of a payout batch; {@code comment} identifies the withdrawal.
+     */
+    public record Payout(String toAddress, BigDecimal amount, String comment) {
+    }
+
+    /**
+     * Internal message sent by a wallet: {@code transactionHash}/{@code lt} identify the wallet
+     * transaction that sent it, {@code messageLt} the message itself.
+     */
+    public record OutgoingTransfer(String transactionHash, long lt, long messageLt, String toAddress,
+                                   BigDecimal amount, BigDecimal fee, String comment) {
+    }
+
     private Transaction mapToTransaction(RawTransaction tx) {
         Transaction transaction = new Transaction();
 
@@ -185,9 +334,8 @@ public class TonService implements BlockchainService {
         transaction.setTransactionHash(tx.getTransaction_id().getHash());
         transaction.setBlockNumber(tx.getTransaction_id().getLt().longValue());
 //        details.setAccount(tx.getTransactionId().getAccount());
-        if (lastBlock != null) {
-            transaction.setConfirmations((int) (lastBlock.getSeqno() - transaction.getBlockNumber()));
-        }
+        // blockNumber holds the lt, not a masterchain seqno; a TON transaction is final once included
+        transaction.setConfirmations(getRequiredConfirmations());
 
         // Incoming message
         if (tx.getIn_msg() != null) {
@@ -222,11 +370,229 @@ public class TonService implements BlockchainService {
         );
     }
 
-    public void getCurrentBlock() {
+    /**
+     * Page of an account's transactions going back from {@code (lt, hash)}. TON transactions
+     * are final once they exist, so the page for a given starting transaction never changes.
+     */
+    private RawTransactions rawTransactions(String address, BigInteger lt, String hash) {
+        return immutable("ton:txs:" + address + ":" + lt + ":" + hash,
+                () -> rpc(tonlib -> tonlib.getRawTransactions(address, lt, hash)));
+    }
+
+    private BlockIdExt lookupBlock(long seqno, long workchain, long shard) {
+        return immutable("ton:block:" + workchain + ":" + shard + ":" + seqno,
+                () -> rpc(tonlib -> tonlib.lookupBlock(seqno, workchain, shard, 0, 0)));
+    }
+
+    /**
+     * Run a Tonlib call on a pooled client once the network's quota allows it, waiting up to
+     * the configured max wait; beyond that the call is reported as throttled instead of being made.
+     */
+    private <T> T rpc(Function<Tonlib, T> call) {
+        return tonlibPool.execute(call);
+    }
+
+    /**
+     * Highload v3 hot wallet bound to {@code tonlib} (null when only the address is needed).
+     */
+    private HighloadWalletV3 payoutWallet(Tonlib tonlib) {
+        TonConfig.PayoutConfig config = tonConfig.getPayout();
+        if (payoutKeyPair == null) {
+            if (config.getSecretKey() == null || config.getSecretKey().isBlank()) {
+                throw new IllegalStateException("ton.payout.secret-key is not configured");
+            }
+            payoutKeyPair = Utils.generateSignatureKeyPairFromSeed(Utils.hexToSignedBytes(config.getSecretKey()));
+        }
+        return HighloadWalletV3.builder()
+                .tonlib(tonlib)
+                .keyPair(payoutKeyPair)
+                .walletId(config.getWalletId())
+                .build();
+    }
+
+    private <T> T immutable(String key, ChainDataCache.Loader<T> loader) {
         try {
-            lastBlock = tonlib.getLast().getLast();
-        } catch (Exception e) {
-            log.error("Error getting block height: {}", e.getMessage());
+            return cache.getImmutable(key, loader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Walks an account's transaction chain from its latest transaction back to {@code fromLt},
+     * one {@code getRawTransactions} page at a time. Pages are requested only when the caller
+     * has consumed the previous one and are mapped as they are read.
+     */
+    private class TransactionPageIterator implements Iterator<Transaction> {
+
+        private final String address;
+        private final long fromLt;
+        private List<RawTransaction> page = List.of();
+        private int index;
+        private BigInteger nextLt;
+        private String nextHash;
+        private boolean started;
+        private boolean exhausted;
+
+        TransactionPageIterator(String address, long fromLt, AccountHead head) {
+            this.address = address;
+            this.fromLt = fromLt;
+            if (head != null) {
+                started = true;
+                nextLt = BigInteger.valueOf(head.lt());
+                nextHash = head.hash();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!exhausted && index >= page.size()) {
+                loadNextPage();
+            }
+            if (exhausted) {
+                return false;
+            }
+            if (page.get(index).getTransaction_id().getLt().longValue() <= fromLt) {
+                // Reached the cursor: everything further back was already scanned
+                exhausted = true;
+                page = List.of();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return mapToTransaction(page.get(index++));
+        }
+
+        private void loadNextPage() {
+            if (!started) {
+                started = true;
+                AccountHead head = getAccountHeads(List.of(address)).get(address);
+                if (head == null) {
+                    throw new RuntimeException("Failed to read account state for " + address);
+                }
+                nextLt = BigInteger.valueOf(head.lt());
+                nextHash = head.hash();
+            }
+            if (nextLt == null || nextLt.longValue() <= fromLt) {
+                exhausted = true;
+                return;
+            }
+
+            RawTransactions transactions = rawTransactions(address, nextLt, nextHash);
+            page = transactions != null && transactions.getTransactions() != null
+                    ? transactions.getTransactions()
+                    : List.of();
+            index = 0;
+            LastTransactionId previous = transactions != null ? transactions.getPrevious_transaction_id() : null;
+            nextLt = previous != null ? previous.getLt() : null;
+            nextHash = previous != null ? previous.getHash() : null;
+            if (page.isEmpty()) {
+                exhausted = true;
+            }
+        }
+    }
+
+    /**
+     * Walks masterchain blocks and the shard blocks they reference, fetching full transactions
+     * only for accounts we watch. Which shard blocks are new is worked out from the shard tops
+     * of the previous masterchain block, so the source keeps no state of its own: a range that
+     * fails part way, or is scanned again after a restart or lease handover, reads the same
+     * shard blocks again.
+     */
+    private class TonBlockSource implements BlockSource {
+
+        @Override
+        public long getHeadHeight() {
+            return headTracker.getHeight(getNetwork());
+        }
+
+        @Override
+        public List<Transaction> getIncomingTransfers(long fromHeight, long toHeight, Set<String> watchedAddresses) {
+            List<Transaction> transfers = new ArrayList<>();
+            Map<String, Long> previousTops = fromHeight > 0 ? shardTops(shards(fromHeight - 1)) : Map.of();
+            for (long seqno = fromHeight; seqno <= toHeight; seqno++) {
+                Shards shards = shards(seqno);
+                for (BlockIdExt shardBlock : shards.getShards()) {
+                    for (BlockIdExt block : unseenShardBlocks(shardBlock, previousTops)) {
+                        collectTransfers(block, watchedAddresses, transfers);
+                    }
+                }
+                previousTops = shardTops(shards);
+            }
+            return transfers;
+        }
+
+        private Shards shards(long masterSeqno) {
+            BlockIdExt masterBlock = lookupBlock(masterSeqno, MASTERCHAIN, MASTERCHAIN_SHARD);
+            return immutable("ton:shards:" + masterSeqno, () -> rpc(tonlib -> tonlib.getShards(masterBlock)));
+        }
+
+        private Map<String, Long> shardTops(Shards shards) {
+            Map<String, Long> tops = new HashMap<>();
+            for (BlockIdExt shardBlock : shards.getShards()) {
+                tops.put(shardKey(shardBlock), shardBlock.getSeqno());
+            }
+            return tops;
+        }
+
+        /**
+         * A masterchain block only references the newest block of each shard, so fill in any
+         * shard blocks produced since the previous masterchain block's top of that shard. A
+         * shard that just split or merged has no previous top and is read from its newest block.
+         */
+        private List<BlockIdExt> unseenShardBlocks(BlockIdExt shardBlock, Map<String, Long> previousTops) {
+            Long previous = previousTops.get(shardKey(shardBlock));
+            if (previous == null) {
+                return List.of(shardBlock);
+            }
+            if (previous >= shardBlock.getSeqno()) {
+                return List.of();
+            }
+
+            List<BlockIdExt> blocks = new ArrayList<>();
+            for (long seqno = previous + 1; seqno < shardBlock.getSeqno(); seqno++) {
+                blocks.add(lookupBlock(seqno, shardBlock.getWorkchain(), shardBlock.getShard()));
+            }
+            blocks.add(shardBlock);
+            return blocks;
+        }
+
+        private String shardKey(BlockIdExt shardBlock) {
+            return shardBlock.getWorkchain() + ":" + shardBlock.getShard();
+        }
+
+        private void collectTransfers(BlockIdExt block, Set<String> watchedAddresses, List<Transaction> transfers) {
+            AccountTransactionId after = null;
+            BlockTransactions page;
+            do {
+                AccountTransactionId lastSeen = after;
+                page = lastSeen == null
+                        ? rpc(tonlib -> tonlib.getBlockTransactions(block, BLOCK_TRANSACTIONS_PAGE))
+                        : rpc(tonlib -> tonlib.getBlockTransactions(block, BLOCK_TRANSACTIONS_PAGE, lastSeen));
+                for (ShortTxId shortTx : page.getTransactions()) {
+                    String account = normalizeAddress(block.getWorkchain() + ":"
+                            + Utils.bytesToHex(Base64.getDecoder().decode(shortTx.getAccount())));
+                    if (watchedAddresses.contains(account)) {
+                        RawTransactions raw = rawTransactions(account, shortTx.getLt(), shortTx.getHash());
+                        if (raw != null && raw.getTransactions() != null && !raw.getTransactions().isEmpty()) {
+                            Transaction transaction = mapToTransaction(raw.getTransactions().get(0));
+                            if (transaction.getAmount() != null) {
+                                transfers.add(transaction);
+                            }
+                        }
+                    }
+                    after = AccountTransactionId.builder()
+                            .account(shortTx.getAccount())
+                            .lt(shortTx.getLt())
+                            .build();
+                }
+            } while (page.isIncomplete());
         }
     }
 }
@@ -0,0 +1,190 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.RateLimitConfig;
+import com.wallet.config.TonConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.ton.ton4j.tonlib.Tonlib;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+/**
+ * Pool of Tonlib clients so concurrent TON queries no longer queue behind one native client.
+ * With a global config, the {@link LiteserverSelector} probes its liteservers and each client
+ * is pinned to one of the best-ranked ones; clients on a server that gets demoted are
+ * recreated against a better one. Without it, each client lets Tonlib pick a liteserver.
+ * <p>
+ * Every liteserver request, including health checks and probes, takes a permit from the
+ * {@code tonlib} quota. Queries wait for one; a health check or probe round with no quota
+ * left is skipped rather than counted against the client or liteserver.
+ */
+@Slf4j
+@Component
+public class TonlibPool {
+
+    static final String QUOTA_ENDPOINT = "tonlib";
+
+    private final TonConfig tonConfig;
+    private final RateLimitConfig rateLimits;
+    private final TokenBucket limiter;
+    private final BlockingClientPool<Tonlib> pool;
+    private final LiteserverSelector selector;
+    private final AtomicIntegerArray pinnedTo;
+    /** Idle probe clients by liteserver index; a probe takes its client out while it runs. */
+    private final Map<Integer, Tonlib> probeClients = new ConcurrentHashMap<>();
+    /** Probe clients with a call in progress, by liteserver index. */
+    private final Map<Integer, Tonlib> runningProbes = new ConcurrentHashMap<>();
+
+    public TonlibPool(TonConfig tonConfig, RateLimitConfig rateLimits) {
+        this.tonConfig = tonConfig;
+        this.rateLimits = rateLimits;
+        RateLimitConfig.Quota quota = rateLimits.getQuota(BlockchainNetwork.TON, QUOTA_ENDPOINT);
+        this.limiter = quota != null
+                ? new TokenBucket(quota.getRequestsPerSecond(), quota.getBurst())
+                : TokenBucket.unlimited();
+        TonConfig.TonlibPoolConfig config = tonConfig.getPool();
+        this.selector = createSelector(config);
+        this.pinnedTo = new AtomicIntegerArray(config.getSize());
+        this.pool = new BlockingClientPool<>("Tonlib", config.getSize(),
+                this::createClient,
+                Tonlib::destroy,
+                tonlib -> !limiter.tryAcquire(1) || tonlib.getLast() != null,
+                config.getMaxFailures(),
+                config.getBorrowTimeout());
+        log.info("Tonlib pool of {} clients over {} liteservers", config.getSize(),
+                selector != null ? selector.size() : "default");
+    }
+
+    /**
+     * Run {@code call} on a free client once the quota allows it.
+     *
+     * @throws RpcThrottledException if no permit frees up within the configured maximum wait
+     */
+    public <T> T execute(Function<Tonlib, T> call) {
+        try {
+            if (!limiter.acquire(1, rateLimits.getMaxWait())) {
+                throw new RpcThrottledException(BlockchainNetwork.TON.name(), "TON liteserver quota exhausted",
+                        rateLimits.getMaxWait());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for TON RPC quota", e);
+        }
+        return pool.execute(call);
+    }
+
+    @Scheduled(fixedDelayString = "${ton.pool.health-check-interval:30000}")
+    public void checkHealth() {
+        pool.checkHealth();
+    }
+
+    /**
+     * Re-rank the liteservers and move idle clients off servers that were demoted. Clients on
+     * a server that is still healthy stay put even if it dropped in the ranking.
+     * Runs once at startup and then every probe interval.
+     */
+    @Scheduled(fixedDelayString = "${ton.pool.probe-interval:60000}")
+    public void probeLiteServers() {
+        if (selector == null) {
+            return;
+        }
+        if (!limiter.tryAcquire(selector.size())) {
+            log.debug("Skipping liteserver probes, TON quota exhausted");
+            return;
+        }
+        selector.probeAll();
+        pool.recycleIdle(slot -> !selector.isCandidate(pinnedTo.get(slot)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+        if (selector != null) {
+            selector.shutdown();
+        }
+        probeClients.values().forEach(Tonlib::destroy);
+        probeClients.clear();
+        runningProbes.values().forEach(Tonlib::destroy);
+        runningProbes.clear();
+    }
+
+    private Tonlib createClient(int slot) {
+        if (selector == null) {
+            return tonConfig.createTonlib(-1);
+        }
+        int liteServer = selector.select(slot);
+        pinnedTo.set(slot, liteServer);
+        return tonConfig.createTonlib(liteServer);
+    }
+
+    private LiteserverSelector createSelector(TonConfig.TonlibPoolConfig config) {
+        String path = config.getGlobalConfigPath();
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        try {
+            List<LiteserverSelector.LiteServer> liteServers = LiteserverSelector.load(path);
+            if (liteServers.isEmpty()) {
+                log.warn("No liteservers in {}, leaving the choice to Tonlib", path);
+                return null;
+            }
+            LiteserverSelector.Probe probe = new LiteserverSelector.Probe() {
+                @Override
+                public long masterchainSeqno(LiteserverSelector.LiteServer server) {
+                    return probe(server);
+                }
+
+                @Override
+                public void abandon(LiteserverSelector.LiteServer server) {
+                    abandonProbe(server);
+                }
+            };
+            return new LiteserverSelector(liteServers, probe, config.getProbeTimeout(), config.getMaxSeqnoLag());
+        } catch (Exception e) {
+            log.warn("Could not read liteservers from {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A failed probe destroys its client, so the next probe starts a fresh one. Whichever of
+     * the probe and {@link #abandonProbe} takes the client out of {@code runningProbes} owns it.
+     */
+    private long probe(LiteserverSelector.LiteServer server) {
+        Tonlib tonlib = probeClients.remove(server.index());
+        if (tonlib == null) {
+            tonlib = tonConfig.createTonlib(server.index());
+        }
+        runningProbes.put(server.index(), tonlib);
+        try {
+            long seqno = tonlib.getLast().getLast().getSeqno();
+            if (runningProbes.remove(server.index(), tonlib)) {
+                probeClients.put(server.index(), tonlib);
+            }
+            return seqno;
+        } catch (RuntimeException e) {
+            if (runningProbes.remove(server.index(), tonlib)) {
+                tonlib.destroy();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Destroy the client of a probe that timed out, which also unblocks the probe thread.
+     */
+    private void abandonProbe(LiteserverSelector.LiteServer server) {
+        Tonlib tonlib = runningProbes.remove(server.index());
+        if (tonlib != null) {
+            tonlib.destroy();
+        }
+    }
+}
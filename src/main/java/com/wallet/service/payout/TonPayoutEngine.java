@@ -0,0 +1,339 @@
+package com.wallet.service.payout;
+
+import com.wallet.config.TonConfig;
+import com.wallet.exception.PayoutRejectedException;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.PayoutBatch;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.PayoutBatchStatus;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.PayoutBatchRepository;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.WalletService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.TonService;
+import com.wallet.service.scanner.ShardLeaseManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Pays approved TON withdrawals in batches from a highload hot wallet: one external message
+ * carries up to {@code batchSize} transfers, so throughput is not bound by one seqno
+ * round-trip per withdrawal. Each transfer's comment is the withdrawal id.
+ * <p>
+ * A batch is recorded with its query id and the wallet's lt before it is sent, in the same
+ * database transaction that claims its withdrawals, so every claimed withdrawal is linked to
+ * its batch. It is confirmed by finding its transfers in the wallet's transactions after that lt; each match
+ * completes its withdrawal. Withdrawals not seen by the time the message expired can no
+ * longer be paid by it and go back to APPROVED for the next batch. A withdrawal whose
+ * batch the chain rejected goes out alone from then on, and fails with its amount refunded
+ * once rejected {@code maxRejections} times. Every withdrawal update is conditioned on the
+ * row still being PROCESSING in its batch. Runs only on the node that owns the TON network,
+ * so one writer picks query ids.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TonPayoutEngine {
+
+    /** Highload v3 query ids are 23 bits (13-bit shift, 10-bit bit number). */
+    static final long QUERY_ID_SPACE = 1L << 23;
+    /** Grace period after expiry for the wallet transaction to become visible. */
+    private static final long EXPIRY_GRACE_SECONDS = 60;
+
+    private final TonService tonService;
+    private final TransactionRepository transactionRepository;
+    private final PayoutBatchRepository payoutBatchRepository;
+    private final ShardLeaseManager shardLeaseManager;
+    private final TonConfig tonConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletService walletService;
+
+    /** Last query id used; read from the newest batch when this node starts paying out. */
+    private Long lastQueryId;
+
+    @Scheduled(fixedDelayString = "${ton.payout.interval:10000}")
+    public synchronized void run() {
+        if (!tonConfig.getPayout().isEnabled() || !shardLeaseManager.ownsNetwork(BlockchainNetwork.TON)) {
+            // Another node may be paying out; pick up its query ids if this node takes over
+            lastQueryId = null;
+            return;
+        }
+        try {
+            releaseUnbatchedWithdrawals();
+            String hotWallet = tonService.getPayoutWalletAddress();
+            confirmSentBatches(hotWallet);
+            sendApprovedWithdrawals(hotWallet);
+        } catch (Exception e) {
+            if (RpcThrottledException.isCauseOf(e)) {
+                log.info("Throttled by TON provider, payouts deferred to the next run");
+            } else {
+                log.error("Error running TON payouts: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Withdrawals left PROCESSING without a batch would never be settled, since only batches
+     * are confirmed or expired; they go back to APPROVED. Claims now link their batch in the
+     * same update, so these can only be left by runs of an earlier version that stopped
+     * between claiming and linking.
+     */
+    private void releaseUnbatchedWithdrawals() {
+        int released = transactionRepository.releaseUnbatchedWithdrawals(BlockchainNetwork.TON);
+        if (released > 0) {
+            log.warn("Released {} TON withdrawals claimed without a payout batch", released);
+        }
+    }
+
+    /**
+     * Match the hot wallet's transfers since the oldest open batch against the withdrawals of
+     * every open batch.
+     */
+    void confirmSentBatches(String hotWallet) {
+        List<PayoutBatch> open = payoutBatchRepository.findByNetworkAndStatus(BlockchainNetwork.TON, PayoutBatchStatus.SENT);
+        if (open.isEmpty()) {
+            return;
+        }
+        long fromLt = open.stream().mapToLong(PayoutBatch::getWalletLt).min().orElseThrow();
+        Map<String, TonService.OutgoingTransfer> transfers = new HashMap<>();
+        for (TonService.OutgoingTransfer transfer : tonService.getOutgoingTransfers(hotWallet, fromLt)) {
+            if (transfer.comment() != null) {
+                transfers.putIfAbsent(transfer.comment(), transfer);
+            }
+        }
+
+        Map<UUID, List<Transaction>> withdrawals = transactionRepository
+                .findByPayoutBatchIdIn(open.stream().map(PayoutBatch::getId).toList()).stream()
+                .collect(Collectors.groupingBy(Transaction::getPayoutBatchId));
+        LocalDateTime now = LocalDateTime.now();
+        for (PayoutBatch batch : open) {
+            settle(batch, withdrawals.getOrDefault(batch.getId(), List.of()), transfers, now);
+        }
+    }
+
+    /**
+     * Claim approved TON withdrawals and send them in batches of {@code batchSize}.
+     */
+    void sendApprovedWithdrawals(String hotWallet) {
+        List<Transaction> approved = transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED);
+        if (approved.isEmpty()) {
+            return;
+        }
+        // Read before claiming anything: if the wallet state is unavailable nothing is stuck
+        BlockchainService.AccountHead walletHead = tonService.getAccountHeads(List.of(hotWallet)).get(hotWallet);
+        if (walletHead == null) {
+            throw new RuntimeException("Failed to read payout wallet state");
+        }
+
+        for (List<Transaction> candidates : batches(approved)) {
+            long createdAt = Instant.now().getEpochSecond();
+            ClaimedBatch claimed = transactionTemplate.execute(status -> {
+                ClaimedBatch batch = claim(candidates, walletHead.lt(), createdAt);
+                if (batch == null) {
+                    status.setRollbackOnly();
+                }
+                return batch;
+            });
+            if (claimed != null) {
+                send(claimed.batch(), claimed.withdrawals(), createdAt);
+            }
+        }
+    }
+
+    /**
+     * Split withdrawals into batches of {@code batchSize}; one the chain rejected before goes
+     * alone, so a transfer it keeps refusing does not hold back the others.
+     */
+    private List<List<Transaction>> batches(List<Transaction> approved) {
+        List<List<Transaction>> batches = new ArrayList<>();
+        List<Transaction> unrejected = new ArrayList<>();
+        for (Transaction withdrawal : approved) {
+            if (rejectionsOf(withdrawal) > 0) {
+                batches.add(List.of(withdrawal));
+            } else {
+                unrejected.add(withdrawal);
+            }
+        }
+        int batchSize = Math.max(1, tonConfig.getPayout().getBatchSize());
+        for (int i = 0; i < unrejected.size(); i += batchSize) {
+            batches.add(unrejected.subList(i, Math.min(unrejected.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
+    private record ClaimedBatch(PayoutBatch batch, List<Transaction> withdrawals) {}
+
+    /**
+     * Record a batch and claim the candidates still APPROVED into it; runs in one transaction.
+     *
+     * @return the batch, or {@code null} if another node or run claimed every candidate
+     */
+    private ClaimedBatch claim(List<Transaction> candidates, long walletLt, long createdAt) {
+        PayoutBatch batch = payoutBatchRepository.save(PayoutBatch.builder()
+                .network(BlockchainNetwork.TON)
+                .queryId(nextQueryId())
+                .createdAt(createdAt)
+                .walletLt(walletLt)
+                .expiresAt(LocalDateTime.ofInstant(
+                        Instant.ofEpochSecond(createdAt + tonConfig.getPayout().getMessageTimeout()), ZoneId.systemDefault()))
+                .status(PayoutBatchStatus.SENT)
+                .size(candidates.size())
+                .build());
+        List<Transaction> claimed = new ArrayList<>();
+        for (Transaction withdrawal : candidates) {
+            // Claim the row so no other node (or overlapping run) can send it again
+            if (transactionRepository.claimForPayoutBatch(withdrawal.getId(), batch.getId()) == 1) {
+                withdrawal.setStatus(TransactionStatus.PROCESSING);
+                withdrawal.setPayoutBatchId(batch.getId());
+                claimed.add(withdrawal);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return null;
+        }
+        if (claimed.size() < candidates.size()) {
+            batch.setSize(claimed.size());
+            batch = payoutBatchRepository.save(batch);
+        }
+        return new ClaimedBatch(batch, claimed);
+    }
+
+    private void send(PayoutBatch batch, List<Transaction> withdrawals, long createdAt) {
+        List<TonService.Payout> payouts = withdrawals.stream()
+                .map(withdrawal -> new TonService.Payout(withdrawal.getToAddress(), withdrawal.getAmount(),
+                        withdrawal.getId().toString()))
+                .toList();
+        try {
+            tonService.sendPayoutBatch(batch.getQueryId(), createdAt, payouts);
+        } catch (Exception e) {
+            if (RpcThrottledException.isCauseOf(e)) {
+                // Throttled before anything was sent: release the withdrawals right away
+                log.info("TON payout batch {} throttled, releasing {} withdrawals", batch.getQueryId(), payouts.size());
+                release(batch, withdrawals, null);
+                return;
+            }
+            if (e instanceof PayoutRejectedException) {
+                // Refused by the chain, so nothing was paid: no need to wait for expiry
+                log.warn("TON payout batch {} rejected, releasing {} withdrawals: {}",
+                        batch.getQueryId(), payouts.size(), e.getMessage());
+                release(batch, withdrawals, e.getMessage());
+                return;
+            }
+            // The message may still have been delivered; confirmation or expiry settles it
+            log.warn("Sending TON payout batch {} ({} transfers) failed, settling it by {}: {}",
+                    batch.getQueryId(), payouts.size(), batch.getExpiresAt(), e.getMessage());
+        }
+    }
+
+    /**
+     * Return the batch's withdrawals to APPROVED and close the batch.
+     *
+     * @param rejection why the chain rejected the batch, or {@code null} if it was not rejected
+     */
+    private void release(PayoutBatch batch, List<Transaction> withdrawals, String rejection) {
+        for (Transaction withdrawal : withdrawals) {
+            int rejections = rejectionsOf(withdrawal) + (rejection != null ? 1 : 0);
+            if (rejection != null && rejections >= tonConfig.getPayout().getMaxRejections()) {
+                fail(batch, withdrawal, rejection);
+                continue;
+            }
+            if (transactionRepository.releaseFromPayoutBatch(withdrawal.getId(), batch.getId(),
+                    rejection != null ? 1 : 0) == 1) {
+                withdrawal.setStatus(TransactionStatus.APPROVED);
+                withdrawal.setPayoutBatchId(null);
+                withdrawal.setPayoutRejections(rejections);
+            } else {
+                log.warn("Withdrawal {} left payout batch {} meanwhile, not releasing it",
+                        withdrawal.getId(), batch.getQueryId());
+            }
+        }
+        batch.setStatus(PayoutBatchStatus.EXPIRED);
+        payoutBatchRepository.save(batch);
+    }
+
+    /**
+     * Fail a withdrawal the chain keeps rejecting and refund the amount held for it.
+     */
+    private void fail(PayoutBatch batch, Transaction withdrawal, String rejection) {
+        String error = "Payout rejected " + (rejectionsOf(withdrawal) + 1) + " times: " + rejection;
+        Boolean failed = transactionTemplate.execute(status -> {
+            if (transactionRepository.failPayout(withdrawal.getId(), batch.getId(), error) == 0) {
+                return false;
+            }
+            walletService.updateWalletBalance(withdrawal.getWallet().getId(), withdrawal.getAmount());
+            return true;
+        });
+        if (Boolean.TRUE.equals(failed)) {
+            withdrawal.setStatus(TransactionStatus.FAILED);
+            withdrawal.setErrorMessage(error);
+            log.error("TON withdrawal {} failed and was refunded: {}", withdrawal.getId(), error);
+        }
+    }
+
+    private void settle(PayoutBatch batch, List<Transaction> withdrawals,
+                        Map<String, TonService.OutgoingTransfer> transfers, LocalDateTime now) {
+        List<Transaction> unpaid = new ArrayList<>();
+        for (Transaction withdrawal : withdrawals) {
+            if (withdrawal.getStatus() != TransactionStatus.PROCESSING) {
+                continue;
+            }
+            TonService.OutgoingTransfer transfer = transfers.get(withdrawal.getId().toString());
+            if (transfer == null) {
+                unpaid.add(withdrawal);
+                continue;
+            }
+            // Several withdrawals share one wallet transaction; the message lt tells them apart
+            String hash = transfer.transactionHash() + ":" + transfer.messageLt();
+            if (transactionRepository.confirmPayout(withdrawal.getId(), batch.getId(), hash, transfer.lt(),
+                    transfer.fee(), now) == 1) {
+                withdrawal.setTransactionHash(hash);
+                withdrawal.setBlockNumber(transfer.lt());
+                withdrawal.setFee(transfer.fee());
+                withdrawal.setStatus(TransactionStatus.CONFIRMED);
+                withdrawal.setConfirmedAt(now);
+            }
+        }
+
+        if (unpaid.isEmpty()) {
+            batch.setStatus(PayoutBatchStatus.CONFIRMED);
+            batch.setConfirmedAt(now);
+            payoutBatchRepository.save(batch);
+            log.info("TON payout batch {} confirmed ({} transfers)", batch.getQueryId(), batch.getSize());
+        } else if (now.isAfter(batch.getExpiresAt().plusSeconds(EXPIRY_GRACE_SECONDS))) {
+            release(batch, unpaid, null);
+            log.warn("TON payout batch {} expired with {} of {} transfers unpaid; they go into the next batch",
+                    batch.getQueryId(), unpaid.size(), batch.getSize());
+        }
+    }
+
+    private static int rejectionsOf(Transaction withdrawal) {
+        return withdrawal.getPayoutRejections() != null ? withdrawal.getPayoutRejections() : 0;
+    }
+
+    private long nextQueryId() {
+        if (lastQueryId == null) {
+            lastQueryId = payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON)
+                    .map(PayoutBatch::getQueryId)
+                    .orElse(-1L);
+        }
+        lastQueryId = (lastQueryId + 1) % QUERY_ID_SPACE;
+        return lastQueryId;
+    }
+}
@@ -0,0 +1,134 @@
+package com.wallet.service.payout;
+
+import com.wallet.config.WithdrawalScheduleConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.NonceReservation;
+import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.WalletService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.NonceManager;
+import com.wallet.service.scanner.ShardLeaseManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Broadcasts withdrawals the caller has claimed (moved to PROCESSING). Runs outside any DB
+ * transaction: the row is read, the network call is made without holding a connection, and
+ * the outcome is written with one guarded update, SENT with its hash or FAILED with the held
+ * amount returned to the wallet. Confirmation is left to the pending-transaction poller.
+ * <p>
+ * The nonce reserved for a withdrawal records its id, and the signed transaction is stored on
+ * that reservation before it is broadcast. Withdrawals left PROCESSING past
+ * {@code processingTimeout} (a crash, or a queued send that never ran) are recovered from it:
+ * a signed transaction means SENT with its hash, anything else means nothing was broadcast
+ * and the withdrawal goes back to APPROVED.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WithdrawalBroadcaster {
+
+    private final TransactionRepository transactionRepository;
+    private final WalletService walletService;
+    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+    private final NonceManager nonceManager;
+    private final ShardLeaseManager shardLeaseManager;
+    private final WithdrawalScheduleConfig config;
+
+    @Async("withdrawalExecutor")
+    public void broadcast(UUID transactionId) {
+        Transaction transaction = transactionRepository.findWithWalletById(transactionId).orElse(null);
+        if (transaction == null || transaction.getStatus() != TransactionStatus.PROCESSING) {
+            log.warn("Withdrawal {} is no longer waiting to be sent", transactionId);
+            return;
+        }
+
+        Wallet wallet = transaction.getWallet();
+        String txHash;
+        try {
+            String privateKey = walletService.decryptPrivateKey(wallet.getEncryptedPrivateKey());
+            txHash = blockchainServices.get(wallet.getNetwork()).sendTransaction(
+                    privateKey,
+                    transaction.getToAddress(),
+                    transaction.getAmount(),
+                    transactionId
+            );
+        } catch (Exception e) {
+            if (RpcThrottledException.isCauseOf(e)) {
+                // Nothing was sent; the next run picks it up again
+                log.info("Throttled sending withdrawal {}, back to APPROVED", transactionId);
+                transactionRepository.transitionStatus(transactionId,
+                        TransactionStatus.PROCESSING, TransactionStatus.APPROVED);
+                return;
+            }
+            // A failed send gives its nonce back, so an open one is another attempt's
+            if (nonceManager.findReservation(transactionId).isPresent()) {
+                log.warn("Sending withdrawal {} failed while another attempt holds its nonce: {}",
+                        transactionId, e.getMessage());
+                return;
+            }
+            log.error("Error sending withdrawal: {}", transactionId, e);
+            if (transactionRepository.markFailed(transactionId, e.getMessage()) == 1) {
+                // Return the amount held when the withdrawal was requested
+                walletService.updateWalletBalance(wallet.getId(), transaction.getAmount());
+            }
+            return;
+        }
+
+        if (transactionRepository.markSent(transactionId, txHash) == 1) {
+            log.info("Withdrawal sent: {} - TxHash: {}", transactionId, txHash);
+        } else {
+            log.warn("Withdrawal {} changed state while sending; TxHash {} not recorded", transactionId, txHash);
+        }
+    }
+
+    /**
+     * Settle withdrawals of this node's wallets that stayed PROCESSING past the timeout.
+     */
+    @Scheduled(fixedDelayString = "${app.withdrawal.schedule.recovery-interval:60000}")
+    public void recoverStuck() {
+        LocalDateTime claimedBefore = LocalDateTime.now().minus(Duration.ofMillis(config.getProcessingTimeout()));
+        for (Transaction withdrawal : transactionRepository.findStuckWithdrawals(BlockchainNetwork.TON, claimedBefore)) {
+            if (!shardLeaseManager.owns(withdrawal.getWallet().getId())) {
+                continue;
+            }
+            try {
+                recover(withdrawal.getId());
+            } catch (Exception e) {
+                log.warn("Error recovering withdrawal {}: {}", withdrawal.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void recover(UUID transactionId) {
+        Optional<NonceReservation> reservation = nonceManager.findReservation(transactionId);
+        if (reservation.isPresent() && reservation.get().getStatus() == NonceStatus.SENT) {
+            // Signed and possibly broadcast; reconciliation re-sends it if the node dropped it
+            String txHash = reservation.get().getTransactionHash();
+            if (transactionRepository.markSent(transactionId, txHash) == 1) {
+                log.warn("Recovered withdrawal {} stuck in PROCESSING as sent - TxHash: {}", transactionId, txHash);
+            }
+            return;
+        }
+        // Never signed, so never broadcast: give the nonce back and send the withdrawal again
+        reservation.ifPresent(held -> nonceManager.release(NonceManager.Reservation.of(held)));
+        if (transactionRepository.transitionStatus(transactionId,
+                TransactionStatus.PROCESSING, TransactionStatus.APPROVED) == 1) {
+            log.warn("Withdrawal {} stuck in PROCESSING was never signed, back to APPROVED", transactionId);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.wallet.service.payout;
+
+import com.wallet.config.WithdrawalScheduleConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.model.enums.WithdrawalPriority;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.FeeOracle;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which approved withdrawals are sent now; does nothing unless
+ * {@code app.withdrawal.schedule.enabled} is set. Urgent withdrawals go out on the next run.
+ * Economy withdrawals wait while the {@link FeeOracle}'s base fee is above
+ * {@code economyMaxBaseFee}, or while their network has no fresh quote (see
+ * {@link FeeOracle#isFresh}); once a fresh quote is low enough they are released oldest first,
+ * {@code economyBatchSize} per run, and any that waited {@code economyMaxWait} since approval
+ * go out whatever the fee.
+ * <p>
+ * Publishes {@code withdrawal.economy.held}, {@code withdrawal.economy.released} (tag
+ * {@code reason}: {@code base_fee} or {@code max_wait}) and {@code withdrawal.economy.fee_saving}:
+ * the fraction of base fee saved by released economy withdrawals, against the base fee when
+ * each was first held, since startup. It goes negative if fees rose while they waited.
+ * <p>
+ * Baselines live in this node's memory only: after a restart, or when another node releases a
+ * withdrawal, its saving is measured from the base fee when this node first saw it, if at all.
+ */
+@Slf4j
+@Component
+public class WithdrawalScheduler {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final FeeOracle feeOracle;
+    private final WithdrawalScheduleConfig config;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger held = new AtomicInteger();
+    private final DoubleAdder baselineBaseFees = new DoubleAdder();
+    private final DoubleAdder paidBaseFees = new DoubleAdder();
+    /** Base fee when each economy withdrawal was first seen by this node; the baseline for its saving. */
+    private final Map<UUID, BigInteger> baselines = new HashMap<>();
+
+    public WithdrawalScheduler(TransactionRepository transactionRepository,
+                               TransactionService transactionService,
+                               FeeOracle feeOracle,
+                               WithdrawalScheduleConfig config,
+                               MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.feeOracle = feeOracle;
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("withdrawal.economy.held", held);
+        meterRegistry.gauge("withdrawal.economy.fee_saving", this, WithdrawalScheduler::getFeeSavingRate);
+    }
+
+    @Scheduled(fixedDelayString = "${app.withdrawal.schedule.interval:5000}")
+    public synchronized void run() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            List<Transaction> approved = transactionRepository.findByStatus(TransactionStatus.APPROVED).stream()
+                    .filter(transaction -> transaction.getType() == TransactionType.WITHDRAWAL)
+                    .toList();
+            baselines.keySet().retainAll(approved.stream().map(Transaction::getId).collect(Collectors.toSet()));
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Transaction> release = new ArrayList<>();
+            Map<UUID, String> reasons = new HashMap<>();
+            Map<BlockchainNetwork, List<Transaction>> economy = new EnumMap<>(BlockchainNetwork.class);
+            for (Transaction transaction : approved) {
+                if (transaction.getPriority() == WithdrawalPriority.ECONOMY) {
+                    economy.computeIfAbsent(transaction.getNetwork(), network -> new ArrayList<>()).add(transaction);
+                } else {
+                    release.add(transaction);
+                }
+            }
+            int waiting = 0;
+            for (Map.Entry<BlockchainNetwork, List<Transaction>> entry : economy.entrySet()) {
+                List<Transaction> released = selectEconomy(entry.getKey(), entry.getValue(), now, reasons);
+                release.addAll(released);
+                waiting += entry.getValue().size() - released.size();
+            }
+            held.set(waiting);
+
+            if (!release.isEmpty()) {
+                record(transactionService.processApprovedWithdrawTransactions(release), reasons);
+            }
+        } catch (Exception e) {
+            log.error("Error scheduling withdrawals: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Economy withdrawals of one network to send now: every one past its maximum wait, plus,
+     * while a fresh quote puts the base fee low enough, the oldest {@code economyBatchSize} of
+     * the rest. Without a fresh quote only the overdue ones go.
+     */
+    private List<Transaction> selectEconomy(BlockchainNetwork network, List<Transaction> withdrawals,
+                                            LocalDateTime now, Map<UUID, String> reasons) {
+        BigInteger baseFee = freshQuote(network).map(FeeOracle.FeeQuote::baseFeePerGas).orElse(null);
+        if (baseFee != null) {
+            withdrawals.forEach(withdrawal -> baselines.putIfAbsent(withdrawal.getId(), baseFee));
+        }
+        boolean cheap = baseFee != null && baseFee.compareTo(config.getEconomyMaxBaseFee()) <= 0;
+        LocalDateTime overdueBefore = now.minus(Duration.ofMillis(config.getEconomyMaxWait()));
+
+        List<Transaction> released = new ArrayList<>();
+        int batch = 0;
+        for (Transaction withdrawal : withdrawals.stream().sorted(Comparator.comparing(WithdrawalScheduler::approvedAt)).toList()) {
+            if (!approvedAt(withdrawal).isAfter(overdueBefore)) {
+                released.add(withdrawal);
+                reasons.put(withdrawal.getId(), "max_wait");
+            } else if (cheap && batch < config.getEconomyBatchSize()) {
+                released.add(withdrawal);
+                reasons.put(withdrawal.getId(), "base_fee");
+                batch++;
+            }
+        }
+        if (released.size() < withdrawals.size()) {
+            log.debug("Holding {} economy withdrawals on {} at base fee {}",
+                    withdrawals.size() - released.size(), network, baseFee != null ? baseFee : "unknown");
+        }
+        return released;
+    }
+
+    private void record(List<Transaction> dispatched, Map<UUID, String> reasons) {
+        for (Transaction withdrawal : dispatched) {
+            String reason = reasons.get(withdrawal.getId());
+            BigInteger baseline = baselines.remove(withdrawal.getId());
+            if (reason == null) {
+                continue;
+            }
+            meterRegistry.counter("withdrawal.economy.released", "reason", reason).increment();
+            freshQuote(withdrawal.getNetwork()).ifPresent(quote -> {
+                if (baseline != null) {
+                    baselineBaseFees.add(baseline.doubleValue());
+                    paidBaseFees.add(quote.baseFeePerGas().doubleValue());
+                }
+            });
+        }
+    }
+
+    /**
+     * The network's latest fee quote unless it is stale; a stale quote would hold or release
+     * economy withdrawals on fees that no longer apply.
+     */
+    private Optional<FeeOracle.FeeQuote> freshQuote(BlockchainNetwork network) {
+        return feeOracle.getQuote(network).filter(feeOracle::isFresh);
+    }
+
+    double getFeeSavingRate() {
+        double baseline = baselineBaseFees.sum();
+        return baseline > 0 ? 1 - paidBaseFees.sum() / baseline : 0;
+    }
+
+    /** Rows approved before approval times were recorded fall back to their creation time. */
+    private static LocalDateTime approvedAt(Transaction withdrawal) {
+        if (withdrawal.getApprovedAt() != null) {
+            return withdrawal.getApprovedAt();
+        }
+        return withdrawal.getCreatedAt() != null ? withdrawal.getCreatedAt() : LocalDateTime.MIN;
+    }
+}
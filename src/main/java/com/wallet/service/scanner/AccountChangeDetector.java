@@ -0,0 +1,56 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.blockchain.BlockchainService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cheap pre-check before wallet-by-wallet scanning: compares each account's latest on-chain
+ * transaction with the stored cursor, so idle wallets never reach the full transaction fetch.
+ * The head read here is handed to the scan, which then starts from it instead of reading the
+ * account state again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountChangeDetector {
+
+    private final ScanCursorStore scanCursorStore;
+    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+
+    /**
+     * A wallet that needs a full scan, with its account head if it was read.
+     */
+    public record ChangedWallet(Wallet wallet, BlockchainService.AccountHead head) {
+
+        public static List<ChangedWallet> unchecked(List<Wallet> wallets) {
+            return wallets.stream().map(wallet -> new ChangedWallet(wallet, null)).toList();
+        }
+    }
+
+    /**
+     * Wallets that may have new transactions. Wallets whose account state could not be read,
+     * or whose network has no cheap account-state lookup, are always kept.
+     */
+    public List<ChangedWallet> filterChanged(BlockchainNetwork network, List<Wallet> wallets) {
+        BlockchainService blockchainService = blockchainServices.get(network);
+        if (blockchainService == null || wallets.isEmpty()) {
+            return ChangedWallet.unchecked(wallets);
+        }
+
+        Map<String, BlockchainService.AccountHead> heads =
+                blockchainService.getAccountHeads(wallets.stream().map(Wallet::getAddress).toList());
+        List<ChangedWallet> changed = wallets.stream()
+                .map(wallet -> new ChangedWallet(wallet, heads.get(wallet.getAddress())))
+                .filter(change -> change.head() == null || change.head().lt() > scanCursorStore.get(change.wallet()).lt())
+                .toList();
+        log.debug("{} of {} {} wallets changed since last scan", changed.size(), wallets.size(), network);
+        return changed;
+    }
+}
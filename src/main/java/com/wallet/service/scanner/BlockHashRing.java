@@ -0,0 +1,83 @@
+package com.wallet.service.scanner;
+
+import com.wallet.service.blockchain.BlockchainService.BlockHeader;
+
+/**
+ * The most recent {@code capacity} block hashes of one chain, indexed by height modulo the
+ * capacity. Lookups and appends are O(1) and memory is fixed. Not thread-safe.
+ */
+class BlockHashRing {
+
+    private final int capacity;
+    private final long[] heights;
+    private final String[] hashes;
+    private long tip = -1;
+    private int size;
+
+    BlockHashRing(int capacity) {
+        this.capacity = capacity;
+        this.heights = new long[capacity];
+        this.hashes = new String[capacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long getTip() {
+        return tip;
+    }
+
+    long getOldest() {
+        return tip - size + 1;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Hash recorded at {@code height}, or null if the height is outside the ring.
+     */
+    String hashAt(long height) {
+        if (size == 0 || height > tip || height < getOldest()) {
+            return null;
+        }
+        int index = index(height);
+        return heights[index] == height ? hashes[index] : null;
+    }
+
+    /**
+     * Append the next block. A header that does not extend the tip restarts the ring.
+     */
+    void add(BlockHeader header) {
+        if (size > 0 && header.height() != tip + 1) {
+            size = 0;
+        }
+        int index = index(header.height());
+        heights[index] = header.height();
+        hashes[index] = header.hash();
+        tip = header.height();
+        size = Math.min(size + 1, capacity);
+    }
+
+    /**
+     * Forget every block above {@code height}.
+     */
+    void truncateAbove(long height) {
+        if (size == 0 || height >= tip) {
+            return;
+        }
+        if (height < getOldest()) {
+            size = 0;
+            tip = -1;
+            return;
+        }
+        size -= (int) (tip - height);
+        tip = height;
+    }
+
+    private int index(long height) {
+        return (int) Math.floorMod(height, (long) capacity);
+    }
+}
@@ -0,0 +1,106 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.ScannerService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.ChainHeadTracker;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Block-driven deposit scanning: follows the chain head per network, reads each new block
+ * once and matches its transfers against {@link DepositAddressIndex}. Progress is kept as a
+ * per-network block cursor in {@link ScanCursorStore}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlockScanner {
+
+    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+    private final DepositAddressIndex depositAddressIndex;
+    private final ScannerService scannerService;
+    private final ScanCursorStore scanCursorStore;
+    private final ShardLeaseManager shardLeaseManager;
+    private final ConfirmationTracker confirmationTracker;
+    private final ScanEngineConfig config;
+    private final ChainHeadTracker headTracker;
+
+    /**
+     * Drop the address snapshot of networks handed to another node, so it is fresh if the
+     * network comes back.
+     */
+    @PostConstruct
+    public void subscribe() {
+        shardLeaseManager.subscribe(change -> blockchainServices.keySet().stream()
+                .filter(change::lostNetwork)
+                .forEach(depositAddressIndex::evict));
+    }
+
+    public boolean supports(BlockchainNetwork network) {
+        BlockchainService blockchainService = blockchainServices.get(network);
+        return blockchainService != null && blockchainService.getBlockSource().isPresent();
+    }
+
+    /**
+     * Scan blocks from the network cursor up to the current head, at most
+     * {@code maxBlocksPerCycle} at a time. Scheduled and head-triggered scans of the same
+     * network, and reorg rollbacks, are serialized by the network's
+     * {@link ScanCursorStore#blockLock}, so scans never read the same range twice and a
+     * rollback's rewind is never overwritten by a scan that was already running.
+     *
+     * @return number of blocks read
+     */
+    public long scan(BlockchainNetwork network) {
+        if (!shardLeaseManager.ownsNetwork(network)) {
+            log.debug("Skipping block scan of {}: network shard is leased by another node", network);
+            return 0;
+        }
+        ReentrantLock lock = scanCursorStore.blockLock(network);
+        lock.lock();
+        try {
+            return scanFromCursor(network);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long scanFromCursor(BlockchainNetwork network) {
+        BlockchainService.BlockSource blockSource = blockchainServices.get(network).getBlockSource()
+                .orElseThrow(() -> new IllegalStateException("Block scanning not supported for " + network));
+
+        long head = headTracker.getHeight(network);
+        // May roll back a reorged range and rewind the cursor before we read it
+        confirmationTracker.onHead(network, head);
+        // Without a cursor start at the configured height or blockLookback behind the head, so
+        // deposits made while the network was not block-scanned are still picked up.
+        long from = scanCursorStore.getBlockHeight(network)
+                .map(height -> height + 1)
+                .orElseGet(() -> config.getStartHeight(network, head));
+        if (from > head) {
+            log.debug("No new blocks on {} (head {})", network, head);
+            return 0;
+        }
+        long to = Math.min(head, from + config.getMaxBlocksPerCycle() - 1);
+
+        Map<String, UUID> watched = depositAddressIndex.getAddresses(network);
+        List<Transaction> transfers = blockSource.getIncomingTransfers(from, to, watched.keySet());
+        if (!transfers.isEmpty()) {
+            log.info("Found {} transfers to watched addresses in {} blocks {}..{}", transfers.size(), network, from, to);
+            scannerService.processBlockTransfers(network, watched, transfers);
+        }
+
+        scanCursorStore.advanceBlock(network, to);
+        log.debug("Scanned {} blocks {}..{} (head {})", network, from, to, head);
+        return to - from + 1;
+    }
+}
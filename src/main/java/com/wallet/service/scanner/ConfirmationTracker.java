@@ -0,0 +1,235 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.BlockchainService.BlockHeader;
+import com.wallet.service.blockchain.ChainHeadTracker;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Follows each network's head through a ring of recent block hashes. When the head moves it
+ * checks that the new blocks extend the recorded chain; if not, it finds the fork point, rolls
+ * back deposits from the orphaned blocks and rewinds the block cursor, and the cursors of
+ * wallets that had scanned them, so the new branch is scanned. This runs under the network's
+ * {@link ScanCursorStore#blockLock}, so a block scan already in progress finishes before the
+ * rewind and cannot advance past it. Confirmations are derived from the head, so advancing them costs O(1) per head
+ * change; pending deposits that became final are popped from {@link PendingConfirmationQueue}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfirmationTracker {
+
+    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final ScanCursorStore scanCursorStore;
+    private final DepositDeduplicator depositDeduplicator;
+    private final PendingConfirmationQueue pendingQueue;
+    private final ScanEngineConfig config;
+    private final ChainHeadTracker headTracker;
+    private final ShardLeaseManager shardLeaseManager;
+
+    private final Map<BlockchainNetwork, BlockHashRing> rings = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, Long> heads = new ConcurrentHashMap<>();
+
+    /**
+     * Follow every head the {@link ChainHeadTracker} publishes. Networks handed to another
+     * node are forgotten, and networks taken over reload their pending deposits on the next
+     * head, since the previous owner may have stored more.
+     */
+    @PostConstruct
+    public void subscribe() {
+        headTracker.subscribe(head -> onHead(head.network(), head.height()));
+        shardLeaseManager.subscribe(change -> {
+            for (BlockchainNetwork network : blockchainServices.keySet()) {
+                if (change.lostNetwork(network)) {
+                    forget(network);
+                } else if (change.gainedNetwork(network)) {
+                    pendingQueue.clear(network);
+                }
+            }
+        });
+    }
+
+    /**
+     * Refresh every network that exposes block headers from its tracked head.
+     */
+    public void refreshAll() {
+        for (BlockchainNetwork network : blockchainServices.keySet()) {
+            try {
+                if (blockchainServices.get(network).getBlockSource().isPresent()) {
+                    onHead(network, headTracker.getHeight(network));
+                }
+            } catch (Exception e) {
+                log.error("Error tracking confirmations on {}: {}", network, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Record a new head for {@code network}: extend the ring, handle any reorg and confirm
+     * deposits that are now final.
+     */
+    public void onHead(BlockchainNetwork network, long headHeight) {
+        if (!shardLeaseManager.ownsNetwork(network)) {
+            return;
+        }
+        BlockchainService blockchainService = blockchainServices.get(network);
+        BlockchainService.BlockSource blockSource = blockchainService.getBlockSource().orElse(null);
+        if (blockSource == null) {
+            return;
+        }
+        BlockHashRing ring = rings.computeIfAbsent(network, n -> new BlockHashRing(config.getReorgWindow()));
+        ReentrantLock lock = scanCursorStore.blockLock(network);
+        lock.lock();
+        try {
+            synchronized (ring) {
+                if (!extend(network, blockSource, ring, headHeight)) {
+                    return;
+                }
+                heads.put(network, headHeight);
+            }
+        } finally {
+            lock.unlock();
+        }
+        confirmFinal(network, headHeight, blockchainService.getRequiredConfirmations());
+    }
+
+    /**
+     * Confirmations of a transaction in block {@code (height, hash)}: 0 if that block is no
+     * longer on the tracked chain, empty if the network is not tracked.
+     */
+    public Optional<Integer> getConfirmations(BlockchainNetwork network, long height, String hash) {
+        Long head = heads.get(network);
+        BlockHashRing ring = rings.get(network);
+        if (head == null || ring == null) {
+            return Optional.empty();
+        }
+        synchronized (ring) {
+            String canonical = ring.hashAt(height);
+            if (canonical != null && hash != null && !canonical.equalsIgnoreCase(hash)) {
+                return Optional.of(0);
+            }
+        }
+        return Optional.of((int) Math.max(0, head - height + 1));
+    }
+
+    /**
+     * @return false if the network does not provide headers
+     */
+    private boolean extend(BlockchainNetwork network, BlockchainService.BlockSource blockSource,
+                           BlockHashRing ring, long headHeight) {
+        long from = ring.isEmpty()
+                ? Math.max(0, headHeight - ring.getCapacity() + 1)
+                : Math.max(Math.min(ring.getTip() + 1, headHeight), headHeight - ring.getCapacity() + 1);
+        List<BlockHeader> headers = blockSource.getHeaders(from, headHeight);
+        if (headers.isEmpty()) {
+            return false;
+        }
+
+        BlockHeader first = headers.get(0);
+        String known = ring.hashAt(first.height());
+        String parent = ring.hashAt(first.height() - 1);
+        boolean reorg = (known != null && !known.equalsIgnoreCase(first.hash()))
+                || (parent != null && !parent.equalsIgnoreCase(first.parentHash()));
+        if (reorg) {
+            long forkHeight = findForkHeight(blockSource, ring, first.height() - 1);
+            log.warn("Reorg on {}: blocks after {} were replaced (head {})", network, forkHeight, headHeight);
+            rollback(network, forkHeight);
+            ring.truncateAbove(forkHeight);
+            headers = blockSource.getHeaders(Math.max(forkHeight + 1, headHeight - ring.getCapacity() + 1), headHeight);
+        }
+
+        for (BlockHeader header : headers) {
+            if (header.height() > ring.getTip() || ring.isEmpty()) {
+                ring.add(header);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Highest height at or below {@code startHeight} whose recorded hash is still canonical.
+     */
+    private long findForkHeight(BlockchainService.BlockSource blockSource, BlockHashRing ring, long startHeight) {
+        long oldest = ring.getOldest();
+        if (startHeight < oldest) {
+            return oldest - 1;
+        }
+        List<BlockHeader> canonical = blockSource.getHeaders(oldest, startHeight);
+        for (int i = canonical.size() - 1; i >= 0; i--) {
+            BlockHeader header = canonical.get(i);
+            if (header.hash().equalsIgnoreCase(ring.hashAt(header.height()))) {
+                return header.height();
+            }
+        }
+        log.error("Reorg deeper than the tracked window of {} blocks", ring.getCapacity());
+        return oldest - 1;
+    }
+
+    private void rollback(BlockchainNetwork network, long forkHeight) {
+        List<Transaction> removed = transactionService.rollbackOrphanedDeposits(network, forkHeight);
+        depositDeduplicator.forget(network, removed.stream().map(Transaction::getTransactionHash).toList());
+        scanCursorStore.rewindBlock(network, forkHeight);
+        // Wallet scans find a re-included deposit only if the wallet's cursor is behind it
+        removed.stream()
+                .collect(Collectors.toMap(tx -> tx.getWallet().getId(), Transaction::getBlockNumber, Math::min))
+                .forEach((walletId, blockNumber) -> scanCursorStore.rewind(walletId, network, blockNumber - 1));
+        if (!removed.isEmpty()) {
+            log.warn("Rolled back {} deposits on {} above block {}", removed.size(), network, forkHeight);
+        }
+    }
+
+    private void forget(BlockchainNetwork network) {
+        rings.remove(network);
+        heads.remove(network);
+        pendingQueue.clear(network);
+        log.info("Stopped tracking confirmations on {}: network shard moved to another node", network);
+    }
+
+    private void confirmFinal(BlockchainNetwork network, long headHeight, int requiredConfirmations) {
+        if (pendingQueue.claimLoad(network, config.getPendingReloadInterval())) {
+            List<PendingConfirmationQueue.Entry> backlog = transactionRepository
+                    .findByNetworkAndTypeAndStatusAndBlockNumberNotNull(network, TransactionType.DEPOSIT, TransactionStatus.PENDING)
+                    .stream()
+                    .map(tx -> PendingConfirmationQueue.Entry.of(tx, requiredConfirmations))
+                    .toList();
+            pendingQueue.replace(network, backlog);
+            log.debug("Loaded {} pending deposits on {}", backlog.size(), network);
+        }
+
+        // Entries from orphaned blocks are dropped here; their rows were already rolled back
+        List<PendingConfirmationQueue.Entry> due = pendingQueue.pollDue(network, headHeight).stream()
+                .filter(entry -> getConfirmations(network, entry.blockNumber(), entry.blockHash()).orElse(0) > 0)
+                .toList();
+        if (!due.isEmpty()) {
+            int wallets;
+            try {
+                wallets = transactionService.confirmDeposits(due, headHeight);
+            } catch (RuntimeException e) {
+                // Still pending in the database: retry them on the next head
+                pendingQueue.add(network, due);
+                throw e;
+            }
+            log.info("Confirmed {} deposits on {} at head {} ({} wallets credited, {} still pending)",
+                    due.size(), network, headHeight, wallets, pendingQueue.size(network));
+        }
+    }
+}
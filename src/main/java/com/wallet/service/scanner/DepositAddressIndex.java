@@ -0,0 +1,85 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.repository.WalletRepository;
+import com.wallet.service.blockchain.BlockchainService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of our deposit addresses per network, keyed by normalized address. Used by
+ * block-driven scanning to match every transfer in a block without touching the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DepositAddressIndex {
+
+    private final WalletRepository walletRepository;
+    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+    private final ScanEngineConfig config;
+
+    private final Map<BlockchainNetwork, Map<String, UUID>> addresses = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, Long> loadedAt = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, Map<String, UUID>> registered = new ConcurrentHashMap<>();
+
+    /**
+     * Watched addresses for a network, reloaded from the database when the snapshot is stale.
+     */
+    public Map<String, UUID> getAddresses(BlockchainNetwork network) {
+        Long loaded = loadedAt.get(network);
+        if (loaded == null || System.currentTimeMillis() - loaded > config.getAddressIndexRefresh()) {
+            reload(network);
+        }
+        return addresses.getOrDefault(network, Map.of());
+    }
+
+    /**
+     * Add a newly created wallet right away, so blocks scanned before the next reload still match it.
+     */
+    public void register(Wallet wallet) {
+        BlockchainService blockchainService = blockchainServices.get(wallet.getNetwork());
+        if (blockchainService == null) {
+            return;
+        }
+        String address = blockchainService.normalizeAddress(wallet.getAddress());
+        registered.computeIfAbsent(wallet.getNetwork(), n -> new ConcurrentHashMap<>()).put(address, wallet.getId());
+        addresses.computeIfAbsent(wallet.getNetwork(), n -> new ConcurrentHashMap<>()).put(address, wallet.getId());
+    }
+
+    /**
+     * Forget the snapshot of a network this node stopped scanning; it is reloaded on next use.
+     */
+    public void evict(BlockchainNetwork network) {
+        loadedAt.remove(network);
+        addresses.remove(network);
+    }
+
+    private void reload(BlockchainNetwork network) {
+        BlockchainService blockchainService = blockchainServices.get(network);
+        Map<String, UUID> index = new ConcurrentHashMap<>();
+        for (WalletRepository.WatchedAddress watched : walletRepository.findWatchedAddresses(network)) {
+            index.put(blockchainService.normalizeAddress(watched.getAddress()), watched.getId());
+        }
+        // Wallets registered while the query ran may not be committed yet; keep them until
+        // a reload sees them in the database.
+        Map<String, UUID> pending = registered.getOrDefault(network, Map.of());
+        pending.forEach((address, walletId) -> {
+            if (index.containsKey(address)) {
+                pending.remove(address);
+            } else {
+                index.put(address, walletId);
+            }
+        });
+        addresses.put(network, index);
+        loadedAt.put(network, System.currentTimeMillis());
+        log.debug("Loaded {} watched addresses for {}", index.size(), network);
+    }
+}
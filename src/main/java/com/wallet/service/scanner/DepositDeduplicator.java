@@ -0,0 +1,113 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based de-duplication of scanned deposits. Hashes seen in recent cycles are answered
+ * from a bounded in-memory cache; the rest of a batch is resolved with a single query.
+ * Only deposits of the same network count: a withdrawal between two platform wallets has the
+ * same hash as the deposit it produces. The unique (network, transaction_hash, type)
+ * constraint remains the final guarantee.
+ */
+@Slf4j
+@Component
+public class DepositDeduplicator {
+
+    private final TransactionRepository transactionRepository;
+    private final Map<String, Boolean> recentHashes;
+
+    public DepositDeduplicator(TransactionRepository transactionRepository, ScanEngineConfig config) {
+        this.transactionRepository = transactionRepository;
+        int capacity = config.getRecentHashCacheSize();
+        this.recentHashes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Candidates whose hash is neither in the recent cache nor stored as a deposit, with
+     * duplicates inside the batch removed. Order is preserved.
+     */
+    public List<Transaction> filterNew(BlockchainNetwork network, List<Transaction> candidates) {
+        Map<String, Transaction> unseen = new LinkedHashMap<>();
+        for (Transaction tx : candidates) {
+            if (tx.getTransactionHash() != null && !recentHashes.containsKey(key(network, tx.getTransactionHash()))) {
+                unseen.putIfAbsent(tx.getTransactionHash(), tx);
+            }
+        }
+        if (unseen.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> known = transactionRepository.findExistingHashes(
+                network, TransactionType.DEPOSIT, unseen.keySet());
+        markSeen(network, known);
+
+        List<Transaction> fresh = new ArrayList<>();
+        unseen.forEach((hash, tx) -> {
+            if (!known.contains(hash)) {
+                fresh.add(tx);
+            }
+        });
+        log.debug("{}: {} candidates, {} new", network, candidates.size(), fresh.size());
+        return fresh;
+    }
+
+    /**
+     * Remember hashes that are now stored, so later cycles skip them without a query.
+     */
+    public void markSeen(BlockchainNetwork network, Collection<String> hashes) {
+        for (String hash : hashes) {
+            recentHashes.put(key(network, hash), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Like {@link #markSeen}, but deferred until the surrounding transaction commits, so a
+     * rolled-back insert is not remembered as stored.
+     */
+    public void markSeenAfterCommit(BlockchainNetwork network, Collection<String> hashes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markSeen(network, hashes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markSeen(network, hashes);
+            }
+        });
+    }
+
+    /**
+     * Drop hashes whose rows were removed (e.g. by a reorg rollback) so they are detected again.
+     */
+    public void forget(BlockchainNetwork network, Collection<String> hashes) {
+        for (String hash : hashes) {
+            recentHashes.remove(key(network, hash));
+        }
+    }
+
+    private String key(BlockchainNetwork network, String hash) {
+        return network.name() + ":" + hash;
+    }
+}
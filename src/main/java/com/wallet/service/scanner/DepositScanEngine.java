@@ -0,0 +1,266 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.ScannerService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs deposit scans partitioned by network. Every network gets its own worker pool and
+ * bounded queue, so a slow chain cannot starve the others, and submissions block when a
+ * shard's queue is full instead of being rejected. Networks configured for
+ * {@link ScanEngineConfig.ScanMode#BLOCK} are scanned block by block via {@link BlockScanner}
+ * instead of wallet by wallet. Wallet-by-wallet scans first run a batched account-state
+ * pre-check ({@link AccountChangeDetector}) and only fully scan wallets that changed.
+ * <p>
+ * RPC quotas are enforced below this class: calls wait for quota, which paces the workers.
+ * Once a call is throttled anyway, the rest of the network's cycle is deferred untouched
+ * (counted as throttled, cursors unchanged) rather than reported as failed or empty.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DepositScanEngine {
+
+    private final ScannerService scannerService;
+    private final BlockScanner blockScanner;
+    private final ScanTierPolicy scanTierPolicy;
+    private final AccountChangeDetector accountChangeDetector;
+    private final ScanEngineConfig config;
+
+    private final Map<BlockchainNetwork, NetworkShard> shards = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, ShardProgress> lastProgress = new ConcurrentHashMap<>();
+
+    /**
+     * Scan the given wallets and wait until every shard has drained.
+     */
+    public Map<BlockchainNetwork, ShardProgress> scan(List<Wallet> wallets) {
+        Set<BlockchainNetwork> blockNetworks = getBlockScannedNetworks();
+        Map<BlockchainNetwork, List<Wallet>> byNetwork = wallets.stream()
+                .filter(wallet -> !blockNetworks.contains(wallet.getNetwork()))
+                .collect(Collectors.groupingBy(Wallet::getNetwork));
+
+        Map<BlockchainNetwork, ShardProgress> progress = new EnumMap<>(BlockchainNetwork.class);
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (BlockchainNetwork network : blockNetworks) {
+            NetworkShard shard = shards.computeIfAbsent(network, this::createShard);
+            ShardProgress shardProgress = new ShardProgress(network, 1);
+            progress.put(network, shardProgress);
+            lastProgress.put(network, shardProgress);
+            running.add(shard.scanBlocks(shardProgress));
+        }
+        for (Map.Entry<BlockchainNetwork, List<Wallet>> entry : byNetwork.entrySet()) {
+            NetworkShard shard = shards.computeIfAbsent(entry.getKey(), this::createShard);
+            ShardProgress shardProgress = new ShardProgress(entry.getKey(), entry.getValue().size());
+            progress.put(entry.getKey(), shardProgress);
+            lastProgress.put(entry.getKey(), shardProgress);
+            running.add(shard.scan(entry.getValue(), shardProgress));
+        }
+
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        progress.values().forEach(p -> log.info("Deposit scan shard finished - {}", p));
+        return progress;
+    }
+
+    /**
+     * Progress of the current (or most recent) cycle for each network.
+     */
+    public Map<BlockchainNetwork, ShardProgress> getProgress() {
+        return Map.copyOf(lastProgress);
+    }
+
+    private Set<BlockchainNetwork> getBlockScannedNetworks() {
+        Set<BlockchainNetwork> networks = EnumSet.noneOf(BlockchainNetwork.class);
+        for (BlockchainNetwork network : config.getNetworks().keySet()) {
+            if (config.getMode(network) == ScanEngineConfig.ScanMode.BLOCK && blockScanner.supports(network)) {
+                networks.add(network);
+            }
+        }
+        return networks;
+    }
+
+    private NetworkShard createShard(BlockchainNetwork network) {
+        int concurrency = config.getConcurrency(network);
+        int queueCapacity = config.getQueueCapacity(network);
+        log.info("Creating scan shard for {} (concurrency {}, queue {})", network, concurrency, queueCapacity);
+        return new NetworkShard(network, concurrency, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shards.values().forEach(NetworkShard::shutdown);
+    }
+
+    private class NetworkShard {
+
+        private final BlockchainNetwork network;
+        private final ExecutorService feeder;
+        private final ThreadPoolExecutor workers;
+        private final Semaphore slots;
+
+        NetworkShard(BlockchainNetwork network, int concurrency, int queueCapacity) {
+            this.network = network;
+            String prefix = "scan-" + network.name().toLowerCase() + "-";
+            this.feeder = Executors.newSingleThreadExecutor(namedThreads(prefix + "feeder-"));
+            this.workers = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), namedThreads(prefix));
+            // One permit per worker plus one per queue slot: a submission that gets a permit
+            // is guaranteed a place, so the feeder waits instead of the executor rejecting.
+            this.slots = new Semaphore(concurrency + queueCapacity);
+        }
+
+        CompletableFuture<Void> scan(List<Wallet> wallets, ShardProgress progress) {
+            return CompletableFuture.runAsync(() -> {
+                List<AccountChangeDetector.ChangedWallet> changed = precheck(wallets, progress);
+                runAll(changed, change -> {
+                    Wallet wallet = change.wallet();
+                    if (progress.isThrottled()) {
+                        progress.recordThrottled(1);
+                        return;
+                    }
+                    try {
+                        scannerService.scanDeposits(wallet, change.head());
+                        scanTierPolicy.markScanned(wallet.getId());
+                        progress.recordCompleted();
+                    } catch (Exception e) {
+                        if (RpcThrottledException.isCauseOf(e)) {
+                            progress.recordThrottled(1);
+                            log.info("Throttled by {} provider, deferring the rest of this scan cycle", network);
+                        } else {
+                            progress.recordFailed();
+                            log.error("Error scanning wallet {}: {}", wallet.getAddress(), e.getMessage(), e);
+                        }
+                    }
+                });
+                progress.finish();
+            }, feeder);
+        }
+
+        /**
+         * Checks account state in batches, concurrently on the shard's workers, and returns the
+         * wallets that need a full scan. A failed batch is scanned in full.
+         */
+        private List<AccountChangeDetector.ChangedWallet> precheck(List<Wallet> wallets, ShardProgress progress) {
+            int batchSize = Math.max(1, config.getPrecheckBatchSize());
+            List<List<Wallet>> batches = new ArrayList<>();
+            for (int i = 0; i < wallets.size(); i += batchSize) {
+                batches.add(wallets.subList(i, Math.min(i + batchSize, wallets.size())));
+            }
+
+            List<AccountChangeDetector.ChangedWallet> changed = Collections.synchronizedList(new ArrayList<>());
+            runAll(batches, batch -> {
+                if (progress.isThrottled()) {
+                    progress.recordThrottled(batch.size());
+                    return;
+                }
+                List<AccountChangeDetector.ChangedWallet> batchChanged;
+                try {
+                    batchChanged = accountChangeDetector.filterChanged(network, batch);
+                } catch (Exception e) {
+                    if (RpcThrottledException.isCauseOf(e)) {
+                        // Scanning the batch in full would only add load; leave it due
+                        progress.recordThrottled(batch.size());
+                        log.info("Throttled by {} provider during pre-check, deferring {} wallets", network, batch.size());
+                        return;
+                    }
+                    log.warn("Account pre-check failed on {}: {}", network, e.getMessage());
+                    batchChanged = AccountChangeDetector.ChangedWallet.unchecked(batch);
+                }
+                Set<UUID> changedIds = batchChanged.stream()
+                        .map(change -> change.wallet().getId())
+                        .collect(Collectors.toSet());
+                // Unchanged wallets count as scanned for tiering: there was nothing to fetch
+                batch.stream()
+                        .filter(wallet -> !changedIds.contains(wallet.getId()))
+                        .forEach(wallet -> scanTierPolicy.markScanned(wallet.getId()));
+                progress.recordSkipped(batch.size() - batchChanged.size());
+                changed.addAll(batchChanged);
+            });
+            return changed;
+        }
+
+        /**
+         * Runs {@code task} for every item on the worker pool and waits for all of them.
+         */
+        private <T> void runAll(List<T> items, Consumer<T> task) {
+            CountDownLatch done = new CountDownLatch(items.size());
+            for (T item : items) {
+                slots.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        task.accept(item);
+                    } finally {
+                        slots.release();
+                        done.countDown();
+                    }
+                });
+            }
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        CompletableFuture<Void> scanBlocks(ShardProgress progress) {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    long blocks = blockScanner.scan(network);
+                    progress.recordCompleted();
+                    log.debug("Block scan of {} read {} blocks", network, blocks);
+                } catch (Exception e) {
+                    if (RpcThrottledException.isCauseOf(e)) {
+                        progress.recordThrottled(1);
+                        log.info("Throttled by {} provider, block scan resumes next cycle", network);
+                    } else {
+                        progress.recordFailed();
+                        log.error("Error scanning blocks on {}: {}", network, e.getMessage(), e);
+                    }
+                } finally {
+                    progress.finish();
+                }
+            }, feeder);
+        }
+
+        void shutdown() {
+            feeder.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.blockchain.ChainHeadStream;
+import com.wallet.service.blockchain.ChainHeadTracker;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Event-driven block scanning: each head advance published by the {@link ChainHeadTracker}
+ * triggers a {@link BlockScanner} run, so deposits are seen about one block after inclusion
+ * instead of on the next scheduled cycle. This covers networks with a {@link ChainHeadStream},
+ * whose pushed heads are published to the tracker, and networks scanned in block mode, whose
+ * heads the tracker polls. Heads arriving during a run are coalesced into one follow-up run.
+ * After a stream (re)connects the scanner catches up from its block cursor, which backfills
+ * any blocks missed while disconnected.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HeadEventScanner {
+
+    private final List<ChainHeadStream> headStreams;
+    private final BlockScanner blockScanner;
+    private final ScanEngineConfig config;
+    private final ChainHeadTracker headTracker;
+
+    private final Set<BlockchainNetwork> headDriven = ConcurrentHashMap.newKeySet();
+    private final Map<BlockchainNetwork, ExecutorService> executors = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, AtomicBoolean> scanRequested = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (ChainHeadStream headStream : headStreams) {
+            BlockchainNetwork network = headStream.getNetwork();
+            if (!headStream.isEnabled() || !blockScanner.supports(network)) {
+                continue;
+            }
+            log.info("Starting head-driven scanning for {}", network);
+            headDriven.add(network);
+            headStream.start(new ChainHeadStream.Listener() {
+                @Override
+                public void onHead(long height) {
+                    log.debug("New {} head {}", network, height);
+                    headTracker.publish(network, height);
+                }
+
+                @Override
+                public void onConnected() {
+                    requestScan(network);
+                }
+            });
+        }
+        for (BlockchainNetwork network : BlockchainNetwork.values()) {
+            if (config.getMode(network) == ScanEngineConfig.ScanMode.BLOCK && blockScanner.supports(network)
+                    && headDriven.add(network)) {
+                log.info("Starting head-driven scanning for {} on polled heads", network);
+            }
+        }
+        headTracker.subscribe(head -> {
+            if (headDriven.contains(head.network())) {
+                requestScan(head.network());
+            }
+        });
+    }
+
+    /**
+     * Schedule a catch-up run unless one is already waiting.
+     */
+    void requestScan(BlockchainNetwork network) {
+        AtomicBoolean requested = scanRequested.computeIfAbsent(network, n -> new AtomicBoolean());
+        if (!requested.compareAndSet(false, true)) {
+            return;
+        }
+        executors.computeIfAbsent(network, this::createExecutor).execute(() -> {
+            requested.set(false);
+            catchUp(network);
+        });
+    }
+
+    private void catchUp(BlockchainNetwork network) {
+        try {
+            long blocks;
+            do {
+                blocks = blockScanner.scan(network);
+            } while (blocks >= config.getMaxBlocksPerCycle());
+        } catch (Exception e) {
+            if (RpcThrottledException.isCauseOf(e)) {
+                // The next head (or the scheduled scan) picks up from the cursor
+                log.info("Throttled by {} provider, catch-up deferred", network);
+            } else {
+                log.error("Error scanning {} on new head: {}", network, e.getMessage(), e);
+            }
+        }
+    }
+
+    private ExecutorService createExecutor(BlockchainNetwork network) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "head-scan-" + network.name().toLowerCase());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        headStreams.forEach(ChainHeadStream::stop);
+        executors.values().forEach(ExecutorService::shutdownNow);
+    }
+}
@@ -0,0 +1,133 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pending deposits per network in a min-heap ordered by the block height at which they
+ * reach the required confirmations. Each head only pops what became due, so the work per
+ * head follows newly final deposits rather than the size of the pending backlog. The stored
+ * backlog is reloaded periodically, which also picks up deposits other nodes stored.
+ */
+@Component
+public class PendingConfirmationQueue {
+
+    private final Map<BlockchainNetwork, PriorityQueue<Entry>> queues = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, Long> loadedAt = new ConcurrentHashMap<>();
+
+    /**
+     * A pending deposit; {@code dueHeight} is the first head at which it is final.
+     */
+    public record Entry(UUID transactionId, UUID walletId, BigDecimal amount,
+                        long blockNumber, String blockHash, long dueHeight) {
+
+        public static Entry of(Transaction transaction, int requiredConfirmations) {
+            return new Entry(transaction.getId(), transaction.getWallet().getId(), transaction.getAmount(),
+                    transaction.getBlockNumber(), transaction.getBlockHash(),
+                    transaction.getBlockNumber() + requiredConfirmations - 1);
+        }
+    }
+
+    public void add(BlockchainNetwork network, Collection<Entry> entries) {
+        PriorityQueue<Entry> queue = queue(network);
+        synchronized (queue) {
+            queue.addAll(entries);
+        }
+    }
+
+    /**
+     * Like {@link #add}, but deferred until the surrounding transaction commits.
+     */
+    public void addAfterCommit(BlockchainNetwork network, Collection<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(network, entries);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(network, entries);
+            }
+        });
+    }
+
+    /**
+     * Replace a network's entries with a freshly loaded backlog.
+     */
+    public void replace(BlockchainNetwork network, Collection<Entry> entries) {
+        PriorityQueue<Entry> queue = queue(network);
+        synchronized (queue) {
+            queue.clear();
+            queue.addAll(entries);
+        }
+    }
+
+    /**
+     * Remove and return every entry due at or below {@code headHeight}. Callers that fail to
+     * confirm them {@link #add} them back.
+     */
+    public List<Entry> pollDue(BlockchainNetwork network, long headHeight) {
+        PriorityQueue<Entry> queue = queue(network);
+        List<Entry> due = new ArrayList<>();
+        synchronized (queue) {
+            while (!queue.isEmpty() && queue.peek().dueHeight() <= headHeight) {
+                due.add(queue.poll());
+            }
+        }
+        return due;
+    }
+
+    public int size(BlockchainNetwork network) {
+        PriorityQueue<Entry> queue = queue(network);
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Returns true for the caller that should (re)load the network's stored backlog: on first
+     * use, after {@link #clear}, and once the last load is older than {@code maxAgeMillis}.
+     */
+    public boolean claimLoad(BlockchainNetwork network, long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        boolean[] claimed = new boolean[1];
+        loadedAt.compute(network, (n, loaded) -> {
+            claimed[0] = loaded == null || now - loaded >= maxAgeMillis;
+            return claimed[0] ? now : loaded;
+        });
+        return claimed[0];
+    }
+
+    /**
+     * Drop a network's entries, e.g. when another node takes over its confirmations. The
+     * backlog is loaded again by the next {@link #claimLoad} caller.
+     */
+    public void clear(BlockchainNetwork network) {
+        PriorityQueue<Entry> queue = queue(network);
+        synchronized (queue) {
+            queue.clear();
+            loadedAt.remove(network);
+        }
+    }
+
+    private PriorityQueue<Entry> queue(BlockchainNetwork network) {
+        return queues.computeIfAbsent(network,
+                n -> new PriorityQueue<>(Comparator.comparingLong(Entry::dueHeight)));
+    }
+}
@@ -0,0 +1,94 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.BlockchainService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Follows rows that only have a transaction hash, sent withdrawals and deposits reported
+ * without a block, by reading their details in bulk per network. Like the deposit scan, each
+ * node follows only rows of wallets in the shards it holds. The node is read outside any
+ * DB transaction; each row is then written with a guarded update. Final deposits are credited
+ * through {@link TransactionService#confirmDeposits}, in one transaction per network.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PendingTransactionPoller {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final Map<BlockchainNetwork, BlockchainService> blockchainServices;
+    private final ShardLeaseManager shardLeaseManager;
+
+    public void poll() {
+        List<Transaction> pending = transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(
+                        List.of(TransactionStatus.PENDING, TransactionStatus.SENT)).stream()
+                .filter(transaction -> shardLeaseManager.owns(transaction.getWallet().getId()))
+                .toList();
+
+        // Rows from before transactions recorded their network fall back to their wallet's
+        Map<BlockchainNetwork, List<Transaction>> byNetwork = pending.stream()
+                .collect(Collectors.groupingBy(transaction -> transaction.getNetwork() != null
+                        ? transaction.getNetwork() : transaction.getWallet().getNetwork()));
+        byNetwork.forEach(this::poll);
+    }
+
+    private void poll(BlockchainNetwork network, List<Transaction> transactions) {
+        Map<String, BlockchainService.TransactionDetails> details;
+        try {
+            details = blockchainServices.get(network).getTransactionDetails(
+                    transactions.stream().map(Transaction::getTransactionHash).toList());
+        } catch (Exception e) {
+            log.error("Error reading {} pending transactions on {}", transactions.size(), network, e);
+            return;
+        }
+
+        List<PendingConfirmationQueue.Entry> finalDeposits = new ArrayList<>();
+        long head = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Transaction transaction : transactions) {
+            BlockchainService.TransactionDetails txDetails = details.get(transaction.getTransactionHash());
+            if (txDetails == null || txDetails.blockNumber() == null) {
+                continue;
+            }
+            try {
+                if (txDetails.isConfirmed() && transaction.getStatus() == TransactionStatus.SENT) {
+                    if (transactionRepository.confirmSent(transaction.getId(), txDetails.blockNumber(),
+                            txDetails.confirmations(), txDetails.fee(), now) == 1) {
+                        log.info("Withdrawal confirmed: {} - TxHash: {}", transaction.getId(), transaction.getTransactionHash());
+                    }
+                    continue;
+                }
+                transactionRepository.recordConfirmations(transaction.getId(), transaction.getStatus(),
+                        txDetails.blockNumber(), txDetails.confirmations());
+                if (txDetails.isConfirmed() && transaction.getType() == TransactionType.DEPOSIT) {
+                    finalDeposits.add(new PendingConfirmationQueue.Entry(transaction.getId(),
+                            transaction.getWallet().getId(), transaction.getAmount(),
+                            txDetails.blockNumber(), null, txDetails.blockNumber()));
+                    head = Math.max(head, txDetails.blockNumber() + txDetails.confirmations() - 1);
+                }
+            } catch (Exception e) {
+                log.error("Error updating transaction: {}", transaction.getId(), e);
+            }
+        }
+
+        if (!finalDeposits.isEmpty()) {
+            int credited = transactionService.confirmDeposits(finalDeposits, head);
+            log.info("Confirmed {} polled deposits on {}, credited {} wallets", finalDeposits.size(), network, credited);
+        }
+    }
+}
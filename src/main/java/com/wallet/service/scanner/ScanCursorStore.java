@@ -0,0 +1,258 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.BlockCursor;
+import com.wallet.model.ScanCursor;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.repository.BlockCursorRepository;
+import com.wallet.repository.ScanCursorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scanner checkpoints with write-behind persistence. Reads are served from memory (each
+ * network's cursors are loaded once); advances are buffered and flushed as a single JDBC
+ * batch of upserts. Losing unflushed progress on a crash only causes a rescan, which
+ * de-duplication absorbs. Cursors of wallets and networks whose shard lease moved to another
+ * node are dropped unflushed, so a stale position never overwrites the new owner's.
+ * <p>
+ * The cursor tables are rewritten on every flush; {@code db/cursor-fillfactor.sql} leaves free
+ * space in their pages so those updates stay on-page (HOT) instead of bloating the table.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ScanCursorStore {
+
+    private static final String UPSERT_WALLET_CURSOR =
+            "INSERT INTO scan_cursors (wallet_id, network, last_lt, last_hash, updated_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (wallet_id) DO UPDATE SET last_lt = EXCLUDED.last_lt, " +
+            "last_hash = EXCLUDED.last_hash, updated_at = EXCLUDED.updated_at";
+
+    private static final String UPSERT_BLOCK_CURSOR =
+            "INSERT INTO block_cursors (network, height, updated_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (network) DO UPDATE SET height = EXCLUDED.height, updated_at = EXCLUDED.updated_at";
+
+    private final ScanCursorRepository scanCursorRepository;
+    private final BlockCursorRepository blockCursorRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardLeaseManager shardLeaseManager;
+
+    private final Map<UUID, Position> positions = new ConcurrentHashMap<>();
+    private final Map<UUID, Position> dirtyPositions = new ConcurrentHashMap<>();
+    private final Set<BlockchainNetwork> loadedNetworks = ConcurrentHashMap.newKeySet();
+    private final Map<BlockchainNetwork, Long> blockHeights = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, Long> dirtyBlockHeights = new ConcurrentHashMap<>();
+    private final Map<BlockchainNetwork, ReentrantLock> blockLocks = new ConcurrentHashMap<>();
+
+    public record Position(BlockchainNetwork network, Long lt, String hash) {}
+
+    @PostConstruct
+    public void init() {
+        shardLeaseManager.subscribe(this::onLeaseChange);
+    }
+
+    /**
+     * Current position for a wallet. Wallets without a cursor row start from the legacy
+     * position stored on the wallet itself.
+     */
+    public Position get(Wallet wallet) {
+        ensureLoaded(wallet.getNetwork());
+        return positions.computeIfAbsent(wallet.getId(), id -> new Position(wallet.getNetwork(),
+                wallet.getLastScannedLt() != null ? wallet.getLastScannedLt() : 0L,
+                wallet.getLastScannedHash() != null ? wallet.getLastScannedHash() : ""));
+    }
+
+    /**
+     * Record a new position reached by a scan that started at {@code from}. Inside a
+     * transaction the change is applied only after commit, so a rolled-back scan never moves
+     * the cursor past unsaved deposits. If the cursor was rewound behind {@code from} while
+     * the scan ran, the scan's position is dropped so the rewound range is scanned again; so
+     * it is if the cursor was dropped because the wallet's lease moved to another node.
+     */
+    public void advance(Wallet wallet, Position from, Long lt, String hash) {
+        Position position = new Position(wallet.getNetwork(), lt, hash);
+        afterCommit(() -> {
+            Position current = positions.compute(wallet.getId(), (id, previous) -> {
+                if (previous == null) {
+                    return shardLeaseManager.owns(id) ? position : null;
+                }
+                return previous.lt() < from.lt() ? previous : position;
+            });
+            if (current == position) {
+                dirtyPositions.put(wallet.getId(), position);
+            } else if (current == null) {
+                log.debug("Cursor of wallet {} was dropped during its scan, not keeping {}", wallet.getId(), lt);
+            } else {
+                log.debug("Cursor of wallet {} was rewound during its scan, keeping {}", wallet.getId(), current.lt());
+            }
+        });
+    }
+
+    /**
+     * Move a wallet's cursor back to {@code lt} (never forward), e.g. after a reorg removed
+     * deposits it had scanned. Applied immediately; wallets without a cursor are left alone.
+     */
+    public void rewind(UUID walletId, BlockchainNetwork network, long lt) {
+        ensureLoaded(network);
+        Position rewound = new Position(network, lt, "");
+        Position current = positions.computeIfPresent(walletId, (id, previous) ->
+                previous.lt() > lt ? rewound : previous);
+        if (current == rewound) {
+            dirtyPositions.put(walletId, rewound);
+        }
+    }
+
+    /**
+     * Lock serializing everything that reads and moves a network's block cursor: block scans
+     * and reorg rollbacks. A rewind can then never land inside a scan that would advance the
+     * cursor past it afterwards.
+     */
+    public ReentrantLock blockLock(BlockchainNetwork network) {
+        return blockLocks.computeIfAbsent(network, n -> new ReentrantLock());
+    }
+
+    public Optional<Long> getBlockHeight(BlockchainNetwork network) {
+        Long height = blockHeights.computeIfAbsent(network, n -> blockCursorRepository.findById(n)
+                .map(BlockCursor::getHeight)
+                .orElse(null));
+        return Optional.ofNullable(height);
+    }
+
+    public void advanceBlock(BlockchainNetwork network, long height) {
+        afterCommit(() -> {
+            blockHeights.put(network, height);
+            dirtyBlockHeights.put(network, height);
+        });
+    }
+
+    /**
+     * Move the block cursor back to {@code height} (never forward), e.g. after a reorg. Applied
+     * immediately; callers hold {@link #blockLock}.
+     */
+    public void rewindBlock(BlockchainNetwork network, long height) {
+        Long current = getBlockHeight(network).orElse(null);
+        if (current != null && current > height) {
+            blockHeights.put(network, height);
+            dirtyBlockHeights.put(network, height);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.scanner.cursor-flush-interval:5000}")
+    public void flush() {
+        flushWalletCursors();
+        flushBlockCursors();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Forget cursors of wallets and networks now scanned by another node; the next read of a
+     * wallet cursor reloads its network from the database.
+     */
+    void onLeaseChange(ShardLeaseManager.LeaseChange change) {
+        if (change.lost().isEmpty()) {
+            return;
+        }
+        synchronized (loadedNetworks) {
+            positions.keySet().removeIf(change::lostWallet);
+            dirtyPositions.keySet().removeIf(change::lostWallet);
+            loadedNetworks.clear();
+        }
+        blockHeights.keySet().removeIf(change::lostNetwork);
+        dirtyBlockHeights.keySet().removeIf(change::lostNetwork);
+    }
+
+    private void flushWalletCursors() {
+        if (dirtyPositions.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, Position>> batch = new ArrayList<>(dirtyPositions.entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Map.Entry<UUID, Position> entry : batch) {
+            Position position = entry.getValue();
+            rows.add(new Object[]{entry.getKey(), position.network().name(), position.lt(), position.hash(), now});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_WALLET_CURSOR, rows);
+            // Keep entries that advanced again while we were writing
+            batch.forEach(entry -> dirtyPositions.remove(entry.getKey(), entry.getValue()));
+            log.debug("Flushed {} scan cursors", rows.size());
+        } catch (Exception e) {
+            log.error("Error flushing scan cursors: {}", e.getMessage(), e);
+        }
+    }
+
+    private void flushBlockCursors() {
+        if (dirtyBlockHeights.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<BlockchainNetwork, Long>> batch = new ArrayList<>(dirtyBlockHeights.entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Map.Entry<BlockchainNetwork, Long> entry : batch) {
+            rows.add(new Object[]{entry.getKey().name(), entry.getValue(), now});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_BLOCK_CURSOR, rows);
+            batch.forEach(entry -> dirtyBlockHeights.remove(entry.getKey(), entry.getValue()));
+        } catch (Exception e) {
+            log.error("Error flushing block cursors: {}", e.getMessage(), e);
+        }
+    }
+
+    private void ensureLoaded(BlockchainNetwork network) {
+        if (loadedNetworks.contains(network)) {
+            return;
+        }
+        synchronized (loadedNetworks) {
+            if (loadedNetworks.contains(network)) {
+                return;
+            }
+            List<ScanCursor> cursors = scanCursorRepository.findByNetwork(network);
+            for (ScanCursor cursor : cursors) {
+                positions.putIfAbsent(cursor.getWalletId(),
+                        new Position(network, cursor.getLastLt(), cursor.getLastHash()));
+            }
+            loadedNetworks.add(network);
+            log.info("Loaded {} scan cursors for {}", cursors.size(), network);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
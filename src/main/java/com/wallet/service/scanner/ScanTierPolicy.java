@@ -0,0 +1,146 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.TonConfig;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.ScanTier;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ranks wallets by recent activity so wallet-by-wallet scanning spends RPC calls where
+ * deposits are likely: recent deposits, a deposit address just shown to the user, or an
+ * open withdrawal make a wallet hot; long-dormant wallets are scanned rarely. A deposit hint
+ * is stored on the wallet, so the node scanning it sees the hint whichever node took it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ScanTierPolicy {
+
+    private static final Set<TransactionStatus> OPEN_WITHDRAWAL_STATUSES = EnumSet.of(
+            TransactionStatus.PENDING, TransactionStatus.APPROVED,
+            TransactionStatus.PROCESSING, TransactionStatus.SENT);
+
+    private final TransactionRepository transactionRepository;
+    private final TonConfig tonConfig;
+    private final WalletRepository walletRepository;
+
+    private final Map<UUID, Long> lastActivity = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastScannedAt = new ConcurrentHashMap<>();
+    private volatile Set<UUID> openWithdrawals = Set.of();
+    private volatile boolean activityLoaded;
+
+    /**
+     * Wallets whose tier interval has elapsed since their last successful scan, or with a
+     * deposit hinted since then.
+     */
+    public List<Wallet> selectDue(List<Wallet> wallets) {
+        loadActivity();
+        openWithdrawals = transactionRepository.findWalletIdsByTypeAndStatusIn(
+                TransactionType.WITHDRAWAL, OPEN_WITHDRAWAL_STATUSES);
+
+        long now = System.currentTimeMillis();
+        List<Wallet> due = wallets.stream()
+                .filter(wallet -> {
+                    Long scannedAt = lastScannedAt.get(wallet.getId());
+                    return scannedAt == null || now - scannedAt >= getInterval(getTier(wallet, now))
+                            || hintedAt(wallet) > scannedAt;
+                })
+                .toList();
+        log.debug("{} of {} wallets due for scanning", due.size(), wallets.size());
+        return due;
+    }
+
+    public ScanTier getTier(Wallet wallet) {
+        return getTier(wallet, System.currentTimeMillis());
+    }
+
+    public void markScanned(UUID walletId) {
+        lastScannedAt.put(walletId, System.currentTimeMillis());
+    }
+
+    public void recordActivity(UUID walletId) {
+        lastActivity.put(walletId, System.currentTimeMillis());
+    }
+
+    /**
+     * The user is about to deposit: keep the wallet hot for the hot window and have it
+     * scanned on the next cycle of the node that owns it.
+     *
+     * @return time until which the wallet stays hot
+     */
+    public Instant expectDeposit(UUID walletId) {
+        Instant until = Instant.now().plusMillis(tiers().getHotWindow());
+        walletRepository.extendHotUntil(walletId, LocalDateTime.ofInstant(until, ZoneId.systemDefault()));
+        return until;
+    }
+
+    private ScanTier getTier(Wallet wallet, long now) {
+        UUID walletId = wallet.getId();
+        if (hotUntil(wallet) > now || openWithdrawals.contains(walletId)) {
+            return ScanTier.HOT;
+        }
+
+        Long activityAt = lastActivity.get(walletId);
+        if (activityAt != null && now - activityAt < tiers().getHotWindow()) {
+            return ScanTier.HOT;
+        }
+        if (activityAt != null && now - activityAt < tiers().getWarmWindow()) {
+            return ScanTier.WARM;
+        }
+        return ScanTier.COLD;
+    }
+
+    private static long hotUntil(Wallet wallet) {
+        return wallet.getHotUntil() != null
+                ? wallet.getHotUntil().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+    }
+
+    /**
+     * When the wallet's latest deposit hint was given, or 0 without one.
+     */
+    private long hintedAt(Wallet wallet) {
+        return wallet.getHotUntil() != null ? hotUntil(wallet) - tiers().getHotWindow() : 0;
+    }
+
+    private long getInterval(ScanTier tier) {
+        return switch (tier) {
+            case HOT -> tiers().getHotInterval();
+            case WARM -> tiers().getWarmInterval();
+            case COLD -> tiers().getColdInterval();
+        };
+    }
+
+    private TonConfig.TierPolicy tiers() {
+        return tonConfig.getScanner().getTiers();
+    }
+
+    private void loadActivity() {
+        if (activityLoaded) {
+            return;
+        }
+        for (TransactionRepository.WalletActivity activity :
+                transactionRepository.findLastActivityByType(TransactionType.DEPOSIT)) {
+            long at = activity.getLastAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            lastActivity.merge(activity.getWalletId(), at, Math::max);
+        }
+        activityLoaded = true;
+        log.info("Loaded deposit activity for {} wallets", lastActivity.size());
+    }
+}
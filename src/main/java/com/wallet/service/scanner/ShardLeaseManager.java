@@ -0,0 +1,240 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Splits scanner and withdrawal work between app instances through leases in Postgres.
+ * Wallets hash onto a fixed number of shards; on each heartbeat a node renews the shards it
+ * holds, gives back any above its fair share (so a joining node gets work) and claims free or
+ * expired shards with {@code FOR UPDATE SKIP LOCKED} (so a dead node's work is taken over
+ * once its leases run out). With sharding disabled this node owns everything.
+ * <p>
+ * Subscribers are told on the heartbeat thread which shards were gained and lost, so they can
+ * drop state kept for work another node may now be doing. A lease that lapsed because
+ * heartbeats failed counts as lost, even if the next heartbeat gets the shard back.
+ */
+@Slf4j
+@Component
+public class ShardLeaseManager {
+
+    private static final String INSERT_SHARD =
+            "INSERT INTO scan_shard_leases (shard_id) VALUES (?) ON CONFLICT (shard_id) DO NOTHING";
+
+    private static final String UPSERT_NODE =
+            "INSERT INTO scanner_nodes (node_id, heartbeat_at) VALUES (?, ?) " +
+            "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at";
+
+    private static final String COUNT_LIVE_NODES =
+            "SELECT COUNT(*) FROM scanner_nodes WHERE heartbeat_at > ?";
+
+    private static final String DELETE_DEAD_NODES =
+            "DELETE FROM scanner_nodes WHERE heartbeat_at < ?";
+
+    private static final String RENEW_LEASES =
+            "UPDATE scan_shard_leases SET leased_until = ? WHERE owner = ? RETURNING shard_id";
+
+    private static final String CLAIM_LEASES =
+            "UPDATE scan_shard_leases SET owner = ?, leased_until = ? WHERE shard_id IN (" +
+            "SELECT shard_id FROM scan_shard_leases WHERE owner IS NULL OR leased_until < ? " +
+            "ORDER BY shard_id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING shard_id";
+
+    private static final String RELEASE_LEASE =
+            "UPDATE scan_shard_leases SET owner = NULL, leased_until = NULL WHERE shard_id = ? AND owner = ?";
+
+    @FunctionalInterface
+    public interface Listener {
+        void onLeaseChange(LeaseChange change);
+    }
+
+    /**
+     * Shards this node gained and lost in one heartbeat.
+     */
+    public record LeaseChange(Set<Integer> gained, Set<Integer> lost, int shardCount) {
+
+        public boolean gainedNetwork(BlockchainNetwork network) {
+            return gained.contains(networkShard(network, shardCount));
+        }
+
+        public boolean lostNetwork(BlockchainNetwork network) {
+            return lost.contains(networkShard(network, shardCount));
+        }
+
+        public boolean lostWallet(UUID walletId) {
+            return lost.contains(walletShard(walletId, shardCount));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScanEngineConfig.Sharding sharding;
+    private final String nodeId;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Set<Integer> ownedShards = Set.of();
+    private volatile long ownedUntil;
+
+    public ShardLeaseManager(JdbcTemplate jdbcTemplate, ScanEngineConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sharding = config.getSharding();
+        this.nodeId = resolveHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void createShards() {
+        if (!sharding.isEnabled()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int shard = 0; shard < sharding.getShardCount(); shard++) {
+            rows.add(new Object[]{shard});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SHARD, rows);
+        log.info("Scanner sharding enabled: node {} sharing {} shards", nodeId, sharding.getShardCount());
+    }
+
+    /**
+     * Renew, rebalance and claim leases.
+     */
+    @Scheduled(fixedDelayString = "${app.scanner.sharding.heartbeat-interval:10000}")
+    public void heartbeat() {
+        if (!sharding.isEnabled()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            long leaseUntil = now + sharding.getLeaseDuration();
+            Timestamp expiry = new Timestamp(now - sharding.getLeaseDuration());
+
+            jdbcTemplate.update(UPSERT_NODE, nodeId, new Timestamp(now));
+            Long liveNodes = jdbcTemplate.queryForObject(COUNT_LIVE_NODES, Long.class, expiry);
+            int fairShare = (int) Math.ceil((double) sharding.getShardCount() / Math.max(1, liveNodes == null ? 1 : liveNodes));
+
+            TreeSet<Integer> owned = new TreeSet<>(jdbcTemplate.queryForList(
+                    RENEW_LEASES, Integer.class, new Timestamp(leaseUntil), nodeId));
+            // Give back shards above our share so nodes that just joined can claim them
+            while (owned.size() > fairShare) {
+                Integer shard = owned.pollLast();
+                jdbcTemplate.update(RELEASE_LEASE, shard, nodeId);
+            }
+            if (owned.size() < fairShare) {
+                owned.addAll(jdbcTemplate.queryForList(CLAIM_LEASES, Integer.class,
+                        nodeId, new Timestamp(leaseUntil), new Timestamp(now), fairShare - owned.size()));
+            }
+            jdbcTemplate.update(DELETE_DEAD_NODES, new Timestamp(now - 10 * sharding.getLeaseDuration()));
+
+            if (!owned.equals(ownedShards)) {
+                log.info("Node {} now owns {} of {} shards ({} live nodes)",
+                        nodeId, owned.size(), sharding.getShardCount(), liveNodes);
+            }
+            // After a lapse another node may have held our shards in between
+            boolean lapsed = now >= ownedUntil;
+            Set<Integer> lost = new HashSet<>(ownedShards);
+            Set<Integer> gained = new HashSet<>(owned);
+            if (!lapsed) {
+                lost.removeAll(owned);
+                gained.removeAll(ownedShards);
+            }
+            ownedShards = Set.copyOf(owned);
+            ownedUntil = leaseUntil;
+            notifyListeners(new LeaseChange(Set.copyOf(gained), Set.copyOf(lost), sharding.getShardCount()));
+        } catch (Exception e) {
+            // Keep working on current shards until their leases would have expired
+            log.error("Scanner lease heartbeat failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        if (!sharding.isEnabled()) {
+            return;
+        }
+        try {
+            for (Integer shard : ownedShards) {
+                jdbcTemplate.update(RELEASE_LEASE, shard, nodeId);
+            }
+            jdbcTemplate.update("DELETE FROM scanner_nodes WHERE node_id = ?", nodeId);
+        } catch (Exception e) {
+            log.warn("Could not release scanner leases: {}", e.getMessage());
+        }
+        ownedShards = Set.of();
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean owns(UUID walletId) {
+        return ownsShard(walletShard(walletId, sharding.getShardCount()));
+    }
+
+    /**
+     * Network-wide work such as block scanning runs on the node holding the network's shard.
+     */
+    public boolean ownsNetwork(BlockchainNetwork network) {
+        return ownsShard(networkShard(network, sharding.getShardCount()));
+    }
+
+    public List<Wallet> filterOwned(List<Wallet> wallets) {
+        if (!sharding.isEnabled()) {
+            return wallets;
+        }
+        return wallets.stream().filter(wallet -> owns(wallet.getId())).toList();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean ownsShard(int shard) {
+        if (!sharding.isEnabled()) {
+            return true;
+        }
+        return System.currentTimeMillis() < ownedUntil && ownedShards.contains(shard);
+    }
+
+    private void notifyListeners(LeaseChange change) {
+        if (change.gained().isEmpty() && change.lost().isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onLeaseChange(change);
+            } catch (Exception e) {
+                log.error("Error handling scanner lease change: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static int walletShard(UUID walletId, int shardCount) {
+        return Math.floorMod(walletId.hashCode(), shardCount);
+    }
+
+    private static int networkShard(BlockchainNetwork network, int shardCount) {
+        return Math.floorMod(network.name().hashCode(), shardCount);
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
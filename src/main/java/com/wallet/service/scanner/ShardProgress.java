@@ -0,0 +1,102 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.enums.BlockchainNetwork;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one network shard within a scan cycle. Counters are updated by the shard's
+ * worker threads and may be read at any time.
+ */
+public class ShardProgress {
+
+    private final BlockchainNetwork network;
+    private final int total;
+    private final Instant startedAt;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private volatile Instant finishedAt;
+
+    public ShardProgress(BlockchainNetwork network, int total) {
+        this.network = network;
+        this.total = total;
+        this.startedAt = Instant.now();
+    }
+
+    void recordCompleted() {
+        completed.incrementAndGet();
+    }
+
+    void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    void recordSkipped(int count) {
+        skipped.addAndGet(count);
+    }
+
+    void recordThrottled(int count) {
+        throttled.addAndGet(count);
+    }
+
+    void finish() {
+        finishedAt = Instant.now();
+    }
+
+    public BlockchainNetwork getNetwork() {
+        return network;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Wallets left out because the pre-check found no new on-chain activity.
+     */
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Wallets (or block ranges) put off to the next cycle because the provider's quota ran
+     * out. They keep their cursors and stay due.
+     */
+    public int getThrottled() {
+        return throttled.get();
+    }
+
+    public boolean isThrottled() {
+        return throttled.get() > 0;
+    }
+
+    public int getRemaining() {
+        return total - completed.get() - failed.get() - skipped.get() - throttled.get();
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public Duration getElapsed() {
+        return Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d/%d done, %d unchanged, %d failed, %d throttled, %d ms",
+                network, getCompleted(), total, getSkipped(), getFailed(), getThrottled(), getElapsed().toMillis());
+    }
+}
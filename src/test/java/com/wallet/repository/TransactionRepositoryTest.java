@@ -17,6 +17,7 @@ import org.springframework.test.context.ActiveProfiles;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -57,6 +58,7 @@ class TransactionRepositoryTest {
 
         testTransaction = Transaction.builder()
                 .wallet(testWallet)
+                .network(BlockchainNetwork.ETHEREUM_SEPOLIA)
                 .type(TransactionType.DEPOSIT)
                 .fromAddress("0xfrom")
                 .toAddress("0xto")
@@ -103,6 +105,22 @@ class TransactionRepositoryTest {
         assertEquals(testTransaction.getId(), found.get().getId());
     }
 
+    @Test
+    void testFindExistingHashes() {
+        Set<String> existing = transactionRepository.findExistingHashes(BlockchainNetwork.ETHEREUM_SEPOLIA,
+                TransactionType.DEPOSIT, List.of("0xhash123", "0xunknown"));
+
+        assertEquals(Set.of("0xhash123"), existing);
+    }
+
+    @Test
+    void testFindExistingHashes_ScopedToNetworkAndType() {
+        assertTrue(transactionRepository.findExistingHashes(BlockchainNetwork.ETHEREUM_SEPOLIA,
+                TransactionType.WITHDRAWAL, List.of("0xhash123")).isEmpty());
+        assertTrue(transactionRepository.findExistingHashes(BlockchainNetwork.TON,
+                TransactionType.DEPOSIT, List.of("0xhash123")).isEmpty());
+    }
+
     @Test
     void testFindByStatus() {
         List<Transaction> pending = transactionRepository.findByStatus(TransactionStatus.PENDING);
@@ -0,0 +1,137 @@
+package com.wallet.service;
+
+import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.repository.WalletRepository;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.scanner.DepositDeduplicator;
+import com.wallet.service.scanner.ScanCursorStore;
+import com.wallet.service.scanner.ScanTierPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScannerServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private DepositDeduplicator depositDeduplicator;
+
+    @Mock
+    private ScanCursorStore scanCursorStore;
+
+    @Mock
+    private ScanTierPolicy scanTierPolicy;
+
+    @Mock
+    private BlockchainService tonService;
+
+    private ScannerService scannerService;
+
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        scannerService = new ScannerService(walletRepository, transactionService, depositDeduplicator,
+                scanCursorStore, scanTierPolicy, Map.of(BlockchainNetwork.TON, tonService));
+        wallet = Wallet.builder().id(UUID.randomUUID()).network(BlockchainNetwork.TON).address("me").build();
+
+        when(tonService.normalizeAddress(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(scanCursorStore.get(wallet)).thenReturn(new ScanCursorStore.Position(BlockchainNetwork.TON, 1000L, "h1000"));
+    }
+
+    @Test
+    void testScanDeposits_CreditsLargeBurstInChunks() {
+        AtomicInteger pulled = new AtomicInteger();
+        when(tonService.iterateWalletTransactions("me", 1000L, "h1000", null))
+                .thenReturn(burst(1250, 1001, pulled));
+        when(depositDeduplicator.filterNew(eq(BlockchainNetwork.TON), anyList()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<Transaction>>getArgument(1)));
+        List<Integer> chunkSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Transaction> deposits = invocation.getArgument(0);
+            chunkSizes.add(deposits.size());
+            return deposits;
+        }).when(transactionService).processDeposits(anyList());
+
+        scannerService.scanDeposits(wallet);
+
+        assertEquals(250, pulled.get());
+        assertEquals(List.of(100, 100, 50), chunkSizes);
+        verify(scanCursorStore).advance(wallet, new ScanCursorStore.Position(BlockchainNetwork.TON, 1000L, "h1000"), 1250L, "h1250");
+        verify(scanTierPolicy).recordActivity(wallet.getId());
+    }
+
+    @Test
+    void testScanDeposits_FailedChunkLeavesCursor() {
+        when(tonService.iterateWalletTransactions("me", 1000L, "h1000", null))
+                .thenReturn(burst(1250, 1001, new AtomicInteger()));
+        when(depositDeduplicator.filterNew(eq(BlockchainNetwork.TON), anyList()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<Transaction>>getArgument(1)));
+        when(transactionService.processDeposits(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new RuntimeException("connection reset"));
+
+        assertThrows(RuntimeException.class, () -> scannerService.scanDeposits(wallet));
+
+        verify(transactionService, times(2)).processDeposits(anyList());
+        verify(scanCursorStore, never()).advance(any(), any(), anyLong(), anyString());
+    }
+
+    @Test
+    void testScanDeposits_NothingNewLeavesCursor() {
+        when(tonService.iterateWalletTransactions("me", 1000L, "h1000", null)).thenReturn(List.<Transaction>of().iterator());
+
+        scannerService.scanDeposits(wallet);
+
+        verifyNoInteractions(transactionService, depositDeduplicator, scanTierPolicy);
+        verify(scanCursorStore, never()).advance(any(), any(), anyLong(), anyString());
+    }
+
+    /**
+     * Newest-first transactions {@code newestLt..oldestLt}, built on demand like a paged source.
+     */
+    private static Iterator<Transaction> burst(long newestLt, long oldestLt, AtomicInteger pulled) {
+        return new Iterator<>() {
+            private long lt = newestLt;
+
+            @Override
+            public boolean hasNext() {
+                return lt >= oldestLt;
+            }
+
+            @Override
+            public Transaction next() {
+                pulled.incrementAndGet();
+                Transaction tx = new Transaction();
+                tx.setTransactionHash("h" + lt);
+                tx.setBlockNumber(lt--);
+                tx.setFromAddress("sender");
+                tx.setToAddress("me");
+                tx.setAmount(BigDecimal.ONE);
+                return tx;
+            }
+        };
+    }
+}
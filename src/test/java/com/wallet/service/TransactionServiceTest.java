@@ -0,0 +1,230 @@
+package com.wallet.service;
+
+import com.wallet.model.Transaction;
+import com.wallet.model.User;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.repository.WalletRepository;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.payout.WithdrawalBroadcaster;
+import com.wallet.service.scanner.PendingConfirmationQueue;
+import com.wallet.service.scanner.ShardLeaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    @Mock
+    private PendingConfirmationQueue pendingConfirmationQueue;
+
+    @Mock
+    private WithdrawalBroadcaster withdrawalBroadcaster;
+
+    @Mock
+    private Map<BlockchainNetwork, BlockchainService> blockchainServices;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    private Wallet walletA;
+    private Wallet walletB;
+
+    @BeforeEach
+    void setUp() {
+        User user = User.builder()
+                .id(UUID.randomUUID())
+                .username("testuser")
+                .build();
+        walletA = Wallet.builder().id(UUID.randomUUID()).user(user).network(BlockchainNetwork.TON).address("A").build();
+        walletB = Wallet.builder().id(UUID.randomUUID()).user(user).network(BlockchainNetwork.TON).address("B").build();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void testProcessDeposits_OneBalanceUpdatePerWallet() {
+        List<Transaction> deposits = List.of(
+                deposit(walletA, "1", TransactionStatus.SUCCESS),
+                deposit(walletA, "2", TransactionStatus.SUCCESS),
+                deposit(walletB, "5", TransactionStatus.PENDING));
+
+        transactionService.processDeposits(deposits);
+
+        verify(transactionRepository, times(1)).saveAllAndFlush(deposits);
+        verify(walletRepository).incrementBalance(eq(walletA.getId()), argThatEquals(new BigDecimal("3")));
+        verify(walletRepository, never()).incrementBalance(eq(walletB.getId()), any());
+        assertTrue(deposits.stream().allMatch(tx -> tx.getType() == TransactionType.DEPOSIT
+                && tx.getNetwork() == BlockchainNetwork.TON));
+    }
+
+    @Test
+    void testProcessDeposits_EmptyBatchTouchesNothing() {
+        transactionService.processDeposits(List.of());
+
+        verifyNoInteractions(transactionRepository);
+        verifyNoInteractions(walletRepository);
+    }
+
+    @Test
+    void testProcessDeposits_AlreadyStoredDepositIsNotCreditedAgain() {
+        Transaction stored = deposit(walletA, "1", TransactionStatus.SUCCESS);
+        Transaction duplicate = deposit(walletA, "2", TransactionStatus.SUCCESS);
+        // Another node stored the duplicate after it was checked: the key rejects it
+        when(transactionRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<Transaction> batch = invocation.getArgument(0);
+            if (batch.contains(duplicate)) {
+                throw new DataIntegrityViolationException("uk_transaction_network_hash_type");
+            }
+            return batch;
+        });
+
+        assertEquals(List.of(stored), transactionService.processDeposits(List.of(stored, duplicate)));
+
+        verify(transactionRepository).saveAllAndFlush(List.of(stored));
+        verify(walletRepository, times(1)).incrementBalance(any(), any());
+        verify(walletRepository).incrementBalance(eq(walletA.getId()), argThatEquals(new BigDecimal("1")));
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void testRollbackOrphanedDeposits_NeverDebitsBelowZero() {
+        Transaction credited = deposit(walletA, "5", TransactionStatus.SUCCESS);
+        credited.setId(UUID.randomUUID());
+        credited.setBlockNumber(120L);
+        when(transactionRepository.findByNetworkAndTypeAndStatusInAndBlockNumberGreaterThan(
+                eq(BlockchainNetwork.TON), eq(TransactionType.DEPOSIT), anyList(), eq(100L)))
+                .thenReturn(List.of(credited));
+        when(transactionRepository.deleteByIdAndStatus(credited.getId(), TransactionStatus.SUCCESS)).thenReturn(1);
+        when(walletRepository.decrementBalance(eq(walletA.getId()), any())).thenReturn(0);
+        walletA.setBalance(new BigDecimal("2"));
+        when(walletRepository.findById(walletA.getId())).thenReturn(Optional.of(walletA));
+
+        assertEquals(List.of(credited), transactionService.rollbackOrphanedDeposits(BlockchainNetwork.TON, 100));
+
+        verify(walletRepository).decrementBalance(eq(walletA.getId()), argThatEquals(new BigDecimal("5")));
+        verify(walletRepository).decrementBalance(eq(walletA.getId()), argThatEquals(new BigDecimal("2")));
+        verify(walletRepository, never()).incrementBalance(any(), any());
+    }
+
+    @Test
+    void testConfirmDeposits_CreditsOnlyRowsStillPending() {
+        PendingConfirmationQueue.Entry first = new PendingConfirmationQueue.Entry(
+                UUID.randomUUID(), walletA.getId(), new BigDecimal("2"), 100, "0xb", 111);
+        PendingConfirmationQueue.Entry second = new PendingConfirmationQueue.Entry(
+                UUID.randomUUID(), walletA.getId(), new BigDecimal("3"), 101, "0xc", 112);
+        PendingConfirmationQueue.Entry alreadyConfirmed = new PendingConfirmationQueue.Entry(
+                UUID.randomUUID(), walletB.getId(), new BigDecimal("7"), 101, "0xc", 112);
+        when(transactionRepository.confirmPending(eq(first.transactionId()), eq(13), any())).thenReturn(1);
+        when(transactionRepository.confirmPending(eq(second.transactionId()), eq(12), any())).thenReturn(1);
+        when(transactionRepository.confirmPending(eq(alreadyConfirmed.transactionId()), eq(12), any())).thenReturn(0);
+
+        int credited = transactionService.confirmDeposits(List.of(first, second, alreadyConfirmed), 112);
+
+        assertEquals(1, credited);
+        verify(walletRepository).incrementBalance(eq(walletA.getId()), argThatEquals(new BigDecimal("5")));
+        verify(walletRepository, never()).incrementBalance(eq(walletB.getId()), any());
+    }
+
+    @Test
+    void testProcessApprovedWithdrawTransactions_ClaimsThenHandsOff() {
+        Wallet ethWallet = Wallet.builder().id(UUID.randomUUID()).network(BlockchainNetwork.ETHEREUM_SEPOLIA).build();
+        Transaction claimed = withdrawal(ethWallet);
+        Transaction takenElsewhere = withdrawal(ethWallet);
+        Transaction ton = withdrawal(walletA);
+        when(transactionRepository.findByStatus(TransactionStatus.APPROVED)).thenReturn(List.of(claimed, takenElsewhere, ton));
+        when(shardLeaseManager.owns(ethWallet.getId())).thenReturn(true);
+        when(transactionRepository.transitionStatus(claimed.getId(), TransactionStatus.APPROVED, TransactionStatus.PROCESSING))
+                .thenReturn(1);
+        when(transactionRepository.transitionStatus(takenElsewhere.getId(), TransactionStatus.APPROVED, TransactionStatus.PROCESSING))
+                .thenReturn(0);
+
+        transactionService.processApprovedWithdrawTransactions();
+
+        verify(withdrawalBroadcaster).broadcast(claimed.getId());
+        verifyNoMoreInteractions(withdrawalBroadcaster);
+        verify(transactionRepository, never()).transitionStatus(eq(ton.getId()), any(), any());
+    }
+
+    @Test
+    void testProcessApprovedWithdrawTransactions_SaturatedSendersReleaseTheClaim() {
+        Wallet ethWallet = Wallet.builder().id(UUID.randomUUID()).network(BlockchainNetwork.ETHEREUM_SEPOLIA).build();
+        Transaction first = withdrawal(ethWallet);
+        Transaction second = withdrawal(ethWallet);
+        when(shardLeaseManager.owns(ethWallet.getId())).thenReturn(true);
+        when(transactionRepository.transitionStatus(first.getId(), TransactionStatus.APPROVED, TransactionStatus.PROCESSING))
+                .thenReturn(1);
+        doThrow(new TaskRejectedException("full")).when(withdrawalBroadcaster).broadcast(first.getId());
+
+        List<Transaction> dispatched = transactionService.processApprovedWithdrawTransactions(List.of(first, second));
+
+        assertTrue(dispatched.isEmpty());
+        verify(transactionRepository).transitionStatus(first.getId(), TransactionStatus.PROCESSING, TransactionStatus.APPROVED);
+        verify(transactionRepository, never()).transitionStatus(eq(second.getId()), any(), any());
+    }
+
+    private static BigDecimal argThatEquals(BigDecimal expected) {
+        return argThat(actual -> actual != null && actual.compareTo(expected) == 0);
+    }
+
+    private Transaction withdrawal(Wallet wallet) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .wallet(wallet)
+                .network(wallet.getNetwork())
+                .type(TransactionType.WITHDRAWAL)
+                .amount(BigDecimal.ONE)
+                .status(TransactionStatus.APPROVED)
+                .build();
+    }
+
+    private Transaction deposit(Wallet wallet, String amount, TransactionStatus status) {
+        return Transaction.builder()
+                .wallet(wallet)
+                .toAddress(wallet.getAddress())
+                .amount(new BigDecimal(amount))
+                .status(status)
+                .transactionHash(UUID.randomUUID().toString())
+                .build();
+    }
+}
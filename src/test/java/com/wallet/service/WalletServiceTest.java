@@ -7,6 +7,7 @@ import com.wallet.model.Wallet;
 import com.wallet.model.enums.BlockchainNetwork;
 import com.wallet.repository.WalletRepository;
 import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.scanner.DepositAddressIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -36,6 +37,9 @@ class WalletServiceTest {
     @Mock
     private BlockchainService blockchainService;
 
+    @Mock
+    private DepositAddressIndex depositAddressIndex;
+
     @InjectMocks
     private WalletService walletService;
 
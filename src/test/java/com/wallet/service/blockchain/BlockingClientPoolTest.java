@@ -0,0 +1,169 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.exception.RpcThrottledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockingClientPoolTest {
+
+    private final List<FakeClient> created = new ArrayList<>();
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+    private BlockingClientPool<FakeClient> pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testExecute_ClientsAreCreatedLazilyPerSlot() {
+        pool = pool(3, 3, 1000);
+
+        assertEquals(0, pool.execute(client -> client.slot));
+
+        assertEquals(1, created.size());
+        assertEquals(3, pool.idleCount());
+    }
+
+    @Test
+    void testExecute_ConcurrentCallsUseSeparateClients() throws Exception {
+        pool = pool(3, 3, 1000);
+        CountDownLatch allInside = new CountDownLatch(3);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> pool.execute(client -> {
+                    allInside.countDown();
+                    await(allInside);
+                    return client.slot;
+                })));
+            }
+
+            List<Integer> slots = new ArrayList<>();
+            for (Future<Integer> result : results) {
+                slots.add(result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(List.of(0, 1, 2), slots.stream().sorted().toList());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_TimesOutWhenAllClientsAreBusy() throws Exception {
+        pool = pool(1, 3, 50);
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> pool.execute(client -> {
+            inside.countDown();
+            await(release);
+            return null;
+        }));
+        holder.start();
+        try {
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IllegalStateException.class, () -> pool.execute(client -> client.slot));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    void testExecute_RecyclesClientAfterConsecutiveFailures() {
+        pool = pool(1, 2, 1000);
+        FakeClient first = pool.execute(client -> client);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RuntimeException.class, () -> pool.execute(client -> {
+                throw new RuntimeException("liteserver timeout");
+            }));
+        }
+
+        assertTrue(first.closed);
+        assertEquals(1, pool.getRecycled());
+        assertNotSame(first, pool.execute(client -> client));
+        assertEquals(1, pool.idleCount());
+    }
+
+    @Test
+    void testExecute_SuccessResetsFailureCountAndThrottlingIsNotAFailure() {
+        pool = pool(1, 2, 1000);
+
+        assertThrows(RuntimeException.class, () -> pool.execute(client -> {
+            throw new RuntimeException("liteserver timeout");
+        }));
+        pool.execute(client -> client.slot);
+        assertThrows(RuntimeException.class, () -> pool.execute(client -> {
+            throw new RuntimeException("liteserver timeout");
+        }));
+        assertThrows(RpcThrottledException.class, () -> pool.execute(client -> {
+            throw new RpcThrottledException("TON", "quota", 1000);
+        }));
+
+        assertEquals(0, pool.getRecycled());
+        assertEquals(1, created.size());
+    }
+
+    @Test
+    void testCheckHealth_RecyclesUnhealthyIdleClients() {
+        pool = pool(2, 3, 1000);
+        FakeClient client = pool.execute(c -> c);
+
+        pool.checkHealth();
+        assertFalse(client.closed);
+
+        healthy.set(false);
+        pool.checkHealth();
+
+        assertTrue(client.closed);
+        assertEquals(1, pool.getRecycled());
+        assertEquals(2, pool.idleCount());
+    }
+
+    private BlockingClientPool<FakeClient> pool(int size, int maxFailures, long borrowTimeoutMillis) {
+        return new BlockingClientPool<>("test", size, slot -> {
+            FakeClient client = new FakeClient(slot);
+            synchronized (created) {
+                created.add(client);
+            }
+            return client;
+        }, client -> client.closed = true, client -> healthy.get(), maxFailures, borrowTimeoutMillis);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for latch");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class FakeClient {
+
+        private final int slot;
+        private volatile boolean closed;
+
+        FakeClient(int slot) {
+            this.slot = slot;
+        }
+    }
+}
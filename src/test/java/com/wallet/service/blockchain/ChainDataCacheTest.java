@@ -0,0 +1,117 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.ChainCacheConfig;
+import com.wallet.service.blockchain.ChainDataCache.Volatility;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainDataCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChainDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ChainCacheConfig config = new ChainCacheConfig();
+        config.setImmutableMaxEntries(3);
+        config.setImmutableMaxBytes(10_000);
+        config.setHeadTtl(50);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ChainDataCache(config, meterRegistry);
+    }
+
+    @Test
+    void testGetImmutable_LoadsOnceAndCountsHits() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("block", cache.getImmutable("eth:block:1", () -> {
+                loads.incrementAndGet();
+                return "block";
+            }));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2, count("immutable", "hit"));
+        assertEquals(1, count("immutable", "miss"));
+    }
+
+    @Test
+    void testGetImmutable_EvictsLeastRecentlyUsed() throws IOException {
+        cache.putImmutable("a", 1);
+        cache.putImmutable("b", 2);
+        cache.putImmutable("c", 3);
+        cache.peekImmutable("a");
+
+        cache.putImmutable("d", 4);
+
+        assertTrue(cache.peekImmutable("a").isPresent());
+        assertTrue(cache.peekImmutable("b").isEmpty());
+        assertEquals(1, meterRegistry.counter("chain.cache.evictions").count());
+    }
+
+    @Test
+    void testPutImmutable_EvictsByWeightBeforeCount() {
+        cache.putImmutable("eth:block:1", "block 1", 4000);
+        cache.putImmutable("eth:receipt:a", "receipt", 1000);
+        cache.peekImmutable("eth:block:1");
+
+        // 10000 bytes allowed: the least recently used entries go until the new block fits
+        cache.putImmutable("eth:block:2", "block 2", 7000);
+
+        assertTrue(cache.peekImmutable("eth:receipt:a").isEmpty());
+        assertTrue(cache.peekImmutable("eth:block:1").isEmpty());
+        assertTrue(cache.peekImmutable("eth:block:2").isPresent());
+        assertEquals(7000, cache.getImmutableWeight());
+        assertEquals(7000, meterRegistry.get("chain.cache.weight").gauge().value());
+    }
+
+    @Test
+    void testGetImmutable_NullIsNotCached() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getImmutable("missing", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        cache.getImmutable("missing", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetMutable_ExpiresAfterTtl() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ChainDataCache.Loader<Long> head = () -> (long) loads.incrementAndGet();
+
+        assertEquals(1L, cache.getMutable("eth:head", Volatility.HEAD, head));
+        assertEquals(1L, cache.getMutable("eth:head", Volatility.HEAD, head));
+        Thread.sleep(80);
+        assertEquals(2L, cache.getMutable("eth:head", Volatility.HEAD, head));
+
+        assertEquals(1, count("mutable", "hit"));
+        assertEquals(2, count("mutable", "miss"));
+    }
+
+    @Test
+    void testInvalidate_DropsMutableEntry() {
+        cache.putMutable("eth:balance:0xabc", 5, Volatility.BALANCE);
+
+        cache.invalidate("eth:balance:0xabc");
+
+        assertTrue(cache.peekMutable("eth:balance:0xabc").isEmpty());
+    }
+
+    private double count(String cacheName, String result) {
+        return meterRegistry.counter("chain.cache.requests", "cache", cacheName, "result", result).count();
+    }
+}
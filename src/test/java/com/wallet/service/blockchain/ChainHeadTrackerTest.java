@@ -0,0 +1,150 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.enums.BlockchainNetwork;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainHeadTrackerTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.ETHEREUM_SEPOLIA;
+
+    private final AtomicLong chainHead = new AtomicLong(100);
+    private final AtomicInteger reads = new AtomicInteger();
+    private final List<Runnable> queued = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ChainHeadTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new ChainHeadTracker(meterRegistry, queued::add);
+        tracker.register(NETWORK, () -> {
+            reads.incrementAndGet();
+            return chainHead.get();
+        });
+    }
+
+    @Test
+    void testGetHeight_ReadsOnceThenServesSnapshot() {
+        assertEquals(100, tracker.getHeight(NETWORK));
+        chainHead.set(101);
+        assertEquals(100, tracker.getHeight(NETWORK));
+
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void testPoll_OneReadPerIntervalForAllConsumers() {
+        tracker.poll();
+        chainHead.set(105);
+        tracker.poll();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(105, tracker.getHeight(NETWORK));
+        }
+        assertEquals(2, reads.get());
+        assertEquals(105, meterRegistry.get("chain.head.height").tag("network", NETWORK.name()).gauge().value());
+    }
+
+    @Test
+    void testPublish_OnlyMovesForward() {
+        tracker.publish(NETWORK, 100);
+        ChainHead head = tracker.getHead(NETWORK).orElseThrow();
+
+        assertSame(head, tracker.publish(NETWORK, 99));
+        assertSame(head, tracker.publish(NETWORK, 100));
+        assertEquals(101, tracker.publish(NETWORK, 101).height());
+    }
+
+    @Test
+    void testPublish_NotifiesOnAdvanceAndCoalescesPendingHeads() {
+        List<Long> seen = new ArrayList<>();
+        tracker.subscribe(head -> seen.add(head.height()));
+
+        tracker.publish(NETWORK, 100);
+        tracker.publish(NETWORK, 101);
+        tracker.publish(NETWORK, 101);
+        assertEquals(1, queued.size());
+        runQueued();
+
+        tracker.publish(NETWORK, 102);
+        runQueued();
+
+        assertEquals(List.of(101L, 102L), seen);
+    }
+
+    @Test
+    void testPublish_FailingSubscriberDoesNotBlockOthers() {
+        List<Long> seen = new ArrayList<>();
+        tracker.subscribe(head -> {
+            throw new IllegalStateException("boom");
+        });
+        tracker.subscribe(head -> seen.add(head.height()));
+
+        tracker.publish(NETWORK, 100);
+        runQueued();
+
+        assertEquals(List.of(100L), seen);
+    }
+
+    @Test
+    void testPublish_SlowListenerOnOneNetworkDoesNotHoldBackOthers() throws Exception {
+        ChainHeadTracker laned = new ChainHeadTracker(meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch tonSeen = new CountDownLatch(1);
+        laned.subscribe(head -> {
+            if (head.network() == NETWORK) {
+                awaitQuietly(release);
+            } else {
+                tonSeen.countDown();
+            }
+        });
+        try {
+            laned.publish(NETWORK, 100);
+            laned.publish(BlockchainNetwork.TON, 5);
+
+            assertTrue(tonSeen.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            laned.shutdown();
+        }
+    }
+
+    @Test
+    void testPoll_FailedReadKeepsLastHead() {
+        tracker.poll();
+        tracker.register(NETWORK, () -> {
+            throw new IOException("node down");
+        });
+
+        tracker.poll();
+
+        assertEquals(100, tracker.getHeight(NETWORK));
+        assertThrows(RuntimeException.class, () -> tracker.refresh(NETWORK));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
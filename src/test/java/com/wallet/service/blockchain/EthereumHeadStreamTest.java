@@ -0,0 +1,87 @@
+package com.wallet.service.blockchain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EthereumHeadStreamTest {
+
+    private WebSocketStubNode node;
+    private EthereumHeadStream headStream;
+
+    private final List<Long> heads = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connects = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        node = new WebSocketStubNode();
+        headStream = new EthereumHeadStream(node.url(), 50);
+        headStream.start(new ChainHeadStream.Listener() {
+            @Override
+            public void onHead(long height) {
+                heads.add(height);
+            }
+
+            @Override
+            public void onConnected() {
+                connects.incrementAndGet();
+            }
+        });
+        awaitTrue(() -> node.getSubscriptions() == 1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        headStream.stop();
+        node.close();
+    }
+
+    @Test
+    void testPushedHeadsReachListener() {
+        node.pushHead(100);
+        node.pushHead(101);
+
+        awaitTrue(() -> heads.size() == 2);
+        assertEquals(List.of(100L, 101L), heads);
+        assertEquals(1, connects.get());
+    }
+
+    @Test
+    void testReconnectsAndResubscribesAfterDrop() {
+        node.dropConnections();
+
+        awaitTrue(() -> node.getSubscriptions() == 2 && connects.get() == 2);
+        node.pushHead(200);
+
+        awaitTrue(() -> heads.contains(200L));
+    }
+
+    @Test
+    void testDisabledWithoutUrl() {
+        assertFalse(new EthereumHeadStream("", 50).isEnabled());
+        assertTrue(headStream.isEnabled());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within 10 seconds");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+}
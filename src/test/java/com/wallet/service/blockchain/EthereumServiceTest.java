@@ -0,0 +1,415 @@
+package com.wallet.service.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wallet.config.ChainCacheConfig;
+import com.wallet.config.EthereumConfig;
+import com.wallet.config.RateLimitConfig;
+import com.wallet.config.RpcPoolConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.transaction.type.Transaction1559;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.wallet.service.blockchain.JsonRpcStubServer.hash;
+import static com.wallet.service.blockchain.JsonRpcStubServer.hex;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EthereumServiceTest {
+
+    private static final String WATCHED = "0x1111111111111111111111111111111111111111";
+    private static final String OTHER = "0x2222222222222222222222222222222222222222";
+    private static final String SENDER = "0x3333333333333333333333333333333333333333";
+    private static final long HEAD = 120;
+    private static final String PRIVATE_KEY = "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318";
+
+    private JsonRpcStubServer node;
+    private SimpleMeterRegistry meterRegistry;
+    private ChainDataCache cache;
+    private ChainHeadTracker headTracker;
+    private NonceManager nonceManager;
+    private FeeOracle feeOracle;
+    private EthereumService ethereumService;
+    private final AtomicLong pendingCount = new AtomicLong(4);
+    private final AtomicInteger receiptReads = new AtomicInteger();
+    private final AtomicLong highestBlockRead = new AtomicLong();
+    private final List<String> broadcasts = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = new JsonRpcStubServer();
+        meterRegistry = new SimpleMeterRegistry();
+        ChainCacheConfig cacheConfig = new ChainCacheConfig();
+        cacheConfig.setHeadTtl(60000);
+        cache = new ChainDataCache(cacheConfig, meterRegistry);
+        headTracker = new ChainHeadTracker(meterRegistry, Runnable::run);
+        nonceManager = new NonceManager(new InMemoryNonceReservations().repository());
+        EthereumConfig config = config(60000);
+        feeOracle = new FeeOracle(headTracker, meterRegistry, config, Runnable::run);
+        node.on("eth_blockNumber", params -> hex(HEAD));
+        node.on("eth_getBlockByNumber", params -> {
+            long number = Long.decode(params.get(0).asText());
+            highestBlockRead.accumulateAndGet(number, Math::max);
+            return block(number);
+        });
+        node.on("eth_getTransactionReceipt", params -> {
+            receiptReads.incrementAndGet();
+            return receipt(params);
+        });
+        node.on("eth_getTransactionCount", params -> hex(pendingCount.get()));
+        node.on("eth_sendRawTransaction", params -> {
+            broadcasts.add(params.get(0).asText());
+            return Hash.sha3(params.get(0).asText());
+        });
+        node.on("eth_getBalance", params -> params.get(0).asText().equals(WATCHED) ? "0xde0b6b3a7640000" : "0x0");
+        node.on("eth_getTransactionByHash", params -> params.get(0).asText().equals(hash("a", 40))
+                ? transaction(40, WATCHED) : null);
+        ethereumService = new EthereumService(config, new RpcPoolConfig(), new RateLimitConfig(), cache,
+                headTracker, nonceManager, feeOracle);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ethereumService.shutdown();
+        node.close();
+    }
+
+    @Test
+    void testGetIncomingTransfers_BatchesBlockRange() {
+        List<Transaction> transfers = ethereumService.getBlockSource().orElseThrow()
+                .getIncomingTransfers(1, HEAD, Set.of(WATCHED));
+
+        assertEquals(3, transfers.size());
+        Transaction first = transfers.get(0);
+        assertEquals(40L, first.getBlockNumber());
+        assertEquals(81, first.getConfirmations());
+        assertEquals(TransactionStatus.SUCCESS, first.getStatus());
+        assertEquals(0, BigDecimal.ONE.compareTo(first.getAmount()));
+        assertEquals(0, new BigDecimal("0.000021").compareTo(first.getFee()));
+        // 120 blocks in batches of 50 plus one receipt batch
+        assertEquals(4, node.getHttpRequests());
+    }
+
+    @Test
+    void testGetWalletTransactions_RecentDepositIsPending() {
+        List<Transaction> transactions = ethereumService.getWalletTransactions(WATCHED, 115L, "", 100);
+
+        assertEquals(1, transactions.size());
+        assertEquals(120L, transactions.get(0).getBlockNumber());
+        assertEquals(1, transactions.get(0).getConfirmations());
+        assertEquals(TransactionStatus.PENDING, transactions.get(0).getStatus());
+    }
+
+    @Test
+    void testGetWalletTransactions_StopsReadingOnceLimitIsReached() {
+        List<Transaction> transactions = ethereumService.getWalletTransactions(WATCHED, 0L, "", 1);
+
+        assertEquals(1, transactions.size());
+        assertEquals(40L, transactions.get(0).getBlockNumber());
+        // Only the first page of batch-size blocks was read
+        assertEquals(50, highestBlockRead.get());
+    }
+
+    @Test
+    void testGetWalletTransactions_NothingNewAtHead() {
+        assertTrue(ethereumService.getWalletTransactions(WATCHED, HEAD, "", 100).isEmpty());
+    }
+
+    @Test
+    void testGetBalances_OneBatchRequest() {
+        Map<String, BigDecimal> balances = ethereumService.getBalances(List.of(WATCHED, OTHER, SENDER));
+
+        assertEquals(0, BigDecimal.ONE.compareTo(balances.get(WATCHED)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balances.get(OTHER)));
+        assertEquals(3, balances.size());
+        assertEquals(1, node.getHttpRequests());
+    }
+
+    @Test
+    void testGetTransactionDetails_BulkReadsHeadOnceAndSkipsUnknown() {
+        Map<String, BlockchainService.TransactionDetails> details =
+                ethereumService.getTransactionDetails(List.of(hash("a", 40), hash("a", 999)));
+
+        assertEquals(Set.of(hash("a", 40)), details.keySet());
+        BlockchainService.TransactionDetails found = details.get(hash("a", 40));
+        assertEquals(81, found.confirmations());
+        assertTrue(found.isConfirmed());
+        assertEquals(1, node.getHttpRequests());
+    }
+
+    @Test
+    void testGetTransactionDetails_FailedEntryDoesNotFailTheBatch() {
+        String broken = hash("b", 41);
+        node.on("eth_getTransactionByHash", params -> {
+            if (params.get(0).asText().equals(broken)) {
+                throw new JsonRpcStubServer.RpcError("transaction indexing is in progress");
+            }
+            return params.get(0).asText().equals(hash("a", 40)) ? transaction(40, WATCHED) : null;
+        });
+
+        Map<String, BlockchainService.TransactionDetails> details =
+                ethereumService.getTransactionDetails(List.of(hash("a", 40), broken));
+
+        assertEquals(Set.of(hash("a", 40)), details.keySet());
+    }
+
+    @Test
+    void testGetBalances_FailedEntryIsLeftOut() {
+        node.on("eth_getBalance", params -> {
+            if (params.get(0).asText().equals(OTHER)) {
+                throw new JsonRpcStubServer.RpcError("missing trie node");
+            }
+            return params.get(0).asText().equals(WATCHED) ? "0xde0b6b3a7640000" : "0x0";
+        });
+
+        Map<String, BigDecimal> balances = ethereumService.getBalances(List.of(WATCHED, OTHER));
+
+        assertEquals(Set.of(WATCHED), balances.keySet());
+    }
+
+    @Test
+    void testGetBalance_ConcurrentCallsShareOneBatch() throws Exception {
+        ethereumService.shutdown();
+        EthereumConfig config = config(60000);
+        config.setBatchLingerMs(200);
+        ethereumService = new EthereumService(config, new RpcPoolConfig(), new RateLimitConfig(), cache,
+                headTracker, nonceManager, feeOracle);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<BigDecimal>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> ethereumService.getBalance(WATCHED)));
+            }
+            for (Future<BigDecimal> result : results) {
+                assertEquals(0, BigDecimal.ONE.compareTo(result.get(5, TimeUnit.SECONDS)));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertTrue(node.getHttpRequests() < 8, "expected coalescing, got " + node.getHttpRequests());
+    }
+
+    @Test
+    void testGetIncomingTransfers_RescanServesFinalizedBlocksFromCache() {
+        BlockchainService.BlockSource blockSource = ethereumService.getBlockSource().orElseThrow();
+        blockSource.getIncomingTransfers(1, HEAD, Set.of(WATCHED));
+        int firstPass = node.getHttpRequests();
+
+        List<Transaction> transfers = blockSource.getIncomingTransfers(1, HEAD, Set.of(WATCHED));
+
+        assertEquals(3, transfers.size());
+        // Only blocks 110..120 (not yet final) are read again; receipts all come from the cache
+        assertEquals(firstPass + 1, node.getHttpRequests());
+        assertTrue(meterRegistry.counter("chain.cache.requests", "cache", "immutable", "result", "hit").count() >= 108);
+    }
+
+    @Test
+    void testGetTransactionDetails_FinalizedTransactionServedFromCache() {
+        ethereumService.getTransactionDetails(hash("a", 40));
+        int requests = node.getHttpRequests();
+
+        BlockchainService.TransactionDetails details = ethereumService.getTransactionDetails(hash("a", 40));
+
+        assertEquals(81, details.confirmations());
+        assertEquals(requests, node.getHttpRequests());
+    }
+
+    @Test
+    void testSendTransaction_PipelinesNoncesWithoutWaitingForReceipts() {
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            hashes.add(ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1")));
+        }
+
+        assertEquals(List.of(4L, 5L, 6L), broadcastNonces());
+        assertEquals(broadcasts.stream().map(Hash::sha3).toList(), hashes);
+        assertEquals(0, receiptReads.get());
+    }
+
+    @Test
+    void testSendTransaction_NonceUsedElsewhereIsReplacedOnce() {
+        node.on("eth_sendRawTransaction", params -> {
+            broadcasts.add(params.get(0).asText());
+            if (broadcasts.size() == 1) {
+                // Another wallet client spent nonces 4 and 5 meanwhile
+                pendingCount.set(6);
+                throw new JsonRpcStubServer.RpcError("nonce too low");
+            }
+            return Hash.sha3(params.get(0).asText());
+        });
+
+        String hash = ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1"));
+
+        assertEquals(List.of(4L, 6L), broadcastNonces());
+        assertEquals(Hash.sha3(broadcasts.get(1)), hash);
+    }
+
+    @Test
+    void testSendTransaction_RejectedTransactionGivesNonceBack() {
+        node.on("eth_sendRawTransaction", params -> {
+            broadcasts.add(params.get(0).asText());
+            if (broadcasts.size() == 1) {
+                throw new JsonRpcStubServer.RpcError("insufficient funds for gas * price + value");
+            }
+            return Hash.sha3(params.get(0).asText());
+        });
+
+        assertThrows(RuntimeException.class,
+                () -> ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("100")));
+        ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1"));
+
+        assertEquals(List.of(4L, 4L), broadcastNonces());
+    }
+
+    @Test
+    void testSendTransaction_SignsWithCachedFeeQuote() {
+        AtomicInteger feeHistoryReads = new AtomicInteger();
+        node.on("eth_feeHistory", params -> {
+            feeHistoryReads.incrementAndGet();
+            Map<String, Object> history = new HashMap<>();
+            history.put("oldestBlock", hex(HEAD));
+            history.put("baseFeePerGas", List.of("0x3b9aca00", "0x4190ab00"));
+            history.put("gasUsedRatio", List.of(0.5));
+            history.put("reward", List.of(List.of("0x5f5e100", "0x3b9aca00", "0x77359400")));
+            return history;
+        });
+        feeOracle.refresh(BlockchainNetwork.ETHEREUM_SEPOLIA, HEAD);
+
+        ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1"));
+        ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1"));
+
+        Transaction1559 signed = (Transaction1559) TransactionDecoder.decode(broadcasts.get(1)).getTransaction();
+        assertEquals(BigInteger.valueOf(1_000_000_000L), signed.getMaxPriorityFeePerGas());
+        assertEquals(BigInteger.valueOf(3_200_000_000L), signed.getMaxFeePerGas());
+        assertEquals(BigInteger.valueOf(21000), signed.getGasLimit());
+        assertEquals(1, feeHistoryReads.get());
+    }
+
+    @Test
+    void testSendTransaction_StaleQuoteThatCannotBeReadIsThrottled() throws InterruptedException {
+        ethereumService.shutdown();
+        EthereumConfig config = config(50);
+        feeOracle = new FeeOracle(headTracker, meterRegistry, config, Runnable::run);
+        ethereumService = new EthereumService(config, new RpcPoolConfig(), new RateLimitConfig(), cache,
+                headTracker, nonceManager, feeOracle);
+        node.on("eth_feeHistory", params -> {
+            Map<String, Object> history = new HashMap<>();
+            history.put("oldestBlock", hex(HEAD));
+            history.put("baseFeePerGas", List.of("0x3b9aca00", "0x4190ab00"));
+            history.put("gasUsedRatio", List.of(0.5));
+            history.put("reward", List.of(List.of("0x5f5e100", "0x3b9aca00", "0x77359400")));
+            return history;
+        });
+        feeOracle.refresh(BlockchainNetwork.ETHEREUM_SEPOLIA, HEAD);
+        Thread.sleep(100);
+        node.on("eth_feeHistory", params -> {
+            throw new JsonRpcStubServer.RpcError("internal error");
+        });
+
+        // Retryable: the broadcaster puts the withdrawal back to APPROVED instead of failing it
+        assertThrows(RpcThrottledException.class,
+                () -> ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1")));
+        assertTrue(broadcasts.isEmpty());
+    }
+
+    @Test
+    void testSendTransaction_ConfiguredGasPriceBeforeFirstQuote() {
+        ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1"));
+
+        RawTransaction signed = TransactionDecoder.decode(broadcasts.get(0));
+        assertEquals(BigInteger.valueOf(20_000_000_000L), signed.getGasPrice());
+    }
+
+    @Test
+    void testSendTransaction_InvalidAmountIsRejectedBeforeReservingNonce() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.0000000000000000001")));
+        assertThrows(IllegalArgumentException.class,
+                () -> ethereumService.sendTransaction(PRIVATE_KEY, OTHER, BigDecimal.ZERO));
+        ethereumService.sendTransaction(PRIVATE_KEY, OTHER, new BigDecimal("0.1"));
+
+        assertEquals(List.of(4L), broadcastNonces());
+    }
+
+    private EthereumConfig config(long feeQuoteMaxAge) {
+        EthereumConfig config = new EthereumConfig();
+        config.setRpcUrl(node.url());
+        config.setChainId(11155111);
+        config.setBatchLingerMs(5);
+        config.setFeeQuoteMaxAge(feeQuoteMaxAge);
+        return config;
+    }
+
+    private List<Long> broadcastNonces() {
+        return broadcasts.stream()
+                .map(raw -> TransactionDecoder.decode(raw).getNonce().longValue())
+                .toList();
+    }
+
+    private Map<String, Object> block(long number) {
+        Map<String, Object> block = new HashMap<>();
+        block.put("number", hex(number));
+        block.put("hash", hash("b", number));
+        block.put("parentHash", hash("b", number - 1));
+        block.put("timestamp", hex(1_700_000_000L + number * 12));
+        block.put("uncles", List.of());
+        // Every 40th block carries a deposit to the watched address; all carry unrelated traffic.
+        String recipient = number % 40 == 0 ? WATCHED : OTHER;
+        block.put("transactions", List.of(transaction(number, recipient)));
+        return block;
+    }
+
+    private Map<String, Object> transaction(long blockNumber, String to) {
+        Map<String, Object> tx = new HashMap<>();
+        tx.put("hash", hash("a", blockNumber));
+        tx.put("blockHash", hash("b", blockNumber));
+        tx.put("blockNumber", hex(blockNumber));
+        tx.put("transactionIndex", "0x0");
+        tx.put("nonce", hex(blockNumber));
+        tx.put("from", SENDER);
+        tx.put("to", to);
+        tx.put("value", "0xde0b6b3a7640000");
+        tx.put("gas", "0x5208");
+        tx.put("gasPrice", "0x3b9aca00");
+        tx.put("input", "0x");
+        return tx;
+    }
+
+    private Map<String, Object> receipt(JsonNode params) {
+        String txHash = params.get(0).asText();
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("transactionHash", txHash);
+        receipt.put("transactionIndex", "0x0");
+        receipt.put("blockNumber", "0x1");
+        receipt.put("gasUsed", "0x5208");
+        receipt.put("cumulativeGasUsed", "0x5208");
+        receipt.put("effectiveGasPrice", "0x3b9aca00");
+        receipt.put("status", "0x1");
+        receipt.put("logs", List.of());
+        return receipt;
+    }
+}
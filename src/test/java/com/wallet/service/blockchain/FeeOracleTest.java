@@ -0,0 +1,158 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.EthereumConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeOracleTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.ETHEREUM_SEPOLIA;
+    private static final long GWEI = 1_000_000_000L;
+    private static final BigInteger MIN_TIP = BigInteger.valueOf(100_000_000L);
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final AtomicBoolean emptyBlocks = new AtomicBoolean();
+    private SimpleMeterRegistry meterRegistry;
+    private ChainHeadTracker headTracker;
+    private FeeOracle feeOracle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        headTracker = new ChainHeadTracker(meterRegistry, Runnable::run);
+        feeOracle = oracle(60000);
+    }
+
+    @Test
+    void testQuote_TipIsMedianOfNonEmptyBlocksAndMaxFeeCoversBaseFeeDoubling() {
+        headTracker.publish(NETWORK, 100);
+
+        FeeOracle.FeeQuote quote = feeOracle.getQuote(NETWORK).orElseThrow();
+        assertEquals(100, quote.blockNumber());
+        assertEquals(gwei(13), quote.baseFeePerGas());
+        assertEquals(gwei(3), quote.level(FeeOracle.Speed.SLOW).maxPriorityFeePerGas());
+        FeeOracle.FeeLevel standard = quote.level(FeeOracle.Speed.STANDARD);
+        assertEquals(gwei(4), standard.maxPriorityFeePerGas());
+        assertEquals(gwei(30), standard.maxFeePerGas());
+        assertEquals(0, new BigDecimal("0.00063").compareTo(standard.maxCost()));
+        assertEquals(gwei(35), quote.level(FeeOracle.Speed.FAST).maxFeePerGas());
+        assertEquals(13.0 * GWEI, meterRegistry.get("chain.fee.base").tag("network", NETWORK.name()).gauge().value());
+    }
+
+    @Test
+    void testQuote_ReadOncePerHead() {
+        headTracker.publish(NETWORK, 100);
+        feeOracle.getQuote(NETWORK);
+        feeOracle.getQuote(NETWORK);
+        headTracker.publish(NETWORK, 100);
+        headTracker.publish(NETWORK, 101);
+
+        assertEquals(2, reads.get());
+        assertEquals(101, feeOracle.getQuote(NETWORK).orElseThrow().blockNumber());
+    }
+
+    @Test
+    void testQuote_FailedReadKeepsPreviousQuote() {
+        headTracker.publish(NETWORK, 100);
+        failure.set(new RuntimeException("read failed", new RpcThrottledException("eth", "rate limited", 1000)));
+
+        headTracker.publish(NETWORK, 101);
+
+        assertEquals(100, feeOracle.getQuote(NETWORK).orElseThrow().blockNumber());
+        failure.set(null);
+        headTracker.publish(NETWORK, 102);
+        assertEquals(102, feeOracle.getQuote(NETWORK).orElseThrow().blockNumber());
+    }
+
+    @Test
+    void testQuote_EmptyUntilFirstRead() {
+        assertTrue(feeOracle.getQuote(NETWORK).isEmpty());
+        assertTrue(feeOracle.getQuote(BlockchainNetwork.TON).isEmpty());
+    }
+
+    @Test
+    void testQuote_AllEmptyBlocksQuoteMinimumTip() {
+        emptyBlocks.set(true);
+        headTracker.publish(NETWORK, 100);
+
+        FeeOracle.FeeQuote quote = feeOracle.getQuote(NETWORK).orElseThrow();
+        for (FeeOracle.Speed speed : FeeOracle.Speed.values()) {
+            assertEquals(MIN_TIP, quote.level(speed).maxPriorityFeePerGas());
+        }
+        assertEquals(gwei(26).add(MIN_TIP), quote.level(FeeOracle.Speed.STANDARD).maxFeePerGas());
+    }
+
+    @Test
+    void testFreshQuote_StaleQuoteIsReadAgain() throws InterruptedException {
+        feeOracle = oracle(50);
+        headTracker.publish(NETWORK, 100);
+        FeeOracle.FeeQuote first = feeOracle.getFreshQuote(NETWORK).orElseThrow();
+        assertEquals(1, reads.get());
+
+        Thread.sleep(100);
+        assertFalse(feeOracle.isFresh(feeOracle.getQuote(NETWORK).orElseThrow()));
+        FeeOracle.FeeQuote second = feeOracle.getFreshQuote(NETWORK).orElseThrow();
+
+        assertEquals(2, reads.get());
+        assertTrue(feeOracle.isFresh(second));
+        assertTrue(second.observedAt().isAfter(first.observedAt()));
+    }
+
+    @Test
+    void testFreshQuote_StaleQuoteThatCannotBeReadIsNotServed() throws InterruptedException {
+        feeOracle = oracle(50);
+        headTracker.publish(NETWORK, 100);
+        Thread.sleep(100);
+        failure.set(new RuntimeException("connection refused"));
+
+        assertTrue(feeOracle.getFreshQuote(NETWORK).isEmpty());
+        assertEquals(100, feeOracle.getQuote(NETWORK).orElseThrow().blockNumber());
+    }
+
+    private FeeOracle oracle(long maxQuoteAgeMillis) {
+        EthereumConfig config = new EthereumConfig();
+        config.setFeeHistoryBlocks(3);
+        config.setFeeQuoteMaxAge(maxQuoteAgeMillis);
+        config.setMinPriorityFee(MIN_TIP);
+        FeeOracle oracle = new FeeOracle(headTracker, meterRegistry, config, Runnable::run);
+        oracle.subscribe();
+        oracle.register(NETWORK, (blockCount, percentiles) -> {
+            reads.incrementAndGet();
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            assertEquals(3, blockCount);
+            assertEquals(FeeOracle.PERCENTILES, percentiles);
+            long oldest = headTracker.getHead(NETWORK).orElseThrow().height() - 2;
+            List<BigInteger> empty = List.of(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
+            if (emptyBlocks.get()) {
+                return new FeeOracle.FeeHistory(oldest,
+                        List.of(gwei(10), gwei(11), gwei(12), gwei(13)), List.of(empty, empty, empty));
+            }
+            return new FeeOracle.FeeHistory(oldest,
+                    List.of(gwei(10), gwei(11), gwei(12), gwei(13)),
+                    List.of(List.of(gwei(1), gwei(2), gwei(5)),
+                            // An empty block reports no tips
+                            empty,
+                            List.of(gwei(3), gwei(4), gwei(9))));
+        });
+        return oracle;
+    }
+
+    private static BigInteger gwei(long value) {
+        return BigInteger.valueOf(value * GWEI);
+    }
+}
@@ -0,0 +1,121 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.NonceReservation;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import com.wallet.repository.NonceReservationRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link NonceReservationRepository} backed by a list, enforcing the unique
+ * (network, sender, nonce) and reference keys like the table does.
+ */
+class InMemoryNonceReservations {
+
+    private final List<NonceReservation> rows = new CopyOnWriteArrayList<>();
+    private final NonceReservationRepository repository = mock(NonceReservationRepository.class);
+
+    InMemoryNonceReservations() {
+        lenient().when(repository.saveAndFlush(any(NonceReservation.class))).thenAnswer(invocation -> {
+            NonceReservation reservation = invocation.getArgument(0);
+            synchronized (rows) {
+                if (rows.stream().anyMatch(row -> row.getNetwork() == reservation.getNetwork()
+                        && row.getSender().equals(reservation.getSender())
+                        && row.getNonce().equals(reservation.getNonce()))) {
+                    throw new DataIntegrityViolationException("uk_nonce_sender_nonce");
+                }
+                if (reservation.getReference() != null
+                        && rows.stream().anyMatch(row -> reservation.getReference().equals(row.getReference()))) {
+                    throw new DataIntegrityViolationException("uk_nonce_reference");
+                }
+                reservation.setId(UUID.randomUUID());
+                rows.add(reservation);
+            }
+            return reservation;
+        });
+        lenient().when(repository.findByNetworkAndSender(any(), anyString())).thenAnswer(invocation -> rows.stream()
+                .filter(row -> row.getNetwork() == invocation.getArgument(0)
+                        && row.getSender().equals(invocation.getArgument(1)))
+                .toList());
+        lenient().when(repository.findByReference(any())).thenAnswer(invocation -> rows.stream()
+                .filter(row -> invocation.getArgument(0).equals(row.getReference()))
+                .findFirst());
+        lenient().when(repository.findSenders(any())).thenAnswer(invocation -> rows.stream()
+                .filter(row -> row.getNetwork() == invocation.getArgument(0))
+                .map(NonceReservation::getSender)
+                .distinct()
+                .toList());
+        lenient().when(repository.transitionStatus(any(), any(), any())).thenAnswer(invocation -> update(
+                invocation.getArgument(0), row -> row.getStatus() == invocation.getArgument(1),
+                row -> row.setStatus(invocation.getArgument(2))));
+        lenient().when(repository.reuse(any(), any())).thenAnswer(invocation -> update(
+                invocation.getArgument(0), row -> row.getStatus() == NonceStatus.RELEASED, row -> {
+                    row.setStatus(NonceStatus.RESERVED);
+                    row.setReference(invocation.getArgument(1));
+                }));
+        lenient().when(repository.markSent(any(), any(), any())).thenAnswer(invocation -> update(
+                invocation.getArgument(0), row -> row.getStatus() == NonceStatus.RESERVED, row -> {
+                    row.setStatus(NonceStatus.SENT);
+                    row.setTransactionHash(invocation.getArgument(1));
+                    row.setRawTransaction(invocation.getArgument(2));
+                }));
+        lenient().when(repository.release(any())).thenAnswer(invocation -> update(
+                invocation.getArgument(0), row -> row.getStatus() != NonceStatus.RELEASED, row -> {
+                    row.setStatus(NonceStatus.RELEASED);
+                    row.setTransactionHash(null);
+                    row.setRawTransaction(null);
+                    row.setReference(null);
+                }));
+        lenient().when(repository.deleteBelow(any(), anyString(), anyLong(), any())).thenAnswer(invocation -> {
+            int before = rows.size();
+            LocalDateTime keepReferencedAfter = invocation.getArgument(3);
+            rows.removeIf(row -> row.getNetwork() == invocation.getArgument(0)
+                    && row.getSender().equals(invocation.getArgument(1))
+                    && row.getNonce() < invocation.<Long>getArgument(2)
+                    && (row.getReference() == null || row.getUpdatedAt() == null
+                            || row.getUpdatedAt().isBefore(keepReferencedAfter)));
+            return before - rows.size();
+        });
+        lenient().doAnswer(invocation -> rows.removeIf(row -> row.getId().equals(invocation.getArgument(0))))
+                .when(repository).deleteById(any());
+    }
+
+    NonceReservationRepository repository() {
+        return repository;
+    }
+
+    List<NonceReservation> rows() {
+        return rows;
+    }
+
+    Optional<NonceReservation> find(BlockchainNetwork network, String sender, long nonce) {
+        return rows.stream()
+                .filter(row -> row.getNetwork() == network && row.getSender().equals(sender) && row.getNonce() == nonce)
+                .findFirst();
+    }
+
+    private int update(UUID id, Predicate<NonceReservation> condition,
+                       Consumer<NonceReservation> change) {
+        synchronized (rows) {
+            for (NonceReservation row : rows) {
+                if (Objects.equals(row.getId(), id) && condition.test(row)) {
+                    change.accept(row);
+                    return 1;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.wallet.service.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Minimal local JSON-RPC node for tests. Handles single and batch requests, counts HTTP
+ * round-trips and can inject latency and errors.
+ */
+class JsonRpcStubServer implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Function<JsonNode, Object>> handlers = new ConcurrentHashMap<>();
+    private final AtomicInteger httpRequests = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+    private volatile long delayMillis;
+
+    JsonRpcStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Register the result for a method; the handler receives the request's params array.
+     */
+    void on(String method, Function<JsonNode, Object> handler) {
+        handlers.put(method, handler);
+    }
+
+    int getHttpRequests() {
+        return httpRequests.get();
+    }
+
+    void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    static String hex(long value) {
+        return "0x" + Long.toHexString(value);
+    }
+
+    static String hash(String prefix, long value) {
+        String hex = prefix + Long.toHexString(value);
+        return "0x" + "0".repeat(64 - hex.length()) + hex;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        httpRequests.incrementAndGet();
+        JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        JsonNode response;
+        if (body.isArray()) {
+            ArrayNode responses = objectMapper.createArrayNode();
+            body.forEach(request -> responses.add(respond(request)));
+            response = responses;
+        } else {
+            response = respond(body);
+        }
+
+        byte[] bytes = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private ObjectNode respond(JsonNode request) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+
+        Function<JsonNode, Object> handler = handlers.get(request.get("method").asText());
+        if (handler == null) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", -32601);
+            error.put("message", "Method not found");
+        } else {
+            try {
+                response.set("result", objectMapper.valueToTree(handler.apply(request.get("params"))));
+            } catch (RpcError e) {
+                ObjectNode error = response.putObject("error");
+                error.put("code", -32000);
+                error.put("message", e.getMessage());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Thrown by a handler to answer with a JSON-RPC error instead of a result.
+     */
+    static class RpcError extends RuntimeException {
+
+        RpcError(String message) {
+            super(message);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,221 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.service.blockchain.LiteserverSelector.LiteServer;
+import com.wallet.service.blockchain.LiteserverSelector.LiteServerStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiteserverSelectorTest {
+
+    private final Map<Integer, StandIn> standIns = new ConcurrentHashMap<>();
+    private LiteserverSelector selector;
+
+    @AfterEach
+    void tearDown() {
+        if (selector != null) {
+            selector.shutdown();
+        }
+    }
+
+    @Test
+    void testLoad_ReadsLiteServersFromGlobalConfig(@TempDir Path dir) throws IOException {
+        Path config = dir.resolve("global-config.json");
+        Files.writeString(config, """
+                {"liteservers": [
+                  {"ip": 84478511, "port": 19949, "id": {"@type": "pub.ed25519", "key": "n4VDnSCUuSpjnCyUk9e3QOOd6o0ItSWYbTnW3Wnn8wk="}},
+                  {"ip": -1185526007, "port": 4924, "id": {"@type": "pub.ed25519", "key": "pKQ2MPw4GN1M/yUnvw0XiEBj0/IfCLmJcTmG/mYMsHw="}}
+                ]}
+                """);
+
+        List<LiteServer> liteServers = LiteserverSelector.load(config.toString());
+
+        assertEquals(2, liteServers.size());
+        assertEquals(new LiteServer(0, "5.9.10.47", 19949, "n4VDnSCUuSpjnCyUk9e3QOOd6o0ItSWYbTnW3Wnn8wk="),
+                liteServers.get(0));
+        assertEquals("185.86.79.9:4924", liteServers.get(1).address());
+    }
+
+    @Test
+    void testSelect_UsesConfigOrderBeforeFirstProbe() {
+        selector = selector(3, 1000, 5);
+
+        assertEquals(0, selector.select(0));
+        assertEquals(1, selector.select(1));
+        assertEquals(2, selector.select(2));
+        assertEquals(0, selector.select(3));
+    }
+
+    @Test
+    void testProbeAll_RanksHealthyServersByLatency() {
+        standIns.put(0, new StandIn(100, 150));
+        standIns.put(1, new StandIn(100, 0));
+        standIns.put(2, new StandIn(100, 50));
+        selector = selector(3, 2000, 5);
+
+        selector.probeAll();
+
+        assertEquals(List.of(1, 2, 0), order());
+        assertEquals(1, selector.select(0));
+        assertEquals(2, selector.select(1));
+        assertEquals(1, selector.select(3));
+    }
+
+    @Test
+    void testProbeAll_DemotesLaggingAndTimedOutServers() {
+        standIns.put(0, new StandIn(90, 0));
+        standIns.put(1, new StandIn(100, 5000));
+        standIns.put(2, new StandIn(100, 20));
+        standIns.put(3, new StandIn(99, 150));
+        selector = selector(4, 300, 5);
+
+        selector.probeAll();
+
+        assertEquals(List.of(2, 3, 0, 1), order());
+        List<LiteServerStats> ranking = selector.getRanking();
+        assertFalse(ranking.get(2).healthy());
+        assertEquals(10, ranking.get(2).lag());
+        assertFalse(ranking.get(3).healthy());
+        assertNull(ranking.get(3).seqno());
+        // Slots only go to the healthy servers
+        assertEquals(2, selector.select(0));
+        assertEquals(3, selector.select(1));
+        assertEquals(2, selector.select(2));
+    }
+
+    @Test
+    void testProbeAll_FailingServerIsDemotedUntilItRecovers() {
+        standIns.put(0, new StandIn(100, 0));
+        standIns.put(1, new StandIn(100, 20));
+        selector = selector(2, 1000, 5);
+        standIns.get(0).failing = true;
+
+        selector.probeAll();
+        assertEquals(List.of(1, 0), order());
+
+        standIns.get(0).failing = false;
+        selector.probeAll();
+        assertEquals(List.of(0, 1), order());
+    }
+
+    @Test
+    void testSelect_FallsBackToAllServersWhenNoneIsHealthy() {
+        standIns.put(0, new StandIn(100, 0));
+        standIns.put(1, new StandIn(100, 0));
+        standIns.values().forEach(standIn -> standIn.failing = true);
+        selector = selector(2, 1000, 5);
+
+        selector.probeAll();
+
+        assertEquals(0, selector.select(0));
+        assertEquals(1, selector.select(1));
+    }
+
+    @Test
+    void testProbeAll_HungProbeIsAbandonedAndNotProbedAgainUntilItReturns() throws InterruptedException {
+        standIns.put(1, new StandIn(100, 0));
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicInteger hungProbes = new AtomicInteger();
+        List<Integer> abandoned = new CopyOnWriteArrayList<>();
+        selector = new LiteserverSelector(liteServers(2), new LiteserverSelector.Probe() {
+            @Override
+            public long masterchainSeqno(LiteServer server) throws Exception {
+                if (server.index() == 1) {
+                    return standIns.get(1).probe();
+                }
+                hungProbes.incrementAndGet();
+                // A native call that ignores interrupts and only returns once its client is destroyed
+                while (true) {
+                    try {
+                        released.await();
+                        throw new IOException("client destroyed");
+                    } catch (InterruptedException ignored) {
+                        // keep waiting
+                    }
+                }
+            }
+
+            @Override
+            public void abandon(LiteServer server) {
+                abandoned.add(server.index());
+            }
+        }, 200, 5);
+
+        selector.probeAll();
+        selector.probeAll();
+
+        assertEquals(List.of(0), abandoned);
+        assertEquals(1, hungProbes.get());
+        assertEquals(List.of(1, 0), order());
+        released.countDown();
+    }
+
+    @Test
+    void testIsCandidate_HealthyServerStaysCandidateWhenRankingShifts() {
+        standIns.put(0, new StandIn(100, 100));
+        standIns.put(1, new StandIn(100, 0));
+        standIns.put(2, new StandIn(90, 0));
+        selector = selector(3, 2000, 5);
+
+        selector.probeAll();
+
+        // Slot 0 now maps to server 1, but its client on server 0 need not move
+        assertEquals(1, selector.select(0));
+        assertTrue(selector.isCandidate(0));
+        assertTrue(selector.isCandidate(1));
+        assertFalse(selector.isCandidate(2));
+    }
+
+    private LiteserverSelector selector(int servers, long timeoutMillis, long maxSeqnoLag) {
+        return new LiteserverSelector(liteServers(servers), server -> standIns.get(server.index()).probe(),
+                timeoutMillis, maxSeqnoLag);
+    }
+
+    private static List<LiteServer> liteServers(int servers) {
+        List<LiteServer> liteServers = new ArrayList<>();
+        for (int i = 0; i < servers; i++) {
+            liteServers.add(new LiteServer(i, "10.0.0." + i, 4000 + i, "key" + i));
+        }
+        return liteServers;
+    }
+
+    private List<Integer> order() {
+        return selector.getRanking().stream().map(stats -> stats.server().index()).toList();
+    }
+
+    /**
+     * Stand-in liteserver answering with a fixed seqno after a fixed delay.
+     */
+    private static class StandIn {
+
+        private final long seqno;
+        private final long delayMillis;
+        private volatile boolean failing;
+
+        StandIn(long seqno, long delayMillis) {
+            this.seqno = seqno;
+            this.delayMillis = delayMillis;
+        }
+
+        long probe() throws Exception {
+            Thread.sleep(delayMillis);
+            if (failing) {
+                throw new IOException("connection refused");
+            }
+            return seqno;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.model.NonceReservation;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonceManagerTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.ETHEREUM_SEPOLIA;
+    private static final String SENDER = "0xabc";
+
+    private final StandInChain chain = new StandInChain();
+    private InMemoryNonceReservations reservations;
+    private NonceManager nonceManager;
+
+    @BeforeEach
+    void setUp() {
+        reservations = new InMemoryNonceReservations();
+        nonceManager = new NonceManager(reservations.repository());
+        nonceManager.register(NETWORK, chain);
+        chain.confirmed = 5;
+        chain.pending = 7;
+    }
+
+    @Test
+    void testReserve_ContinuesFromPendingCountWithoutAskingAgain() {
+        assertEquals(7, nonceManager.reserve(NETWORK, SENDER).nonce());
+        assertEquals(8, nonceManager.reserve(NETWORK, SENDER).nonce());
+        assertEquals(9, nonceManager.reserve(NETWORK, "0xABC").nonce());
+
+        assertEquals(2, chain.reads);
+    }
+
+    @Test
+    void testReserve_ConcurrentCallersGetDistinctNonces() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(callers.submit(() -> nonceManager.reserve(NETWORK, SENDER).nonce()));
+            }
+            Set<Long> nonces = ConcurrentHashMap.newKeySet();
+            for (Future<Long> result : results) {
+                nonces.add(result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(40, nonces.size());
+            assertEquals(7, nonces.stream().mapToLong(Long::longValue).min().orElseThrow());
+            assertEquals(46, nonces.stream().mapToLong(Long::longValue).max().orElseThrow());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRelease_NextReservationFillsTheGap() {
+        NonceManager.Reservation first = nonceManager.reserve(NETWORK, SENDER);
+        nonceManager.reserve(NETWORK, SENDER);
+
+        nonceManager.release(first);
+
+        assertEquals(7, nonceManager.reserve(NETWORK, SENDER).nonce());
+        assertEquals(9, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testReserve_RecoversFromReservationsAfterRestart() {
+        row(7, NonceStatus.SENT, LocalDateTime.now());
+        row(8, NonceStatus.RELEASED, LocalDateTime.now());
+        row(9, NonceStatus.RESERVED, LocalDateTime.now().minusHours(1));
+        row(10, NonceStatus.SENT, LocalDateTime.now());
+
+        assertEquals(8, nonceManager.reserve(NETWORK, SENDER).nonce());
+        // Reserved but never signed before the restart
+        assertEquals(9, nonceManager.reserve(NETWORK, SENDER).nonce());
+        assertEquals(11, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testReserve_NonceTakenByAnotherNodeResyncs() {
+        nonceManager.reserve(NETWORK, SENDER);
+        // Another node reserved 8 meanwhile
+        row(8, NonceStatus.RESERVED, LocalDateTime.now());
+
+        assertEquals(9, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testDiscard_RereadsSenderFromChain() {
+        NonceManager.Reservation reservation = nonceManager.reserve(NETWORK, SENDER);
+        // A transaction sent from elsewhere used 7 and 8
+        chain.pending = 9;
+
+        nonceManager.discard(reservation);
+
+        assertEquals(9, nonceManager.reserve(NETWORK, SENDER).nonce());
+        assertTrue(reservations.find(NETWORK, SENDER, 7).isEmpty());
+    }
+
+    @Test
+    void testReconcile_PrunesMinedAndRebroadcastsDropped() {
+        NonceManager.Reservation mined = nonceManager.reserve(NETWORK, SENDER);
+        nonceManager.markSent(mined, "0xmined", "0xraw7");
+        NonceManager.Reservation dropped = nonceManager.reserve(NETWORK, SENDER);
+        nonceManager.markSent(dropped, "0xdropped", "0xraw8");
+        NonceManager.Reservation pending = nonceManager.reserve(NETWORK, SENDER);
+        nonceManager.markSent(pending, "0xpending", "0xraw9");
+        // 7 is mined; the node lost 8 and therefore holds 9 back
+        chain.confirmed = 8;
+        chain.pending = 8;
+
+        nonceManager.reconcile();
+
+        assertTrue(reservations.find(NETWORK, SENDER, 7).isEmpty());
+        assertEquals(List.of("0xraw8", "0xraw9"), chain.broadcasts);
+        assertEquals(10, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testReserve_WithdrawalFindsItsSignedTransactionAfterItWasMined() {
+        UUID withdrawalId = UUID.randomUUID();
+        NonceManager.Reservation reservation = nonceManager.reserve(NETWORK, SENDER, withdrawalId);
+        nonceManager.markSent(reservation, "0xsigned", "0xraw7");
+        chain.confirmed = 8;
+        chain.pending = 8;
+
+        nonceManager.reconcile();
+
+        assertEquals("0xsigned", nonceManager.findReservation(withdrawalId).orElseThrow().getTransactionHash());
+        assertEquals(8, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testRelease_FreesTheWithdrawalForAnotherAttempt() {
+        UUID withdrawalId = UUID.randomUUID();
+        NonceManager.Reservation first = nonceManager.reserve(NETWORK, SENDER, withdrawalId);
+        nonceManager.release(first);
+
+        assertTrue(nonceManager.findReservation(withdrawalId).isEmpty());
+        assertEquals(7, nonceManager.reserve(NETWORK, SENDER, withdrawalId).nonce());
+        assertEquals(7, nonceManager.findReservation(withdrawalId).orElseThrow().getNonce());
+    }
+
+    @Test
+    void testReconcile_ReleasedNonceIsNeverRebroadcast() {
+        NonceManager.Reservation rejected = nonceManager.reserve(NETWORK, SENDER);
+        nonceManager.markSent(rejected, "0xrejected", "0xraw7");
+        nonceManager.release(rejected);
+
+        nonceManager.reconcile();
+
+        assertTrue(chain.broadcasts.isEmpty());
+        assertEquals(7, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testReconcile_OldGapIsFilledSoLaterNoncesGetMined() {
+        nonceManager.registerKeys((network, sender) -> Optional.of("key"));
+        chain.confirmed = 7;
+        chain.pending = 7;
+        // 7 was rejected long ago; the node queues 8 and 9 behind it
+        row(7, NonceStatus.RELEASED, LocalDateTime.now().minusSeconds(NonceManager.GAP_FILL_SECONDS + 60));
+        row(8, NonceStatus.SENT, LocalDateTime.now());
+        row(9, NonceStatus.SENT, LocalDateTime.now());
+
+        nonceManager.reconcile();
+        chain.mine();
+
+        assertEquals(List.of("0xraw8", "0xraw9", "0xfill7"), chain.broadcasts);
+        assertEquals(10, chain.confirmed);
+        nonceManager.reconcile();
+        assertTrue(reservations.rows().isEmpty());
+        assertEquals(10, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    @Test
+    void testReconcile_RecentGapIsLeftToTheNextSend() {
+        nonceManager.registerKeys((network, sender) -> Optional.of("key"));
+        chain.confirmed = 7;
+        chain.pending = 7;
+        row(7, NonceStatus.RELEASED, LocalDateTime.now());
+        row(8, NonceStatus.SENT, LocalDateTime.now());
+
+        nonceManager.reconcile();
+
+        assertEquals(List.of("0xraw8"), chain.broadcasts);
+        assertEquals(7, nonceManager.reserve(NETWORK, SENDER).nonce());
+    }
+
+    private void row(long nonce, NonceStatus status, LocalDateTime updatedAt) {
+        reservations.repository().saveAndFlush(NonceReservation.builder()
+                .network(NETWORK)
+                .sender(SENDER)
+                .nonce(nonce)
+                .status(status)
+                .rawTransaction(status == NonceStatus.SENT ? "0xraw" + nonce : null)
+                .updatedAt(updatedAt)
+                .build());
+    }
+
+    /**
+     * Stand-in node with settable mined and pending transaction counts; {@link #mine} mines
+     * broadcast transactions as far as their nonces run without a gap.
+     */
+    private static class StandInChain implements NonceManager.SenderChain {
+
+        private volatile long confirmed;
+        private volatile long pending;
+        private volatile int reads;
+        private final List<String> broadcasts = new ArrayList<>();
+        private final Map<Long, String> mempool = new TreeMap<>();
+
+        @Override
+        public synchronized long transactionCount(String sender, boolean includePending) throws IOException {
+            reads++;
+            return includePending ? pending : confirmed;
+        }
+
+        @Override
+        public synchronized void broadcast(String rawTransaction) {
+            broadcasts.add(rawTransaction);
+            mempool.put(Long.parseLong(rawTransaction.replaceAll("\\D", "")), rawTransaction);
+        }
+
+        @Override
+        public NonceManager.SignedTransaction signSelfTransfer(String privateKey, String sender, long nonce) {
+            return new NonceManager.SignedTransaction("0xfiller" + nonce, "0xfill" + nonce);
+        }
+
+        synchronized void mine() {
+            while (mempool.remove(confirmed) != null) {
+                confirmed++;
+            }
+            pending = confirmed;
+        }
+    }
+}
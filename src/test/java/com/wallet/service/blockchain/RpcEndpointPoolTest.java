@@ -0,0 +1,265 @@
+package com.wallet.service.blockchain;
+
+import com.wallet.config.ChainCacheConfig;
+import com.wallet.config.EthereumConfig;
+import com.wallet.config.RateLimitConfig;
+import com.wallet.config.RpcPoolConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.repository.NonceReservationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RpcEndpointPoolTest {
+
+    private static final String ADDRESS = "0x1111111111111111111111111111111111111111";
+
+    private RpcPoolConfig config;
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private JsonRpcStubServer slowNode;
+    private JsonRpcStubServer fastNode;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new RpcPoolConfig();
+        config.setMinSamples(5);
+        config.setHedgeDelayMin(20);
+        config.setHedgeDelayMax(100);
+
+        slowNode = new JsonRpcStubServer();
+        fastNode = new JsonRpcStubServer();
+        for (JsonRpcStubServer node : List.of(slowNode, fastNode)) {
+            node.on("eth_getBalance", params -> "0xde0b6b3a7640000");
+        }
+        slowNode.setDelayMillis(1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowNode.close();
+        fastNode.close();
+    }
+
+    @Test
+    void testSlowPrimary_ReadsAreHedgedAndRankingMovesAway() {
+        EthereumService service = new EthereumService(ethereumConfig(slowNode.url(), fastNode.url()), config,
+                new RateLimitConfig(), uncached(), headTracker(), nonceManager(), feeOracle());
+        try {
+            for (int i = 0; i < 10; i++) {
+                long start = System.nanoTime();
+                assertEquals(0, BigDecimal.ONE.compareTo(service.getBalance(ADDRESS)));
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                assertTrue(millis < 800, "call " + i + " took " + millis + " ms");
+            }
+
+            // Once the slow node has enough (cancelled) samples it stops being the primary
+            assertTrue(slowNode.getHttpRequests() < 10, "slow node got " + slowNode.getHttpRequests());
+            assertEquals(10, fastNode.getHttpRequests());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testDeadEndpoint_FailsOverAndIsMarkedUnhealthy() {
+        slowNode.setDelayMillis(0);
+        String dead = "http://127.0.0.1:1";
+        EthereumService service = new EthereumService(ethereumConfig(dead, slowNode.url()), config,
+                new RateLimitConfig(), uncached(), headTracker(), nonceManager(), feeOracle());
+        try {
+            for (int i = 0; i < 8; i++) {
+                assertEquals(0, BigDecimal.ONE.compareTo(service.getBalance(ADDRESS)));
+            }
+
+            RpcEndpointPool.EndpointStats deadStats = service.getEndpointStats().stream()
+                    .filter(stats -> stats.name().equals(dead)).findFirst().orElseThrow();
+            assertFalse(deadStats.healthy());
+            assertEquals(8, slowNode.getHttpRequests());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testUnhedgedCall_WaitsForPrimaryWithoutRacing() throws IOException {
+        RpcEndpointPool<String> pool = new RpcEndpointPool<>(BlockchainNetwork.TON, endpoints("a", "b"), config, new RateLimitConfig());
+        try {
+            String result = pool.call(client -> {
+                calls.computeIfAbsent(client, key -> new AtomicInteger()).incrementAndGet();
+                sleep(150);
+                return client;
+            }, false);
+
+            assertEquals("a", result);
+            assertNull(calls.get("b"));
+            assertEquals(0, pool.getHedgedCalls());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAllEndpointsFail_ThrowsLastFailure() {
+        RpcEndpointPool<String> pool = new RpcEndpointPool<>(BlockchainNetwork.TON, endpoints("a", "b"), config, new RateLimitConfig());
+        try {
+            IOException failure = assertThrows(IOException.class, () -> pool.call(client -> {
+                throw new ConnectException("down: " + client);
+            }, true));
+
+            assertTrue(failure.getMessage().startsWith("down: "));
+            assertEquals(2, pool.getStats().stream().mapToInt(RpcEndpointPool.EndpointStats::samples).sum());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testQuota_CallsWaitForTokensInsteadOfFailing() throws IOException {
+        RateLimitConfig rateLimits = quota(20, 1);
+        RpcEndpointPool<String> pool = new RpcEndpointPool<>(BlockchainNetwork.TON, endpoints("a"), config, rateLimits);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("a", pool.call(client -> client, true));
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            // One token up front, then one every 50 ms
+            assertTrue(millis >= 150, "5 calls at 20/s took only " + millis + " ms");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testQuota_ExhaustedBeyondMaxWaitIsThrottled() throws IOException {
+        RateLimitConfig rateLimits = quota(1, 1);
+        rateLimits.setMaxWait(100);
+        RpcEndpointPool<String> pool = new RpcEndpointPool<>(BlockchainNetwork.TON, endpoints("a"), config, rateLimits);
+        try {
+            pool.call(client -> client, true);
+
+            assertThrows(RpcThrottledException.class, () -> pool.call(client -> client, true));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testTooManyRequests_FailsOverWithoutMarkingEndpointUnhealthy() throws IOException {
+        RpcEndpointPool<String> pool = new RpcEndpointPool<>(BlockchainNetwork.TON, endpoints("a", "b"), config,
+                new RateLimitConfig());
+        try {
+            for (int i = 0; i < 8; i++) {
+                String result = pool.call(client -> {
+                    if (client.equals("a")) {
+                        throw new IOException("Invalid response received: 429; Too Many Requests");
+                    }
+                    return client;
+                }, false);
+                assertEquals("b", result);
+            }
+
+            RpcEndpointPool.EndpointStats a = pool.getStats().get(0);
+            assertTrue(a.healthy());
+            assertEquals(0, a.samples());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testWrite_ErrorBeforeThrottleIsNotReportedAsThrottled() {
+        RpcEndpointPool<String> pool = new RpcEndpointPool<>(BlockchainNetwork.TON, endpoints("a", "b"), config,
+                new RateLimitConfig());
+        try {
+            RpcEndpointPool.RpcCall<String, String> call = client -> {
+                if (client.equals("a")) {
+                    throw new IOException("connection reset");
+                }
+                throw new IOException("Invalid response received: 429; Too Many Requests");
+            };
+
+            // A write may have reached "a", so the caller must not treat it as never sent
+            IOException failure = assertThrows(IOException.class, () -> pool.call(call, false));
+            assertEquals("connection reset", failure.getMessage());
+            assertThrows(RpcThrottledException.class, () -> pool.call(call, true));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private RateLimitConfig quota(double requestsPerSecond, int burst) {
+        RateLimitConfig rateLimits = new RateLimitConfig();
+        RateLimitConfig.NetworkQuota quota = new RateLimitConfig.NetworkQuota();
+        quota.setRequestsPerSecond(requestsPerSecond);
+        quota.setBurst(burst);
+        rateLimits.getNetworks().put(BlockchainNetwork.TON, quota);
+        return rateLimits;
+    }
+
+    /**
+     * Cache with mutable TTLs off, so every balance read reaches an endpoint.
+     */
+    private ChainDataCache uncached() {
+        ChainCacheConfig cacheConfig = new ChainCacheConfig();
+        cacheConfig.setBalanceTtl(0);
+        cacheConfig.setHeadTtl(0);
+        return new ChainDataCache(cacheConfig, new SimpleMeterRegistry());
+    }
+
+    private ChainHeadTracker headTracker() {
+        return new ChainHeadTracker(new SimpleMeterRegistry(), Runnable::run);
+    }
+
+    private NonceManager nonceManager() {
+        return new NonceManager(mock(NonceReservationRepository.class));
+    }
+
+    private FeeOracle feeOracle() {
+        return new FeeOracle(headTracker(), new SimpleMeterRegistry(), new EthereumConfig(), Runnable::run);
+    }
+
+    /**
+     * Batching off, so every balance read is a request of its own.
+     */
+    private EthereumConfig ethereumConfig(String rpcUrl, String... fallbackRpcUrls) {
+        EthereumConfig ethereumConfig = new EthereumConfig();
+        ethereumConfig.setRpcUrl(rpcUrl);
+        ethereumConfig.setRpcUrls(List.of(fallbackRpcUrls));
+        ethereumConfig.setChainId(11155111);
+        ethereumConfig.setBatchLingerMs(0);
+        return ethereumConfig;
+    }
+
+    private Map<String, String> endpoints(String... names) {
+        Map<String, String> endpoints = new LinkedHashMap<>();
+        for (String name : names) {
+            endpoints.put(name, name);
+        }
+        return endpoints;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
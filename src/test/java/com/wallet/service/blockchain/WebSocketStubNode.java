@@ -0,0 +1,107 @@
+package com.wallet.service.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a node's WebSocket endpoint. Accepts {@code eth_subscribe("newHeads")},
+ * pushes heads on demand and can drop all connections to exercise reconnects.
+ */
+class WebSocketStubNode implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final Server server;
+
+    WebSocketStubNode() throws InterruptedException {
+        server = new Server();
+        server.setReuseAddr(true);
+        server.start();
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("WebSocket stub did not start");
+        }
+    }
+
+    String url() {
+        return "ws://127.0.0.1:" + server.getPort();
+    }
+
+    int getSubscriptions() {
+        return subscriptions.get();
+    }
+
+    void pushHead(long number) {
+        ObjectNode head = objectMapper.createObjectNode();
+        head.put("number", JsonRpcStubServer.hex(number));
+        head.put("hash", JsonRpcStubServer.hash("b", number));
+        ObjectNode params = objectMapper.createObjectNode();
+        params.put("subscription", "0x" + subscriptions.get());
+        params.set("result", head);
+        ObjectNode notification = objectMapper.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", "eth_subscription");
+        notification.set("params", params);
+        server.broadcast(notification.toString());
+    }
+
+    void dropConnections() {
+        server.getConnections().forEach(WebSocket::close);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        server.stop(1000);
+    }
+
+    private class Server extends WebSocketServer {
+
+        Server() {
+            super(new InetSocketAddress("127.0.0.1", 0));
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            try {
+                JsonNode request = objectMapper.readTree(message);
+                ObjectNode response = objectMapper.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", request.get("id"));
+                if ("eth_subscribe".equals(request.get("method").asText())) {
+                    response.put("result", "0x" + subscriptions.incrementAndGet());
+                } else {
+                    response.put("result", true);
+                }
+                conn.send(response.toString());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+    }
+}
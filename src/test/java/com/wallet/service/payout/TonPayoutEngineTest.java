@@ -0,0 +1,363 @@
+package com.wallet.service.payout;
+
+import com.wallet.config.TonConfig;
+import com.wallet.exception.PayoutRejectedException;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.PayoutBatch;
+import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.PayoutBatchStatus;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.PayoutBatchRepository;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.WalletService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.TonService;
+import com.wallet.service.scanner.ShardLeaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TonPayoutEngineTest {
+
+    private static final String HOT_WALLET = "0:hot";
+
+    @Mock
+    private TonService tonService;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PayoutBatchRepository payoutBatchRepository;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private WalletService walletService;
+
+    private TonPayoutEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        TonConfig tonConfig = new TonConfig();
+        tonConfig.getPayout().setEnabled(true);
+        tonConfig.getPayout().setBatchSize(2);
+        engine = new TonPayoutEngine(tonService, transactionRepository, payoutBatchRepository,
+                shardLeaseManager, tonConfig, new TransactionTemplate(transactionManager), walletService);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(shardLeaseManager.ownsNetwork(BlockchainNetwork.TON)).thenReturn(true);
+        lenient().when(tonService.getPayoutWalletAddress()).thenReturn(HOT_WALLET);
+        lenient().when(payoutBatchRepository.save(any(PayoutBatch.class))).thenAnswer(invocation -> {
+            PayoutBatch batch = invocation.getArgument(0);
+            if (batch.getId() == null) {
+                batch.setId(UUID.randomUUID());
+            }
+            return batch;
+        });
+    }
+
+    @Test
+    void testRun_SendsApprovedWithdrawalsInBatchesWithSequentialQueryIds() {
+        List<Transaction> approved = List.of(withdrawal(), withdrawal(), withdrawal());
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED)).thenReturn(approved);
+        when(tonService.getAccountHeads(List.of(HOT_WALLET)))
+                .thenReturn(Map.of(HOT_WALLET, new BlockchainService.AccountHead(500, "h500")));
+        when(transactionRepository.claimForPayoutBatch(any(), any())).thenReturn(1);
+        when(payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON))
+                .thenReturn(Optional.of(PayoutBatch.builder().queryId(41L).build()));
+
+        engine.run();
+
+        ArgumentCaptor<List<TonService.Payout>> payouts = ArgumentCaptor.forClass(List.class);
+        verify(tonService).sendPayoutBatch(eq(42L), anyLong(), payouts.capture());
+        verify(tonService).sendPayoutBatch(eq(43L), anyLong(), payouts.capture());
+        assertEquals(2, payouts.getAllValues().get(0).size());
+        assertEquals(1, payouts.getAllValues().get(1).size());
+        assertEquals(approved.get(2).getId().toString(), payouts.getAllValues().get(1).get(0).comment());
+        approved.forEach(withdrawal -> {
+            assertEquals(TransactionStatus.PROCESSING, withdrawal.getStatus());
+            assertNotNull(withdrawal.getPayoutBatchId());
+        });
+    }
+
+    @Test
+    void testRun_ClaimsNothingWhenWalletStateIsUnavailable() {
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED))
+                .thenReturn(List.of(withdrawal()));
+        when(tonService.getAccountHeads(List.of(HOT_WALLET))).thenReturn(Map.of());
+
+        engine.run();
+
+        verify(transactionRepository, never()).claimForPayoutBatch(any(), any());
+        verify(tonService, never()).sendPayoutBatch(anyLong(), anyLong(), anyList());
+    }
+
+    @Test
+    void testRun_ThrottledSendReleasesWithdrawalsAtOnce() {
+        Transaction withdrawal = withdrawal();
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED))
+                .thenReturn(List.of(withdrawal));
+        when(tonService.getAccountHeads(List.of(HOT_WALLET)))
+                .thenReturn(Map.of(HOT_WALLET, new BlockchainService.AccountHead(500, "h500")));
+        when(transactionRepository.claimForPayoutBatch(any(), any())).thenReturn(1);
+        when(payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON))
+                .thenReturn(Optional.empty());
+        doThrow(new RuntimeException("send failed", new RpcThrottledException("TON", "out of quota", 1000)))
+                .when(tonService).sendPayoutBatch(eq(0L), anyLong(), anyList());
+        when(transactionRepository.releaseFromPayoutBatch(eq(withdrawal.getId()), any(), eq(0))).thenReturn(1);
+
+        engine.run();
+
+        assertEquals(TransactionStatus.APPROVED, withdrawal.getStatus());
+        assertNull(withdrawal.getPayoutBatchId());
+        assertEquals(0, withdrawal.getPayoutRejections());
+        ArgumentCaptor<PayoutBatch> saved = ArgumentCaptor.forClass(PayoutBatch.class);
+        verify(payoutBatchRepository, atLeastOnce()).save(saved.capture());
+        assertEquals(PayoutBatchStatus.EXPIRED, saved.getValue().getStatus());
+    }
+
+    @Test
+    void testRun_RejectedSendReleasesWithdrawalsAtOnce() {
+        Transaction withdrawal = withdrawal();
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED))
+                .thenReturn(List.of(withdrawal));
+        when(tonService.getAccountHeads(List.of(HOT_WALLET)))
+                .thenReturn(Map.of(HOT_WALLET, new BlockchainService.AccountHead(500, "h500")));
+        when(transactionRepository.claimForPayoutBatch(any(), any())).thenReturn(1);
+        when(payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON))
+                .thenReturn(Optional.empty());
+        doThrow(new PayoutRejectedException("Payout batch 0 rejected: not accepted"))
+                .when(tonService).sendPayoutBatch(eq(0L), anyLong(), anyList());
+        when(transactionRepository.releaseFromPayoutBatch(eq(withdrawal.getId()), any(), eq(1))).thenReturn(1);
+
+        engine.run();
+
+        assertEquals(TransactionStatus.APPROVED, withdrawal.getStatus());
+        assertNull(withdrawal.getPayoutBatchId());
+        assertEquals(1, withdrawal.getPayoutRejections());
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testRun_WithdrawalRejectedTooOftenFailsAndIsRefunded() {
+        Transaction withdrawal = withdrawal();
+        withdrawal.setPayoutRejections(2);
+        withdrawal.setWallet(Wallet.builder().id(UUID.randomUUID()).build());
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED))
+                .thenReturn(List.of(withdrawal));
+        when(tonService.getAccountHeads(List.of(HOT_WALLET)))
+                .thenReturn(Map.of(HOT_WALLET, new BlockchainService.AccountHead(500, "h500")));
+        when(transactionRepository.claimForPayoutBatch(any(), any())).thenReturn(1);
+        when(payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON))
+                .thenReturn(Optional.empty());
+        doThrow(new PayoutRejectedException("Payout batch 0 rejected: not accepted"))
+                .when(tonService).sendPayoutBatch(eq(0L), anyLong(), anyList());
+        when(transactionRepository.failPayout(eq(withdrawal.getId()), any(), anyString())).thenReturn(1);
+
+        engine.run();
+
+        assertEquals(TransactionStatus.FAILED, withdrawal.getStatus());
+        verify(walletService).updateWalletBalance(withdrawal.getWallet().getId(), new BigDecimal("1.5"));
+        verify(transactionRepository, never()).releaseFromPayoutBatch(any(), any(), anyInt());
+    }
+
+    @Test
+    void testRun_PreviouslyRejectedWithdrawalIsSentAlone() {
+        Transaction rejected = withdrawal();
+        rejected.setPayoutRejections(1);
+        List<Transaction> approved = List.of(withdrawal(), rejected, withdrawal());
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED)).thenReturn(approved);
+        when(tonService.getAccountHeads(List.of(HOT_WALLET)))
+                .thenReturn(Map.of(HOT_WALLET, new BlockchainService.AccountHead(500, "h500")));
+        when(transactionRepository.claimForPayoutBatch(any(), any())).thenReturn(1);
+        when(payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON))
+                .thenReturn(Optional.empty());
+
+        engine.run();
+
+        ArgumentCaptor<List<TonService.Payout>> payouts = ArgumentCaptor.forClass(List.class);
+        verify(tonService).sendPayoutBatch(eq(0L), anyLong(), payouts.capture());
+        verify(tonService).sendPayoutBatch(eq(1L), anyLong(), payouts.capture());
+        assertEquals(List.of(rejected.getId().toString()),
+                payouts.getAllValues().get(0).stream().map(TonService.Payout::comment).toList());
+        assertEquals(2, payouts.getAllValues().get(1).size());
+    }
+
+    @Test
+    void testRun_BatchClaimedElsewhereIsRolledBackAndNotSent() {
+        when(transactionRepository.findByNetworkAndTypeAndStatus(
+                BlockchainNetwork.TON, TransactionType.WITHDRAWAL, TransactionStatus.APPROVED))
+                .thenReturn(List.of(withdrawal()));
+        when(tonService.getAccountHeads(List.of(HOT_WALLET)))
+                .thenReturn(Map.of(HOT_WALLET, new BlockchainService.AccountHead(500, "h500")));
+        when(transactionRepository.claimForPayoutBatch(any(), any())).thenReturn(0);
+        when(payoutBatchRepository.findFirstByNetworkOrderByCreatedAtDescQueryIdDesc(BlockchainNetwork.TON))
+                .thenReturn(Optional.empty());
+
+        engine.run();
+
+        verify(transactionManager).commit(argThat(status -> status.isRollbackOnly()));
+        verify(tonService, never()).sendPayoutBatch(anyLong(), anyLong(), anyList());
+    }
+
+    @Test
+    void testRun_ReleasesWithdrawalsClaimedWithoutBatch() {
+        when(transactionRepository.releaseUnbatchedWithdrawals(BlockchainNetwork.TON)).thenReturn(2);
+
+        engine.run();
+
+        verify(transactionRepository).releaseUnbatchedWithdrawals(BlockchainNetwork.TON);
+    }
+
+    @Test
+    void testConfirmSentBatches_MatchesTransfersByComment() {
+        PayoutBatch batch = batch(LocalDateTime.now().plusMinutes(30));
+        Transaction first = sent(batch);
+        Transaction second = sent(batch);
+        when(payoutBatchRepository.findByNetworkAndStatus(BlockchainNetwork.TON, PayoutBatchStatus.SENT))
+                .thenReturn(List.of(batch));
+        when(transactionRepository.findByPayoutBatchIdIn(List.of(batch.getId()))).thenReturn(List.of(first, second));
+        when(tonService.getOutgoingTransfers(HOT_WALLET, 500)).thenReturn(List.of(
+                transfer(first, 601), transfer(second, 602)));
+        when(transactionRepository.confirmPayout(any(), eq(batch.getId()), anyString(), eq(600L), any(), any()))
+                .thenReturn(1);
+
+        engine.confirmSentBatches(HOT_WALLET);
+
+        assertEquals(TransactionStatus.CONFIRMED, first.getStatus());
+        assertEquals("tx600:601", first.getTransactionHash());
+        assertEquals(600L, first.getBlockNumber());
+        assertEquals("tx600:602", second.getTransactionHash());
+        assertEquals(PayoutBatchStatus.CONFIRMED, batch.getStatus());
+        verify(payoutBatchRepository).save(batch);
+    }
+
+    @Test
+    void testConfirmSentBatches_LeavesBatchOpenUntilExpiry() {
+        PayoutBatch batch = batch(LocalDateTime.now().plusMinutes(30));
+        Transaction paid = sent(batch);
+        Transaction pending = sent(batch);
+        when(payoutBatchRepository.findByNetworkAndStatus(BlockchainNetwork.TON, PayoutBatchStatus.SENT))
+                .thenReturn(List.of(batch));
+        when(transactionRepository.findByPayoutBatchIdIn(List.of(batch.getId()))).thenReturn(List.of(paid, pending));
+        when(tonService.getOutgoingTransfers(HOT_WALLET, 500)).thenReturn(List.of(transfer(paid, 601)));
+        when(transactionRepository.confirmPayout(eq(paid.getId()), eq(batch.getId()), eq("tx600:601"), eq(600L),
+                any(), any())).thenReturn(1);
+
+        engine.confirmSentBatches(HOT_WALLET);
+
+        assertEquals(TransactionStatus.CONFIRMED, paid.getStatus());
+        assertEquals(TransactionStatus.PROCESSING, pending.getStatus());
+        assertEquals(PayoutBatchStatus.SENT, batch.getStatus());
+        verify(payoutBatchRepository, never()).save(any());
+    }
+
+    @Test
+    void testConfirmSentBatches_ExpiredBatchRequeuesUnpaidWithdrawals() {
+        PayoutBatch batch = batch(LocalDateTime.now().minusMinutes(5));
+        Transaction unpaid = sent(batch);
+        when(payoutBatchRepository.findByNetworkAndStatus(BlockchainNetwork.TON, PayoutBatchStatus.SENT))
+                .thenReturn(List.of(batch));
+        when(transactionRepository.findByPayoutBatchIdIn(List.of(batch.getId()))).thenReturn(List.of(unpaid));
+        when(tonService.getOutgoingTransfers(HOT_WALLET, 500)).thenReturn(List.of());
+        when(transactionRepository.releaseFromPayoutBatch(unpaid.getId(), batch.getId(), 0)).thenReturn(1);
+
+        engine.confirmSentBatches(HOT_WALLET);
+
+        assertEquals(TransactionStatus.APPROVED, unpaid.getStatus());
+        assertNull(unpaid.getPayoutBatchId());
+        assertEquals(PayoutBatchStatus.EXPIRED, batch.getStatus());
+    }
+
+    @Test
+    void testConfirmSentBatches_WithdrawalChangedElsewhereIsLeftAlone() {
+        PayoutBatch batch = batch(LocalDateTime.now().plusMinutes(30));
+        Transaction withdrawal = sent(batch);
+        when(payoutBatchRepository.findByNetworkAndStatus(BlockchainNetwork.TON, PayoutBatchStatus.SENT))
+                .thenReturn(List.of(batch));
+        when(transactionRepository.findByPayoutBatchIdIn(List.of(batch.getId()))).thenReturn(List.of(withdrawal));
+        when(tonService.getOutgoingTransfers(HOT_WALLET, 500)).thenReturn(List.of(transfer(withdrawal, 601)));
+        when(transactionRepository.confirmPayout(any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        engine.confirmSentBatches(HOT_WALLET);
+
+        assertEquals(TransactionStatus.PROCESSING, withdrawal.getStatus());
+        assertNull(withdrawal.getTransactionHash());
+    }
+
+    @Test
+    void testRun_SkipsWhenNetworkIsOwnedElsewhere() {
+        when(shardLeaseManager.ownsNetwork(BlockchainNetwork.TON)).thenReturn(false);
+
+        engine.run();
+
+        verifyNoInteractions(tonService, transactionRepository, payoutBatchRepository);
+    }
+
+    private Transaction withdrawal() {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setType(TransactionType.WITHDRAWAL);
+        transaction.setStatus(TransactionStatus.APPROVED);
+        transaction.setNetwork(BlockchainNetwork.TON);
+        transaction.setToAddress("0:dest");
+        transaction.setAmount(new BigDecimal("1.5"));
+        return transaction;
+    }
+
+    private Transaction sent(PayoutBatch batch) {
+        Transaction transaction = withdrawal();
+        transaction.setStatus(TransactionStatus.PROCESSING);
+        transaction.setPayoutBatchId(batch.getId());
+        return transaction;
+    }
+
+    private PayoutBatch batch(LocalDateTime expiresAt) {
+        return PayoutBatch.builder()
+                .id(UUID.randomUUID())
+                .network(BlockchainNetwork.TON)
+                .queryId(7L)
+                .createdAt(0L)
+                .walletLt(500L)
+                .expiresAt(expiresAt)
+                .status(PayoutBatchStatus.SENT)
+                .size(2)
+                .build();
+    }
+
+    private TonService.OutgoingTransfer transfer(Transaction withdrawal, long messageLt) {
+        return new TonService.OutgoingTransfer("tx600", 600, messageLt, withdrawal.getToAddress(),
+                withdrawal.getAmount(), new BigDecimal("0.001"), withdrawal.getId().toString());
+    }
+}
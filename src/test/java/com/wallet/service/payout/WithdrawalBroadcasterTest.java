@@ -0,0 +1,199 @@
+package com.wallet.service.payout;
+
+import com.wallet.config.WithdrawalScheduleConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.NonceReservation;
+import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.NonceStatus;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.WalletService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.NonceManager;
+import com.wallet.service.scanner.ShardLeaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WithdrawalBroadcasterTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private BlockchainService ethereumService;
+
+    @Mock
+    private NonceManager nonceManager;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    private WithdrawalBroadcaster broadcaster;
+    private Transaction withdrawal;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new WithdrawalBroadcaster(transactionRepository, walletService,
+                Map.of(BlockchainNetwork.ETHEREUM_SEPOLIA, ethereumService), nonceManager, shardLeaseManager,
+                new WithdrawalScheduleConfig());
+        Wallet wallet = Wallet.builder()
+                .id(UUID.randomUUID())
+                .network(BlockchainNetwork.ETHEREUM_SEPOLIA)
+                .encryptedPrivateKey("encrypted")
+                .build();
+        withdrawal = Transaction.builder()
+                .id(UUID.randomUUID())
+                .wallet(wallet)
+                .network(BlockchainNetwork.ETHEREUM_SEPOLIA)
+                .type(TransactionType.WITHDRAWAL)
+                .toAddress("0xdest")
+                .amount(new BigDecimal("0.5"))
+                .status(TransactionStatus.PROCESSING)
+                .build();
+        lenient().when(transactionRepository.findWithWalletById(withdrawal.getId())).thenReturn(Optional.of(withdrawal));
+        lenient().when(walletService.decryptPrivateKey("encrypted")).thenReturn("key");
+    }
+
+    @Test
+    void testBroadcast_RecordsHashAsSentWithoutTouchingBalance() {
+        when(ethereumService.sendTransaction("key", "0xdest", new BigDecimal("0.5"), withdrawal.getId())).thenReturn("0xhash");
+        when(transactionRepository.markSent(withdrawal.getId(), "0xhash")).thenReturn(1);
+
+        broadcaster.broadcast(withdrawal.getId());
+
+        verify(transactionRepository).markSent(withdrawal.getId(), "0xhash");
+        verify(walletService, never()).updateWalletBalance(any(), any());
+    }
+
+    @Test
+    void testBroadcast_RejectedSendFailsAndReturnsHeldAmount() {
+        when(ethereumService.sendTransaction(anyString(), anyString(), any(), any()))
+                .thenThrow(new RuntimeException("insufficient funds"));
+        when(transactionRepository.markFailed(withdrawal.getId(), "insufficient funds")).thenReturn(1);
+
+        broadcaster.broadcast(withdrawal.getId());
+
+        verify(walletService).updateWalletBalance(withdrawal.getWallet().getId(), new BigDecimal("0.5"));
+        verify(transactionRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    void testBroadcast_FailureAfterStateChangeDoesNotRefundTwice() {
+        when(ethereumService.sendTransaction(anyString(), anyString(), any(), any()))
+                .thenThrow(new RuntimeException("insufficient funds"));
+        when(transactionRepository.markFailed(withdrawal.getId(), "insufficient funds")).thenReturn(0);
+
+        broadcaster.broadcast(withdrawal.getId());
+
+        verify(walletService, never()).updateWalletBalance(any(), any());
+    }
+
+    @Test
+    void testBroadcast_ThrottledSendGoesBackToApproved() {
+        when(ethereumService.sendTransaction(anyString(), anyString(), any(), any()))
+                .thenThrow(new RuntimeException("Failed to send transaction",
+                        new RpcThrottledException("ETHEREUM_SEPOLIA", "out of quota", 1000)));
+
+        broadcaster.broadcast(withdrawal.getId());
+
+        verify(transactionRepository).transitionStatus(withdrawal.getId(),
+                TransactionStatus.PROCESSING, TransactionStatus.APPROVED);
+        verify(transactionRepository, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void testBroadcast_FailureWhileAnotherAttemptHoldsTheNonceLeavesRowAlone() {
+        when(ethereumService.sendTransaction(anyString(), anyString(), any(), any()))
+                .thenThrow(new RuntimeException("Could not reserve a nonce"));
+        when(nonceManager.findReservation(withdrawal.getId())).thenReturn(Optional.of(reservation(NonceStatus.RESERVED)));
+
+        broadcaster.broadcast(withdrawal.getId());
+
+        verify(transactionRepository, never()).markFailed(any(), any());
+        verify(walletService, never()).updateWalletBalance(any(), any());
+    }
+
+    @Test
+    void testRecoverStuck_SignedWithdrawalIsMarkedSentWithItsHash() {
+        stuck();
+        when(nonceManager.findReservation(withdrawal.getId())).thenReturn(Optional.of(reservation(NonceStatus.SENT)));
+        when(transactionRepository.markSent(withdrawal.getId(), "0xsigned")).thenReturn(1);
+
+        broadcaster.recoverStuck();
+
+        verify(transactionRepository).markSent(withdrawal.getId(), "0xsigned");
+        verify(transactionRepository, never()).transitionStatus(any(), any(), any());
+        verify(nonceManager, never()).release(any());
+    }
+
+    @Test
+    void testRecoverStuck_UnsignedWithdrawalGoesBackToApproved() {
+        stuck();
+        NonceReservation held = reservation(NonceStatus.RESERVED);
+        when(nonceManager.findReservation(withdrawal.getId())).thenReturn(Optional.of(held));
+
+        broadcaster.recoverStuck();
+
+        verify(nonceManager).release(NonceManager.Reservation.of(held));
+        verify(transactionRepository).transitionStatus(withdrawal.getId(),
+                TransactionStatus.PROCESSING, TransactionStatus.APPROVED);
+    }
+
+    @Test
+    void testRecoverStuck_SkipsWalletsOwnedElsewhere() {
+        stuck();
+        when(shardLeaseManager.owns(withdrawal.getWallet().getId())).thenReturn(false);
+
+        broadcaster.recoverStuck();
+
+        verifyNoInteractions(nonceManager);
+        verify(transactionRepository, never()).transitionStatus(any(), any(), any());
+    }
+
+    @Test
+    void testBroadcast_SkipsRowNoLongerProcessing() {
+        withdrawal.setStatus(TransactionStatus.SENT);
+
+        broadcaster.broadcast(withdrawal.getId());
+
+        verifyNoInteractions(ethereumService);
+    }
+
+    private void stuck() {
+        when(transactionRepository.findStuckWithdrawals(eq(BlockchainNetwork.TON), any())).thenReturn(List.of(withdrawal));
+        lenient().when(shardLeaseManager.owns(withdrawal.getWallet().getId())).thenReturn(true);
+    }
+
+    private NonceReservation reservation(NonceStatus status) {
+        return NonceReservation.builder()
+                .id(UUID.randomUUID())
+                .network(BlockchainNetwork.ETHEREUM_SEPOLIA)
+                .sender("0xsender")
+                .nonce(7L)
+                .status(status)
+                .transactionHash(status == NonceStatus.SENT ? "0xsigned" : null)
+                .reference(withdrawal.getId())
+                .build();
+    }
+}
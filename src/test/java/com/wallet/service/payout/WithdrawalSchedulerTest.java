@@ -0,0 +1,176 @@
+package com.wallet.service.payout;
+
+import com.wallet.config.WithdrawalScheduleConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.model.enums.WithdrawalPriority;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.FeeOracle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WithdrawalSchedulerTest {
+
+    private static final BlockchainNetwork ETH = BlockchainNetwork.ETHEREUM_SEPOLIA;
+    private static final long GWEI = 1_000_000_000L;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private FeeOracle feeOracle;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WithdrawalScheduleConfig config;
+    private WithdrawalScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        config = new WithdrawalScheduleConfig();
+        config.setEnabled(true);
+        config.setEconomyMaxBaseFee(BigInteger.valueOf(10 * GWEI));
+        config.setEconomyMaxWait(3600000);
+        config.setEconomyBatchSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new WithdrawalScheduler(transactionRepository, transactionService, feeOracle, config, meterRegistry);
+        lenient().when(transactionService.processApprovedWithdrawTransactions(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(feeOracle.isFresh(any())).thenReturn(true);
+    }
+
+    @Test
+    void testRun_UrgentGoesOutWhileEconomyWaitsForLowerFee() {
+        Transaction urgent = withdrawal(WithdrawalPriority.URGENT, 1);
+        Transaction economy = withdrawal(WithdrawalPriority.ECONOMY, 1);
+        approved(urgent, economy);
+        baseFee(30);
+
+        scheduler.run();
+
+        assertEquals(List.of(urgent), released());
+        assertEquals(1.0, meterRegistry.get("withdrawal.economy.held").gauge().value());
+    }
+
+    @Test
+    void testRun_LowerFeeReleasesEconomyInBatchesOldestFirst() {
+        Transaction newest = withdrawal(WithdrawalPriority.ECONOMY, 1);
+        Transaction oldest = withdrawal(WithdrawalPriority.ECONOMY, 30);
+        Transaction middle = withdrawal(WithdrawalPriority.ECONOMY, 10);
+        approved(newest, oldest, middle);
+        baseFee(20);
+        scheduler.run();
+        verify(transactionService, never()).processApprovedWithdrawTransactions(anyList());
+
+        baseFee(10);
+        scheduler.run();
+
+        assertEquals(List.of(oldest, middle), released());
+        assertEquals(2.0, meterRegistry.get("withdrawal.economy.released").tag("reason", "base_fee").counter().count());
+        assertEquals(0.5, meterRegistry.get("withdrawal.economy.fee_saving").gauge().value(), 1e-9);
+        assertEquals(1.0, meterRegistry.get("withdrawal.economy.held").gauge().value());
+    }
+
+    @Test
+    void testRun_EconomyPastMaxWaitGoesOutWhateverTheFee() {
+        Transaction overdue = withdrawal(WithdrawalPriority.ECONOMY, 61);
+        Transaction recent = withdrawal(WithdrawalPriority.ECONOMY, 5);
+        approved(overdue, recent);
+        baseFee(30);
+
+        scheduler.run();
+
+        assertEquals(List.of(overdue), released());
+        assertEquals(1.0, meterRegistry.get("withdrawal.economy.released").tag("reason", "max_wait").counter().count());
+    }
+
+    @Test
+    void testRun_EconomyWithoutFeeQuoteWaitsForMaxWait() {
+        Transaction overdue = withdrawal(WithdrawalPriority.ECONOMY, 61);
+        Transaction recent = withdrawal(WithdrawalPriority.ECONOMY, 1);
+        overdue.setNetwork(BlockchainNetwork.TON);
+        recent.setNetwork(BlockchainNetwork.TON);
+        approved(overdue, recent);
+        when(feeOracle.getQuote(BlockchainNetwork.TON)).thenReturn(Optional.empty());
+
+        scheduler.run();
+
+        assertEquals(List.of(overdue), released());
+        assertEquals(1.0, meterRegistry.get("withdrawal.economy.released").tag("reason", "max_wait").counter().count());
+        assertEquals(1.0, meterRegistry.get("withdrawal.economy.held").gauge().value());
+    }
+
+    @Test
+    void testRun_StaleLowQuoteStillHoldsEconomy() {
+        Transaction economy = withdrawal(WithdrawalPriority.ECONOMY, 1);
+        approved(economy);
+        baseFee(5);
+        when(feeOracle.isFresh(any())).thenReturn(false);
+
+        scheduler.run();
+
+        verify(transactionService, never()).processApprovedWithdrawTransactions(anyList());
+        assertEquals(1.0, meterRegistry.get("withdrawal.economy.held").gauge().value());
+    }
+
+    @Test
+    void testRun_DisabledSendsNothing() {
+        config.setEnabled(false);
+
+        scheduler.run();
+
+        verifyNoInteractions(transactionRepository, transactionService);
+    }
+
+    private void approved(Transaction... withdrawals) {
+        when(transactionRepository.findByStatus(TransactionStatus.APPROVED)).thenReturn(List.of(withdrawals));
+    }
+
+    private void baseFee(long gwei) {
+        when(feeOracle.getQuote(ETH)).thenReturn(Optional.of(new FeeOracle.FeeQuote(ETH, 100,
+                BigInteger.valueOf(gwei * GWEI), 21000, Map.of(), Instant.now())));
+    }
+
+    private List<Transaction> released() {
+        ArgumentCaptor<List<Transaction>> released = ArgumentCaptor.forClass(List.class);
+        verify(transactionService).processApprovedWithdrawTransactions(released.capture());
+        return released.getValue();
+    }
+
+    private Transaction withdrawal(WithdrawalPriority priority, long approvedMinutesAgo) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .network(ETH)
+                .type(TransactionType.WITHDRAWAL)
+                .amount(BigDecimal.ONE)
+                .status(TransactionStatus.APPROVED)
+                .priority(priority)
+                .approvedAt(LocalDateTime.now().minusMinutes(approvedMinutesAgo))
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.blockchain.BlockchainService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountChangeDetectorTest {
+
+    @Mock
+    private ScanCursorStore scanCursorStore;
+
+    @Mock
+    private BlockchainService tonService;
+
+    private AccountChangeDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new AccountChangeDetector(scanCursorStore, Map.of(BlockchainNetwork.TON, tonService));
+    }
+
+    @Test
+    void testFilterChanged_KeepsOnlyWalletsAheadOfCursor() {
+        Wallet idle = wallet("idle");
+        Wallet active = wallet("active");
+        Wallet unreadable = wallet("unreadable");
+        when(tonService.getAccountHeads(anyCollection())).thenReturn(Map.of(
+                "idle", new BlockchainService.AccountHead(100, "h100"),
+                "active", new BlockchainService.AccountHead(250, "h250")));
+        when(scanCursorStore.get(any(Wallet.class)))
+                .thenReturn(new ScanCursorStore.Position(BlockchainNetwork.TON, 100L, "h100"));
+
+        List<AccountChangeDetector.ChangedWallet> changed =
+                detector.filterChanged(BlockchainNetwork.TON, List.of(idle, active, unreadable));
+
+        assertEquals(List.of(
+                new AccountChangeDetector.ChangedWallet(active, new BlockchainService.AccountHead(250, "h250")),
+                new AccountChangeDetector.ChangedWallet(unreadable, null)), changed);
+        verify(tonService, times(1)).getAccountHeads(anyCollection());
+    }
+
+    @Test
+    void testFilterChanged_NetworkWithoutAccountHeadsKeepsAll() {
+        when(tonService.getAccountHeads(anyCollection())).thenReturn(Map.of());
+
+        List<Wallet> wallets = List.of(wallet("a"), wallet("b"));
+
+        assertEquals(2, detector.filterChanged(BlockchainNetwork.TON, wallets).size());
+        verifyNoInteractions(scanCursorStore);
+    }
+
+    private static Wallet wallet(String address) {
+        return Wallet.builder()
+                .id(UUID.randomUUID())
+                .network(BlockchainNetwork.TON)
+                .address(address)
+                .build();
+    }
+}
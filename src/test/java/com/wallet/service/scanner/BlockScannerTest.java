@@ -0,0 +1,181 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.BlockCursor;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.repository.BlockCursorRepository;
+import com.wallet.repository.ScanCursorRepository;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.ScannerService;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.BlockchainService.BlockHeader;
+import com.wallet.service.blockchain.ChainHeadTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlockScannerTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.ETHEREUM_SEPOLIA;
+
+    @Mock
+    private BlockchainService ethereumService;
+
+    @Mock
+    private DepositAddressIndex depositAddressIndex;
+
+    @Mock
+    private ScannerService scannerService;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    @Mock
+    private ChainHeadTracker headTracker;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private DepositDeduplicator depositDeduplicator;
+
+    @Mock
+    private ScanCursorRepository scanCursorRepository;
+
+    @Mock
+    private BlockCursorRepository blockCursorRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final BlockingChain chain = new BlockingChain();
+    private ScanCursorStore scanCursorStore;
+    private ConfirmationTracker confirmationTracker;
+    private BlockScanner blockScanner;
+
+    @BeforeEach
+    void setUp() {
+        ScanEngineConfig config = new ScanEngineConfig();
+        config.setReorgWindow(8);
+        Map<BlockchainNetwork, BlockchainService> services = Map.of(NETWORK, ethereumService);
+        scanCursorStore = new ScanCursorStore(scanCursorRepository, blockCursorRepository, jdbcTemplate, shardLeaseManager);
+        confirmationTracker = new ConfirmationTracker(services, transactionRepository, transactionService,
+                scanCursorStore, depositDeduplicator, new PendingConfirmationQueue(), config, headTracker,
+                shardLeaseManager);
+        blockScanner = new BlockScanner(services, depositAddressIndex, scannerService, scanCursorStore,
+                shardLeaseManager, confirmationTracker, config, headTracker);
+
+        when(shardLeaseManager.ownsNetwork(NETWORK)).thenReturn(true);
+        when(ethereumService.getBlockSource()).thenReturn(Optional.of(chain));
+        lenient().when(ethereumService.getRequiredConfirmations()).thenReturn(3);
+        when(depositAddressIndex.getAddresses(NETWORK)).thenReturn(Map.of());
+        lenient().when(blockCursorRepository.findById(NETWORK))
+                .thenReturn(Optional.of(BlockCursor.builder().network(NETWORK).height(19L).build()));
+        when(headTracker.getHeight(NETWORK)).thenReturn(20L);
+        chain.extend("a", 20);
+    }
+
+    @Test
+    void testScan_RollbackDuringScanIsNotOverwritten() throws Exception {
+        confirmationTracker.onHead(NETWORK, 20);
+        CompletableFuture<Long> scan = CompletableFuture.supplyAsync(() -> blockScanner.scan(NETWORK));
+        assertTrue(chain.reading.await(5, TimeUnit.SECONDS));
+
+        // Blocks 18.. are replaced while the scan is still reading block 20 of the old branch
+        chain.replaceFrom(18, "b", 21);
+        CompletableFuture<Void> reorg = CompletableFuture.runAsync(() -> confirmationTracker.onHead(NETWORK, 21));
+        // The rollback must wait for the running scan instead of rewinding under it
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!scanCursorStore.blockLock(NETWORK).hasQueuedThreads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(scanCursorStore.blockLock(NETWORK).hasQueuedThreads());
+        verify(transactionService, never()).rollbackOrphanedDeposits(any(), anyLong());
+        chain.release.countDown();
+
+        assertEquals(1L, scan.get(5, TimeUnit.SECONDS));
+        reorg.get(5, TimeUnit.SECONDS);
+        verify(transactionService).rollbackOrphanedDeposits(NETWORK, 17);
+        assertEquals(Optional.of(17L), scanCursorStore.getBlockHeight(NETWORK));
+    }
+
+    @Test
+    void testScan_StartsBehindHeadWithoutCursor() {
+        when(blockCursorRepository.findById(NETWORK)).thenReturn(Optional.empty());
+        chain.release.countDown();
+
+        // blockLookback (256) reaches back past genesis, so the whole chain is read
+        assertEquals(21L, blockScanner.scan(NETWORK));
+        verify(scannerService, never()).processBlockTransfers(any(), any(), anyList());
+        assertEquals(Optional.of(20L), scanCursorStore.getBlockHeight(NETWORK));
+    }
+
+    /**
+     * In-memory chain whose transfer reads wait until released, to hold a scan mid-range.
+     */
+    private static class BlockingChain implements BlockchainService.BlockSource {
+
+        private final TreeMap<Long, String> hashes = new TreeMap<>();
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        synchronized void extend(String prefix, long toHeight) {
+            for (long height = hashes.isEmpty() ? 0 : hashes.lastKey() + 1; height <= toHeight; height++) {
+                hashes.put(height, prefix + height);
+            }
+        }
+
+        synchronized void replaceFrom(long height, String prefix, long toHeight) {
+            hashes.tailMap(height, true).clear();
+            extend(prefix, toHeight);
+        }
+
+        @Override
+        public synchronized long getHeadHeight() {
+            return hashes.lastKey();
+        }
+
+        @Override
+        public List<Transaction> getIncomingTransfers(long fromHeight, long toHeight, Set<String> watched) {
+            reading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }
+
+        @Override
+        public synchronized List<BlockHeader> getHeaders(long fromHeight, long toHeight) {
+            List<BlockHeader> headers = new ArrayList<>();
+            for (long height = fromHeight; height <= toHeight; height++) {
+                headers.add(new BlockHeader(height, hashes.get(height), height == 0 ? null : hashes.get(height - 1)));
+            }
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.BlockchainService;
+import com.wallet.service.blockchain.BlockchainService.BlockHeader;
+import com.wallet.service.blockchain.ChainHeadTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConfirmationTrackerTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.ETHEREUM_SEPOLIA;
+
+    @Mock
+    private BlockchainService ethereumService;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private ScanCursorStore scanCursorStore;
+
+    @Mock
+    private DepositDeduplicator depositDeduplicator;
+
+    @Mock
+    private ChainHeadTracker headTracker;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    private final StubChain chain = new StubChain();
+    private final PendingConfirmationQueue pendingQueue = new PendingConfirmationQueue();
+    private ConfirmationTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        ScanEngineConfig config = new ScanEngineConfig();
+        config.setReorgWindow(8);
+        tracker = new ConfirmationTracker(Map.of(NETWORK, ethereumService), transactionRepository,
+                transactionService, scanCursorStore, depositDeduplicator, pendingQueue, config, headTracker, shardLeaseManager);
+        lenient().when(shardLeaseManager.ownsNetwork(NETWORK)).thenReturn(true);
+        lenient().when(scanCursorStore.blockLock(NETWORK)).thenReturn(new ReentrantLock());
+        lenient().when(ethereumService.getBlockSource()).thenReturn(Optional.of(chain));
+        lenient().when(ethereumService.getRequiredConfirmations()).thenReturn(3);
+        chain.extend("a", 20);
+    }
+
+    @Test
+    void testOnHead_ConfirmationsFollowHead() {
+        tracker.onHead(NETWORK, 20);
+        chain.extend("a", 22);
+        tracker.onHead(NETWORK, 22);
+
+        assertEquals(Optional.of(3), tracker.getConfirmations(NETWORK, 20, "a20"));
+        verify(transactionService, never()).rollbackOrphanedDeposits(any(), anyLong());
+    }
+
+    @Test
+    void testOnHead_ReorgRollsBackOrphanedBlocks() {
+        tracker.onHead(NETWORK, 20);
+        chain.replaceFrom(18, "b", 21);
+        Transaction orphaned = pendingDeposit(19, "a19");
+        orphaned.setTransactionHash("tx1");
+        when(transactionService.rollbackOrphanedDeposits(NETWORK, 17)).thenReturn(List.of(orphaned));
+
+        tracker.onHead(NETWORK, 21);
+
+        verify(depositDeduplicator).forget(NETWORK, List.of("tx1"));
+        verify(scanCursorStore).rewindBlock(NETWORK, 17);
+        verify(scanCursorStore).rewind(orphaned.getWallet().getId(), NETWORK, 18);
+        assertEquals(Optional.of(0), tracker.getConfirmations(NETWORK, 19, "a19"));
+        assertEquals(Optional.of(3), tracker.getConfirmations(NETWORK, 19, "b19"));
+    }
+
+    @Test
+    void testOnHead_ConfirmsOnlyDueCanonicalDeposits() {
+        Transaction canonical = pendingDeposit(17, "a17");
+        Transaction orphaned = pendingDeposit(16, "x16");
+        Transaction recent = pendingDeposit(20, "a20");
+        when(transactionRepository.findByNetworkAndTypeAndStatusAndBlockNumberNotNull(
+                NETWORK, TransactionType.DEPOSIT, TransactionStatus.PENDING))
+                .thenReturn(List.of(canonical, orphaned, recent));
+
+        tracker.onHead(NETWORK, 20);
+
+        ArgumentCaptor<List<PendingConfirmationQueue.Entry>> confirmed = ArgumentCaptor.forClass(List.class);
+        verify(transactionService).confirmDeposits(confirmed.capture(), eq(20L));
+        assertEquals(List.of(canonical.getId()),
+                confirmed.getValue().stream().map(PendingConfirmationQueue.Entry::transactionId).toList());
+        assertEquals(1, pendingQueue.size(NETWORK));
+
+        chain.extend("a", 22);
+        tracker.onHead(NETWORK, 22);
+
+        verify(transactionService, times(2)).confirmDeposits(anyList(), anyLong());
+        assertEquals(0, pendingQueue.size(NETWORK));
+        verify(transactionRepository, times(1)).findByNetworkAndTypeAndStatusAndBlockNumberNotNull(any(), any(), any());
+    }
+
+    @Test
+    void testOnHead_IgnoredWithoutNetworkLease() {
+        when(shardLeaseManager.ownsNetwork(NETWORK)).thenReturn(false);
+
+        tracker.onHead(NETWORK, 20);
+
+        verifyNoInteractions(transactionRepository, transactionService);
+        assertTrue(tracker.getConfirmations(NETWORK, 20, "a20").isEmpty());
+    }
+
+    @Test
+    void testLeaseLost_ForgetsChainAndPendingDeposits() {
+        ArgumentCaptor<ShardLeaseManager.Listener> listener = ArgumentCaptor.forClass(ShardLeaseManager.Listener.class);
+        tracker.subscribe();
+        verify(shardLeaseManager).subscribe(listener.capture());
+        when(transactionRepository.findByNetworkAndTypeAndStatusAndBlockNumberNotNull(
+                NETWORK, TransactionType.DEPOSIT, TransactionStatus.PENDING))
+                .thenReturn(List.of(pendingDeposit(20, "a20")));
+        tracker.onHead(NETWORK, 20);
+        int shard = Math.floorMod(NETWORK.name().hashCode(), 4);
+
+        listener.getValue().onLeaseChange(new ShardLeaseManager.LeaseChange(Set.of(), Set.of(shard), 4));
+
+        assertTrue(tracker.getConfirmations(NETWORK, 20, "a20").isEmpty());
+        assertEquals(0, pendingQueue.size(NETWORK));
+        assertTrue(pendingQueue.claimLoad(NETWORK, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testLeaseGained_ReloadsPendingDeposits() {
+        ArgumentCaptor<ShardLeaseManager.Listener> listener = ArgumentCaptor.forClass(ShardLeaseManager.Listener.class);
+        tracker.subscribe();
+        verify(shardLeaseManager).subscribe(listener.capture());
+        tracker.onHead(NETWORK, 20);
+        Transaction storedElsewhere = pendingDeposit(18, "a18");
+        when(transactionRepository.findByNetworkAndTypeAndStatusAndBlockNumberNotNull(
+                NETWORK, TransactionType.DEPOSIT, TransactionStatus.PENDING))
+                .thenReturn(List.of(storedElsewhere));
+        int shard = Math.floorMod(NETWORK.name().hashCode(), 4);
+
+        listener.getValue().onLeaseChange(new ShardLeaseManager.LeaseChange(Set.of(shard), Set.of(), 4));
+        tracker.onHead(NETWORK, 20);
+
+        verify(transactionService).confirmDeposits(argThat(due -> due.size() == 1
+                && due.get(0).transactionId().equals(storedElsewhere.getId())), eq(20L));
+    }
+
+    @Test
+    void testOnHead_FailedConfirmationIsRetried() {
+        Transaction deposit = pendingDeposit(17, "a17");
+        when(transactionRepository.findByNetworkAndTypeAndStatusAndBlockNumberNotNull(
+                NETWORK, TransactionType.DEPOSIT, TransactionStatus.PENDING))
+                .thenReturn(List.of(deposit));
+        when(transactionService.confirmDeposits(anyList(), anyLong()))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(1);
+
+        assertThrows(RuntimeException.class, () -> tracker.onHead(NETWORK, 20));
+        assertEquals(1, pendingQueue.size(NETWORK));
+
+        chain.extend("a", 21);
+        tracker.onHead(NETWORK, 21);
+
+        verify(transactionService, times(2)).confirmDeposits(anyList(), anyLong());
+        assertEquals(0, pendingQueue.size(NETWORK));
+    }
+
+    @Test
+    void testUntrackedNetworkHasNoConfirmations() {
+        assertTrue(tracker.getConfirmations(BlockchainNetwork.TON, 1, "h").isEmpty());
+    }
+
+    private static Transaction pendingDeposit(long block, String blockHash) {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setWallet(Wallet.builder().id(UUID.randomUUID()).build());
+        transaction.setAmount(BigDecimal.ONE);
+        transaction.setType(TransactionType.DEPOSIT);
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setBlockNumber(block);
+        transaction.setBlockHash(blockHash);
+        return transaction;
+    }
+
+    /**
+     * In-memory chain whose blocks can be replaced to simulate a reorg.
+     */
+    private static class StubChain implements BlockchainService.BlockSource {
+
+        private final TreeMap<Long, String> hashes = new TreeMap<>();
+
+        void extend(String prefix, long toHeight) {
+            for (long height = hashes.isEmpty() ? 0 : hashes.lastKey() + 1; height <= toHeight; height++) {
+                hashes.put(height, prefix + height);
+            }
+        }
+
+        void replaceFrom(long height, String prefix, long toHeight) {
+            hashes.tailMap(height, true).clear();
+            extend(prefix, toHeight);
+        }
+
+        @Override
+        public long getHeadHeight() {
+            return hashes.lastKey();
+        }
+
+        @Override
+        public List<Transaction> getIncomingTransfers(long fromHeight, long toHeight, Set<String> watched) {
+            return List.of();
+        }
+
+        @Override
+        public List<BlockHeader> getHeaders(long fromHeight, long toHeight) {
+            List<BlockHeader> headers = new ArrayList<>();
+            for (long height = fromHeight; height <= toHeight; height++) {
+                headers.add(new BlockHeader(height, hashes.get(height), height == 0 ? null : hashes.get(height - 1)));
+            }
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Transaction;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DepositDeduplicatorTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private DepositDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        ScanEngineConfig config = new ScanEngineConfig();
+        config.setRecentHashCacheSize(2);
+        deduplicator = new DepositDeduplicator(transactionRepository, config);
+    }
+
+    @Test
+    void testFilterNew_ResolvesBatchWithOneQuery() {
+        when(transactionRepository.findExistingHashes(eq(BlockchainNetwork.TON), eq(TransactionType.DEPOSIT), anyCollection())).thenReturn(Set.of("h2"));
+
+        List<Transaction> fresh = deduplicator.filterNew(BlockchainNetwork.TON,
+                List.of(tx("h1"), tx("h2"), tx("h1"), tx("h3")));
+
+        assertEquals(List.of("h1", "h3"), fresh.stream().map(Transaction::getTransactionHash).toList());
+        verify(transactionRepository, times(1)).findExistingHashes(eq(BlockchainNetwork.TON), eq(TransactionType.DEPOSIT), anyCollection());
+    }
+
+    @Test
+    void testFilterNew_RecentHashesSkipDatabase() {
+        deduplicator.markSeen(BlockchainNetwork.TON, List.of("h1", "h2"));
+
+        assertTrue(deduplicator.filterNew(BlockchainNetwork.TON, List.of(tx("h1"), tx("h2"))).isEmpty());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void testMarkSeen_CacheIsBounded() {
+        deduplicator.markSeen(BlockchainNetwork.TON, List.of("h1", "h2", "h3"));
+        when(transactionRepository.findExistingHashes(eq(BlockchainNetwork.TON), eq(TransactionType.DEPOSIT), anyCollection())).thenReturn(Set.of());
+
+        List<Transaction> fresh = deduplicator.filterNew(BlockchainNetwork.TON, List.of(tx("h1"), tx("h3")));
+
+        assertEquals(List.of("h1"), fresh.stream().map(Transaction::getTransactionHash).toList());
+    }
+
+    private Transaction tx(String hash) {
+        return Transaction.builder().transactionHash(hash).build();
+    }
+}
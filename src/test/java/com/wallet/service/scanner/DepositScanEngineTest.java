@@ -0,0 +1,176 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.exception.RpcThrottledException;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.ScannerService;
+import com.wallet.service.blockchain.BlockchainService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DepositScanEngineTest {
+
+    @Mock
+    private ScannerService scannerService;
+
+    @Mock
+    private BlockScanner blockScanner;
+
+    @Mock
+    private ScanTierPolicy scanTierPolicy;
+
+    @Mock
+    private AccountChangeDetector accountChangeDetector;
+
+    private ScanEngineConfig config;
+
+    private DepositScanEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        config = new ScanEngineConfig();
+        config.setConcurrency(2);
+        config.setQueueCapacity(1);
+        engine = new DepositScanEngine(scannerService, blockScanner, scanTierPolicy, accountChangeDetector, config);
+        lenient().when(accountChangeDetector.filterChanged(any(), anyList()))
+                .thenAnswer(invocation -> AccountChangeDetector.ChangedWallet.unchecked(invocation.getArgument(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testScan_PartitionsByNetworkWithoutRejecting() {
+        List<Wallet> wallets = new ArrayList<>();
+        wallets.addAll(wallets(BlockchainNetwork.TON, 30));
+        wallets.addAll(wallets(BlockchainNetwork.ETHEREUM_SEPOLIA, 20));
+
+        Map<BlockchainNetwork, ShardProgress> progress = engine.scan(wallets);
+
+        assertEquals(30, progress.get(BlockchainNetwork.TON).getCompleted());
+        assertEquals(20, progress.get(BlockchainNetwork.ETHEREUM_SEPOLIA).getCompleted());
+        assertTrue(progress.values().stream().allMatch(ShardProgress::isFinished));
+        verify(scannerService, times(50)).scanDeposits(any(Wallet.class), any());
+    }
+
+    @Test
+    void testScan_FailuresAreCountedPerShard() {
+        List<Wallet> wallets = wallets(BlockchainNetwork.TON, 5);
+        String failing = wallets.get(2).getAddress();
+        lenient().doThrow(new RuntimeException("rpc down"))
+                .when(scannerService).scanDeposits(argThat(w -> w.getAddress().equals(failing)), any());
+
+        ShardProgress progress = engine.scan(wallets).get(BlockchainNetwork.TON);
+
+        assertEquals(4, progress.getCompleted());
+        assertEquals(1, progress.getFailed());
+        assertEquals(0, progress.getRemaining());
+    }
+
+    @Test
+    void testScan_BlockModeNetworkIsScannedByBlocks() {
+        ScanEngineConfig config = new ScanEngineConfig();
+        ScanEngineConfig.ShardConfig tonShard = new ScanEngineConfig.ShardConfig();
+        tonShard.setMode(ScanEngineConfig.ScanMode.BLOCK);
+        config.getNetworks().put(BlockchainNetwork.TON, tonShard);
+        engine.shutdown();
+        engine = new DepositScanEngine(scannerService, blockScanner, scanTierPolicy, accountChangeDetector, config);
+        when(blockScanner.supports(BlockchainNetwork.TON)).thenReturn(true);
+        when(blockScanner.scan(BlockchainNetwork.TON)).thenReturn(3L);
+
+        List<Wallet> wallets = new ArrayList<>();
+        wallets.addAll(wallets(BlockchainNetwork.TON, 10));
+        wallets.addAll(wallets(BlockchainNetwork.ETHEREUM_SEPOLIA, 2));
+
+        Map<BlockchainNetwork, ShardProgress> progress = engine.scan(wallets);
+
+        assertEquals(1, progress.get(BlockchainNetwork.TON).getCompleted());
+        assertEquals(2, progress.get(BlockchainNetwork.ETHEREUM_SEPOLIA).getCompleted());
+        verify(blockScanner).scan(BlockchainNetwork.TON);
+        verify(scannerService, times(2)).scanDeposits(any(Wallet.class), any());
+    }
+
+    @Test
+    void testScan_UnchangedWalletsSkipFullScan() {
+        config.setPrecheckBatchSize(4);
+        List<Wallet> wallets = wallets(BlockchainNetwork.TON, 10);
+        Set<String> active = Set.of(wallets.get(1).getAddress(), wallets.get(7).getAddress());
+        when(accountChangeDetector.filterChanged(eq(BlockchainNetwork.TON), anyList()))
+                .thenAnswer(invocation -> invocation.<List<Wallet>>getArgument(1).stream()
+                        .filter(w -> active.contains(w.getAddress()))
+                        .map(w -> new AccountChangeDetector.ChangedWallet(w, new BlockchainService.AccountHead(5, "h5")))
+                        .toList());
+
+        ShardProgress progress = engine.scan(wallets).get(BlockchainNetwork.TON);
+
+        assertEquals(2, progress.getCompleted());
+        assertEquals(8, progress.getSkipped());
+        assertEquals(0, progress.getRemaining());
+        verify(accountChangeDetector, times(3)).filterChanged(eq(BlockchainNetwork.TON), anyList());
+        verify(scannerService, times(2)).scanDeposits(any(Wallet.class), eq(new BlockchainService.AccountHead(5, "h5")));
+        verify(scanTierPolicy, times(10)).markScanned(any());
+    }
+
+    @Test
+    void testScan_ThrottledCycleIsDeferredNotFailed() {
+        config.setConcurrency(1);
+        List<Wallet> wallets = wallets(BlockchainNetwork.TON, 5);
+        doThrow(new RuntimeException("Failed to get transactions",
+                new RpcThrottledException("TON", "quota exhausted", 2000)))
+                .when(scannerService).scanDeposits(any(Wallet.class), any());
+
+        ShardProgress progress = engine.scan(wallets).get(BlockchainNetwork.TON);
+
+        assertEquals(5, progress.getThrottled());
+        assertEquals(0, progress.getFailed());
+        assertEquals(0, progress.getRemaining());
+        // Only the first wallet reached the provider; the rest stay due for the next cycle
+        verify(scannerService, times(1)).scanDeposits(any(Wallet.class), any());
+        verify(scanTierPolicy, never()).markScanned(any());
+    }
+
+    @Test
+    void testScan_ThrottledPrecheckDoesNotFallBackToFullScan() {
+        when(accountChangeDetector.filterChanged(eq(BlockchainNetwork.TON), anyList()))
+                .thenThrow(new RpcThrottledException("TON", "quota exhausted", 2000));
+
+        ShardProgress progress = engine.scan(wallets(BlockchainNetwork.TON, 3)).get(BlockchainNetwork.TON);
+
+        assertEquals(3, progress.getThrottled());
+        verify(scannerService, never()).scanDeposits(any(Wallet.class), any());
+    }
+
+    private List<Wallet> wallets(BlockchainNetwork network, int count) {
+        List<Wallet> wallets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            wallets.add(Wallet.builder()
+                    .id(UUID.randomUUID())
+                    .network(network)
+                    .address(network.name() + "-" + i)
+                    .active(true)
+                    .build());
+        }
+        return wallets;
+    }
+}
@@ -0,0 +1,100 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.service.blockchain.ChainHeadStream;
+import com.wallet.service.blockchain.ChainHeadTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HeadEventScannerTest {
+
+    @Mock
+    private BlockScanner blockScanner;
+
+    @Mock
+    private ChainHeadStream headStream;
+
+    private ScanEngineConfig config;
+    private ChainHeadTracker headTracker;
+    private HeadEventScanner headEventScanner;
+
+    @BeforeEach
+    void setUp() {
+        config = new ScanEngineConfig();
+        config.setMaxBlocksPerCycle(10);
+        headTracker = new ChainHeadTracker(new SimpleMeterRegistry());
+        headEventScanner = new HeadEventScanner(List.of(headStream), blockScanner, config, headTracker);
+        when(headStream.getNetwork()).thenReturn(BlockchainNetwork.ETHEREUM_SEPOLIA);
+        when(headStream.isEnabled()).thenReturn(true);
+        when(blockScanner.supports(BlockchainNetwork.ETHEREUM_SEPOLIA)).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        headEventScanner.shutdown();
+        headTracker.shutdown();
+    }
+
+    @Test
+    void testReconnectBackfillsUntilCaughtUp() {
+        when(blockScanner.scan(BlockchainNetwork.ETHEREUM_SEPOLIA)).thenReturn(10L, 10L, 4L);
+
+        headEventScanner.start();
+        listener().onConnected();
+
+        verify(blockScanner, timeout(5000).times(3)).scan(BlockchainNetwork.ETHEREUM_SEPOLIA);
+    }
+
+    @Test
+    void testNewHeadTriggersScan() {
+        when(blockScanner.scan(BlockchainNetwork.ETHEREUM_SEPOLIA)).thenReturn(1L);
+
+        headEventScanner.start();
+        listener().onHead(500);
+
+        verify(blockScanner, timeout(5000).atLeastOnce()).scan(BlockchainNetwork.ETHEREUM_SEPOLIA);
+    }
+
+    @Test
+    void testPolledHeadTriggersScanInBlockMode() {
+        ScanEngineConfig.ShardConfig tonConfig = new ScanEngineConfig.ShardConfig();
+        tonConfig.setMode(ScanEngineConfig.ScanMode.BLOCK);
+        config.getNetworks().put(BlockchainNetwork.TON, tonConfig);
+        when(blockScanner.supports(BlockchainNetwork.TON)).thenReturn(true);
+        when(blockScanner.scan(BlockchainNetwork.TON)).thenReturn(1L);
+
+        headEventScanner.start();
+        headTracker.publish(BlockchainNetwork.TON, 42);
+
+        verify(blockScanner, timeout(5000).times(1)).scan(BlockchainNetwork.TON);
+    }
+
+    @Test
+    void testPolledHeadIgnoredInWalletMode() {
+        headEventScanner.start();
+        headTracker.publish(BlockchainNetwork.TON, 42);
+        // Published after TON's, so its scan shows the TON head has been dispatched
+        headTracker.publish(BlockchainNetwork.ETHEREUM_SEPOLIA, 500);
+
+        verify(blockScanner, timeout(5000).atLeastOnce()).scan(BlockchainNetwork.ETHEREUM_SEPOLIA);
+        verify(blockScanner, never()).scan(BlockchainNetwork.TON);
+    }
+
+    private ChainHeadStream.Listener listener() {
+        ArgumentCaptor<ChainHeadStream.Listener> captor = ArgumentCaptor.forClass(ChainHeadStream.Listener.class);
+        verify(headStream).start(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,164 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.model.enums.TransactionStatus;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService;
+import com.wallet.service.blockchain.BlockchainService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingTransactionPollerTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.ETHEREUM_SEPOLIA;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private BlockchainService ethereumService;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    private PendingTransactionPoller poller;
+    private final Wallet wallet = Wallet.builder().id(UUID.randomUUID()).network(NETWORK).build();
+
+    @BeforeEach
+    void setUp() {
+        poller = new PendingTransactionPoller(transactionRepository, transactionService, Map.of(NETWORK, ethereumService),
+                shardLeaseManager);
+        lenient().when(shardLeaseManager.owns(any())).thenReturn(true);
+    }
+
+    @Test
+    void testPoll_SkipsRowsOfWalletsOwnedElsewhere() {
+        Wallet foreign = Wallet.builder().id(UUID.randomUUID()).network(NETWORK).build();
+        Transaction owned = row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xw");
+        Transaction other = row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xforeign");
+        other.setWallet(foreign);
+        when(shardLeaseManager.owns(foreign.getId())).thenReturn(false);
+        when(transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(anyCollection()))
+                .thenReturn(List.of(owned, other));
+        when(ethereumService.getTransactionDetails(List.of("0xw"))).thenReturn(Map.of());
+
+        poller.poll();
+
+        verify(ethereumService).getTransactionDetails(List.of("0xw"));
+    }
+
+    @Test
+    void testPoll_ConfirmsFinalSentWithdrawal() {
+        Transaction sent = row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xw");
+        when(transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(anyCollection()))
+                .thenReturn(List.of(sent));
+        when(ethereumService.getTransactionDetails(List.of("0xw")))
+                .thenReturn(Map.of("0xw", details("0xw", 100L, 12, true)));
+        when(transactionRepository.confirmSent(eq(sent.getId()), eq(100L), eq(12), any(), any())).thenReturn(1);
+
+        poller.poll();
+
+        verify(transactionRepository).confirmSent(eq(sent.getId()), eq(100L), eq(12), any(), any());
+        verify(transactionRepository, never()).recordConfirmations(any(), any(), any(), any());
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void testPoll_RecordsProgressOfUnconfirmedRows() {
+        Transaction sent = row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xw");
+        Transaction unknown = row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xmissing");
+        when(transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(anyCollection()))
+                .thenReturn(List.of(sent, unknown));
+        when(ethereumService.getTransactionDetails(List.of("0xw", "0xmissing")))
+                .thenReturn(Map.of("0xw", details("0xw", 100L, 3, false)));
+
+        poller.poll();
+
+        verify(transactionRepository).recordConfirmations(sent.getId(), TransactionStatus.SENT, 100L, 3);
+        verify(transactionRepository, never()).confirmSent(any(), any(), any(), any(), any());
+        verify(transactionRepository, never()).recordConfirmations(eq(unknown.getId()), any(), any(), any());
+    }
+
+    @Test
+    void testPoll_CreditsFinalDepositsInOneCall() {
+        Transaction deposit = row(TransactionType.DEPOSIT, TransactionStatus.PENDING, "0xd");
+        when(transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(anyCollection()))
+                .thenReturn(List.of(deposit));
+        when(ethereumService.getTransactionDetails(List.of("0xd")))
+                .thenReturn(Map.of("0xd", details("0xd", 90L, 15, true)));
+
+        poller.poll();
+
+        ArgumentCaptor<List<PendingConfirmationQueue.Entry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(transactionService).confirmDeposits(entries.capture(), eq(104L));
+        PendingConfirmationQueue.Entry entry = entries.getValue().get(0);
+        assertEquals(deposit.getId(), entry.transactionId());
+        assertEquals(wallet.getId(), entry.walletId());
+        assertEquals(90L, entry.blockNumber());
+    }
+
+    @Test
+    void testPoll_NodeErrorLeavesRowsUntouched() {
+        when(transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(anyCollection()))
+                .thenReturn(List.of(row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xw")));
+        when(ethereumService.getTransactionDetails(anyCollection())).thenThrow(new RuntimeException("node down"));
+
+        poller.poll();
+
+        verify(transactionRepository, never()).confirmSent(any(), any(), any(), any(), any());
+        verify(transactionRepository, never()).recordConfirmations(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPoll_RowWithoutNetworkFollowsItsWallet() {
+        Transaction legacy = row(TransactionType.WITHDRAWAL, TransactionStatus.SENT, "0xlegacy");
+        legacy.setNetwork(null);
+        when(transactionRepository.findByStatusInAndTransactionHashIsNotNullAndBlockHashIsNull(anyCollection()))
+                .thenReturn(List.of(legacy));
+        when(ethereumService.getTransactionDetails(List.of("0xlegacy")))
+                .thenReturn(Map.of("0xlegacy", details("0xlegacy", 100L, 12, true)));
+        when(transactionRepository.confirmSent(eq(legacy.getId()), eq(100L), eq(12), any(), any())).thenReturn(1);
+
+        poller.poll();
+
+        verify(transactionRepository).confirmSent(eq(legacy.getId()), eq(100L), eq(12), any(), any());
+    }
+
+    private Transaction row(TransactionType type, TransactionStatus status, String hash) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .wallet(wallet)
+                .network(NETWORK)
+                .type(type)
+                .amount(BigDecimal.ONE)
+                .status(status)
+                .transactionHash(hash)
+                .build();
+    }
+
+    private BlockchainService.TransactionDetails details(String hash, Long blockNumber, int confirmations,
+                                                         boolean confirmed) {
+        return new BlockchainService.TransactionDetails(hash, "0xfrom", "0xto", BigDecimal.ONE,
+                new BigDecimal("0.0001"), blockNumber, confirmations, confirmed);
+    }
+}
@@ -0,0 +1,189 @@
+package com.wallet.service.scanner;
+
+import com.wallet.model.BlockCursor;
+import com.wallet.model.ScanCursor;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.BlockchainNetwork;
+import com.wallet.repository.BlockCursorRepository;
+import com.wallet.repository.ScanCursorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScanCursorStoreTest {
+
+    private static final BlockchainNetwork NETWORK = BlockchainNetwork.TON;
+    private static final ScanCursorStore.Position START = new ScanCursorStore.Position(NETWORK, 0L, "");
+
+    @Mock
+    private ScanCursorRepository scanCursorRepository;
+
+    @Mock
+    private BlockCursorRepository blockCursorRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ShardLeaseManager shardLeaseManager;
+
+    private ScanCursorStore store;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        store = new ScanCursorStore(scanCursorRepository, blockCursorRepository, jdbcTemplate, shardLeaseManager);
+        wallet = Wallet.builder().id(UUID.randomUUID()).network(NETWORK).address("w").build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testAdvance_AppliedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        store.advance(wallet, START, 10L, "h10");
+
+        assertEquals(0L, store.get(wallet).lt());
+        store.flush();
+        verifyNoInteractions(jdbcTemplate);
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(new ScanCursorStore.Position(NETWORK, 10L, "h10"), store.get(wallet));
+    }
+
+    @Test
+    void testAdvance_RolledBackScanLeavesCursor() {
+        TransactionSynchronizationManager.initSynchronization();
+        store.advanceBlock(NETWORK, 100);
+
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertTrue(store.getBlockHeight(NETWORK).isEmpty());
+        store.flush();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testFlush_WritesDirtyCursorsOnce() {
+        store.advance(wallet, store.get(wallet), 10L, "h10");
+        store.advanceBlock(NETWORK, 100);
+
+        store.flush();
+        store.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO scan_cursors"), rows.capture());
+        assertArrayEquals(new Object[]{wallet.getId(), NETWORK.name(), 10L, "h10"},
+                Arrays.copyOf(rows.getValue().get(0), 4));
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO block_cursors"), anyList());
+    }
+
+    @Test
+    void testFlush_FailedWriteIsRetried() {
+        store.advanceBlock(NETWORK, 100);
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO block_cursors"), anyList()))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(new int[]{1});
+
+        store.flush();
+        store.flush();
+        store.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO block_cursors"), anyList());
+    }
+
+    @Test
+    void testRewindBlock_OnlyMovesBack() {
+        when(blockCursorRepository.findById(NETWORK))
+                .thenReturn(Optional.of(BlockCursor.builder().network(NETWORK).height(100L).build()));
+
+        store.rewindBlock(NETWORK, 120);
+        assertEquals(Optional.of(100L), store.getBlockHeight(NETWORK));
+
+        store.rewindBlock(NETWORK, 90);
+        assertEquals(Optional.of(90L), store.getBlockHeight(NETWORK));
+        store.flush();
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO block_cursors"), anyList());
+    }
+
+    @Test
+    void testRewind_ScanRunningDuringRewindDoesNotMoveCursorPastIt() {
+        when(scanCursorRepository.findByNetwork(NETWORK)).thenReturn(List.of(ScanCursor.builder()
+                .walletId(wallet.getId()).network(NETWORK).lastLt(50L).lastHash("h50").build()));
+        ScanCursorStore.Position from = store.get(wallet);
+
+        store.rewind(wallet.getId(), NETWORK, 40);
+        store.rewind(wallet.getId(), NETWORK, 45);
+        store.advance(wallet, from, 70L, "h70");
+
+        assertEquals(new ScanCursorStore.Position(NETWORK, 40L, ""), store.get(wallet));
+        store.advance(wallet, store.get(wallet), 70L, "h70");
+        assertEquals(70L, store.get(wallet).lt());
+    }
+
+    @Test
+    void testLeaseLost_DropsCachedCursorsUnflushed() {
+        when(scanCursorRepository.findByNetwork(NETWORK)).thenReturn(List.of(ScanCursor.builder()
+                .walletId(wallet.getId()).network(NETWORK).lastLt(50L).lastHash("h50").build()));
+        store.advance(wallet, store.get(wallet), 60L, "h60");
+        store.advanceBlock(NETWORK, 100);
+        int walletShard = Math.floorMod(wallet.getId().hashCode(), 4);
+        int networkShard = Math.floorMod(NETWORK.name().hashCode(), 4);
+
+        store.onLeaseChange(new ShardLeaseManager.LeaseChange(Set.of(), Set.copyOf(List.of(walletShard, networkShard)), 4));
+        store.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(new ScanCursorStore.Position(NETWORK, 50L, "h50"), store.get(wallet));
+        assertTrue(store.getBlockHeight(NETWORK).isEmpty());
+    }
+
+    @Test
+    void testAdvance_ScanEndingAfterLeaseLossDoesNotRestoreCursor() {
+        ScanCursorStore.Position from = store.get(wallet);
+        int walletShard = Math.floorMod(wallet.getId().hashCode(), 4);
+        store.onLeaseChange(new ShardLeaseManager.LeaseChange(Set.of(), Set.of(walletShard), 4));
+        when(shardLeaseManager.owns(wallet.getId())).thenReturn(false);
+
+        store.advance(wallet, from, 70L, "h70");
+        store.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(0L, store.get(wallet).lt());
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.TonConfig;
+import com.wallet.model.Wallet;
+import com.wallet.model.enums.ScanTier;
+import com.wallet.model.enums.TransactionType;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScanTierPolicyTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    private TonConfig tonConfig;
+    private ScanTierPolicy policy;
+
+    private final Wallet recent = wallet();
+    private final Wallet lastMonth = wallet();
+    private final Wallet dormant = wallet();
+
+    @BeforeEach
+    void setUp() {
+        tonConfig = new TonConfig();
+        tonConfig.setScanner(new TonConfig.ScannerConfig());
+        policy = new ScanTierPolicy(transactionRepository, tonConfig, walletRepository);
+
+        when(transactionRepository.findLastActivityByType(TransactionType.DEPOSIT)).thenReturn(List.of(
+                activity(recent.getId(), LocalDateTime.now().minusMinutes(5)),
+                activity(lastMonth.getId(), LocalDateTime.now().minusDays(3))));
+        when(transactionRepository.findWalletIdsByTypeAndStatusIn(any(), anyCollection())).thenReturn(Set.of());
+    }
+
+    @Test
+    void testTiersFollowLastDeposit() {
+        policy.selectDue(List.of());
+
+        assertEquals(ScanTier.HOT, policy.getTier(recent));
+        assertEquals(ScanTier.WARM, policy.getTier(lastMonth));
+        assertEquals(ScanTier.COLD, policy.getTier(dormant));
+    }
+
+    @Test
+    void testSelectDue_SkipsRecentlyScannedWarmAndColdWallets() {
+        List<Wallet> wallets = List.of(recent, lastMonth, dormant);
+        assertEquals(3, policy.selectDue(wallets).size());
+
+        wallets.forEach(wallet -> policy.markScanned(wallet.getId()));
+
+        assertTrue(policy.selectDue(wallets).isEmpty());
+        verify(transactionRepository, times(1)).findLastActivityByType(TransactionType.DEPOSIT);
+    }
+
+    @Test
+    void testExpectDeposit_HintTakenOnAnotherNodePromotesWalletAndMakesItDue() throws InterruptedException {
+        policy.selectDue(List.of(dormant));
+        policy.markScanned(dormant.getId());
+        assertTrue(policy.selectDue(List.of(dormant)).isEmpty());
+        Thread.sleep(5);
+
+        new ScanTierPolicy(transactionRepository, tonConfig, walletRepository).expectDeposit(dormant.getId());
+
+        ArgumentCaptor<LocalDateTime> until = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(walletRepository).extendHotUntil(eq(dormant.getId()), until.capture());
+        // The owner reads the wallet again on its next cycle
+        Wallet reloaded = Wallet.builder().id(dormant.getId()).hotUntil(until.getValue()).build();
+        assertEquals(ScanTier.HOT, policy.getTier(reloaded));
+        assertEquals(List.of(reloaded), policy.selectDue(List.of(reloaded)));
+        policy.markScanned(dormant.getId());
+        assertTrue(policy.selectDue(List.of(reloaded)).isEmpty());
+    }
+
+    private static Wallet wallet() {
+        return Wallet.builder().id(UUID.randomUUID()).build();
+    }
+
+    private static TransactionRepository.WalletActivity activity(UUID walletId, LocalDateTime lastAt) {
+        return new TransactionRepository.WalletActivity() {
+            @Override
+            public UUID getWalletId() {
+                return walletId;
+            }
+
+            @Override
+            public LocalDateTime getLastAt() {
+                return lastAt;
+            }
+        };
+    }
+}
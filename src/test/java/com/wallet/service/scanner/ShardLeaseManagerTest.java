@@ -0,0 +1,108 @@
+package com.wallet.service.scanner;
+
+import com.wallet.config.ScanEngineConfig;
+import com.wallet.model.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShardLeaseManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ScanEngineConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ScanEngineConfig();
+        config.getSharding().setShardCount(4);
+    }
+
+    @Test
+    void testDisabled_OwnsEverything() {
+        ShardLeaseManager manager = new ShardLeaseManager(jdbcTemplate, config);
+        manager.heartbeat();
+
+        List<Wallet> wallets = wallets(20);
+        assertEquals(20, manager.filterOwned(wallets).size());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testHeartbeat_ClaimsFairShareAndFiltersWallets() {
+        config.getSharding().setEnabled(true);
+        ShardLeaseManager manager = new ShardLeaseManager(jdbcTemplate, config);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT"), eq(Long.class), any())).thenReturn(2L);
+        when(jdbcTemplate.queryForList(startsWith("UPDATE scan_shard_leases SET leased_until"), eq(Integer.class), any(), any()))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("UPDATE scan_shard_leases SET owner"), eq(Integer.class), any(), any(), any(), eq(2)))
+                .thenReturn(List.of(0, 1));
+
+        manager.heartbeat();
+
+        for (Wallet wallet : wallets(50)) {
+            int shard = Math.floorMod(wallet.getId().hashCode(), 4);
+            assertEquals(shard < 2, manager.owns(wallet.getId()));
+        }
+    }
+
+    @Test
+    void testHeartbeat_ReleasesShardsAboveFairShareWhenNodeJoins() {
+        config.getSharding().setEnabled(true);
+        ShardLeaseManager manager = new ShardLeaseManager(jdbcTemplate, config);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT"), eq(Long.class), any())).thenReturn(2L);
+        when(jdbcTemplate.queryForList(startsWith("UPDATE scan_shard_leases SET leased_until"), eq(Integer.class), any(), any()))
+                .thenReturn(List.of(0, 1, 2, 3));
+
+        manager.heartbeat();
+
+        verify(jdbcTemplate).update(startsWith("UPDATE scan_shard_leases SET owner = NULL"), eq(3), eq(manager.getNodeId()));
+        verify(jdbcTemplate).update(startsWith("UPDATE scan_shard_leases SET owner = NULL"), eq(2), eq(manager.getNodeId()));
+        verify(jdbcTemplate, never()).queryForList(startsWith("UPDATE scan_shard_leases SET owner"), eq(Integer.class), any(), any(), any(), any());
+    }
+
+    @Test
+    void testHeartbeat_NotifiesGainedAndLostShards() {
+        config.getSharding().setEnabled(true);
+        ShardLeaseManager manager = new ShardLeaseManager(jdbcTemplate, config);
+        List<ShardLeaseManager.LeaseChange> changes = new ArrayList<>();
+        manager.subscribe(changes::add);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT"), eq(Long.class), any())).thenReturn(2L);
+        when(jdbcTemplate.queryForList(startsWith("UPDATE scan_shard_leases SET leased_until"), eq(Integer.class), any(), any()))
+                .thenReturn(List.of(), List.of(1), List.of(1, 3));
+        when(jdbcTemplate.queryForList(startsWith("UPDATE scan_shard_leases SET owner"), eq(Integer.class), any(), any(), any(), any()))
+                .thenReturn(List.of(0, 1), List.of(3));
+
+        manager.heartbeat();
+        manager.heartbeat();
+        manager.heartbeat();
+
+        assertEquals(List.of(
+                new ShardLeaseManager.LeaseChange(Set.of(0, 1), Set.of(), 4),
+                new ShardLeaseManager.LeaseChange(Set.of(3), Set.of(0), 4)), changes);
+    }
+
+    private static List<Wallet> wallets(int count) {
+        List<Wallet> wallets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            wallets.add(Wallet.builder().id(UUID.randomUUID()).address("w" + i).build());
+        }
+        return wallets;
+    }
+}